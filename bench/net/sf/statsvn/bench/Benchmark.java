@@ -0,0 +1,44 @@
+package net.sf.statsvn.bench;
+
+/**
+ * An operation measured by the {@link BenchmarkSuite}. Each iteration calls
+ * {@link #setUp()}, then {@link #run()}, which is timed, then {@link
+ * #tearDown()}. The first iterations warm up the JVM and are not part of the
+ * result.
+ */
+public abstract class Benchmark {
+	private final String name;
+
+	/**
+	 * @param name
+	 *            the name of the benchmark in the results, like
+	 *            <tt>ingest.parseLog</tt>
+	 */
+	protected Benchmark(final String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Prepares an iteration. Not timed.
+	 */
+	public void setUp() throws Exception {
+	}
+
+	/**
+	 * The measured operation.
+	 *
+	 * @return something computed by the operation, so that it cannot be
+	 *         optimized away
+	 */
+	public abstract Object run() throws Exception;
+
+	/**
+	 * Cleans up after an iteration. Not timed.
+	 */
+	public void tearDown() throws Exception {
+	}
+}
@@ -0,0 +1,125 @@
+package net.sf.statsvn.bench;
+
+import java.util.Arrays;
+
+/**
+ * The timings of the measured iterations of a {@link Benchmark}.
+ */
+public class BenchmarkResult {
+	private static final double NANOS_PER_MS = 1000000.0;
+
+	private final String name;
+
+	private final long[] samples;
+
+	/**
+	 * @param name
+	 *            the name of the benchmark
+	 * @param samples
+	 *            the duration of each iteration, in nanoseconds
+	 */
+	public BenchmarkResult(final String name, final long[] samples) {
+		this.name = name;
+		this.samples = samples;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the mean duration, in milliseconds
+	 */
+	public double getMean() {
+		double sum = 0;
+		for (int i = 0; i < samples.length; i++) {
+			sum += samples[i];
+		}
+		return sum / samples.length / NANOS_PER_MS;
+	}
+
+	/**
+	 * @return the sample standard deviation of the durations, in milliseconds
+	 */
+	public double getStandardDeviation() {
+		if (samples.length < 2) {
+			return 0;
+		}
+		final double mean = getMean();
+		double squares = 0;
+		for (int i = 0; i < samples.length; i++) {
+			final double deviation = samples[i] / NANOS_PER_MS - mean;
+			squares += deviation * deviation;
+		}
+		return Math.sqrt(squares / (samples.length - 1));
+	}
+
+	/**
+	 * @return the median duration, in milliseconds
+	 */
+	public double getMedian() {
+		final long[] sorted = (long[]) samples.clone();
+		Arrays.sort(sorted);
+		final int middle = sorted.length / 2;
+		if (sorted.length % 2 == 1) {
+			return sorted[middle] / NANOS_PER_MS;
+		}
+		return (sorted[middle - 1] + sorted[middle]) / 2.0 / NANOS_PER_MS;
+	}
+
+	/**
+	 * @return the shortest duration, in milliseconds
+	 */
+	public double getMin() {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < samples.length; i++) {
+			min = Math.min(min, samples[i]);
+		}
+		return min / NANOS_PER_MS;
+	}
+
+	/**
+	 * @return the longest duration, in milliseconds
+	 */
+	public double getMax() {
+		long max = 0;
+		for (int i = 0; i < samples.length; i++) {
+			max = Math.max(max, samples[i]);
+		}
+		return max / NANOS_PER_MS;
+	}
+
+	/**
+	 * Appends the result as a JSON object.
+	 *
+	 * @param json
+	 *            the target
+	 */
+	public void appendJson(final StringBuffer json) {
+		json.append("{\"name\": ").append(BenchmarkSuite.quote(name));
+		json.append(", \"unit\": \"ms\"");
+		json.append(", \"iterations\": ").append(samples.length);
+		json.append(", \"mean\": ").append(format(getMean()));
+		json.append(", \"median\": ").append(format(getMedian()));
+		json.append(", \"min\": ").append(format(getMin()));
+		json.append(", \"max\": ").append(format(getMax()));
+		json.append(", \"stddev\": ").append(format(getStandardDeviation()));
+		json.append(", \"samples\": [");
+		for (int i = 0; i < samples.length; i++) {
+			json.append(i > 0 ? ", " : "").append(format(samples[i] / NANOS_PER_MS));
+		}
+		json.append("]}");
+	}
+
+	/**
+	 * @return the value with three decimals, in JSON number syntax
+	 */
+	static String format(final double value) {
+		return String.valueOf(Math.round(value * 1000) / 1000.0);
+	}
+
+	public String toString() {
+		return name + ": " + format(getMean()) + " ms (+/- " + format(getStandardDeviation()) + ", min " + format(getMin()) + ", max " + format(getMax())
+		        + ")";
+	}
+}
@@ -0,0 +1,762 @@
+package net.sf.statsvn.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.Vector;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import net.sf.statcvs.Messages;
+import net.sf.statcvs.input.CommitListBuilder;
+import net.sf.statcvs.model.Author;
+import net.sf.statcvs.model.Repository;
+import net.sf.statcvs.output.ChurnPageMaker;
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statcvs.output.RepoMapPageMaker;
+import net.sf.statcvs.output.ReportConfig;
+import net.sf.statcvs.pages.AllDevelopersPageMaker;
+import net.sf.statcvs.pages.CloudCommitPageMaker;
+import net.sf.statcvs.pages.CommitLogPageGroupMaker;
+import net.sf.statcvs.pages.DeveloperPageMaker;
+import net.sf.statcvs.pages.DirectoryPageMaker;
+import net.sf.statcvs.pages.DirectorySizesPageMaker;
+import net.sf.statcvs.pages.FileSizesPageMaker;
+import net.sf.statcvs.pages.LOCPageMaker;
+import net.sf.statcvs.pages.NavigationNode;
+import net.sf.statcvs.pages.ReportSuiteMaker;
+import net.sf.statsvn.input.Builder;
+import net.sf.statsvn.input.CacheBuilder;
+import net.sf.statsvn.input.FileBuilder;
+import net.sf.statsvn.input.RevisionData;
+import net.sf.statsvn.input.SvnLogfileParser;
+import net.sf.statsvn.input.XmlCacheStore;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.SilentLogger;
+import net.sf.statsvn.util.SvnDiffCounter;
+
+/**
+ * Measures the stages of a StatSVN run on a {@link SyntheticRepository}:
+ * parsing the svn log, resolving the implicit actions, counting the lines of
+ * the diffs, loading and saving the cache, building the model and the commit
+ * list, and writing the reports. The {@link IntegerMapBenchmarks} compare the
+ * map the reports count with to the one it replaced. The results are written as JSON, so that
+ * they can be compared from one version to the next.
+ *
+ * Run it with <tt>make bench</tt>, or with the command line options shown by
+ * <tt>-help</tt>.
+ */
+public final class BenchmarkSuite {
+	private static final String ENCODING = "UTF-8";
+
+	private final SyntheticRepository repository = new SyntheticRepository();
+
+	// the settings, in the order they are reported.
+	private final Map parameters = new LinkedHashMap();
+
+	private final List results = new ArrayList();
+
+	private int warmup = 2;
+
+	private int iterations = 5;
+
+	private Pattern include = null;
+
+	private String output = "bench-results.json";
+
+	private File workDir = null;
+
+	private boolean keepWorkDir = false;
+
+	private File workingCopy;
+
+	private File logFile;
+
+	private File cacheFile;
+
+	private File warmCacheDir;
+
+	private File outputDir;
+
+	private Repository model;
+
+	private ReportConfig config;
+
+	// results of the measured operations, so that they are not optimized away.
+	private volatile int sink = 0;
+
+	private BenchmarkSuite() {
+		parameters.put("revisions", Integer.valueOf(1000));
+		parameters.put("files", Integer.valueOf(500));
+		parameters.put("authors", Integer.valueOf(10));
+		parameters.put("tags", Integer.valueOf(10));
+		parameters.put("copy-percent", Integer.valueOf(2));
+		parameters.put("delete-percent", Integer.valueOf(5));
+		parameters.put("seed", Integer.valueOf(1));
+		parameters.put("map-keys", Integer.valueOf(5000));
+		parameters.put("map-updates", Integer.valueOf(1000000));
+	}
+
+	public static void main(final String[] args) {
+		final BenchmarkSuite suite = new BenchmarkSuite();
+		try {
+			suite.parseArguments(args);
+		} catch (final IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+		try {
+			suite.prepare();
+			suite.runAll();
+			suite.writeResults();
+		} catch (final Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		} finally {
+			suite.cleanUp();
+		}
+	}
+
+	private static void printUsage() {
+		final String cr = System.getProperty("line.separator");
+		System.err.println("Usage: java " + BenchmarkSuite.class.getName() + " [options]" + cr + cr + "Options:" + cr
+		        + "  -revisions <int>       revisions of the synthetic repository (default: 1000)" + cr
+		        + "  -files <int>           files added over its history (default: 500)" + cr
+		        + "  -authors <int>         authors (default: 10)" + cr
+		        + "  -tags <int>            tags (default: 10)" + cr
+		        + "  -copy-percent <int>    revisions copying a directory (default: 2)" + cr
+		        + "  -delete-percent <int>  revisions deleting a file or directory (default: 5)" + cr
+		        + "  -seed <int>            seed of the generator (default: 1)" + cr
+		        + "  -map-keys <int>        keys of the IntegerMap benchmarks (default: 5000)" + cr
+		        + "  -map-updates <int>     updates of the IntegerMap benchmarks (default: 1000000)" + cr
+		        + "  -warmup <int>          iterations before measuring (default: 2)" + cr
+		        + "  -iterations <int>      measured iterations (default: 5)" + cr
+		        + "  -include <regexp>      only run the benchmarks with a matching name" + cr
+		        + "  -output <file>         JSON results (default: bench-results.json)" + cr
+		        + "  -work-dir <dir>        where to generate the repository (default: a temporary directory)" + cr
+		        + "  -keep                  keep the generated files");
+	}
+
+	private void parseArguments(final String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			final String arg = args[i];
+			if (arg.equals("-keep")) {
+				keepWorkDir = true;
+				continue;
+			}
+			if (arg.equals("-help")) {
+				throw new IllegalArgumentException("StatSVN benchmarks");
+			}
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing argument for " + arg);
+			}
+			final String value = args[++i];
+			final String name = arg.startsWith("-") ? arg.substring(1) : arg;
+			if (parameters.containsKey(name)) {
+				parameters.put(name, Integer.valueOf(parseInt(arg, value)));
+			} else if (name.equals("warmup")) {
+				warmup = Math.max(0, parseInt(arg, value));
+			} else if (name.equals("iterations")) {
+				iterations = Math.max(1, parseInt(arg, value));
+			} else if (name.equals("include")) {
+				include = Pattern.compile(value);
+			} else if (name.equals("output")) {
+				output = value;
+			} else if (name.equals("work-dir")) {
+				workDir = new File(value);
+				keepWorkDir = true;
+			} else {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+	}
+
+	private static int parseInt(final String arg, final String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number for " + arg + ": " + value);
+		}
+	}
+
+	private int getParameter(final String name) {
+		return ((Integer) parameters.get(name)).intValue();
+	}
+
+	/**
+	 * Generates the repository and the files about it, and checks that the
+	 * diffs are counted as they were generated, that the implicit actions
+	 * are the same as with the former implementation, and that the IntegerMap
+	 * answers like the old one.
+	 */
+	private void prepare() throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		SvnConfigurationOptions.setTaskLogger(new SilentLogger());
+		Logger.getLogger("").setLevel(Level.WARNING);
+
+		repository.setRevisions(getParameter("revisions"));
+		repository.setFiles(getParameter("files"));
+		repository.setAuthors(getParameter("authors"));
+		repository.setTags(getParameter("tags"));
+		repository.setCopyPercent(getParameter("copy-percent"));
+		repository.setDeletePercent(getParameter("delete-percent"));
+		repository.setSeed(getParameter("seed"));
+		repository.generate();
+
+		if (workDir == null) {
+			workDir = File.createTempFile("statsvn-bench", "");
+			if (!workDir.delete()) {
+				throw new IOException("Can't create directory: " + workDir);
+			}
+		}
+		workingCopy = mkdirs(new File(workDir, "working-copy"));
+		outputDir = mkdirs(new File(workDir, "output"));
+		logFile = new File(workDir, "svn.log");
+		cacheFile = new File(workDir, "cache.xml");
+		warmCacheDir = new File(workDir, "cache-warm");
+
+		final OutputStream log = new BufferedOutputStream(new FileOutputStream(logFile));
+		try {
+			repository.writeLog(log);
+		} finally {
+			log.close();
+		}
+		repository.writeWorkingCopy(workingCopy);
+		final SyntheticFileManager fileManager = createFileManager();
+		fileManager.loadInfo();
+		repository.writeCache(cacheFile, fileManager);
+		checkDiffs();
+		checkImplicitActions();
+		new IntegerMapCheck(getParameter("seed"), 5000).check();
+
+		ConfigurationOptions.setCheckedOutDirectory(workingCopy.getPath());
+		ConfigurationOptions.setOutputDir(outputDir.getPath());
+		ConfigurationOptions.setProjectName("synthetic");
+
+		// a complete run fills the cache of the warm benchmarks
+		SvnConfigurationOptions.setCacheDir(warmCacheDir.getPath());
+		model = ingest().createRepository();
+		config = new ReportConfig(model, "synthetic", ConfigurationOptions.getOutputDir(), ConfigurationOptions.getMarkupSyntax(), ConfigurationOptions
+		        .getCssHandler(), ENCODING);
+		config.setNonDeveloperLogins(Collections.EMPTY_LIST);
+		config.setWebBugtracker(ConfigurationOptions.getWebBugtracker());
+		config.setWebRepository(ConfigurationOptions.getWebRepository());
+		config.getCssHandler().createOutputFiles();
+
+		System.out.println("Synthetic repository: " + repository.getRevisionCount() + " revisions, " + repository.getCreatedFileCount() + " files created, "
+		        + repository.getLiveFileCount() + " in the working copy, " + model.getCommits().size() + " commits in the model; " + logFile.length()
+		        + " bytes of svn log in " + workDir);
+	}
+
+	private void checkDiffs() throws IOException {
+		for (final Iterator it = repository.getChangedRevisions().iterator(); it.hasNext();) {
+			final String revision = (String) it.next();
+			final Map expected = repository.getExpectedLineDiffs(revision);
+			final Vector answer = new Vector();
+			SvnDiffCounter.countMultipleDiff(answer, new ByteArrayInputStream(repository.getRevisionDiff(revision)));
+			if (answer.size() != expected.size()) {
+				throw new IllegalStateException("r" + revision + ": " + answer.size() + " files in the diff instead of " + expected.size());
+			}
+			for (int i = 0; i < answer.size(); i++) {
+				final Object[] element = (Object[]) answer.get(i);
+				final int[] lines = (int[]) element[1];
+				final int[] expectedLines = (int[]) expected.get(element[0]);
+				if (expectedLines == null || lines[0] != expectedLines[0] || lines[1] != expectedLines[1]) {
+					throw new IllegalStateException("r" + revision + ": unexpected diff for " + element[0]);
+				}
+			}
+		}
+	}
+
+	private void checkImplicitActions() throws Exception {
+		final Builder expected = resolveImplicitActions(true);
+		final Builder actual = resolveImplicitActions(false);
+		final Map expectedFiles = expected.getFileBuilders();
+		final Map actualFiles = actual.getFileBuilders();
+		if (!expectedFiles.keySet().equals(actualFiles.keySet())) {
+			throw new IllegalStateException("implicit actions: " + actualFiles.size() + " files instead of " + expectedFiles.size());
+		}
+		if (!expected.getAtticFileNames().equals(actual.getAtticFileNames())) {
+			throw new IllegalStateException("implicit actions: " + actual.getAtticFileNames().size() + " files in the attic instead of "
+			        + expected.getAtticFileNames().size());
+		}
+		for (final Iterator it = expectedFiles.keySet().iterator(); it.hasNext();) {
+			final String name = (String) it.next();
+			final List expectedRevisions = ((FileBuilder) expectedFiles.get(name)).getRevisions();
+			final List actualRevisions = ((FileBuilder) actualFiles.get(name)).getRevisions();
+			if (!describe(expectedRevisions).equals(describe(actualRevisions))) {
+				throw new IllegalStateException("implicit actions of " + name + ": " + describe(actualRevisions) + " instead of "
+				        + describe(expectedRevisions));
+			}
+		}
+	}
+
+	/**
+	 * Parses the log and resolves the implicit actions, with the former
+	 * implementation or with the current one.
+	 */
+	private Builder resolveImplicitActions(final boolean legacy) throws Exception {
+		final SyntheticFileManager fileManager = createFileManager();
+		final Builder builder = createBuilder(fileManager);
+		final InputStream in = new FileInputStream(logFile);
+		try {
+			final StagedLogfileParser parser = legacy ? new LegacyLogfileParser(fileManager, in, builder) : new StagedLogfileParser(fileManager, in,
+			        builder);
+			parser.parseLog();
+			parser.resolveImplicitActions();
+		} finally {
+			in.close();
+		}
+		return builder;
+	}
+
+	/**
+	 * @return the revisions, like <tt>[12 D 0/0, 7 A 10/0]</tt>
+	 */
+	private static String describe(final List revisions) {
+		final StringBuffer result = new StringBuffer("[");
+		for (int i = 0; i < revisions.size(); i++) {
+			final RevisionData data = (RevisionData) revisions.get(i);
+			result.append(i > 0 ? ", " : "").append(data.getRevisionNumber());
+			result.append(data.isDeletion() ? " D" : data.isCreationOrRestore() ? " A" : data.isChange() ? " M" : " ?");
+			result.append(' ').append(data.getLinesAdded()).append('/').append(data.getLinesRemoved());
+		}
+		return result.append(']').toString();
+	}
+
+	private static File mkdirs(final File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create directory: " + directory);
+		}
+		return directory;
+	}
+
+	private SyntheticFileManager createFileManager() {
+		return new SyntheticFileManager(workingCopy.getPath(), repository);
+	}
+
+	private Builder createBuilder(final SyntheticFileManager fileManager) {
+		return new Builder(fileManager, null, null, Pattern.compile(".*"));
+	}
+
+	/**
+	 * Parses the log and counts the lines, like StatSVN does, with the current
+	 * cache directory.
+	 */
+	private Builder ingest() throws Exception {
+		final SyntheticFileManager fileManager = createFileManager();
+		final Builder builder = createBuilder(fileManager);
+		final InputStream in = new FileInputStream(logFile);
+		try {
+			new SvnLogfileParser(fileManager, in, builder).parse();
+		} finally {
+			in.close();
+		}
+		return builder;
+	}
+
+	private List createBenchmarks() {
+		final List benchmarks = new ArrayList();
+		benchmarks.add(new ParserBenchmark("ingest.parseLog", 0) {
+			public Object run() throws Exception {
+				parser.parseLog();
+				return builder.getFileBuilders();
+			}
+		});
+		benchmarks.add(new ParserBenchmark("ingest.implicitActions", 1) {
+			public Object run() throws Exception {
+				parser.resolveImplicitActions();
+				return builder.getFileBuilders();
+			}
+		});
+		benchmarks.add(new ParserBenchmark("ingest.implicitActions.old", 1) {
+			protected StagedLogfileParser createParser(final InputStream in) {
+				return new LegacyLogfileParser(fileManager, in, builder);
+			}
+
+			public Object run() throws Exception {
+				parser.resolveImplicitActions();
+				return builder.getFileBuilders();
+			}
+		});
+		benchmarks.add(new ParserBenchmark("ingest.lineCounts.cold", 2) {
+			public void setUp() throws Exception {
+				SvnConfigurationOptions.setCacheDir(emptyDirectory(new File(workDir, "cache-cold")).getPath());
+				super.setUp();
+			}
+
+			public Object run() throws Exception {
+				parser.countLines();
+				return builder.getFileBuilders();
+			}
+		});
+		benchmarks.add(new ParserBenchmark("ingest.lineCounts.warm", 2) {
+			public void setUp() throws Exception {
+				SvnConfigurationOptions.setCacheDir(warmCacheDir.getPath());
+				super.setUp();
+			}
+
+			public Object run() throws Exception {
+				parser.countLines();
+				return builder.getFileBuilders();
+			}
+		});
+		benchmarks.add(new Benchmark("ingest.total.warm") {
+			public void setUp() throws Exception {
+				SvnConfigurationOptions.setCacheDir(warmCacheDir.getPath());
+			}
+
+			public Object run() throws Exception {
+				return ingest().getFileBuilders();
+			}
+		});
+		benchmarks.add(new Benchmark("diff.countSingle") {
+			private List diffs;
+
+			public void setUp() throws Exception {
+				if (diffs == null) {
+					diffs = new ArrayList();
+					for (final Iterator it = repository.getChangedRevisions().iterator(); it.hasNext();) {
+						final String revision = (String) it.next();
+						for (final Iterator files = repository.getExpectedLineDiffs(revision).keySet().iterator(); files.hasNext();) {
+							diffs.add(repository.getFileDiff((String) files.next(), revision));
+						}
+					}
+				}
+			}
+
+			public Object run() throws Exception {
+				int lines = 0;
+				for (final Iterator it = diffs.iterator(); it.hasNext();) {
+					lines += SvnDiffCounter.countSingleDiff(new ByteArrayInputStream((byte[]) it.next()))[0];
+				}
+				return Integer.valueOf(lines);
+			}
+		});
+		benchmarks.add(new Benchmark("diff.countRevision") {
+			private final SyntheticSvnProcessor processor = new SyntheticSvnProcessor(repository);
+
+			public Object run() throws Exception {
+				int files = 0;
+				for (final Iterator it = repository.getChangedRevisions().iterator(); it.hasNext();) {
+					files += processor.getDiffProcessor().getLineDiff((String) it.next()).size();
+				}
+				return Integer.valueOf(files);
+			}
+		});
+		benchmarks.add(new ParserBenchmark("cache.load", 2) {
+			private CacheBuilder cacheBuilder;
+
+			public Object run() throws Exception {
+				cacheBuilder = new CacheBuilder(builder, fileManager, new XmlCacheStore(cacheFile.getPath()));
+				cacheBuilder.load();
+				return cacheBuilder.getPaths();
+			}
+		});
+		benchmarks.add(new ParserBenchmark("cache.save", 2) {
+			private CacheBuilder cacheBuilder;
+
+			private File target;
+
+			public void setUp() throws Exception {
+				super.setUp();
+				cacheBuilder = new CacheBuilder(builder, fileManager, new XmlCacheStore(cacheFile.getPath()));
+				cacheBuilder.load();
+				target = new File(workDir, "cache-saved.xml");
+			}
+
+			public Object run() throws Exception {
+				final OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+				try {
+					XmlCacheStore.writeXml(cacheBuilder, out);
+				} finally {
+					out.close();
+				}
+				return target;
+			}
+		});
+		benchmarks.add(new Benchmark("model.createRepository") {
+			private Builder builder;
+
+			public void setUp() throws Exception {
+				SvnConfigurationOptions.setCacheDir(warmCacheDir.getPath());
+				builder = ingest();
+			}
+
+			public Object run() throws Exception {
+				return builder.createRepository().getCommits();
+			}
+		});
+		benchmarks.add(new Benchmark("model.commitList") {
+			public Object run() throws Exception {
+				return new CommitListBuilder(model.getRevisions()).createCommitList();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.developers") {
+			protected NavigationNode make() {
+				return new AllDevelopersPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.developer") {
+			protected NavigationNode make() {
+				return new DeveloperPageMaker(config, (Author) model.getAuthors().first()).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.commitLogs") {
+			protected NavigationNode make() {
+				return new CommitLogPageGroupMaker(config).getPages();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.linesOfCode") {
+			protected NavigationNode make() {
+				return new LOCPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.fileSizes") {
+			protected NavigationNode make() {
+				return new FileSizesPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.directorySizes") {
+			protected NavigationNode make() {
+				return new DirectorySizesPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.directory") {
+			protected NavigationNode make() {
+				return new DirectoryPageMaker(config, model.getRoot()).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.repoMap") {
+			protected NavigationNode make() {
+				return new RepoMapPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.churn") {
+			protected NavigationNode make() {
+				return new ChurnPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.cloud") {
+			protected NavigationNode make() {
+				return new CloudCommitPageMaker(config).toFile();
+			}
+		});
+		benchmarks.add(new PageBenchmark("report.suite") {
+			protected NavigationNode make() throws IOException {
+				return new ReportSuiteMaker(config, null, new ArrayList()).toFile();
+			}
+		});
+		benchmarks.add(new Benchmark("report.xml") {
+			public Object run() throws Exception {
+				new ReportSuiteMaker(config, null, new ArrayList()).toXml();
+				return new File(outputDir, "repo-statistics.xml");
+			}
+		});
+		benchmarks.addAll(new IntegerMapBenchmarks(getParameter("map-keys"), getParameter("map-updates"), getParameter("seed")).createBenchmarks());
+		return benchmarks;
+	}
+
+	private void runAll() throws Exception {
+		for (final Iterator it = createBenchmarks().iterator(); it.hasNext();) {
+			final Benchmark benchmark = (Benchmark) it.next();
+			if (include != null && !include.matcher(benchmark.getName()).find()) {
+				continue;
+			}
+			for (int i = 0; i < warmup; i++) {
+				iterate(benchmark);
+			}
+			final long[] samples = new long[iterations];
+			for (int i = 0; i < iterations; i++) {
+				samples[i] = iterate(benchmark);
+			}
+			final BenchmarkResult result = new BenchmarkResult(benchmark.getName(), samples);
+			results.add(result);
+			System.out.println(result);
+		}
+	}
+
+	/**
+	 * @return the duration of the operation, in nanoseconds
+	 */
+	private long iterate(final Benchmark benchmark) throws Exception {
+		benchmark.setUp();
+		try {
+			final long start = System.nanoTime();
+			final Object result = benchmark.run();
+			final long duration = System.nanoTime() - start;
+			sink += System.identityHashCode(result);
+			return duration;
+		} finally {
+			benchmark.tearDown();
+		}
+	}
+
+	private void writeResults() throws IOException {
+		final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		final Runtime runtime = Runtime.getRuntime();
+
+		final StringBuffer json = new StringBuffer();
+		json.append("{\n");
+		json.append("  \"suite\": \"statsvn\",\n");
+		json.append("  \"version\": ").append(quote(Messages.getString("PROJECT_VERSION"))).append(",\n");
+		json.append("  \"date\": ").append(quote(format.format(new Date()))).append(",\n");
+		json.append("  \"environment\": {\"java\": ").append(quote(System.getProperty("java.version")));
+		json.append(", \"vm\": ").append(quote(System.getProperty("java.vm.name")));
+		json.append(", \"os\": ").append(quote(System.getProperty("os.name") + " " + System.getProperty("os.arch")));
+		json.append(", \"processors\": ").append(runtime.availableProcessors());
+		json.append(", \"maxHeapMb\": ").append(runtime.maxMemory() / (1024 * 1024)).append("},\n");
+		json.append("  \"parameters\": {");
+		for (final Iterator it = parameters.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry entry = (Map.Entry) it.next();
+			json.append(quote((String) entry.getKey())).append(": ").append(entry.getValue()).append(", ");
+		}
+		json.append("\"warmup\": ").append(warmup).append(", \"iterations\": ").append(iterations).append("},\n");
+		json.append("  \"repository\": {\"revisions\": ").append(repository.getRevisionCount());
+		json.append(", \"createdFiles\": ").append(repository.getCreatedFileCount());
+		json.append(", \"liveFiles\": ").append(repository.getLiveFileCount());
+		json.append(", \"commits\": ").append(model.getCommits().size());
+		json.append(", \"logBytes\": ").append(logFile.length()).append("},\n");
+		json.append("  \"benchmarks\": [");
+		for (int i = 0; i < results.size(); i++) {
+			json.append(i > 0 ? ",\n    " : "\n    ");
+			((BenchmarkResult) results.get(i)).appendJson(json);
+		}
+		json.append("\n  ]\n}\n");
+
+		final File file = new File(output);
+		if (file.getAbsoluteFile().getParentFile() != null) {
+			mkdirs(file.getAbsoluteFile().getParentFile());
+		}
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			out.write(json.toString());
+		} finally {
+			out.close();
+		}
+		System.out.println("Results written to " + file);
+	}
+
+	/**
+	 * @return the string as a JSON string literal
+	 */
+	static String quote(final String s) {
+		final StringBuffer result = new StringBuffer("\"");
+		for (int i = 0; s != null && i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				result.append('\\').append(c);
+			} else if (c < ' ') {
+				result.append("\\u").append(Integer.toHexString(c | 0x10000).substring(1));
+			} else {
+				result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+	private static File emptyDirectory(final File directory) throws IOException {
+		delete(directory);
+		return mkdirs(directory);
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		for (int i = 0; children != null && i < children.length; i++) {
+			delete(children[i]);
+		}
+		file.delete();
+	}
+
+	private void cleanUp() {
+		if (workDir != null && !keepWorkDir) {
+			delete(workDir);
+		}
+	}
+
+	/**
+	 * A benchmark on a {@link StagedLogfileParser} that has gone through the
+	 * stages before the measured one.
+	 */
+	private abstract class ParserBenchmark extends Benchmark {
+		// 0: nothing, 1: the log is parsed, 2: the implicit actions are resolved
+		private final int stagesBefore;
+
+		protected SyntheticFileManager fileManager;
+
+		protected Builder builder;
+
+		protected StagedLogfileParser parser;
+
+		private InputStream in;
+
+		ParserBenchmark(final String name, final int stagesBefore) {
+			super(name);
+			this.stagesBefore = stagesBefore;
+		}
+
+		public void setUp() throws Exception {
+			fileManager = createFileManager();
+			builder = createBuilder(fileManager);
+			in = new FileInputStream(logFile);
+			parser = createParser(in);
+			if (stagesBefore > 0) {
+				parser.parseLog();
+			}
+			if (stagesBefore > 1) {
+				parser.resolveImplicitActions();
+			}
+		}
+
+		public void tearDown() throws Exception {
+			in.close();
+		}
+
+		protected StagedLogfileParser createParser(final InputStream in) {
+			return new StagedLogfileParser(fileManager, in, builder);
+		}
+	}
+
+	/**
+	 * A benchmark writing one or more report pages to an empty output
+	 * directory.
+	 */
+	private abstract class PageBenchmark extends Benchmark {
+		PageBenchmark(final String name) {
+			super(name);
+		}
+
+		public void setUp() throws Exception {
+			emptyDirectory(outputDir);
+			config.getCssHandler().createOutputFiles();
+		}
+
+		public Object run() throws Exception {
+			final NavigationNode node = make();
+			node.write();
+			return node;
+		}
+
+		protected abstract NavigationNode make() throws IOException;
+	}
+}
@@ -0,0 +1,148 @@
+package net.sf.statsvn.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.statcvs.util.IntegerMap;
+
+/**
+ * Compares the {@link IntegerMap} with the {@link TreeIntegerMap} it
+ * replaced, on what the reports do with it: counting with
+ * <tt>inc</tt> and <tt>addInt</tt> in a hot loop, then listing the keys
+ * by value, all of them or only the top ones. The benchmarks of the old map
+ * have the same name with <tt>.old</tt> appended.
+ *
+ * The keys are paths; a few of them get most of the updates, like the active
+ * files and authors of a repository.
+ */
+public final class IntegerMapBenchmarks {
+	private static final int TOP_KEYS = 10;
+
+	private final String[] keys;
+
+	// the index in keys of each update, and the value it adds
+	private final int[] updates;
+
+	private final int[] amounts;
+
+	/**
+	 * @param keyCount
+	 *            the number of distinct keys
+	 * @param updateCount
+	 *            the number of updates of the hot loop
+	 * @param seed
+	 *            the seed of the generator
+	 */
+	public IntegerMapBenchmarks(final int keyCount, final int updateCount, final long seed) {
+		final Random random = new Random(seed);
+		keys = new String[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = "src/module" + (i % 16) + "/dir" + (i / 16 % 32) + "/File" + i + ".java";
+		}
+		updates = new int[updateCount];
+		amounts = new int[updateCount];
+		for (int i = 0; i < updateCount; i++) {
+			final double r = random.nextDouble();
+			updates[i] = (int) (r * r * r * keyCount);
+			amounts[i] = i % 2 == 0 ? 1 : random.nextInt(100);
+		}
+	}
+
+	/**
+	 * @return the benchmarks, each on the new map then on the old one
+	 */
+	public List createBenchmarks() {
+		final List benchmarks = new ArrayList();
+		benchmarks.add(new Benchmark("intmap.addInt") {
+			public Object run() {
+				final IntegerMap map = new IntegerMap();
+				for (int i = 0; i < updates.length; i++) {
+					if (amounts[i] == 1) {
+						map.inc(keys[updates[i]]);
+					} else {
+						map.addInt(keys[updates[i]], amounts[i]);
+					}
+				}
+				return map;
+			}
+		});
+		benchmarks.add(new Benchmark("intmap.addInt.old") {
+			public Object run() {
+				final TreeIntegerMap map = new TreeIntegerMap();
+				for (int i = 0; i < updates.length; i++) {
+					if (amounts[i] == 1) {
+						map.inc(keys[updates[i]]);
+					} else {
+						map.addInt(keys[updates[i]], amounts[i]);
+					}
+				}
+				return map;
+			}
+		});
+		benchmarks.add(new FilledMapBenchmark("intmap.sortedByValueReverse") {
+			public Object run() {
+				return last(map.iteratorSortedByValueReverse());
+			}
+		});
+		benchmarks.add(new FilledMapBenchmark("intmap.sortedByValueReverse.old") {
+			public Object run() {
+				return last(oldMap.iteratorSortedByValueReverse());
+			}
+		});
+		benchmarks.add(new FilledMapBenchmark("intmap.topKeys") {
+			public Object run() {
+				return map.topKeys(TOP_KEYS);
+			}
+		});
+		benchmarks.add(new FilledMapBenchmark("intmap.topKeys.old") {
+			// what the reports did before topKeys
+			public Object run() {
+				final List result = new ArrayList(TOP_KEYS);
+				final Iterator it = oldMap.iteratorSortedByValueReverse();
+				while (it.hasNext() && result.size() < TOP_KEYS) {
+					result.add(it.next());
+				}
+				return result;
+			}
+		});
+		return benchmarks;
+	}
+
+	private static Object last(final Iterator iterator) {
+		Object result = null;
+		while (iterator.hasNext()) {
+			result = iterator.next();
+		}
+		return result;
+	}
+
+	/**
+	 * A benchmark on both maps after the hot loop. Before each iteration a
+	 * value is changed, so that the order cached by the new map is dropped,
+	 * as it is when a report updates its map.
+	 */
+	private abstract class FilledMapBenchmark extends Benchmark {
+		protected IntegerMap map;
+
+		protected TreeIntegerMap oldMap;
+
+		FilledMapBenchmark(final String name) {
+			super(name);
+		}
+
+		public void setUp() {
+			if (map == null) {
+				map = new IntegerMap();
+				oldMap = new TreeIntegerMap();
+				for (int i = 0; i < updates.length; i++) {
+					map.addInt(keys[updates[i]], amounts[i]);
+					oldMap.addInt(keys[updates[i]], amounts[i]);
+				}
+			}
+			map.inc(keys[0]);
+			oldMap.inc(keys[0]);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package net.sf.statsvn.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.sf.statcvs.util.IntegerMap;
+
+/**
+ * Checks that the {@link IntegerMap} answers like the {@link TreeIntegerMap}
+ * it replaced: random operations are applied to both maps, and after each one
+ * the values, the sums and the orders of the keys are compared, also through
+ * key sets taken at the start, which must follow the changes. The pool of
+ * keys changes from one round to the next, so that the maps grow, shrink and
+ * see values below zero.
+ *
+ * Run by the {@link BenchmarkSuite} before measuring, or alone with
+ * <tt>[-seed &lt;int&gt;] [-operations &lt;int&gt;]</tt>.
+ */
+public final class IntegerMapCheck {
+	private static final int ROUNDS = 20;
+
+	private final Random random;
+
+	private final int operations;
+
+	private IntegerMap map;
+
+	private TreeIntegerMap expected;
+
+	private Set keySet;
+
+	private Set expectedKeySet;
+
+	/**
+	 * @param seed
+	 *            the seed of the operations
+	 * @param operations
+	 *            the number of operations of each round
+	 */
+	public IntegerMapCheck(final long seed, final int operations) {
+		this.random = new Random(seed);
+		this.operations = operations;
+	}
+
+	public static void main(final String[] args) {
+		long seed = 1;
+		int operations = 20000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-seed")) {
+				seed = Long.parseLong(args[i + 1]);
+			} else if (args[i].equals("-operations")) {
+				operations = Integer.parseInt(args[i + 1]);
+			} else {
+				System.err.println("Usage: java " + IntegerMapCheck.class.getName() + " [-seed <int>] [-operations <int>]");
+				System.exit(1);
+			}
+		}
+		try {
+			new IntegerMapCheck(seed, operations).check();
+		} catch (final IllegalStateException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		System.out.println("IntegerMap answers like TreeIntegerMap after " + ROUNDS + " rounds of " + operations + " operations (seed " + seed + ")");
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the maps answer differently
+	 */
+	public void check() {
+		for (int round = 0; round < ROUNDS; round++) {
+			map = new IntegerMap();
+			expected = new TreeIntegerMap();
+			keySet = map.keySet();
+			expectedKeySet = expected.keySet();
+			// from a handful of keys, so that they are often removed and
+			// added again, to a few thousands, so that the table is resized
+			final int keyCount = 1 + random.nextInt(round % 2 == 0 ? 16 : 4000);
+			for (int i = 0; i < operations; i++) {
+				final String key = "k" + random.nextInt(keyCount);
+				final String operation = apply(key);
+				compareValues(key, operation);
+				if (random.nextInt(64) == 0) {
+					compareOrders(operation);
+				}
+			}
+			compareOrders("end of round " + round);
+		}
+	}
+
+	/**
+	 * @return a description of the operation, for the error messages
+	 */
+	private String apply(final String key) {
+		final int choice = random.nextInt(10);
+		final int value = random.nextInt(200) - 50;
+		if (choice < 3) {
+			map.inc(key);
+			expected.inc(key);
+			return "inc(" + key + ")";
+		} else if (choice < 6) {
+			map.addInt(key, value);
+			expected.addInt(key, value);
+			return "addInt(" + key + ", " + value + ")";
+		} else if (choice < 7) {
+			map.dec(key);
+			expected.dec(key);
+			return "dec(" + key + ")";
+		} else if (choice < 8) {
+			map.put(key, value);
+			expected.put(key, value);
+			return "put(" + key + ", " + value + ")";
+		}
+		if (choice < 9) {
+			map.remove(key);
+			expected.remove(key);
+			return "remove(" + key + ")";
+		}
+		// the old map does not update its sum when a key is removed through
+		// its key set, so it is removed there directly
+		final boolean contained = expected.contains(key);
+		expected.remove(key);
+		if (random.nextBoolean()) {
+			assertEquals("keySet.remove(" + key + ")", "keySet.remove", Boolean.valueOf(contained), Boolean.valueOf(keySet.remove(key)));
+			return "keySet.remove(" + key + ")";
+		}
+		removeWithIterator(map.iteratorSortedByKey(), key);
+		return "iteratorSortedByKey.remove(" + key + ")";
+	}
+
+	private static void removeWithIterator(final Iterator iterator, final Object key) {
+		while (iterator.hasNext()) {
+			if (iterator.next().equals(key)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private void compareValues(final String key, final String operation) {
+		assertEquals(operation, "get", Integer.valueOf(expected.get(key)), Integer.valueOf(map.get(key)));
+		assertEquals(operation, "getInteger", expected.getInteger(key), map.getInteger(key));
+		assertEquals(operation, "contains", Boolean.valueOf(expected.contains(key)), Boolean.valueOf(map.contains(key)));
+		assertEquals(operation, "size", Integer.valueOf(expected.size()), Integer.valueOf(map.size()));
+		assertEquals(operation, "sum", Integer.valueOf(expected.sum()), Integer.valueOf(map.sum()));
+		assertEquals(operation, "max", Integer.valueOf(expected.max()), Integer.valueOf(map.max()));
+		assertEquals(operation, "getPercent", Double.valueOf(expected.getPercent(key)), Double.valueOf(map.getPercent(key)));
+		assertEquals(operation, "getPercentOfMaximum", Double.valueOf(expected.getPercentOfMaximum(key)), Double.valueOf(map.getPercentOfMaximum(key)));
+	}
+
+	private void compareOrders(final String operation) {
+		final List reverse = toList(expected.iteratorSortedByValueReverse());
+		// first, while the value order is not cached
+		final int count = random.nextInt(reverse.size() + 2);
+		assertEquals(operation, "topKeys(" + count + ")", reverse.subList(0, Math.min(count, reverse.size())), map.topKeys(count));
+		assertEquals(operation, "keySet", new ArrayList(expected.keySet()), new ArrayList(map.keySet()));
+		assertEquals(operation, "keySet view", new ArrayList(expectedKeySet), new ArrayList(keySet));
+		assertEquals(operation, "keySet view size", Integer.valueOf(expectedKeySet.size()), Integer.valueOf(keySet.size()));
+		assertEquals(operation, "iteratorSortedByKey", toList(expected.iteratorSortedByKey()), toList(map.iteratorSortedByKey()));
+		assertEquals(operation, "iteratorSortedByValue", toList(expected.iteratorSortedByValue()), toList(map.iteratorSortedByValue()));
+		assertEquals(operation, "iteratorSortedByValueReverse", reverse, toList(map.iteratorSortedByValueReverse()));
+	}
+
+	private static List toList(final Iterator iterator) {
+		final List result = new ArrayList();
+		while (iterator.hasNext()) {
+			result.add(iterator.next());
+		}
+		return result;
+	}
+
+	private static void assertEquals(final String operation, final String what, final Object expected, final Object actual) {
+		if (expected == null ? actual != null : !expected.equals(actual)) {
+			throw new IllegalStateException("IntegerMap." + what + " after " + operation + ": " + actual + " instead of " + expected);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package net.sf.statsvn.bench;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.statsvn.input.FileBuilder;
+import net.sf.statsvn.input.RepositoryFileManager;
+import net.sf.statsvn.input.RevisionData;
+import net.sf.statsvn.input.SvnLogBuilder;
+import net.sf.statsvn.input.SvnLogfileParser;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.FilenameComparator;
+
+/**
+ * A {@link StagedLogfileParser} that infers the implicit actions as StatSVN
+ * did before they were found in a single pass over the sorted paths: for each
+ * path, the paths it contains are scanned again and the parent revisions are
+ * inserted into their revisions one at a time. It is kept to compare the
+ * current implementation with it: the {@link BenchmarkSuite} checks that both
+ * give the same revisions, and measures both.
+ */
+public class LegacyLogfileParser extends StagedLogfileParser {
+	private final SvnLogBuilder builder;
+
+	private final RepositoryFileManager repositoryFileManager;
+
+	public LegacyLogfileParser(final RepositoryFileManager repositoryFileManager, final InputStream logFile, final SvnLogBuilder builder) {
+		super(repositoryFileManager, logFile, builder);
+		this.builder = builder;
+		this.repositoryFileManager = repositoryFileManager;
+	}
+
+	/**
+	 * The former implementation of
+	 * {@link SvnLogfileParser#verifyImplicitActions()}.
+	 */
+	protected void verifyImplicitActions() {
+		// this method most certainly has issues with implicit actions on root
+		// folder.
+
+		final long startTime = System.currentTimeMillis();
+		SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions ...");
+
+		final HashSet implicitActions = new HashSet();
+
+		// get all filenames
+		final ArrayList files = new ArrayList();
+		final Collection fileBuilders = fetchAllFileNames(files);
+
+		// sort them so that folders are immediately followed by the folder
+		// entries and then by other files which are prefixed by the folder
+		// name.
+		Collections.sort(files, new FilenameComparator());
+
+		// for each file
+		for (int i = 0; i < files.size(); i++) {
+			final String parent = files.get(i).toString();
+			final FileBuilder parentBuilder = (FileBuilder) builder.getFileBuilders().get(parent);
+			// check to see if there are files that indicate that parent is a
+			// folder.
+			for (int j = i + 1; j < files.size() && files.get(j).toString().indexOf(parent + "/") == 0; j++) {
+				// we might not know that it was a folder.
+				repositoryFileManager.addDirectory(parent);
+
+				final String child = files.get(j).toString();
+				final FileBuilder childBuilder = (FileBuilder) builder.getFileBuilders().get(child);
+				// for all revisions in the the parent folder
+				for (final Iterator iter = parentBuilder.getRevisions().iterator(); iter.hasNext();) {
+					final RevisionData parentData = (RevisionData) iter.next();
+					int parentRevision;
+					try {
+						parentRevision = Integer.parseInt(parentData.getRevisionNumber());
+					} catch (final Exception e) {
+						continue;
+					}
+
+					// ignore modifications to folders
+					if (parentData.isCreationOrRestore() || parentData.isDeletion()) {
+						int k;
+
+						// check to see if the parent revision is an implicit
+						// action acting on the child.
+						k = detectActionOnChildGivenActionOnParent(childBuilder, parentRevision);
+
+						// we found something to insert
+						if (k < childBuilder.getRevisions().size()) {
+							createImplicitAction(implicitActions, child, childBuilder, parentData, k);
+						}
+					}
+				}
+			}
+		}
+
+		// Some implicit revisions may have resulted in double deletion
+		// (e.g. deleting a directory and THEN deleting the parent directory).
+		// this will get rid of any consecutive deletion.
+		cleanPotentialDuplicateImplicitActions(fileBuilders);
+
+		// in the preceeding block, we add implicit additions to too may files.
+		// possibly a folder was deleted and restored later on, without the
+		// specific file being re-added. we get rid of those here. however,
+		// without knowledge of what was copied during the implicit additions /
+		// replacements, we will remove as many implicit actions as possible
+		// 
+		// this solution is imperfect.
+
+		// Examples:
+		// IA ID IA ID M A -> ID M A
+		// IA ID A D M A -> ID A D M A
+		removePotentialInconsistencies(implicitActions, fileBuilders);
+		SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+	}
+
+	private void createImplicitAction(final HashSet implicitActions, final String child, final FileBuilder childBuilder, final RevisionData parentData,
+			final int k) {
+		// we want to memorize this implicit action.
+		final RevisionData implicit = parentData.createCopy();
+		implicitActions.add(implicit);
+
+		// avoid concurrent modification errors.
+		final List toMove = new ArrayList();
+		for (final Iterator it = childBuilder.getRevisions().subList(k, childBuilder.getRevisions().size()).iterator(); it.hasNext();) {
+			final RevisionData revToMove = (RevisionData) it.next();
+			// if
+			// (!revToMove.getRevisionNumber().equals(implicit.getRevisionNumber()))
+			// {
+			toMove.add(revToMove);
+			// }
+		}
+
+		// remove the revisions to be moved.
+		childBuilder.getRevisions().removeAll(toMove);
+
+		// don't call addRevision directly. buildRevision
+		// does more.
+		builder.buildFile(child, false, false, new HashMap(), new HashMap());
+
+		// only add the implicit if the last one for the
+		// file is NOT a deletion!
+		// if (!toMove.isEmpty() && !((RevisionData)
+		// toMove.get(0)).isDeletion()) {
+		builder.buildRevision(implicit);
+		// }
+
+		// copy back the revisions we removed.
+		for (final Iterator it = toMove.iterator(); it.hasNext();) {
+			builder.buildRevision((RevisionData) it.next());
+		}
+	}
+
+	private int detectActionOnChildGivenActionOnParent(final FileBuilder childBuilder, final int parentRevision) {
+		int k;
+		for (k = 0; k < childBuilder.getRevisions().size(); k++) {
+			final RevisionData childData = (RevisionData) childBuilder.getRevisions().get(k);
+			final int childRevision = Integer.parseInt(childData.getRevisionNumber());
+
+			// we don't want to add duplicate entries for the
+			// same revision
+			if (parentRevision == childRevision) {
+				k = childBuilder.getRevisions().size();
+				break;
+			}
+
+			if (parentRevision > childRevision) {
+				break; // we must insert it here!
+			}
+		}
+		return k;
+	}
+
+	private void removePotentialInconsistencies(final HashSet implicitActions, final Collection fileBuilders) {
+		for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
+			final FileBuilder filebuilder = (FileBuilder) iter.next();
+
+			// make sure our attic is well set, with our new deletions that we
+			// might have added.
+			if (!repositoryFileManager.existsInWorkingCopy(filebuilder.getName())) {
+				builder.addToAttic(filebuilder.getName());
+			}
+
+			// do we detect an inconsistency?
+			if (!repositoryFileManager.existsInWorkingCopy(filebuilder.getName()) && !finalRevisionIsDead(filebuilder)) {
+				int earliestDelete = -1;
+				for (int i = 0; i < filebuilder.getRevisions().size(); i++) {
+					final RevisionData data = (RevisionData) filebuilder.getRevisions().get(i);
+
+					if (data.isDeletion()) {
+						earliestDelete = i;
+					}
+
+					if ((!data.isCreationOrRestore() && data.isChange()) || !implicitActions.contains(data)) {
+						break;
+					}
+				}
+
+				if (earliestDelete > 0) {
+					// avoid concurrent modification errors.
+					final List toRemove = new ArrayList();
+					for (final Iterator it = filebuilder.getRevisions().subList(0, earliestDelete).iterator(); it.hasNext();) {
+						toRemove.add(it.next());
+					}
+					filebuilder.getRevisions().removeAll(toRemove);
+				}
+			}
+		}
+	}
+
+	private void cleanPotentialDuplicateImplicitActions(final Collection fileBuilders) {
+		for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
+			final FileBuilder filebuilder = (FileBuilder) iter.next();
+
+			boolean previousIsDelete = false;
+			final List toRemove = new ArrayList();
+			// for this file, iterate through all revisions and store any
+			// deletion revision that follows
+			// a deletion.
+			for (final Iterator it = filebuilder.getRevisions().iterator(); it.hasNext();) {
+				final RevisionData data = (RevisionData) it.next();
+				if (data.isDeletion() && previousIsDelete) {
+					toRemove.add(data);
+				}
+				previousIsDelete = data.isDeletion();
+			}
+
+			// get rid of the duplicate deletion for this file.
+			if (!toRemove.isEmpty()) {
+				filebuilder.getRevisions().removeAll(toRemove);
+			}
+		}
+	}
+
+	private Collection fetchAllFileNames(final ArrayList files) {
+		final Collection fileBuilders = builder.getFileBuilders().values();
+		for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
+			final FileBuilder fileBuilder = (FileBuilder) iter.next();
+			files.add(fileBuilder.getName());
+		}
+		return fileBuilders;
+	}
+
+	private static boolean finalRevisionIsDead(final FileBuilder fileBuilder) {
+		final List revisions = fileBuilder.getRevisions();
+		return !revisions.isEmpty() && ((RevisionData) revisions.get(0)).isDeletion();
+	}
+}
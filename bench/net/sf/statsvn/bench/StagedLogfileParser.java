@@ -0,0 +1,47 @@
+package net.sf.statsvn.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statsvn.input.RepositoryFileManager;
+import net.sf.statsvn.input.SvnLogBuilder;
+import net.sf.statsvn.input.SvnLogfileParser;
+
+/**
+ * Runs the stages of {@link SvnLogfileParser#parse()} one at a time, so that
+ * each can be measured on its own.
+ */
+public class StagedLogfileParser extends SvnLogfileParser {
+	private SAXParserFactory factory = null;
+
+	public StagedLogfileParser(final RepositoryFileManager repositoryFileManager, final InputStream logFile, final SvnLogBuilder builder) {
+		super(repositoryFileManager, logFile, builder);
+	}
+
+	/**
+	 * Parses the svn log with {@link SvnXmlLogFileHandler}.
+	 */
+	public void parseLog() throws IOException, LogSyntaxException {
+		factory = parseSvnLog();
+	}
+
+	/**
+	 * Infers the actions on the files of copied and deleted directories, and
+	 * removes the directories. The log must have been parsed.
+	 */
+	public void resolveImplicitActions() {
+		verifyImplicitActions();
+		removeDirectories();
+	}
+
+	/**
+	 * Loads the line count cache, and diffs the revisions it does not cover.
+	 * The implicit actions must have been resolved.
+	 */
+	public void countLines() throws IOException {
+		handleLineCounts(factory != null ? factory : SAXParserFactory.newInstance());
+	}
+}
@@ -0,0 +1,29 @@
+package net.sf.statsvn.bench;
+
+import net.sf.statsvn.input.RepositoryFileManager;
+import net.sf.statsvn.util.ISvnProcessor;
+
+/**
+ * A {@link RepositoryFileManager} on the working copy of a {@link
+ * SyntheticRepository}. The line counts are read from the files on disk, like
+ * for a real working copy; the svn queries are answered by a {@link
+ * SyntheticSvnProcessor}.
+ */
+public class SyntheticFileManager extends RepositoryFileManager {
+	private final ISvnProcessor processor;
+
+	/**
+	 * @param workingCopy
+	 *            the directory the working copy was written to
+	 * @param repository
+	 *            the generated repository
+	 */
+	public SyntheticFileManager(final String workingCopy, final SyntheticRepository repository) {
+		super(workingCopy);
+		this.processor = new SyntheticSvnProcessor(repository);
+	}
+
+	public ISvnProcessor getProcessor() {
+		return processor;
+	}
+}
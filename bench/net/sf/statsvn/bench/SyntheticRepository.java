@@ -0,0 +1,715 @@
+package net.sf.statsvn.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.sf.statsvn.input.CacheBuilder;
+import net.sf.statsvn.input.RepositoryFileManager;
+import net.sf.statsvn.input.XmlCacheStore;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * The history of an imaginary Subversion repository, and what StatSVN reads
+ * about it: the output of <tt>svn log --xml -v</tt> and <tt>svn info --xml
+ * -R</tt>, a working copy, the output of <tt>svn diff</tt> for each revision
+ * and a line count cache.
+ *
+ * The module is <tt>/trunk</tt>. Its first revision imports half of the files;
+ * the other revisions change, add, delete and copy files and directories, or
+ * copy the module to a tag under
+ * {@link SvnConfigurationOptions#getTagsDirectory()}.
+ * The same settings and seed always give the same history.
+ */
+public class SyntheticRepository {
+	private static final String ENCODING = "UTF-8";
+
+	private static final String REPOSITORY_URL = "http://svn.example.org/synthetic";
+
+	private static final String MODULE = "/trunk";
+
+	// 2005-01-01T00:00:00Z
+	private static final long START_DATE = 1104537600000L;
+
+	private static final long MEAN_COMMIT_INTERVAL_MS = 6L * 60 * 60 * 1000;
+
+	private static final int FILES_PER_DIRECTORY = 15;
+
+	private static final int MAX_FILES_PER_COMMIT = 5;
+
+	private static final String[] EXTENSIONS = { ".java", ".java", ".java", ".xml", ".properties", ".txt" };
+
+	private static final String[] MESSAGES = { "Fixed bug #%", "Refactoring", "Added tests for #%", "Cleaned up imports", "Javadoc",
+	        "Implemented feature request #%", "Merged changes from the release branch", "Updated the build", "Reverted r%", "Performance of #%" };
+
+	private int revisions = 1000;
+
+	private int files = 500;
+
+	private int authors = 10;
+
+	private int tags = 10;
+
+	private int copyPercent = 2;
+
+	private int deletePercent = 5;
+
+	private long seed = 1;
+
+	// the commits, oldest first.
+	private final List commits = new ArrayList();
+
+	// the live files, in the order they were added, and their FileState by
+	// relative path.
+	private final List liveFiles = new ArrayList();
+
+	private final Map fileStates = new HashMap();
+
+	private final SortedSet liveDirectories = new TreeSet();
+
+	// the directories new files are added to, live or not.
+	private final List directories = new ArrayList();
+
+	private int nextFileId = 0;
+
+	private int nextCopyId = 0;
+
+	// the files added so far, not counting copies.
+	private int filesAdded = 0;
+
+	private int createdFiles = 0;
+
+	private byte[] info = null;
+
+	// output of svn diff -c (byte[]) by revision (String).
+	private final Map revisionDiffs = new HashMap();
+
+	public void setRevisions(final int revisions) {
+		this.revisions = Math.max(1, revisions);
+	}
+
+	public void setFiles(final int files) {
+		this.files = Math.max(1, files);
+	}
+
+	public void setAuthors(final int authors) {
+		this.authors = Math.max(1, authors);
+	}
+
+	public void setTags(final int tags) {
+		this.tags = Math.max(0, tags);
+	}
+
+	public void setCopyPercent(final int copyPercent) {
+		this.copyPercent = copyPercent;
+	}
+
+	public void setDeletePercent(final int deletePercent) {
+		this.deletePercent = deletePercent;
+	}
+
+	public void setSeed(final long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates the history. Must be called once, before anything is written.
+	 */
+	public void generate() {
+		final Random random = new Random(seed);
+		final int directoryCount = Math.max(1, files / FILES_PER_DIRECTORY);
+		for (int i = 0; i < directoryCount; i++) {
+			if (directories.isEmpty() || random.nextInt(3) == 0) {
+				directories.add("module" + i);
+			} else {
+				directories.add(directories.get(random.nextInt(directories.size())) + "/pkg" + i);
+			}
+		}
+
+		final int tagInterval = revisions / (tags + 1);
+		int tagCount = 0;
+		long date = START_DATE;
+		for (int number = 1; number <= revisions; number++) {
+			date += 1 + (long) (random.nextDouble() * 2 * MEAN_COMMIT_INTERVAL_MS);
+			final Commit commit = new Commit(number, "author" + (int) (authors * random.nextDouble() * random.nextDouble()), date);
+			if (number == 1) {
+				commit.message = "Initial import";
+				addFiles(commit, random, Math.max(1, files / 2));
+			} else if (tagInterval > 0 && number % tagInterval == 0 && tagCount < tags) {
+				tagCount++;
+				final String tag = "release-" + tagCount;
+				commit.message = "Tagging " + tag;
+				commit.paths.add(new PathChange('A', "/" + trimSlashes(SvnConfigurationOptions.getTagsDirectory()) + "/" + tag, MODULE, number - 1));
+			} else if (random.nextInt(100) < copyPercent && copyDirectory(commit, random)) {
+				commit.message = "Copied " + ((PathChange) commit.paths.get(0)).copyFromPath;
+			} else if (random.nextInt(100) < deletePercent && delete(commit, random)) {
+				commit.message = "Removed " + ((PathChange) commit.paths.get(0)).path;
+			} else {
+				commit.message = createMessage(random, number);
+				final int changes = 1 + random.nextInt(MAX_FILES_PER_COMMIT);
+				final Set changed = new HashSet();
+				for (int i = 0; i < changes && !liveFiles.isEmpty(); i++) {
+					final String path = (String) liveFiles.get(random.nextInt(liveFiles.size()));
+					if (changed.add(path)) {
+						modifyFile(commit, random, path);
+					}
+				}
+				// spread the files that were not imported over the history
+				final double toAdd = (double) (files - filesAdded) / (revisions - number + 1);
+				addFiles(commit, random, (int) toAdd + (random.nextDouble() < toAdd - (int) toAdd ? 1 : 0));
+				if (commit.paths.isEmpty()) {
+					addFiles(commit, random, 1);
+				}
+			}
+			commits.add(commit);
+		}
+	}
+
+	private static String createMessage(final Random random, final int number) {
+		final String message = MESSAGES[random.nextInt(MESSAGES.length)];
+		final int reference = message.indexOf('%');
+		if (reference < 0) {
+			return message;
+		}
+		return message.substring(0, reference) + (1 + random.nextInt(number)) + message.substring(reference + 1);
+	}
+
+	private void addFiles(final Commit commit, final Random random, final int count) {
+		for (int i = 0; i < count; i++) {
+			final String directory = (String) directories.get(random.nextInt(directories.size()));
+			addDirectory(commit, directory);
+			final String path = directory + "/File" + (nextFileId++) + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+			final int lines = 10 + random.nextInt(300);
+			addLiveFile(path, new FileState(lines, commit.number));
+			commit.paths.add(new PathChange('A', MODULE + "/" + path, null, 0));
+			commit.diffs.add(new FileDiff(path, lines, 0, 0));
+			filesAdded++;
+		}
+	}
+
+	private void addDirectory(final Commit commit, final String directory) {
+		if (liveDirectories.contains(directory)) {
+			return;
+		}
+		final int slash = directory.lastIndexOf('/');
+		if (slash > 0) {
+			addDirectory(commit, directory.substring(0, slash));
+		}
+		liveDirectories.add(directory);
+		commit.paths.add(new PathChange('A', MODULE + "/" + directory, null, 0));
+	}
+
+	private void modifyFile(final Commit commit, final Random random, final String path) {
+		final FileState state = (FileState) fileStates.get(path);
+		final int removed = random.nextInt(Math.min(state.lines, 20) + 1);
+		int added = random.nextInt(30);
+		if (added + removed == 0) {
+			added = 1;
+		}
+		commit.paths.add(new PathChange('M', MODULE + "/" + path, null, 0));
+		commit.diffs.add(new FileDiff(path, added, removed, state.lastRevision));
+		state.lines += added - removed;
+		state.lastRevision = commit.number;
+	}
+
+	private boolean delete(final Commit commit, final Random random) {
+		if (liveFiles.isEmpty()) {
+			return false;
+		}
+		final String file = (String) liveFiles.get(random.nextInt(liveFiles.size()));
+		if (random.nextInt(5) > 0) {
+			final FileState state = removeLiveFile(file);
+			commit.paths.add(new PathChange('D', MODULE + "/" + file, null, 0));
+			commit.diffs.add(new FileDiff(file, 0, state.lines, state.lastRevision));
+			return true;
+		}
+		// a whole directory; the files and directories below it are deleted
+		// implicitly.
+		final String directory = file.substring(0, file.lastIndexOf('/'));
+		commit.paths.add(new PathChange('D', MODULE + "/" + directory, null, 0));
+		for (final Iterator it = new ArrayList(liveFiles).iterator(); it.hasNext();) {
+			final String path = (String) it.next();
+			if (path.startsWith(directory + "/")) {
+				final FileState state = removeLiveFile(path);
+				commit.diffs.add(new FileDiff(path, 0, state.lines, state.lastRevision));
+			}
+		}
+		liveDirectories.removeAll(getSubdirectories(directory));
+		return true;
+	}
+
+	private boolean copyDirectory(final Commit commit, final Random random) {
+		if (liveFiles.isEmpty()) {
+			return false;
+		}
+		final String file = (String) liveFiles.get(random.nextInt(liveFiles.size()));
+		final String source = file.substring(0, file.lastIndexOf('/'));
+		final int slash = source.lastIndexOf('/');
+		final String target = (slash > 0 ? source.substring(0, slash + 1) : "") + "copy" + (nextCopyId++);
+		commit.paths.add(new PathChange('A', MODULE + "/" + target, MODULE + "/" + source, commit.number - 1));
+		for (final Iterator it = new ArrayList(liveFiles).iterator(); it.hasNext();) {
+			final String path = (String) it.next();
+			if (path.startsWith(source + "/")) {
+				final String copy = target + path.substring(source.length());
+				final FileState state = (FileState) fileStates.get(path);
+				addLiveFile(copy, new FileState(state.lines, commit.number));
+				commit.diffs.add(new FileDiff(copy, state.lines, 0, 0));
+			}
+		}
+		for (final Iterator it = getSubdirectories(source).iterator(); it.hasNext();) {
+			final String copy = target + ((String) it.next()).substring(source.length());
+			liveDirectories.add(copy);
+			directories.add(copy);
+		}
+		return true;
+	}
+
+	private Set getSubdirectories(final String directory) {
+		final Set result = new HashSet();
+		for (final Iterator it = liveDirectories.tailSet(directory).iterator(); it.hasNext();) {
+			final String path = (String) it.next();
+			if (!path.equals(directory) && !path.startsWith(directory + "/")) {
+				break;
+			}
+			result.add(path);
+		}
+		return result;
+	}
+
+	private void addLiveFile(final String path, final FileState state) {
+		createdFiles++;
+		state.index = liveFiles.size();
+		liveFiles.add(path);
+		fileStates.put(path, state);
+	}
+
+	private FileState removeLiveFile(final String path) {
+		final FileState state = (FileState) fileStates.remove(path);
+		final String last = (String) liveFiles.remove(liveFiles.size() - 1);
+		if (!last.equals(path)) {
+			liveFiles.set(state.index, last);
+			((FileState) fileStates.get(last)).index = state.index;
+		}
+		return state;
+	}
+
+	private static String trimSlashes(final String path) {
+		int start = 0;
+		int end = path.length();
+		while (start < end && path.charAt(start) == '/') {
+			start++;
+		}
+		while (end > start && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		return path.substring(start, end);
+	}
+
+	/**
+	 * @return the number of revisions
+	 */
+	public int getRevisionCount() {
+		return commits.size();
+	}
+
+	/**
+	 * @return the number of files in the working copy
+	 */
+	public int getLiveFileCount() {
+		return liveFiles.size();
+	}
+
+	/**
+	 * @return the number of files that were ever added or copied
+	 */
+	public int getCreatedFileCount() {
+		return createdFiles;
+	}
+
+	/**
+	 * @return the uuid of the repository, derived from the seed
+	 */
+	public String getRepositoryUuid() {
+		return new UUID(seed, revisions).toString();
+	}
+
+	/**
+	 * @return the revisions with changes in the module, oldest first
+	 */
+	public List getChangedRevisions() {
+		final List result = new ArrayList();
+		for (final Iterator it = commits.iterator(); it.hasNext();) {
+			final Commit commit = (Commit) it.next();
+			if (!commit.diffs.isEmpty()) {
+				result.add(String.valueOf(commit.number));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the output of <tt>svn log --xml -v</tt> on the module, most
+	 * recent revision first.
+	 *
+	 * @param out
+	 *            the target stream
+	 * @throws XMLStreamException
+	 *             problem writing the xml
+	 */
+	public void writeLog(final OutputStream out) throws XMLStreamException {
+		final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+		writer.writeStartDocument(ENCODING, "1.0");
+		writer.writeCharacters("\n");
+		writer.writeStartElement("log");
+		writer.writeCharacters("\n");
+		for (int i = commits.size() - 1; i >= 0; i--) {
+			final Commit commit = (Commit) commits.get(i);
+			writer.writeStartElement("logentry");
+			writer.writeAttribute("revision", String.valueOf(commit.number));
+			writer.writeCharacters("\n");
+			writeElement(writer, "author", commit.author);
+			writeElement(writer, "date", format.format(new Date(commit.date)));
+			writer.writeStartElement("paths");
+			writer.writeCharacters("\n");
+			for (final Iterator it = commit.paths.iterator(); it.hasNext();) {
+				final PathChange change = (PathChange) it.next();
+				writer.writeStartElement("path");
+				if (change.copyFromPath != null) {
+					writer.writeAttribute("copyfrom-path", change.copyFromPath);
+					writer.writeAttribute("copyfrom-rev", String.valueOf(change.copyFromRevision));
+				}
+				writer.writeAttribute("action", String.valueOf(change.action));
+				writer.writeCharacters(change.path);
+				writer.writeEndElement();
+				writer.writeCharacters("\n");
+			}
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+			writeElement(writer, "msg", commit.message);
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+		}
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	private static void writeElement(final XMLStreamWriter writer, final String name, final String text) throws XMLStreamException {
+		writer.writeStartElement(name);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+	}
+
+	/**
+	 * Returns the output of <tt>svn info --xml -R</tt> in the root of the
+	 * working copy.
+	 *
+	 * @return the xml, in UTF-8
+	 * @throws IOException
+	 *             problem writing the xml
+	 */
+	public synchronized byte[] getInfo() throws IOException {
+		if (info == null) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+				writer.writeStartDocument(ENCODING, "1.0");
+				writer.writeCharacters("\n");
+				writer.writeStartElement("info");
+				writer.writeCharacters("\n");
+				final int head = commits.size();
+				writeInfoEntry(writer, ".", "dir", head);
+				for (final Iterator it = liveDirectories.iterator(); it.hasNext();) {
+					writeInfoEntry(writer, (String) it.next(), "dir", head);
+				}
+				final SortedSet sortedFiles = new TreeSet(liveFiles);
+				for (final Iterator it = sortedFiles.iterator(); it.hasNext();) {
+					final String path = (String) it.next();
+					writeInfoEntry(writer, path, "file", ((FileState) fileStates.get(path)).lastRevision);
+				}
+				writer.writeEndElement();
+				writer.writeCharacters("\n");
+				writer.writeEndDocument();
+				writer.close();
+			} catch (final XMLStreamException e) {
+				throw new IOException("svn info: " + e.getMessage());
+			}
+			info = out.toByteArray();
+		}
+		return info;
+	}
+
+	private void writeInfoEntry(final XMLStreamWriter writer, final String path, final String kind, final int lastRevision) throws XMLStreamException {
+		writer.writeStartElement("entry");
+		writer.writeAttribute("kind", kind);
+		writer.writeAttribute("path", path);
+		writer.writeAttribute("revision", String.valueOf(commits.size()));
+		writer.writeCharacters("\n");
+		writeElement(writer, "url", REPOSITORY_URL + MODULE + (path.equals(".") ? "" : "/" + path));
+		writer.writeStartElement("repository");
+		writer.writeCharacters("\n");
+		writeElement(writer, "root", REPOSITORY_URL);
+		writeElement(writer, "uuid", getRepositoryUuid());
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.writeStartElement("commit");
+		writer.writeAttribute("revision", String.valueOf(lastRevision));
+		writer.writeCharacters("\n");
+		writeElement(writer, "author", ((Commit) commits.get(lastRevision - 1)).author);
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+	}
+
+	/**
+	 * Writes the live files of the module, with as many lines as the history
+	 * says, into a directory.
+	 *
+	 * @param root
+	 *            the root of the working copy
+	 * @throws IOException
+	 *             problem writing the files
+	 */
+	public void writeWorkingCopy(final File root) throws IOException {
+		for (final Iterator it = liveDirectories.iterator(); it.hasNext();) {
+			final File directory = new File(root, (String) it.next());
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Can't create directory: " + directory);
+			}
+		}
+		for (final Iterator it = liveFiles.iterator(); it.hasNext();) {
+			final String path = (String) it.next();
+			final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(root, path)), ENCODING));
+			try {
+				final int lines = ((FileState) fileStates.get(path)).lines;
+				for (int i = 0; i < lines; i++) {
+					out.write("    line " + i + " of " + path + "\n");
+				}
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the output of <tt>svn diff -c</tt> on the module for a revision.
+	 *
+	 * @param revision
+	 *            the revision number
+	 * @return the diff, in UTF-8
+	 * @throws IOException
+	 *             if there is no such revision
+	 */
+	public byte[] getRevisionDiff(final String revision) throws IOException {
+		synchronized (revisionDiffs) {
+			byte[] diff = (byte[]) revisionDiffs.get(revision);
+			if (diff == null) {
+				final Commit commit = getCommit(revision);
+				final StringBuffer buffer = new StringBuffer();
+				for (final Iterator it = commit.diffs.iterator(); it.hasNext();) {
+					appendDiff(buffer, (FileDiff) it.next(), commit.number);
+				}
+				diff = buffer.toString().getBytes(ENCODING);
+				revisionDiffs.put(revision, diff);
+			}
+			return diff;
+		}
+	}
+
+	/**
+	 * Returns the output of <tt>svn diff</tt> for a file between a revision
+	 * and the one before it.
+	 *
+	 * @param filename
+	 *            the path relative to the module
+	 * @param revision
+	 *            the revision number
+	 * @return the diff, in UTF-8; empty if the file did not change in that
+	 *         revision
+	 * @throws IOException
+	 *             if there is no such revision
+	 */
+	public byte[] getFileDiff(final String filename, final String revision) throws IOException {
+		final Commit commit = getCommit(revision);
+		final StringBuffer buffer = new StringBuffer();
+		for (final Iterator it = commit.diffs.iterator(); it.hasNext();) {
+			final FileDiff diff = (FileDiff) it.next();
+			if (diff.path.equals(filename)) {
+				appendDiff(buffer, diff, commit.number);
+			}
+		}
+		return buffer.toString().getBytes(ENCODING);
+	}
+
+	/**
+	 * Returns the lines added and removed in each file of a revision, as
+	 * {@link SvnDiffUtils#getLineDiff(String)} should count them.
+	 *
+	 * @param revision
+	 *            the revision number
+	 * @return int[2] arrays of [lines added, lines removed] by path
+	 * @throws IOException
+	 *             if there is no such revision
+	 */
+	public Map getExpectedLineDiffs(final String revision) throws IOException {
+		final Map result = new HashMap();
+		for (final Iterator it = getCommit(revision).diffs.iterator(); it.hasNext();) {
+			final FileDiff diff = (FileDiff) it.next();
+			result.put(diff.path, new int[] { diff.added, diff.removed });
+		}
+		return result;
+	}
+
+	private Commit getCommit(final String revision) throws IOException {
+		try {
+			return (Commit) commits.get(Integer.parseInt(revision) - 1);
+		} catch (final NumberFormatException e) {
+			throw new IOException("No revision " + revision);
+		} catch (final IndexOutOfBoundsException e) {
+			throw new IOException("No revision " + revision);
+		}
+	}
+
+	private static void appendDiff(final StringBuffer buffer, final FileDiff diff, final int revision) {
+		buffer.append("Index: ").append(diff.path).append('\n');
+		buffer.append("===================================================================\n");
+		buffer.append("--- ").append(diff.path).append("\t(revision ").append(diff.oldRevision).append(")\n");
+		buffer.append("+++ ").append(diff.path).append("\t(revision ").append(revision).append(")\n");
+		buffer.append("@@ -1,").append(diff.removed + 1).append(" +1,").append(diff.added + 1).append(" @@\n");
+		buffer.append(" context of ").append(diff.path).append('\n');
+		for (int i = 0; i < diff.removed; i++) {
+			buffer.append("-    old line ").append(i).append('\n');
+		}
+		for (int i = 0; i < diff.added; i++) {
+			buffer.append("+    new line ").append(i).append(" of r").append(revision).append('\n');
+		}
+	}
+
+	/**
+	 * Writes the line count cache that StatSVN would have saved after diffing
+	 * every revision.
+	 *
+	 * @param file
+	 *            the cache file
+	 * @param repositoryFileManager
+	 *            a manager on this repository, used to make the paths absolute
+	 * @throws IOException
+	 *             problem writing the file
+	 */
+	public void writeCache(final File file, final RepositoryFileManager repositoryFileManager) throws IOException {
+		final CacheBuilder cacheBuilder = new CacheBuilder(null, repositoryFileManager);
+		for (final Iterator it = commits.iterator(); it.hasNext();) {
+			final Commit commit = (Commit) it.next();
+			for (final Iterator diffs = commit.diffs.iterator(); diffs.hasNext();) {
+				final FileDiff diff = (FileDiff) diffs.next();
+				cacheBuilder.newRevision(diff.path, String.valueOf(commit.number), String.valueOf(diff.added), String.valueOf(diff.removed), false);
+			}
+		}
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			XmlCacheStore.writeXml(cacheBuilder, out);
+		} catch (final XMLStreamException e) {
+			throw new IOException("Cache: " + e.getMessage());
+		} finally {
+			out.close();
+		}
+	}
+
+	private static final class Commit {
+		private final int number;
+
+		private final String author;
+
+		private final long date;
+
+		private String message;
+
+		private final List paths = new ArrayList();
+
+		private final List diffs = new ArrayList();
+
+		private Commit(final int number, final String author, final long date) {
+			this.number = number;
+			this.author = author;
+			this.date = date;
+		}
+	}
+
+	private static final class PathChange {
+		private final char action;
+
+		private final String path;
+
+		private final String copyFromPath;
+
+		private final int copyFromRevision;
+
+		private PathChange(final char action, final String path, final String copyFromPath, final int copyFromRevision) {
+			this.action = action;
+			this.path = path;
+			this.copyFromPath = copyFromPath;
+			this.copyFromRevision = copyFromRevision;
+		}
+	}
+
+	private static final class FileDiff {
+		private final String path;
+
+		private final int added;
+
+		private final int removed;
+
+		private final int oldRevision;
+
+		private FileDiff(final String path, final int added, final int removed, final int oldRevision) {
+			this.path = path;
+			this.added = added;
+			this.removed = removed;
+			this.oldRevision = oldRevision;
+		}
+	}
+
+	private static final class FileState {
+		private int lines;
+
+		private int lastRevision;
+
+		// position in the list of live files.
+		private int index;
+
+		private FileState(final int lines, final int lastRevision) {
+			this.lines = lines;
+			this.lastRevision = lastRevision;
+		}
+	}
+}
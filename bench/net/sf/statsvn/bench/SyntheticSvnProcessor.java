@@ -0,0 +1,98 @@
+package net.sf.statsvn.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Vector;
+
+import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statsvn.util.BinaryDiffException;
+import net.sf.statsvn.util.ISvnDiffProcessor;
+import net.sf.statsvn.util.ISvnInfoProcessor;
+import net.sf.statsvn.util.ISvnPropgetProcessor;
+import net.sf.statsvn.util.SvnCommandLineProcessor;
+import net.sf.statsvn.util.SvnDiffUtils;
+import net.sf.statsvn.util.SvnInfoUtils;
+import net.sf.statsvn.util.SvnPropgetUtils;
+
+/**
+ * Answers the svn info, diff and propget queries of StatSVN from a {@link
+ * SyntheticRepository} instead of calling svn. The answers go through the
+ * same parsers as the output of the svn command line client.
+ */
+public class SyntheticSvnProcessor extends SvnCommandLineProcessor {
+	private final SyntheticRepository repository;
+
+	private ISvnDiffProcessor diffProcessor;
+
+	private ISvnInfoProcessor infoProcessor;
+
+	private ISvnPropgetProcessor propgetProcessor;
+
+	/**
+	 * @param repository
+	 *            the generated repository
+	 */
+	public SyntheticSvnProcessor(final SyntheticRepository repository) {
+		this.repository = repository;
+	}
+
+	public synchronized ISvnDiffProcessor getDiffProcessor() {
+		if (diffProcessor == null) {
+			diffProcessor = new DiffProcessor();
+		}
+		return diffProcessor;
+	}
+
+	public synchronized ISvnInfoProcessor getInfoProcessor() {
+		if (infoProcessor == null) {
+			infoProcessor = new InfoProcessor();
+		}
+		return infoProcessor;
+	}
+
+	public synchronized ISvnPropgetProcessor getPropgetProcessor() {
+		if (propgetProcessor == null) {
+			propgetProcessor = new PropgetProcessor();
+		}
+		return propgetProcessor;
+	}
+
+	private class DiffProcessor extends SvnDiffUtils {
+		DiffProcessor() {
+			super(SyntheticSvnProcessor.this);
+		}
+
+		public int[] getLineDiff(final String oldRevNr, final String newRevNr, final String filename) throws IOException, BinaryDiffException {
+			return parseSingleDiffStream(new ByteArrayInputStream(repository.getFileDiff(filename, newRevNr)));
+		}
+
+		public Vector getLineDiff(final String newRevNr) throws IOException, BinaryDiffException {
+			final Vector answer = new Vector();
+			parseMultipleDiffStream(answer, new ByteArrayInputStream(repository.getRevisionDiff(newRevNr)));
+			return answer;
+		}
+	}
+
+	private class InfoProcessor extends SvnInfoUtils {
+		InfoProcessor() {
+			super(SyntheticSvnProcessor.this);
+		}
+
+		protected void loadInfo(final boolean bRootOnly) throws LogSyntaxException, IOException {
+			loadInfo(new ByteArrayInputStream(repository.getInfo()));
+		}
+	}
+
+	// the generated files are all text files.
+	private class PropgetProcessor extends SvnPropgetUtils {
+		PropgetProcessor() {
+			super(SyntheticSvnProcessor.this);
+			binaryFiles = new HashSet();
+		}
+
+		protected boolean queryBinaryFile(final String revision, final String filename) {
+			return false;
+		}
+	}
+}
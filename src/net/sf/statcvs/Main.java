@@ -22,6 +22,7 @@
 */
 package net.sf.statcvs;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -41,6 +42,7 @@ import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.pages.Page;
 import net.sf.statcvs.pages.ReportSuiteMaker;
+import net.sf.statcvs.util.Metrics;
 
 /**
  * StatCvs Main Class; it starts the application and controls command-line
@@ -110,6 +112,10 @@ public class Main {
                         + "  -title <title>     set project title to be used in reports\n" + "  -xdoc              generate Maven XDoc instead of HTML\n"
                         + "  -trac <url>        integrate with Trac at <url>\n" + "  -xml               generate XML instead of HTML\n"
                         + "  -charset <charset> specify the charset to use for html/xdoc\n" + "  -verbose           print extra progress information\n"
+                        + "  -report-threads <int> how many threads generate the reports (default: 1)\n"
+                        + "  -chart-compression <0-9> compression level of the chart images\n"
+                        + "  -repomap-chunk-files <int> split the repo map data at directories with more files\n"
+                        + "  -metrics <file>    write the timings and memory use of the run to <file>, as JSON\n"
                         + "  -viewcvs/viewvc/cvsweb/chora/jcvsweb/bugzilla/mantis <url>\n" + "                     add links to installation at <url>\n"
                         + "  -disable-twitter-button\n" + "\n" + "Full options list: http://statcvs.sf.net/manual");
         System.exit(1);
@@ -155,6 +161,12 @@ public class Main {
 
         final long memoryUsedOnStart = Runtime.getRuntime().totalMemory();
         final long startTime = System.currentTimeMillis();
+        Metrics.reset();
+        final Metrics.Timing run = Metrics.startPhase("run");
+        Metrics.setAttribute("tool", "statcvs");
+        Metrics.setAttribute("version", Messages.getString("PROJECT_VERSION"));
+        Metrics.setAttribute("reportThreads", Integer.valueOf(ConfigurationOptions.getReportThreads()));
+        Metrics.setAttribute("chartThreads", Integer.valueOf(ConfigurationOptions.getChartThreads()));
 
         initLogManager(ConfigurationOptions.getLoggingProperties());
 
@@ -168,7 +180,9 @@ public class Main {
 
             builder = new Builder(repFileMan, ConfigurationOptions.getIncludePattern(), ConfigurationOptions.getExcludePattern(), ConfigurationOptions
                     .getSymbolicNamesPattern());
+            final Metrics.Timing logParse = Metrics.startPhase("log.parse");
             new CvsLogfileParser(logReader, builder).parse();
+            logParse.stop();
         } finally {
             if (logReader != null) {
                 logReader.close();
@@ -182,7 +196,11 @@ public class Main {
         }
         logger.info("Generating report for " + ConfigurationOptions.getProjectName() + " into " + ConfigurationOptions.getOutputDir());
         logger.info("Using " + ConfigurationOptions.getCssHandler());
+        final Metrics.Timing modelBuild = Metrics.startPhase("model.build");
         final Repository content = builder.createCvsContent();
+        modelBuild.stop();
+        Metrics.setAttribute("files", Integer.valueOf(content.getFiles().size()));
+        Metrics.setAttribute("commits", Integer.valueOf(content.getCommits().size()));
         if (content.isEmpty()) {
             if (builder.allRejectedByExcludePattern()) {
                 logger.warning("Exclude pattern '" + ConfigurationOptions.getExcludePattern() + "' removed all files from repository");
@@ -218,6 +236,7 @@ public class Main {
         //        extraReports.add(new RepoMapPageMaker(config).toFile());
         //        extraReports.add(new ChurnPageMaker(config).toFile());
 
+        final Metrics.Timing reports = Metrics.startPhase("reports");
         ReportSuiteMaker reportSuiteMaker = new ReportSuiteMaker(config, ConfigurationOptions.getNotes(), extraReports);
         if ("xml".equalsIgnoreCase(ConfigurationOptions.getOutputFormat())) {
             reportSuiteMaker.toXml();
@@ -243,11 +262,16 @@ public class Main {
 //                e.printStackTrace();
 //            }
 }
+        reports.stop();
+        run.stop();
 
         final long endTime = System.currentTimeMillis();
         final long memoryUsedOnEnd = Runtime.getRuntime().totalMemory();
 
         logger.info("runtime: " + (((double) endTime - startTime) / 1000) + " seconds");
         logger.info("memory usage: " + (((double) memoryUsedOnEnd - memoryUsedOnStart) / 1024) + " kb");
+        if (ConfigurationOptions.getMetricsFile() != null) {
+            Metrics.writeJson(new File(ConfigurationOptions.getMetricsFile()));
+        }
     }
 }
@@ -59,6 +59,11 @@ public class StatCvsTask extends Task {
     private String nonDeveloperLogin;
     private String charset;
     private String configFile;
+    private int reportThreads;
+    private int chartThreads;
+    private String chartCompression;
+    private int repoMapChunkFiles;
+    private String metrics;
     
     /**
      * Constructor for StatCvsTask.
@@ -149,6 +154,21 @@ public class StatCvsTask extends Task {
         if (configFile != null) {
             ConfigurationOptions.setConfigFile(this.configFile);
         }
+        if (reportThreads != 0) {
+            ConfigurationOptions.setReportThreads(this.reportThreads);
+        }
+        if (chartThreads != 0) {
+            ConfigurationOptions.setChartThreads(this.chartThreads);
+        }
+        if (chartCompression != null) {
+            ConfigurationOptions.setChartCompression(Integer.parseInt(this.chartCompression));
+        }
+        if (repoMapChunkFiles != 0) {
+            ConfigurationOptions.setRepoMapChunkFiles(this.repoMapChunkFiles);
+        }
+        if (metrics != null) {
+            ConfigurationOptions.setMetricsFile(this.metrics);
+        }
     }
 
     /**
@@ -301,4 +321,41 @@ public class StatCvsTask extends Task {
     public void setConfigFile(String configFile) {
         this.configFile = configFile;
     }
+
+    /**
+     * @param reportThreads the number of threads generating the report suite
+     */
+    public void setReportThreads(final int reportThreads) {
+        this.reportThreads = reportThreads;
+    }
+
+    /**
+     * @param chartThreads the number of threads writing the chart images
+     */
+    public void setChartThreads(final int chartThreads) {
+        this.chartThreads = chartThreads;
+    }
+
+    /**
+     * @param chartCompression the compression level of the chart images,
+     *      from 0 to 9
+     */
+    public void setChartCompression(final String chartCompression) {
+        this.chartCompression = chartCompression;
+    }
+
+    /**
+     * @param repoMapChunkFiles the number of files above which the repo map
+     *      data of a directory goes to a separate file
+     */
+    public void setRepoMapChunkFiles(final int repoMapChunkFiles) {
+        this.repoMapChunkFiles = repoMapChunkFiles;
+    }
+
+    /**
+     * @param metrics the file the run metrics are written to, as JSON
+     */
+    public void setMetrics(final String metrics) {
+        this.metrics = metrics;
+    }
 }
\ No newline at end of file
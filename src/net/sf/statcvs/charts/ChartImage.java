@@ -2,6 +2,7 @@ package net.sf.statcvs.charts;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
@@ -30,6 +31,7 @@ public class ChartImage {
     private final String fileName;
     private final Dimension size;
     private final String title;
+    private final ChartRenderer renderer;
     private boolean written = false;
 
     /**
@@ -41,31 +43,69 @@ public class ChartImage {
      * @param size width and height of the chart in pixels
      */
     public ChartImage(final String rootDirectory, final String fileName, final String title, final JFreeChart chart, final Dimension size) {
+        this(rootDirectory, fileName, title, chart, size, null);
+    }
+
+    /**
+     * Creates a new ChartFile that is written by a {@link ChartRenderer}.
+     * @param rootDirectory The report root directory with trailing slash
+     * @param fileName The relative file name for the chart, with .png extension
+     * @param title The chart's title
+     * @param chart The JFreeChart object to save as a file
+     * @param size width and height of the chart in pixels
+     * @param renderer The renderer writing the file in the background;
+     *      <tt>null</tt> to write it on the calling thread
+     */
+    public ChartImage(final String rootDirectory, final String fileName, final String title, final JFreeChart chart, final Dimension size,
+            final ChartRenderer renderer) {
         this.rootDirectory = rootDirectory;
         this.fileName = fileName;
         this.title = title;
         this.chart = chart;
         this.size = size;
+        this.renderer = renderer;
         //        chart.setBackgroundPaint(BACKGROUND_COLOR);
     }
 
     /**
-     * Writes the chart to disk as a PNG file.
+     * Writes the chart to disk as a PNG file. With a {@link ChartRenderer},
+     * the chart is only queued for writing, and this method returns at once.
      */
     public void write() {
         if (this.written) {
             return;
         }
+        this.written = true;
+        if (this.renderer != null) {
+            this.renderer.render(this);
+            return;
+        }
         logger.info("writing chart '" + this.title + "' to " + this.fileName);
         try {
             ChartUtilities.saveChartAsPNG(new File(rootDirectory + fileName), chart, size.width, size.height);
         } catch (final IOException e) {
             logger.warning("could not write chart '" + fileName + "': " + e);
         }
-        this.written = true;
         this.chart = null; // Free memory? Not sure if this has any effect ... 
     }
 
+    /**
+     * Draws the chart and releases the <tt>JFreeChart</tt> object.
+     * @return the drawn chart
+     */
+    BufferedImage createImage() {
+        final BufferedImage image = this.chart.createBufferedImage(this.size.width, this.size.height);
+        this.chart = null;
+        return image;
+    }
+
+    /**
+     * @return the file the chart is written to
+     */
+    File getFile() {
+        return new File(this.rootDirectory + this.fileName);
+    }
+
     /**
      * Returns the chart's URL, relative to the report root.
      */
@@ -0,0 +1,225 @@
+package net.sf.statcvs.charts;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Logger;
+
+import net.sf.statcvs.util.FileUtils;
+import net.sf.statcvs.util.Metrics;
+
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.encoders.KeypointPNGEncoderAdapter;
+
+import edu.emory.mathcs.backport.java.util.concurrent.ArrayBlockingQueue;
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+import edu.emory.mathcs.backport.java.util.concurrent.CountDownLatch;
+import edu.emory.mathcs.backport.java.util.concurrent.ThreadPoolExecutor;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes {@link ChartImage}s to PNG files on a pool of threads, so that
+ * pages do not wait for their charts to be encoded. The URL of a chart is
+ * its file name, which is known before the chart is written.
+ *
+ * <p>Only a few charts wait in the queue at any time; when it is full, the
+ * chart is written by the thread that submits it. A chart releases its
+ * <tt>JFreeChart</tt> once it is drawn.</p>
+ *
+ * <p>Charts that are drawn with exactly the same pixels, like the activity
+ * charts of developers with a single commit, are encoded only once. The
+ * other files get a copy of the first one. Only the file of each distinct
+ * chart is remembered; an image is released as soon as it is written.</p>
+ *
+ * <p>The time taken to draw, encode and copy the charts is added to the
+ * {@link Metrics} of the run.</p>
+ */
+public class ChartRenderer {
+    private static final Logger logger = Logger.getLogger("sf.net.statcvs");
+
+    private final ThreadPoolExecutor pool;
+    private final int compression;
+    private final ConcurrentHashMap filesByPixels = new ConcurrentHashMap();
+    private final AtomicInteger charts = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+
+    /**
+     * @param threads the number of threads writing charts
+     * @param compression the PNG compression level, from 0 (none) to 9
+     *      (best), or -1 for the default encoder of JFreeChart
+     */
+    public ChartRenderer(final int threads, final int compression) {
+        final int poolSize = Math.max(1, threads);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue(poolSize),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.compression = compression;
+    }
+
+    /**
+     * Queues a chart for writing. Once the renderer is finished, the chart is
+     * written right away.
+     * @param image the chart
+     */
+    public void render(final ChartImage image) {
+        if (this.pool.isShutdown()) {
+            renderNow(image);
+            return;
+        }
+        this.pool.execute(new Runnable() {
+            public void run() {
+                renderNow(image);
+            }
+        });
+    }
+
+    /**
+     * Waits until all queued charts are written.
+     */
+    public void finish() {
+        this.pool.shutdown();
+        try {
+            while (!this.pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("writing charts: " + this.charts.get() + " done");
+            }
+        } catch (final InterruptedException e) {
+            this.pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("wrote " + this.charts.get() + " charts, " + this.duplicates.get() + " of them copies of identical charts");
+        Metrics.count("charts", this.charts.get());
+        Metrics.count("charts.duplicates", this.duplicates.get());
+    }
+
+    private void renderNow(final ChartImage image) {
+        logger.info("writing chart '" + image.getFullTitle() + "' to " + image.getURL());
+        try {
+            final Metrics.Timing drawing = Metrics.startTimer("chart.draw");
+            BufferedImage bufferedImage = image.createImage();
+            drawing.stop();
+            final File file = image.getFile();
+            final EncodedChart encoding = new EncodedChart(file);
+            final EncodedChart first = (EncodedChart) this.filesByPixels.putIfAbsent(getPixelDigest(bufferedImage), encoding);
+            if (first == null) {
+                try {
+                    encode(bufferedImage, file);
+                    bufferedImage = null;
+                    encoding.setWritten(true);
+                } finally {
+                    encoding.setWritten(false);
+                }
+            } else if (first.awaitWritten()) {
+                // the first chart with these pixels is written at least
+                // as far as this one, so waiting for it does not block
+                bufferedImage = null;
+                final Metrics.Timing copying = Metrics.startTimer("chart.copy");
+                // a binary copy, unlike FileUtils.copyFile(String, String)
+                FileUtils.copyFile(new FileInputStream(first.getFile()), file);
+                copying.stop();
+                this.duplicates.incrementAndGet();
+            } else {
+                encode(bufferedImage, file);
+            }
+            this.charts.incrementAndGet();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            logger.warning("could not write chart '" + image.getURL() + "': " + e);
+        } catch (final RuntimeException e) {
+            logger.warning("could not write chart '" + image.getURL() + "': " + e);
+        }
+    }
+
+    private void encode(final BufferedImage image, final File file) throws IOException {
+        final Metrics.Timing encoding = Metrics.startTimer("chart.encode");
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            if (this.compression < 0) {
+                ChartUtilities.writeBufferedImageAsPNG(out, image);
+            } else {
+                final KeypointPNGEncoderAdapter encoder = new KeypointPNGEncoderAdapter();
+                encoder.setEncodingAlpha(true);
+                encoder.setQuality(this.compression);
+                encoder.encode(image, out);
+            }
+        } finally {
+            out.close();
+            encoding.stop();
+        }
+        Metrics.record("chart.bytes", file.length());
+    }
+
+    /**
+     * @return a digest of the size and the pixels of the image
+     */
+    private static String getPixelDigest(final BufferedImage image) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        final int width = image.getWidth();
+        final int[] row = new int[width];
+        final ByteBuffer bytes = ByteBuffer.allocate(width * 4);
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            bytes.clear();
+            bytes.asIntBuffer().put(row);
+            digest.update(bytes.array());
+        }
+        final StringBuffer result = new StringBuffer();
+        result.append(width).append('x').append(image.getHeight()).append(':');
+        final byte[] hash = digest.digest();
+        for (int i = 0; i < hash.length; i++) {
+            result.append(Integer.toHexString((hash[i] & 0xff) | 0x100).substring(1));
+        }
+        return result.toString();
+    }
+
+    /**
+     * The file of the first chart with some pixels. It does not keep the
+     * image, so that only the file names of the charts stay in memory.
+     */
+    private static final class EncodedChart {
+        private final File file;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean written = false;
+
+        private EncodedChart(final File file) {
+            this.file = file;
+        }
+
+        private File getFile() {
+            return this.file;
+        }
+
+        /**
+         * Tells the charts waiting for this one whether it was written.
+         * Only the first call has an effect.
+         */
+        private synchronized void setWritten(final boolean written) {
+            if (this.done.getCount() > 0) {
+                this.written = written;
+                this.done.countDown();
+            }
+        }
+
+        /**
+         * @return whether the file was written
+         */
+        private boolean awaitWritten() throws InterruptedException {
+            this.done.await();
+            synchronized (this) {
+                return this.written;
+            }
+        }
+    }
+}
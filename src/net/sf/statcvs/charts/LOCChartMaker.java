@@ -9,14 +9,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.text.SimpleDateFormat;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedSet;
 
 import net.sf.statcvs.Messages;
-import net.sf.statcvs.model.Author;
 import net.sf.statcvs.model.Directory;
 import net.sf.statcvs.model.Module;
 import net.sf.statcvs.model.Repository;
@@ -168,6 +165,24 @@ public class LOCChartMaker {
         return locCounter.getTimeSeries();
     }
 
+    /**
+     * Builds the LOC series of a directory or module from its own revisions,
+     * rather than from a scan of all revisions of the repository.
+     * @return the series or <tt>null</tt> if there are no revisions
+     *         after the beginning of the log
+     */
+    private static TimeSeries getEffectiveLOCSeries(final SortedSet revisions, final String title) {
+        final LOCSeriesBuilder builder = new LOCSeriesBuilder(title, true);
+        final Iterator it = revisions.iterator();
+        while (it.hasNext()) {
+            final Revision rev = (Revision) it.next();
+            if (!rev.isBeginOfLog()) {
+                builder.addRevision(rev);
+            }
+        }
+        return builder.getTimeSeries();
+    }
+
     public static class MainLOCChartMaker extends LOCChartMaker {
         public MainLOCChartMaker(final String chartName, final ReportConfig config, final String fileName, final Dimension size) {
             super(chartName, config, getLOCTimeSeries(config.getRepository().getRevisions(), Messages.getString("TIME_LOC_SUBTITLE")), Messages
@@ -191,44 +206,8 @@ public class LOCChartMaker {
     }
 
     public static class AllDevelopersLOCChartMaker extends LOCChartMaker {
-        private static List createAllDevelopersLOCSeries(final ReportConfig config) {
-            Iterator it = config.getRepository().getAuthors().iterator();
-            final Map authorSeriesMap = new HashMap();
-            while (it.hasNext()) {
-                final Author author = (Author) it.next();
-                if (!config.isDeveloper(author)) {
-                    continue;
-                }
-                authorSeriesMap.put(author, new LOCSeriesBuilder(author.getRealName(), false));
-            }
-            it = config.getRepository().getRevisions().iterator();
-            while (it.hasNext()) {
-                final Revision rev = (Revision) it.next();
-                if (rev.isBeginOfLog()) {
-                    continue;
-                }
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) authorSeriesMap.get(rev.getAuthor());
-                if (builder != null) {
-                    builder.addRevision(rev);
-                } // otherwise the revision was by a non-developer login
-            }
-            final List authors = new ArrayList(authorSeriesMap.keySet());
-            Collections.sort(authors);
-            final List result = new ArrayList();
-            it = authors.iterator();
-            while (it.hasNext()) {
-                final Author author = (Author) it.next();
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) authorSeriesMap.get(author);
-                final TimeSeries series = builder.getTimeSeries();
-                if (series != null) {
-                    result.add(series);
-                }
-            }
-            return result;
-        }
-
         public AllDevelopersLOCChartMaker(final ReportConfig config, final Dimension size) {
-            super("loc_per_author", config, createAllDevelopersLOCSeries(config), Messages.getString("CONTRIBUTED_LOC_TITLE"), "loc_per_author.png", size,
+            super("loc_per_author", config, config.getAggregates().getDeveloperLOCSeries(), Messages.getString("CONTRIBUTED_LOC_TITLE"), "loc_per_author.png", size,
                     SymbolicNameAnnotation.createAnnotations(config.getRepository().getSymbolicNames()));
         }
     }
@@ -281,32 +260,13 @@ public class LOCChartMaker {
         }
 
         private static List createAllDirectoriesLOCSeries(final Repository repository, final int max) {
-            Iterator it = getMajorDirectories(repository, max).iterator();
-            final Map directorySeriesMap = new HashMap();
-            while (it.hasNext()) {
-                final Directory directory = (Directory) it.next();
-                directorySeriesMap.put(directory, new LOCSeriesBuilder(directory.getPath(), true));
-            }
-            it = repository.getRevisions().iterator();
-            while (it.hasNext()) {
-                final Revision rev = (Revision) it.next();
-                if (rev.isBeginOfLog()) {
-                    continue;
-                }
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) directorySeriesMap.get(rev.getFile().getDirectory());
-                if (builder == null) {
-                    continue; // minor directory
-                }
-                builder.addRevision(rev);
-            }
-            final List directories = new ArrayList(directorySeriesMap.keySet());
+            final List directories = new ArrayList(getMajorDirectories(repository, max));
             Collections.sort(directories);
             final List result = new ArrayList();
-            it = directories.iterator();
+            final Iterator it = directories.iterator();
             while (it.hasNext()) {
                 final Directory directory = (Directory) it.next();
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) directorySeriesMap.get(directory);
-                final TimeSeries series = builder.getTimeSeries();
+                final TimeSeries series = getEffectiveLOCSeries(directory.getRevisions(), directory.getPath());
                 if (series != null) {
                     result.add(series);
                 }
@@ -370,32 +330,13 @@ public class LOCChartMaker {
         }
 
         private static List createAllModulesLOCSeries(final Repository repository, final int max) {
-            Iterator it = getMajorModules(repository, max).iterator();
-            final Map directorySeriesMap = new HashMap();
-            while (it.hasNext()) {
-                final Module module = (Module) it.next();
-                directorySeriesMap.put(module, new LOCSeriesBuilder(module.getName(), true));
-            }
-            it = repository.getRevisions().iterator();
-            while (it.hasNext()) {
-                final Revision rev = (Revision) it.next();
-                if (rev.isBeginOfLog()) {
-                    continue;
-                }
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) directorySeriesMap.get(rev.getFile().getModule());
-                if (builder == null) {
-                    continue; // minor directory
-                }
-                builder.addRevision(rev);
-            }
-            final List modules = new ArrayList(directorySeriesMap.keySet());
+            final List modules = new ArrayList(getMajorModules(repository, max));
             Collections.sort(modules);
             final List result = new ArrayList();
-            it = modules.iterator();
+            final Iterator it = modules.iterator();
             while (it.hasNext()) {
                 final Module module = (Module) it.next();
-                final LOCSeriesBuilder builder = (LOCSeriesBuilder) directorySeriesMap.get(module);
-                final TimeSeries series = builder.getTimeSeries();
+                final TimeSeries series = getEffectiveLOCSeries(module.getRevisions(), module.getName());
                 if (series != null) {
                     result.add(series);
                 }
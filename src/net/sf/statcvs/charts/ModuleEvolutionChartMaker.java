@@ -5,14 +5,13 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import net.sf.statcvs.model.Module;
 import net.sf.statcvs.model.Repository;
-import net.sf.statcvs.model.Revision;
 import net.sf.statcvs.output.ReportConfig;
+import net.sf.statcvs.reports.RepositoryAggregates.ModuleActivity;
 import net.sf.statcvs.util.IntegerMap;
 import net.sf.statcvs.Messages;
 
@@ -95,96 +94,12 @@ public class ModuleEvolutionChartMaker {
     }
 
     private ContourDataset buildDs() {
-        final Map mapByDate = new LinkedHashMap();
-        int max = 0;
-        final long elapsed = repository.getLastDate().getTime() - repository.getFirstDate().getTime();
-        final long windowSize = Math.max(elapsed / 60, 1);
-
-        IntegerMap commitsPerModule = new IntegerMap();
-
-        final Iterator itRev = repository.getRevisions().iterator();
-
-        long currentDate = -1;
-        while (itRev.hasNext()) {
-            final Revision rev = (Revision) itRev.next();
-
-            final Date date = rev.getDate();
-            System.out.println("| Consider Rev " + rev.getDate() + " Mod:" + rev.getFile().getModule().getName() + " currentDate:" + currentDate);
-            if (currentDate == -1) {
-                currentDate = date.getTime();
-            } else if (date.getTime() > currentDate + windowSize) {
-                // save old map
-                max = Math.max(commitsPerModule.max(), max);
-                mapByDate.put(new Date(currentDate), commitsPerModule);
-
-                // create new map
-                commitsPerModule = new IntegerMap();
-
-                // hack: fill in intermediate values
-                final int fill = (int) ((date.getTime() - currentDate) / windowSize);
-                if (fill > 1) {
-                    mapByDate.put(new Date(currentDate + windowSize), null);
-                }
-                currentDate += fill * windowSize;
-            }
-            commitsPerModule.inc(rev.getFile().getModule().getName());
-        }
-        if (currentDate != -1) {
-            mapByDate.put(new Date(currentDate), commitsPerModule);
-            max = Math.max(commitsPerModule.max(), max);
-        }
-
-        /*
-        final Iterator itMod = repository.getModules().values().iterator();
-
-        while (itMod.hasNext()) {
-            final Module module = (Module) itMod.next();
-            final Iterator it = module.getRevisions().iterator();
-            System.out.println("Consider Module " + module.getName());
-            long currentDate = -1;
-            while (it.hasNext()) {
-                final Revision rev = (Revision) it.next();
-                final Date date = rev.getDate();
-                System.out.println(module.getName() + " | Consider Rev " + rev.getDate() + " currentDate:" + currentDate);
-                if (currentDate == -1) {
-                    currentDate = date.getTime();
-                } else if (date.getTime() > currentDate + windowSize) {
-                    // save old map
-                    max = Math.max(commitsPerModule.max(), max);
-                    mapByDate.put(new Date(currentDate), commitsPerModule);
-
-                    // create new map
-                    commitsPerModule = new IntegerMap();
-
-                    // hack: fill in intermediate values
-                    final int fill = (int) ((date.getTime() - currentDate) / windowSize);
-                    if (fill > 1) {
-                        mapByDate.put(new Date(currentDate + windowSize), null);
-                    }
-                    currentDate += fill * windowSize;
-                }
-                commitsPerModule.inc(module.getName());
-            }
-            if (currentDate != -1) {
-                mapByDate.put(new Date(currentDate), commitsPerModule);
-                max = Math.max(commitsPerModule.max(), max);
-            }
-        }
-        */
-        System.out.println("Module Commit");
-        Iterator it = mapByDate.keySet().iterator();
-        while (it.hasNext()) {
-            final Object key = it.next();
-            final IntegerMap map = (IntegerMap) mapByDate.get(key);
-            System.out.println("Key:" + key);
-            if (map != null) {
-                final Iterator it2 = map.iteratorSortedByKey();
-                while (it2.hasNext()) {
-                    final Object o = it2.next();
-                    System.out.println("Val:" + o + "\t -> " + map.get(o));
-                }
-            }
+        final ModuleActivity activity = config.getAggregates().getModuleActivity();
+        if (activity == null) {
+            return null;
         }
+        final Map mapByDate = activity.getCommitsByDate();
+        final int max = activity.getMax();
 
         final int groupCount = repository.getModules().size();
 
@@ -198,7 +113,7 @@ public class ModuleEvolutionChartMaker {
         final Double[] oDoubleY = new Double[numValues];
         final Double[] oDoubleZ = new Double[numValues];
 
-        it = mapByDate.keySet().iterator();
+        final Iterator it = mapByDate.keySet().iterator();
         for (int x = 0; x < dateCount; x++) {
             if (!it.hasNext()) {
                 throw new RuntimeException("Invalid date count");
@@ -3,7 +3,6 @@ package net.sf.statcvs.charts;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.SortedSet;
@@ -30,6 +29,7 @@ import org.jfree.data.category.DefaultCategoryDataset;
 public abstract class TimeBarChartMaker {
     private final ReportConfig config;
     private final SortedSet revisions;
+    private final int[] barValues;
     private final String title;
     private final String fileName;
     private final String[] barLabels;
@@ -48,31 +48,53 @@ public abstract class TimeBarChartMaker {
         this.config = config;
         this.chartName = chartName;
         this.revisions = revisions;
+        this.barValues = null;
         this.title = title;
         this.fileName = fileName;
         this.barLabels = barLabels;
     }
 
     /**
-     * Creates a bar chart image file.
-     * @return An image file containing the chart
+     * Creates a new BarChartMaker from precomputed values, such as those of
+     * {@link net.sf.statcvs.reports.RepositoryAggregates}.
+     * @param config The configuration to use
+     * @param barValues The number of revisions in each slot
+     * @param title The chart's title
+     * @param fileName The file name for the image file, including <tt>.png</tt> extension
+     * @param barLabels The labels for each bar
      */
-    public ChartImage toFile() {
-        final int[] barValues = new int[this.barLabels.length];
-        for (int i = 0; i < barValues.length; i++) {
-            barValues[i] = 0;
-        }
+    public TimeBarChartMaker(final String chartName, final ReportConfig config, final int[] barValues, final String title, final String fileName,
+            final String[] barLabels) {
+        this.config = config;
+        this.chartName = chartName;
+        this.revisions = null;
+        this.barValues = barValues;
+        this.title = title;
+        this.fileName = fileName;
+        this.barLabels = barLabels;
+    }
+
+    private int[] countRevisions() {
+        final int[] result = new int[this.barLabels.length];
+        final Calendar cal = new GregorianCalendar();
         final Iterator it = this.revisions.iterator();
         while (it.hasNext()) {
             final Revision rev = (Revision) it.next();
-            final Date date = rev.getDate();
-            final Calendar cal = new GregorianCalendar();
-            cal.setTime(date);
-            barValues[barNumberForTime(cal)]++;
+            cal.setTime(rev.getDate());
+            result[barNumberForTime(cal)]++;
         }
+        return result;
+    }
+
+    /**
+     * Creates a bar chart image file.
+     * @return An image file containing the chart
+     */
+    public ChartImage toFile() {
+        final int[] counts = this.barValues != null ? this.barValues : countRevisions();
         final DefaultCategoryDataset data = new DefaultCategoryDataset();
-        for (int i = 0; i < barValues.length; i++) {
-            data.addValue(barValues[i], "Commits", this.barLabels[i]);
+        for (int i = 0; i < counts.length; i++) {
+            data.addValue(counts[i], "Commits", this.barLabels[i]);
         }
         final JFreeChart chart = ChartFactory.createBarChart(this.config.getProjectName() + ": " + this.title, "", "Commits", data, PlotOrientation.VERTICAL,
                 false, false, false);
@@ -112,6 +134,18 @@ public abstract class TimeBarChartMaker {
             super(chartName, config, revisions, title, fileName, HOURS);
         }
 
+        /**
+         * Creates a bar chart showing a distribution of revisions
+         * over the hours of the day.
+         * @param config The configuration to use
+         * @param hourCounts The number of revisions in each hour, starting at midnight
+         * @param title The title of the chart
+         * @param fileName The file for saving the chart
+         */
+        public HourBarChartMaker(final String chartName, final ReportConfig config, final int[] hourCounts, final String title, final String fileName) {
+            super(chartName, config, hourCounts, title, fileName, HOURS);
+        }
+
         protected int barNumberForTime(final Calendar time) {
             return time.get(Calendar.HOUR_OF_DAY);
         }
@@ -132,6 +166,18 @@ public abstract class TimeBarChartMaker {
             super(chartName, config, revisions, title, fileName, WEEKDAYS);
         }
 
+        /**
+         * Creates a bar chart showing a distribution of revisions
+         * over the days of the week.
+         * @param config The configuration to use
+         * @param weekdayCounts The number of revisions on each day, starting on Sunday
+         * @param title The title of the chart
+         * @param fileName The file for saving the chart
+         */
+        public WeekdayBarChartMaker(final String chartName, final ReportConfig config, final int[] weekdayCounts, final String title, final String fileName) {
+            super(chartName, config, weekdayCounts, title, fileName, WEEKDAYS);
+        }
+
         protected int barNumberForTime(final Calendar time) {
             return time.get(Calendar.DAY_OF_WEEK) - 1;
         }
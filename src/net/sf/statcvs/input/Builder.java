@@ -197,6 +197,7 @@ public class Builder implements CvsLogBuilder {
         final List commits = new CommitListBuilder(revisions).createCommitList();
         result.setCommits(commits);
         result.setSymbolicNames(getMatchingSymbolicNames());
+        result.freeze();
         return result;
     }
 
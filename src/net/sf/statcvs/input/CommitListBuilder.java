@@ -22,10 +22,10 @@
 */
 package net.sf.statcvs.input;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
@@ -75,7 +75,7 @@ public class CommitListBuilder {
             return commits;
         }
 
-        commits = new LinkedList();
+        commits = new ArrayList();
         while (revisions.hasNext()) {
             processRevision((Revision) revisions.next());
         }
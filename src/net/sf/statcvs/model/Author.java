@@ -22,6 +22,8 @@ package net.sf.statcvs.model;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.statcvs.util.SortedArraySet;
+
 /**
  * Represents an author of one or more {@link Revision}s in a repository.
  * 
@@ -32,8 +34,8 @@ import java.util.TreeSet;
  */
 public class Author implements Comparable {
     private final String name;
-    private final SortedSet revisions = new TreeSet();
-    private final SortedSet directories = new TreeSet();
+    private SortedSet revisions = new TreeSet();
+    private SortedSet directories = new TreeSet();
     private String realName;
     private String homePageUrl;
     private String imageUrl;
@@ -61,6 +63,15 @@ public class Author implements Comparable {
         directories.add(revision.getFile().getDirectory());
     }
 
+    /**
+     * Replaces the sets of the author by read-only sorted arrays;
+     * called by {@link Repository#freeze()}.
+     */
+    void freeze() {
+        revisions = new SortedArraySet(revisions.toArray());
+        directories = new SortedArraySet(directories.toArray());
+    }
+
     /**
      * Returns the author's login name.
      * @return the author's login name
@@ -19,15 +19,25 @@
 */
 package net.sf.statcvs.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.statcvs.util.SortedArraySet;
+
 /**
  * Represents a directory in the {@link Repository Repository}, a
  * container for {@link VersionedFile}s and sub<tt>Directory</tt>s.
  * A new root directory is created by {@link #createRoot}.
  * The {@link #createSubdirectory} method creates new subdirectories.
+ * <p>
+ * Once the repository is complete, {@link Repository#aggregateDirectories()}
+ * computes the totals of all directories bottom-up, in a single pass. From
+ * then on, the totals are cached instead of being computed on every call.
  * 
  * TODO: Rename getCurrentLOC to getCurrentLines or getCurrentLineCount
  * 
@@ -35,8 +45,20 @@ import java.util.TreeSet;
  * @version $Id: Directory.java,v 1.11 2008/04/02 11:22:16 benoitx Exp $
  */
 public abstract class Directory implements Comparable {
-    private final SortedSet files = new TreeSet();
-    private final SortedSet directories = new TreeSet();
+    private SortedSet files = new TreeSet();
+    private SortedSet directories = new TreeSet();
+
+    // totals cached by aggregate(), valid while aggregated is true
+    private volatile boolean aggregated = false;
+    private int currentLOC;
+    private int currentFileCount;
+    private int deadFileCount;
+    private int revisionCountRecursive;
+    private boolean empty;
+    private Date firstDate;
+    private Date lastDate;
+    private SortedSet subdirectoriesRecursive;
+    private SortedSet revisions;
 
     /**
      * Factory method for creating a new root directory.
@@ -54,6 +76,7 @@ public abstract class Directory implements Comparable {
     public Directory createSubdirectory(final String name) {
         final Directory result = new DirectoryImpl(this, name);
         directories.add(result);
+        invalidate();
         return result;
     }
 
@@ -105,13 +128,25 @@ public abstract class Directory implements Comparable {
      * @return list of <tt>Revision</tt>s for this directory
      */
     public SortedSet getRevisions() {
-        final SortedSet result = new TreeSet();
+        if (aggregated) {
+            synchronized (this) {
+                if (revisions == null) {
+                    revisions = mergeRevisions();
+                }
+                return revisions;
+            }
+        }
+        return mergeRevisions();
+    }
+
+    private SortedSet mergeRevisions() {
+        final List revisionSets = new ArrayList(files.size());
         final Iterator iterator = files.iterator();
         while (iterator.hasNext()) {
             final VersionedFile file = (VersionedFile) iterator.next();
-            result.addAll(file.getRevisions());
+            revisionSets.add(file.getRevisions());
         }
-        return result;
+        return SortedArraySet.merge(revisionSets);
     }
 
     /**
@@ -130,6 +165,9 @@ public abstract class Directory implements Comparable {
      * @return <tt>SortedSet</tt> of {@link Directory} objects
      */
     public SortedSet getSubdirectoriesRecursive() {
+        if (aggregated) {
+            return subdirectoriesRecursive;
+        }
         final SortedSet result = new TreeSet();
         result.add(this);
         final Iterator it = directories.iterator();
@@ -146,6 +184,9 @@ public abstract class Directory implements Comparable {
      * @return lines in this directory
      */
     public int getCurrentLOC() {
+        if (aggregated) {
+            return currentLOC;
+        }
         int result = 0;
         final Iterator it = files.iterator();
         while (it.hasNext()) {
@@ -161,6 +202,9 @@ public abstract class Directory implements Comparable {
      * @return number of files in this directory
      */
     public int getCurrentFileCount() {
+        if (aggregated) {
+            return currentFileCount;
+        }
         int result = 0;
         final Iterator it = files.iterator();
         while (it.hasNext()) {
@@ -179,6 +223,9 @@ public abstract class Directory implements Comparable {
      * @return <code>true</code> if the directory is currently empty
      */
     public boolean isEmpty() {
+        if (aggregated) {
+            return empty;
+        }
         Iterator it = files.iterator();
         while (it.hasNext()) {
             final VersionedFile file = (VersionedFile) it.next();
@@ -196,6 +243,159 @@ public abstract class Directory implements Comparable {
         return true;
     }
 
+    /**
+     * Returns the number of deleted files in this directory.
+     * @return number of deleted files in this directory
+     */
+    public int getDeadFileCount() {
+        if (aggregated) {
+            return deadFileCount;
+        }
+        int result = 0;
+        final Iterator it = files.iterator();
+        while (it.hasNext()) {
+            final VersionedFile file = (VersionedFile) it.next();
+            if (file.isDead()) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of revisions to files in this directory and its
+     * subdirectories.
+     * @return number of revisions in this directory tree
+     */
+    public int getRevisionCountRecursive() {
+        if (aggregated) {
+            return revisionCountRecursive;
+        }
+        int result = 0;
+        final Iterator it = getSubdirectoriesRecursive().iterator();
+        while (it.hasNext()) {
+            final Iterator dirFiles = ((Directory) it.next()).getFiles().iterator();
+            while (dirFiles.hasNext()) {
+                result += ((VersionedFile) dirFiles.next()).getRevisions().size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the date of the first revision to a file in this directory,
+     * or <tt>null</tt> if there are no revisions.
+     * @return the date of the oldest revision in this directory
+     */
+    public Date getFirstDate() {
+        if (aggregated) {
+            return firstDate;
+        }
+        final SortedSet result = getRevisions();
+        return result.isEmpty() ? null : ((Revision) result.first()).getDate();
+    }
+
+    /**
+     * Returns the date of the last revision to a file in this directory,
+     * or <tt>null</tt> if there are no revisions.
+     * @return the date of the most recent revision in this directory
+     */
+    public Date getLastDate() {
+        if (aggregated) {
+            return lastDate;
+        }
+        final SortedSet result = getRevisions();
+        return result.isEmpty() ? null : ((Revision) result.last()).getDate();
+    }
+
+    /**
+     * Computes the totals of this directory and of its subdirectories,
+     * subdirectories first, and caches them. The merged revisions are only
+     * computed when they are first asked for.
+     */
+    void aggregate() {
+        final List subdirectories = new ArrayList();
+        subdirectories.add(this);
+        int revisionCount = 0;
+        boolean noLiveFiles = true;
+        final Iterator dirs = directories.iterator();
+        while (dirs.hasNext()) {
+            final Directory subdir = (Directory) dirs.next();
+            subdir.aggregate();
+            subdirectories.addAll(subdir.subdirectoriesRecursive);
+            revisionCount += subdir.revisionCountRecursive;
+            noLiveFiles &= subdir.empty;
+        }
+        int loc = 0;
+        int live = 0;
+        int dead = 0;
+        Date first = null;
+        Date last = null;
+        final Iterator it = files.iterator();
+        while (it.hasNext()) {
+            final VersionedFile file = (VersionedFile) it.next();
+            loc += file.getCurrentLinesOfCode();
+            if (file.isDead()) {
+                dead++;
+            } else {
+                live++;
+            }
+            final SortedSet fileRevisions = file.getRevisions();
+            revisionCount += fileRevisions.size();
+            if (!fileRevisions.isEmpty()) {
+                final Date fileFirst = ((Revision) fileRevisions.first()).getDate();
+                final Date fileLast = ((Revision) fileRevisions.last()).getDate();
+                if (first == null || fileFirst.before(first)) {
+                    first = fileFirst;
+                }
+                if (last == null || fileLast.after(last)) {
+                    last = fileLast;
+                }
+            }
+        }
+        Collections.sort(subdirectories);
+        synchronized (this) {
+            this.currentLOC = loc;
+            this.currentFileCount = live;
+            this.deadFileCount = dead;
+            this.revisionCountRecursive = revisionCount;
+            this.empty = noLiveFiles && live == 0;
+            this.firstDate = first;
+            this.lastDate = last;
+            this.subdirectoriesRecursive = new SortedArraySet(subdirectories.toArray());
+            this.revisions = null;
+            this.aggregated = true;
+        }
+    }
+
+    /**
+     * Replaces the files and subdirectories of this directory and of its
+     * subdirectories by read-only sorted arrays; called by
+     * {@link Repository#freeze()}.
+     */
+    void freeze() {
+        final Iterator it = directories.iterator();
+        while (it.hasNext()) {
+            ((Directory) it.next()).freeze();
+        }
+        files = new SortedArraySet(files.toArray());
+        directories = new SortedArraySet(directories.toArray());
+    }
+
+    /**
+     * Drops the cached totals of this directory and of its parents.
+     */
+    private void invalidate() {
+        Directory dir = this;
+        while (dir != null) {
+            synchronized (dir) {
+                dir.aggregated = false;
+                dir.revisions = null;
+            }
+            dir = dir.getParent();
+        }
+    }
+
     /**
      * Compares this directory to another one, based on their full names.
      * @see java.lang.Comparable#compareTo(java.lang.Object)
@@ -210,5 +410,6 @@ public abstract class Directory implements Comparable {
      */
     void addFile(final VersionedFile file) {
         files.add(file);
+        invalidate();
     }
 }
\ No newline at end of file
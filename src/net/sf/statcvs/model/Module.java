@@ -3,16 +3,20 @@
  */
 package net.sf.statcvs.model;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.statcvs.util.SortedArraySet;
+
 /**
  * @author Benoit
  *
  */
 public class Module implements Comparable {
-    private final SortedSet files = new TreeSet();
+    private SortedSet files = new TreeSet();
     private final String name;
     private int currentLoc = -1;
 
@@ -25,6 +29,14 @@ public class Module implements Comparable {
         files.add(vf);
     }
 
+    /**
+     * Replaces the files of the module by a read-only sorted array;
+     * called by {@link Repository#freeze()}.
+     */
+    void freeze() {
+        files = new SortedArraySet(files.toArray());
+    }
+
     public int getCurrentLinesOfCode() {
         if (currentLoc < 0) {
             final Iterator it = files.iterator();
@@ -43,13 +55,13 @@ public class Module implements Comparable {
      * @return list of <tt>Revision</tt>s for this directory
      */
     public SortedSet getRevisions() {
-        final SortedSet result = new TreeSet();
+        final List revisionSets = new ArrayList(files.size());
         final Iterator iterator = files.iterator();
         while (iterator.hasNext()) {
             final VersionedFile file = (VersionedFile) iterator.next();
-            result.addAll(file.getRevisions());
+            revisionSets.add(file.getRevisions());
         }
-        return result;
+        return SortedArraySet.merge(revisionSets);
     }
 
     public int compareTo(final Object mod) {
@@ -20,8 +20,10 @@
 package net.sf.statcvs.model;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -30,6 +32,7 @@ import java.util.TreeSet;
 import net.sf.statcvs.Messages;
 import net.sf.statcvs.util.FilePatternMatcher;
 import net.sf.statcvs.util.ModuleUtil;
+import net.sf.statcvs.util.SortedArraySet;
 
 /**
  * Represents a CVS Repository and provides access to the {@link VersionedFile}s,
@@ -45,23 +48,34 @@ import net.sf.statcvs.util.ModuleUtil;
  * @version $Id: Repository.java,v 1.5 2009/08/31 19:16:35 benoitx Exp $
  */
 public class Repository {
-    private final SortedSet files = new TreeSet();
-    private final SortedSet authors = new TreeSet();
-    private final SortedSet revisions = new TreeSet();
+    private SortedSet files = new TreeSet();
+    private SortedSet authors = new TreeSet();
+    private SortedSet revisions = new TreeSet();
     private final SortedMap modules = new TreeMap();
     private Directory root = null;
     private Date firstDate = null;
     private Date lastDate = null;
     private List commits;
+    private Map commitsByRevision = null;
+    private TimeIndex timeIndex = null;
+    private boolean frozen = false;
     private SortedSet symbolicNames = new TreeSet();
     private final SymbolicName head = new SymbolicName("@");
+    // FilePatternMatcher by module pattern
+    private final Map moduleMatchers = new HashMap();
 
     /**
      * Adds one file to the repository.
      * @param file the file
      */
     public void addFile(final VersionedFile file) {
+        if (frozen) {
+            throw new IllegalStateException("can't add files to a frozen repository");
+        }
         files.add(file);
+        synchronized (this) {
+            timeIndex = null;
+        }
         final Iterator it = file.getRevisions().iterator();
         while (it.hasNext()) {
             final Revision revision = (Revision) it.next();
@@ -92,7 +106,11 @@ public class Repository {
             final String pattern = ModuleUtil.getConfigModuleRegexp(moduleId);
             final String name = ModuleUtil.getConfigModuleName(moduleId);
 
-            final FilePatternMatcher fpm = new FilePatternMatcher(pattern);
+            FilePatternMatcher fpm = (FilePatternMatcher) moduleMatchers.get(pattern);
+            if (fpm == null) {
+                fpm = new FilePatternMatcher(pattern);
+                moduleMatchers.put(pattern, fpm);
+            }
 
             if (fpm.matches(file.getFilenameWithPath())) {
                 modName = name;
@@ -121,6 +139,10 @@ public class Repository {
      */
     public void setCommits(final List commits) {
         this.commits = commits;
+        synchronized (this) {
+            this.commitsByRevision = null;
+            this.timeIndex = null;
+        }
     }
 
     /**
@@ -132,6 +154,112 @@ public class Repository {
         return commits;
     }
 
+    /**
+     * Returns the {@link Commit} a {@link Revision} belongs to. The index
+     * from revisions to commits is built on the first call.
+     * 
+     * @param revision the revision
+     * @return the commit containing the revision, or <tt>null</tt>
+     */
+    public Commit getCommit(final Revision revision) {
+        return (Commit) getCommitsByRevision().get(revision);
+    }
+
+    private synchronized Map getCommitsByRevision() {
+        if (commitsByRevision == null) {
+            commitsByRevision = new HashMap();
+            if (commits != null) {
+                for (final Iterator it = commits.iterator(); it.hasNext();) {
+                    final Commit commit = (Commit) it.next();
+                    for (final Iterator revs = commit.getRevisions().iterator(); revs.hasNext();) {
+                        final Object revision = revs.next();
+                        // the first commit containing the revision wins.
+                        if (!commitsByRevision.containsKey(revision)) {
+                            commitsByRevision.put(revision, commit);
+                        }
+                    }
+                }
+            }
+        }
+        return commitsByRevision;
+    }
+
+    /**
+     * Freezes the repository once all files and their revisions have been
+     * added. The sets of the repository, its files, authors, directories,
+     * modules and symbolic names are replaced by read-only sorted arrays,
+     * which take less memory and iterate faster than the
+     * <tt>TreeSet</tt>s used while building. Each revision gets its position
+     * among all revisions, so that revisions are compared by an
+     * <tt>int</tt> instead of dates and strings. The <tt>SortedSet</tt>
+     * getters keep working; only adding to the sets is not possible any more.
+     * Finally, the totals of the directories are computed, see
+     * {@link #aggregateDirectories()}.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        int ordinal = 0;
+        Iterator it = revisions.iterator();
+        while (it.hasNext()) {
+            ((Revision) it.next()).setOrdinal(ordinal++);
+        }
+        revisions = new SortedArraySet(revisions.toArray());
+        it = files.iterator();
+        while (it.hasNext()) {
+            ((VersionedFile) it.next()).freeze();
+        }
+        files = new SortedArraySet(files.toArray());
+        it = authors.iterator();
+        while (it.hasNext()) {
+            ((Author) it.next()).freeze();
+        }
+        authors = new SortedArraySet(authors.toArray());
+        it = symbolicNames.iterator();
+        while (it.hasNext()) {
+            ((SymbolicName) it.next()).freeze();
+        }
+        if (symbolicNames.comparator() == null) {
+            symbolicNames = new SortedArraySet(symbolicNames.toArray());
+        }
+        head.freeze();
+        it = modules.values().iterator();
+        while (it.hasNext()) {
+            ((Module) it.next()).freeze();
+        }
+        if (root != null) {
+            root.freeze();
+        }
+        frozen = true;
+        aggregateDirectories();
+    }
+
+    /**
+     * Computes the totals of all directories in a single bottom-up pass and
+     * caches them in the directories. Must be called once all files and
+     * their revisions have been added; adding a file afterwards drops the
+     * cached totals of its directory and of the directories above.
+     */
+    public void aggregateDirectories() {
+        if (root != null) {
+            root.aggregate();
+        }
+    }
+
+    /**
+     * Returns the index of the commits and symbolic names by month.
+     * The index is built on the first call.
+     * 
+     * @return the time index
+     */
+    public synchronized TimeIndex getTimeIndex() {
+        if (timeIndex == null) {
+            timeIndex = new TimeIndex(this);
+        }
+        return timeIndex;
+    }
+
     /**
      * Returns the latest {@link java.util.Date} when there
      * were changes on the repository.
@@ -216,6 +344,9 @@ public class Repository {
      */
     public void setSymbolicNames(final SortedSet symbolicNames) {
         this.symbolicNames = symbolicNames;
+        synchronized (this) {
+            this.timeIndex = null;
+        }
     }
 
     /**
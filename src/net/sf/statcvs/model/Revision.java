@@ -81,6 +81,11 @@ public class Revision implements Comparable {
 
     private final SortedSet symbolicNames;
 
+    // position in the frozen repository, or -1
+    private int ordinal = -1;
+    // position in the history of the frozen file, or -1
+    private int indexInFile = -1;
+
     /**
      * Creates a new revision of a file with the
      * specified revision number. Should not be called directly. Instead,
@@ -283,6 +288,28 @@ public class Revision implements Comparable {
         return symbolicNames;
     }
 
+    /**
+     * Sets the position of the revision among all revisions of the frozen
+     * repository. Revisions with a position are compared by position only.
+     * @param ordinal the position, starting at 0
+     */
+    void setOrdinal(final int ordinal) {
+        this.ordinal = ordinal;
+    }
+
+    void setIndexInFile(final int indexInFile) {
+        this.indexInFile = indexInFile;
+    }
+
+    /**
+     * Returns the position of this revision in the history of its file,
+     * 0 for the initial revision, or -1 before the repository is frozen.
+     * @return the position in the file's history
+     */
+    int getIndexInFile() {
+        return indexInFile;
+    }
+
     /**
      * Compares this revision to another revision. A revision is considered
      * smaller if its date is smaller. If the dates are identical, the filename,
@@ -293,6 +320,9 @@ public class Revision implements Comparable {
             return 0;
         }
         final Revision otherRevision = (Revision) other;
+        if (ordinal >= 0 && otherRevision.ordinal >= 0) {
+            return ordinal < otherRevision.ordinal ? -1 : (ordinal == otherRevision.ordinal ? 0 : 1);
+        }
         int result = date.compareTo(otherRevision.getDate());
         if (result != 0) {
             return result;
@@ -22,6 +22,8 @@ import java.util.Date;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.statcvs.util.SortedArraySet;
+
 /**
  * Represents a symbolic name (tags).
  * It is a container for {@link Revision}s.
@@ -31,7 +33,7 @@ import java.util.TreeSet;
  */
 public class SymbolicName implements Comparable {
     private final String name;
-    private final SortedSet revisions = new TreeSet();
+    private SortedSet revisions = new TreeSet();
     private Date date = null;
 
     /**
@@ -74,6 +76,14 @@ public class SymbolicName implements Comparable {
         revisions.add(rev);
     }
 
+    /**
+     * Replaces the revisions of the symbolic name by a read-only sorted
+     * array; called by {@link Repository#freeze()}.
+     */
+    void freeze() {
+        revisions = new SortedArraySet(revisions.toArray());
+    }
+
     /**
      * Returns a set of {@link Revision}s contained in this symbolic name.
      * 
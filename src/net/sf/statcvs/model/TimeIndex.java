@@ -0,0 +1,114 @@
+package net.sf.statcvs.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Index of the {@link Commit}s and {@link SymbolicName}s of a
+ * {@link Repository} by month, in the default time zone.
+ * It is built in a single pass by {@link Repository#getTimeIndex()}.
+ *
+ * <p>Months are derived from the time in milliseconds with plain
+ * arithmetic rather than with a <tt>Calendar</tt> per element. Within a
+ * bucket, elements keep the order of the repository.</p>
+ */
+public class TimeIndex {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int MONTHS_PER_YEAR = 12;
+
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final Map commitsByMonth = new HashMap();
+    private final Map symbolicNamesByMonth = new HashMap();
+
+    TimeIndex(final Repository repository) {
+        Iterator it;
+        if (repository.getCommits() != null) {
+            it = repository.getCommits().iterator();
+            while (it.hasNext()) {
+                final Commit commit = (Commit) it.next();
+                add(commitsByMonth, commit.getDate(), commit);
+            }
+        }
+        it = repository.getSymbolicNames().iterator();
+        while (it.hasNext()) {
+            final SymbolicName symbolicName = (SymbolicName) it.next();
+            add(symbolicNamesByMonth, symbolicName.getDate(), symbolicName);
+        }
+    }
+
+    private void add(final Map byMonth, final Date date, final Object element) {
+        if (date != null) {
+            getBucket(byMonth, getMonthOfDay(getDay(date))).add(element);
+        }
+    }
+
+    private static List getBucket(final Map buckets, final int key) {
+        final Integer boxedKey = Integer.valueOf(key);
+        List result = (List) buckets.get(boxedKey);
+        if (result == null) {
+            result = new ArrayList();
+            buckets.put(boxedKey, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param year the year
+     * @param month the month, 0 for January
+     * @return the commits of the month, in the order of
+     *         {@link Repository#getCommits()}
+     */
+    public List getCommits(final int year, final int month) {
+        return get(commitsByMonth, getMonth(year, month));
+    }
+
+    /**
+     * @param year the year
+     * @param month the month, 0 for January
+     * @return the symbolic names of the month, from oldest to latest
+     */
+    public List getSymbolicNames(final int year, final int month) {
+        return get(symbolicNamesByMonth, getMonth(year, month));
+    }
+
+    private static List get(final Map buckets, final int key) {
+        final List result = (List) buckets.get(Integer.valueOf(key));
+        return result == null ? Collections.EMPTY_LIST : Collections.unmodifiableList(result);
+    }
+
+    private static int getMonth(final int year, final int month) {
+        return year * MONTHS_PER_YEAR + month;
+    }
+
+    /**
+     * @return the number of days between 1970-01-01 and the local date
+     */
+    private int getDay(final Date date) {
+        final long time = date.getTime();
+        return (int) Math.floorDiv(time + timeZone.getOffset(time), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Converts a day number to a month of the proleptic Gregorian
+     * calendar, see http://howardhinnant.github.io/date_algorithms.html
+     * @return the year multiplied by 12 plus the month, 0 for January
+     */
+    private static int getMonthOfDay(final int day) {
+        final long shifted = day + 719468L;
+        final long era = Math.floorDiv(shifted, 146097);
+        final long dayOfEra = shifted - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        // months counted from March
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final long month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10;
+        final long year = yearOfEra + era * 400 + (month < 2 ? 1 : 0);
+        return getMonth((int) year, (int) month);
+    }
+}
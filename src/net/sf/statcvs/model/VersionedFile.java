@@ -21,10 +21,13 @@ package net.sf.statcvs.model;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import net.sf.statcvs.util.SortedArraySet;
+
 /**
  * Represents one versioned file in the {@link Repository Repository},
  * including its name, {@link Directory} and {@link Revision} list.
@@ -39,7 +42,9 @@ import java.util.TreeSet;
  */
 public class VersionedFile implements Comparable {
     private final String filename;
-    private final SortedSet revisions = new TreeSet();
+    private SortedSet revisions = new TreeSet();
+    // the revisions in order, once frozen
+    private Revision[] history = null;
     private final Directory directory;
     private Module module;
     private final Set authors = new HashSet();
@@ -58,6 +63,18 @@ public class VersionedFile implements Comparable {
         }
     }
 
+    /**
+     * Replaces the revisions of the file by a read-only sorted array;
+     * called by {@link Repository#freeze()}.
+     */
+    void freeze() {
+        history = (Revision[]) revisions.toArray(new Revision[revisions.size()]);
+        for (int i = 0; i < history.length; i++) {
+            history[i].setIndexInFile(i);
+        }
+        revisions = new SortedArraySet(history);
+    }
+
     /**
      * Returns a list of authors that have commited at least one revision of the file.
      * @return a list of authors
@@ -152,6 +169,10 @@ public class VersionedFile implements Comparable {
      * @return this revision's predecessor
      */
     public Revision getPreviousRevision(final Revision revision) {
+        if (isInHistory(revision)) {
+            final int index = revision.getIndexInFile();
+            return index > 0 ? history[index - 1] : null;
+        }
         if (!revisions.contains(revision)) {
             throw new IllegalArgumentException("revision not containted in file");
         }
@@ -162,6 +183,42 @@ public class VersionedFile implements Comparable {
         return (Revision) headSet.last();
     }
 
+    /**
+     * Returns the revisions of this file that are later than a date. Once
+     * the repository is frozen, the first of them is found by binary search
+     * in the history of the file.
+     * @param date a date
+     * @return the revisions after the date, in chronological order
+     */
+    public SortedSet getRevisionsAfter(final Date date) {
+        if (history != null) {
+            int low = 0;
+            int high = history.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (history[mid].getDate().after(date)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low < history.length ? revisions.tailSet(history[low]) : new TreeSet();
+        }
+        final Iterator it = revisions.iterator();
+        while (it.hasNext()) {
+            final Revision revision = (Revision) it.next();
+            if (revision.getDate().after(date)) {
+                return revisions.tailSet(revision);
+            }
+        }
+        return new TreeSet();
+    }
+
+    private boolean isInHistory(final Revision revision) {
+        final int index = revision.getIndexInFile();
+        return history != null && index >= 0 && index < history.length && history[index] == revision;
+    }
+
     /**
      * {@inheritDoc}
      */
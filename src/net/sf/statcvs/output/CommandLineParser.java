@@ -202,6 +202,31 @@ public class CommandLineParser {
                 throw new ConfigurationException("Missing argument for -no-developer");
             }
             ConfigurationOptions.addNonDeveloperLogin(popNextArg());
+        } else if (s.equals("report-threads")) {
+            if (args.isEmpty()) {
+                throw new ConfigurationException("Missing argument for -report-threads");
+            }
+            ConfigurationOptions.setReportThreads(Integer.parseInt(popNextArg()));
+        } else if (s.equals("chart-threads")) {
+            if (args.isEmpty()) {
+                throw new ConfigurationException("Missing argument for -chart-threads");
+            }
+            ConfigurationOptions.setChartThreads(Integer.parseInt(popNextArg()));
+        } else if (s.equals("chart-compression")) {
+            if (args.isEmpty()) {
+                throw new ConfigurationException("Missing argument for -chart-compression");
+            }
+            ConfigurationOptions.setChartCompression(Integer.parseInt(popNextArg()));
+        } else if (s.equals("repomap-chunk-files")) {
+            if (args.isEmpty()) {
+                throw new ConfigurationException("Missing argument for -repomap-chunk-files");
+            }
+            ConfigurationOptions.setRepoMapChunkFiles(Integer.parseInt(popNextArg()));
+        } else if (s.equals("metrics")) {
+            if (args.isEmpty()) {
+                throw new ConfigurationException("Missing argument for -metrics");
+            }
+            ConfigurationOptions.setMetricsFile(popNextArg());
         } else if (!doChildrenSwitch(s)) {
             throw new ConfigurationException("Unrecognized option -" + s);
         }
@@ -91,6 +91,14 @@ public class ConfigurationOptions {
     private static BugTracker webBugTracker = BugTracker.NO_BUG_TRACKER;
     private static String outputFormat = "html";
     private static Properties properties = new Properties();
+    private static int reportThreads = 1;
+    // 0 means as many as there are report threads.
+    private static int chartThreads = 0;
+    // -1 means the default PNG encoder of JFreeChart.
+    private static int chartCompression = -1;
+    // 0 means a single repo map data file.
+    private static int repoMapChunkFiles = 0;
+    private static String metricsFile = null;
 
     static {
         XYBarRenderer.setDefaultBarPainter(new StandardXYBarPainter());
@@ -476,6 +484,95 @@ public class ConfigurationOptions {
         return nonDeveloperLogins;
     }
 
+    /**
+     * How many threads generate the pages and charts of the report suite.
+     * With a single thread, the reports are generated one after the other.
+     * @return the number of report threads
+     */
+    public static int getReportThreads() {
+        return reportThreads;
+    }
+
+    /**
+     * @param threads the number of threads generating the report suite
+     */
+    public static void setReportThreads(final int threads) {
+        reportThreads = Math.max(1, threads);
+    }
+
+    /**
+     * How many threads write the chart images. Defaults to the number of
+     * report threads.
+     * @return the number of chart threads
+     */
+    public static int getChartThreads() {
+        return chartThreads > 0 ? chartThreads : reportThreads;
+    }
+
+    /**
+     * @param threads the number of threads writing the chart images; 0 to
+     *      use the number of report threads
+     */
+    public static void setChartThreads(final int threads) {
+        chartThreads = threads;
+    }
+
+    /**
+     * @return the compression level of the chart images, from 0 to 9, or -1
+     *      for the default of JFreeChart
+     */
+    public static int getChartCompression() {
+        return chartCompression;
+    }
+
+    /**
+     * @param compression the compression level of the chart images, from 0
+     *      (fastest) to 9 (smallest files)
+     * @throws ConfigurationException if the level is out of range
+     */
+    public static void setChartCompression(final int compression) throws ConfigurationException {
+        if (compression < 0 || compression > 9) {
+            throw new ConfigurationException("The chart compression must be between 0 and 9: " + compression);
+        }
+        chartCompression = compression;
+    }
+
+    /**
+     * The repo map data of a directory with more files than this, counting
+     * its subdirectories, is written to a separate file that is loaded when
+     * the directory is opened.
+     * @return the number of files, or 0 to write all data to a single file
+     */
+    public static int getRepoMapChunkFiles() {
+        return repoMapChunkFiles;
+    }
+
+    /**
+     * @param files the number of files above which the repo map data of a
+     *      directory goes to a separate file; 0 for a single file
+     */
+    public static void setRepoMapChunkFiles(final int files) {
+        repoMapChunkFiles = Math.max(0, files);
+    }
+
+    /**
+     * The file the run metrics are written to, as JSON: the duration and
+     * peak heap of each phase, and the timings of the svn calls, pages and
+     * charts.
+     * @return the file name, or <tt>null</tt> if no metrics are written
+     */
+    public static String getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * @param file the file the run metrics are written to; <tt>null</tt> to
+     *      not write them
+     */
+    public static void setMetricsFile(final String file) {
+        metricsFile = file;
+    }
+
     /**
      * Set the config file that may contain user details.
      * @param propertiesFilename
@@ -21,13 +21,16 @@ package net.sf.statcvs.output;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.SortedSet;
 
 import net.sf.statcvs.Messages;
@@ -56,6 +59,8 @@ public class RepoMapPageMaker {
 
     private static final String REPO_FILE = "repomap-data.txt";
 
+    private static final String DATA_FILE = "repomap-data";
+
     private final Date deadline;
 
     private final Date currentDate;
@@ -64,6 +69,12 @@ public class RepoMapPageMaker {
 
     private int indent = 0;
 
+    private int chunks = 0;
+
+    // the number of files of each directory and its subdirectories, when
+    // the data is split into chunks.
+    private final Map fileCounts = new IdentityHashMap();
+
     /**
      * @see net.sf.statcvs.output.HTMLPage#HTMLPage(Repository)
      */
@@ -97,44 +108,54 @@ public class RepoMapPageMaker {
 
     /*
      * New writer: emits repomap-data.js (assigns window.repomapData).
+     * The data is written while the directory tree is walked. If
+     * ConfigurationOptions.getRepoMapChunkFiles() is set, a directory with
+     * more files is written to its own repomap-data-N.js, which the page
+     * loads only when the directory is opened.
      */
     private void buildJsonForTreemap() {
-        // Build JSON into a buffer first so we can emit a .js wrapper
-        final StringBuilder sb = new StringBuilder();
+        // copy client-side assets (JS/CSS) to output dir so the generated page can load them
         try {
-            // copy client-side assets (JS/CSS) to output dir so the generated page can load them
-            try {
-                copyWebFiles();
-            } catch (final IOException ioe) {
-                // if copy fails, continue but log stacktrace
-                ioe.printStackTrace();
-            }
-            sb.append("{");
-            sb.append("\"label\":\"[root]\",");
-            sb.append("\"children\":[");
+            copyWebFiles();
+        } catch (final IOException ioe) {
+            // if copy fails, continue but log stacktrace
+            ioe.printStackTrace();
+        }
+        Writer outJs = null;
+        try {
+            // write only the JS wrapper file that assigns the data to a global variable
+            outJs = openDataFile(DATA_FILE + ".js");
+            outJs.write("window.repomapData = ");
+            outJs.write("{");
+            outJs.write("\"label\":\"[root]\",");
+            outJs.write("\"children\":[");
             final Iterator it = config.getRepository().getDirectories().iterator();
-            boolean first = true;
             if (it.hasNext()) {
                 final Directory dir = (Directory) it.next();
-                first = writeDirectoryJson(sb, dir, first);
-            }
-            sb.append("]}");
-
-            // write only the JS wrapper file that assigns the data to a global variable
-            BufferedWriter outJs = null;
-            try {
-                outJs = new BufferedWriter(new FileWriter(ConfigurationOptions.getOutputDir() + "repomap-data.js"));
-                outJs.write("window.repomapData = ");
-                outJs.write(sb.toString());
-                outJs.write(";\n");
-            } finally {
-                if (outJs != null) try { outJs.close(); } catch (final IOException e) { }
+                if (ConfigurationOptions.getRepoMapChunkFiles() > 0) {
+                    countFiles(dir);
+                }
+                writeDirectoryJson(outJs, dir, new Totals());
             }
+            outJs.write("]}");
+            outJs.write(";\n");
         } catch (final IOException e) {
             e.printStackTrace();
+        } finally {
+            if (outJs != null) {
+                try {
+                    outJs.close();
+                } catch (final IOException e) {
+                }
+            }
         }
     }
 
+    private Writer openDataFile(final String name) throws IOException {
+        // the data is plain ASCII, see jsonEscape
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ConfigurationOptions.getOutputDir() + name), "US-ASCII"));
+    }
+
     private void copyWebFiles() throws IOException {
         // copy repomap.js and repomap.css from resources (WEB_FILE_PATH) to output dir
         InputStream jsStream = null;
@@ -160,27 +181,32 @@ public class RepoMapPageMaker {
         }
     }
 
-    private boolean writeDirectoryJson(final StringBuilder out, final Directory dir, final boolean firstParent) {
-        boolean first = firstParent;
+    private void writeDirectoryJson(final Writer out, final Directory dir, final Totals totals) throws IOException {
         final String name = dir.isRoot() ? Messages.getString("NAVIGATION_ROOT") : dir.getName();
-        if (!first) {
-            out.append(',');
-        }
-        out.append('{');
-        out.append("\"label\":\"").append(jsonEscape(name)).append('\"');
+        out.write('{');
+        out.write("\"label\":\"");
+        out.write(jsonEscape(name));
+        out.write('\"');
         // expose the directory's full path so client-side code can
         // unambiguously identify directories when drilling down
-        out.append(",\"path\":\"").append(jsonEscape(dir.getPath())).append('\"');
-        out.append(",\"children\":[");
+        out.write(",\"path\":\"");
+        out.write(jsonEscape(dir.getPath()));
+        out.write('\"');
+        out.write(",\"children\":[");
         boolean firstChild = true;
         final SortedSet set = dir.getSubdirectories();
         if (set != null) {
             for (final Iterator it = set.iterator(); it.hasNext();) {
                 final Directory sub = (Directory) it.next();
                 if (!firstChild) {
-                    out.append(',');
+                    out.write(',');
+                }
+                final int chunkFiles = ConfigurationOptions.getRepoMapChunkFiles();
+                if (chunkFiles > 0 && ((Integer) fileCounts.get(sub)).intValue() > chunkFiles) {
+                    writeChunk(out, sub, totals);
+                } else {
+                    writeDirectoryJson(out, sub, totals);
                 }
-                writeDirectoryJson(out, sub, true);
                 firstChild = false;
             }
         }
@@ -197,24 +223,82 @@ public class RepoMapPageMaker {
                     continue;
                 }
                 if (!firstChild) {
-                    out.append(',');
+                    out.write(',');
                 }
-                out.append('{');
-                out.append("\"label\":\"").append(jsonEscape(vfile.getFilename())).append('\"');
-                out.append(",\"weight\":").append(String.valueOf(loc));
-                out.append(",\"size\":").append(String.valueOf(loc));
-                out.append(",\"change\":").append(String.valueOf(delta));
-                final double percentage = ((double) delta) / (double) loc * 100.0;
-                out.append(",\"value\":").append(String.valueOf(percentage));
+                out.write('{');
+                out.write("\"label\":\"");
+                out.write(jsonEscape(vfile.getFilename()));
+                out.write('\"');
+                writeSize(out, loc, delta);
                 // Use the directory's full path so nested directories produce
                 // unique, correct paths (Directory.getPath() includes trailing '/').
-                out.append(",\"path\":\"").append(jsonEscape(dir.getPath() + vfile.getFilename())).append('\"');
-                out.append('}');
+                out.write(",\"path\":\"");
+                out.write(jsonEscape(dir.getPath() + vfile.getFilename()));
+                out.write('\"');
+                out.write('}');
+                totals.add(loc, delta);
                 firstChild = false;
             }
         }
-        out.append("]}");
-        return false;
+        out.write("]}");
+    }
+
+    /*
+     * Writes a directory to its own data file, and a node without children
+     * that refers to the file. The size of the node is only known once the
+     * file is written.
+     */
+    private void writeChunk(final Writer out, final Directory dir, final Totals totals) throws IOException {
+        chunks++;
+        final String chunk = DATA_FILE + "-" + chunks + ".js";
+        final Totals chunkTotals = new Totals();
+        final Writer chunkOut = openDataFile(chunk);
+        try {
+            chunkOut.write("RepoMap.addChunk(\"" + chunk + "\", ");
+            writeDirectoryJson(chunkOut, dir, chunkTotals);
+            chunkOut.write(");\n");
+        } finally {
+            chunkOut.close();
+        }
+        out.write('{');
+        out.write("\"label\":\"");
+        out.write(jsonEscape(dir.getName()));
+        out.write('\"');
+        out.write(",\"path\":\"");
+        out.write(jsonEscape(dir.getPath()));
+        out.write('\"');
+        writeSize(out, chunkTotals.weight, chunkTotals.change);
+        out.write(",\"chunk\":\"");
+        out.write(chunk);
+        out.write("\"}");
+        totals.add(chunkTotals.weight, chunkTotals.change);
+    }
+
+    private void writeSize(final Writer out, final int loc, final int delta) throws IOException {
+        out.write(",\"weight\":");
+        out.write(String.valueOf(loc));
+        out.write(",\"size\":");
+        out.write(String.valueOf(loc));
+        out.write(",\"change\":");
+        out.write(String.valueOf(delta));
+        final double percentage = loc == 0 ? 0.0 : ((double) delta) / (double) loc * 100.0;
+        out.write(",\"value\":");
+        out.write(String.valueOf(percentage));
+    }
+
+    /*
+     * Counts the files of a directory and of its subdirectories into
+     * fileCounts, subdirectories first, so that each directory is counted
+     * once.
+     */
+    private int countFiles(final Directory dir) {
+        int result = dir.getFiles().size();
+        final Iterator it = dir.getSubdirectories().iterator();
+        while (it.hasNext()) {
+            result += countFiles((Directory) it.next());
+        }
+        fileCounts.put(dir, Integer.valueOf(result));
+        return result;
     }
 
     private String jsonEscape(final String s) {
@@ -241,7 +325,8 @@ public class RepoMapPageMaker {
                     sb.append("\\t");
                     break;
                 default:
-                    if (c < 32) {
+                    // the data files are ASCII, whatever the charset of the page
+                    if (c < 32 || c > 126) {
                         sb.append(String.format("\\u%04x", (int) c));
                     } else {
                         sb.append(c);
@@ -340,24 +425,25 @@ public class RepoMapPageMaker {
 
     private int calculateTotalDelta(final VersionedFile vfile) {
         int delta = 0;
-        final SortedSet revisions = vfile.getRevisions();
         // take all deltas for the last 30 days.
-        for (final Iterator rev = revisions.iterator(); rev.hasNext();) {
+        for (final Iterator rev = vfile.getRevisionsAfter(deadline).iterator(); rev.hasNext();) {
             final Revision revision = (Revision) rev.next();
+            delta += revision.getLinesDelta();
+        }
+        return delta;
+    }
 
-            //			SvnConfigurationOptions.getTaskLogger().log(
-            //			        "Revision " + revision.getDate() + " file:" + vfile.getFilename() + " Dead:" + vfile.isDead() + " LOC:" + revision.getLines() + " delta:"
-            //			                + revision.getLinesDelta());
-
-            if (deadline.before(revision.getDate())) {
-                delta += revision.getLinesDelta();
+    /**
+     * The lines of code and the recent change of a part of the tree.
+     */
+    private static final class Totals {
+        private int weight = 0;
+        private int change = 0;
 
-                //				SvnConfigurationOptions.getTaskLogger().log(
-                //				        "Revision " + revision.getRevisionNumber() + " Delta:" + revision.getLinesDelta() + " totalDelta:" + delta + " LOC:"
-                //				                + revision.getLines() + " Dead:" + revision.isDead());
-            }
+        void add(final int loc, final int delta) {
+            weight += loc;
+            change += delta;
         }
-        return delta;
     }
 
     private void labelTag(final Writer result, final String name) throws IOException {
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.Collections;
 
 import net.sf.statcvs.charts.ChartImage;
+import net.sf.statcvs.charts.ChartRenderer;
 import net.sf.statcvs.model.Author;
 import net.sf.statcvs.model.Repository;
 import net.sf.statcvs.pages.MarkupHTML;
@@ -16,6 +17,7 @@ import net.sf.statcvs.pages.MarkupSyntax;
 import net.sf.statcvs.pages.MarkupXDoc;
 import net.sf.statcvs.pages.Page;
 import net.sf.statcvs.pages.xml.MarkupXML;
+import net.sf.statcvs.reports.RepositoryAggregates;
 import net.sf.statcvs.util.FileUtils;
 import net.sf.statcvs.weblinks.bugs.BugTracker;
 
@@ -48,6 +50,8 @@ public class ReportConfig {
     private BugTracker webBugtracker = null;
     private Collection nonDeveloperLogins = Collections.EMPTY_LIST;
     private final String charSet;
+    private RepositoryAggregates aggregates = null;
+    private ChartRenderer chartRenderer = null;
 
     public ReportConfig(final Repository repository, final String projectName, final String rootDirectory, final MarkupSyntax syntax,
             final CssHandler cssHandler, final String charSet) {
@@ -79,6 +83,7 @@ public class ReportConfig {
 
     public void setNonDeveloperLogins(final Collection names) {
         this.nonDeveloperLogins = names;
+        this.aggregates = null;
     }
 
     public String getRootDirectory() {
@@ -130,7 +135,20 @@ public class ReportConfig {
     }
 
     /**
-     * Writes a chart image file.
+     * Sets the renderer that writes the chart image files in the background.
+     * @param chartRenderer the renderer; <tt>null</tt> to write each file
+     *      when it is created
+     */
+    public void setChartRenderer(final ChartRenderer chartRenderer) {
+        this.chartRenderer = chartRenderer;
+    }
+
+    public ChartRenderer getChartRenderer() {
+        return this.chartRenderer;
+    }
+
+    /**
+     * Writes a chart image file, or queues it on the chart renderer.
      * @param fileName The file's name, relative to the root.
      * @param title The chart's title
      * @param chart The JFreeChart representation
@@ -138,7 +156,7 @@ public class ReportConfig {
      * @return An object representing the file
      */
     public ChartImage createChartImage(final String fileName, final String title, final JFreeChart chart, final Dimension size) {
-        final ChartImage img = new ChartImage(this.rootDirectory, fileName, title, chart, size);
+        final ChartImage img = new ChartImage(this.rootDirectory, fileName, title, chart, size, this.chartRenderer);
         img.write();
         return img;
     }
@@ -171,6 +189,18 @@ public class ReportConfig {
         }
     }
 
+    /**
+     * Returns the values shared by several reports, computing them in a
+     * single pass over the revisions on the first call.
+     * @return the aggregates of the repository
+     */
+    public synchronized RepositoryAggregates getAggregates() {
+        if (this.aggregates == null) {
+            this.aggregates = new RepositoryAggregates(this);
+        }
+        return this.aggregates;
+    }
+
     public boolean isDeveloper(final Author author) {
         return !this.nonDeveloperLogins.contains(author.getName());
     }
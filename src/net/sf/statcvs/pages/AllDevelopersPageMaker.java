@@ -47,9 +47,9 @@ public class AllDevelopersPageMaker {
             page.add(allAuthorsLOCChart);
         }
 
-        final ChartImage hoursChart = new HourBarChartMaker("activity_time", this.config, this.config.getRepository().getRevisions(), Messages
+        final ChartImage hoursChart = new HourBarChartMaker("activity_time", this.config, this.config.getAggregates().getHourActivity(), Messages
                 .getString("ACTIVITY_TIME_TITLE"), "activity_time.png").toFile();
-        final ChartImage weekdaysChart = new WeekdayBarChartMaker("activity_day", this.config, this.config.getRepository().getRevisions(), Messages
+        final ChartImage weekdaysChart = new WeekdayBarChartMaker("activity_day", this.config, this.config.getAggregates().getWeekdayActivity(), Messages
                 .getString("ACTIVITY_DAY_TITLE"), "activity_day.png").toFile();
         final ChartImage scatterChart = new CommitScatterChartMaker(this.config, this.config.getLargeChartSize().width).toFile();
         final ChartImage modifyAddChart = new ModifyAddChartMaker(this.config, this.config.getSmallChartSize().width).toFile();
@@ -0,0 +1,81 @@
+package net.sf.statcvs.pages;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+
+/**
+ * Writes markup in a charset that may not cover all characters. The
+ * characters that the charset cannot encode are written as numeric
+ * character references, like <tt>&amp;#8364;</tt>, instead of being
+ * replaced by question marks.
+ */
+final class CharacterReferenceWriter extends FilterWriter {
+    private static final char LAST_ASCII = 0x7f;
+
+    private final CharsetEncoder encoder;
+    private char highSurrogate = 0;
+
+    /**
+     * @param out a writer encoding with the charset
+     * @param charset the charset of the writer
+     */
+    CharacterReferenceWriter(final Writer out, final Charset charset) {
+        super(out);
+        this.encoder = charset.newEncoder();
+    }
+
+    public void write(final int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    public void write(final char[] cbuf, final int off, final int len) throws IOException {
+        final int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            final char c = cbuf[i];
+            if (this.highSurrogate == 0 && (c <= LAST_ASCII || (!Character.isHighSurrogate(c) && this.encoder.canEncode(c)))) {
+                continue;
+            }
+            this.out.write(cbuf, start, i - start);
+            writeChar(c);
+            start = i + 1;
+        }
+        this.out.write(cbuf, start, end - start);
+    }
+
+    public void write(final String str, final int off, final int len) throws IOException {
+        write(str.toCharArray(), off, len);
+    }
+
+    private void writeChar(final char c) throws IOException {
+        if (this.highSurrogate != 0) {
+            final char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                final String pair = new String(new char[] { high, c });
+                if (this.encoder.canEncode(pair)) {
+                    this.out.write(pair);
+                } else {
+                    writeReference(Character.toCodePoint(high, c));
+                }
+                return;
+            }
+            // a lone high surrogate is not a character
+            this.out.write('?');
+        }
+        if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (c <= LAST_ASCII || this.encoder.canEncode(c)) {
+            this.out.write(c);
+        } else {
+            writeReference(c);
+        }
+    }
+
+    private void writeReference(final int codePoint) throws IOException {
+        this.out.write("&#" + codePoint + ";");
+    }
+}
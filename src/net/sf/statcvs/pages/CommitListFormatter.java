@@ -61,19 +61,38 @@ public class CommitListFormatter {
      * @return HTML code for the commit log
      */
     public String render() {
+        final StringBuffer result = new StringBuffer();
+        render(result, null);
+        return result.toString();
+    }
+
+    /**
+     * Adds the commit log to a page, one commit at a time, without
+     * building the whole log in memory first.
+     * @param page the page
+     */
+    public void addTo(final Page page) {
+        render(new StringBuffer(), page);
+    }
+
+    private void render(final StringBuffer result, final Page page) {
         if (this.commits.size() > this.max) {
             final List recentCommits = this.commits.subList(0, this.max);
-            return renderCommitList(recentCommits) + "<p>(" + (this.commits.size() - this.max) + " " + Messages.getString("MORE_COMMITS") + ")</p>\n";
+            renderCommitList(recentCommits, result, page);
+            result.append("<p>(" + (this.commits.size() - this.max) + " " + Messages.getString("MORE_COMMITS") + ")</p>\n");
+        } else {
+            renderCommitList(this.commits, result, page);
         }
-        return renderCommitList(this.commits);
+        flush(result, page);
     }
 
-    private String renderCommitList(final List commitList) {
+    private void renderCommitList(final List commitList, final StringBuffer result, final Page page) {
         if (commitList.isEmpty()) {
-            return "<p>No commits</p>\n";
+            result.append("<p>No commits</p>\n");
+            return;
         }
         int id = commitList.size();
-        final StringBuffer result = new StringBuffer("<dl class=\"commitlist\">\n");
+        result.append("<dl class=\"commitlist\">\n");
         final Iterator commitIt = commitList.iterator();
         Commit nextCommit = commitIt.hasNext() ? (Commit) commitIt.next() : null;
         final Iterator tagIt = this.tags.iterator();
@@ -87,9 +106,19 @@ public class CommitListFormatter {
                 renderTag(result, nextTag);
                 nextTag = tagIt.hasNext() ? (SymbolicName) tagIt.next() : null;
             }
+            flush(result, page);
         }
         result.append("</dl>\n\n");
-        return result.toString();
+    }
+
+    /**
+     * Moves the rendered markup to the page, if there is one.
+     */
+    private static void flush(final StringBuffer result, final Page page) {
+        if (page != null) {
+            page.addRawContent(result.toString());
+            result.setLength(0);
+        }
     }
 
     private void renderTag(final StringBuffer s, final SymbolicName tag) {
@@ -21,7 +21,7 @@ public class CommitLogPageGroupMaker {
 
     public PageGroup getPages() {
         final PageGroup pages = new PageGroup("Commit Logs");
-        List commits = this.repository.getCommits();
+        final List commits = this.repository.getCommits();
         if (commits == null || commits.isEmpty()) {
             return null;
         }
@@ -37,7 +37,7 @@ public class CommitLogPageGroupMaker {
             final int year = calendar.get(Calendar.YEAR);
             final int month = calendar.get(Calendar.MONTH);
 
-            final NavigationNode page = new CommitLogPageMaker(this.config, year, month, commits, firstPage).toFile();
+            final NavigationNode page = new CommitLogPageMaker(this.config, year, month, firstPage).toFile();
             results.add(page);
             if (calendar.get(Calendar.YEAR) == startCal.get(Calendar.YEAR) && calendar.get(Calendar.MONTH) == startCal.get(Calendar.MONTH)) {
                 break;
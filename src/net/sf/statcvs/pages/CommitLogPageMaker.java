@@ -65,13 +65,28 @@ public class CommitLogPageMaker {
         }
     }
 
+    /**
+     * Creates a new LogPageMaker for the commits of a month, as found in
+     * the {@link net.sf.statcvs.model.TimeIndex} of the repository.
+     * @param year The log page's year
+     * @param month The log page's month (0 for January)
+     * @param firstLogPage <tt>true</tt> for the page of the latest month
+     */
+    public CommitLogPageMaker(final ReportConfig config, final int year, final int month, final boolean firstLogPage) {
+        this.config = config;
+        this.year = year;
+        this.month = month;
+        this.firstLogPage = firstLogPage;
+        this.commits.addAll(config.getRepository().getTimeIndex().getCommits(year, month));
+    }
+
     public NavigationNode toFile() {
         final Page result = this.config.createPage(getFileName(), getTitle(), getTitle() + " Commit Log");
         result.setLogPageMetadata(this.year, this.month, this.commits.size());
         result.addAttribute("Number of Commits", this.commits.size());
         result.addAttribute("Number of Active Developers", countActiveDevelopers());
         if (!this.commits.isEmpty()) {
-            result.addRawContent(new CommitListFormatter(this.config, this.commits, getTags(), true).render());
+            new CommitListFormatter(this.config, this.commits, getTags(), true).addTo(result);
         }
         return result;
     }
@@ -98,16 +113,7 @@ public class CommitLogPageMaker {
     }
 
     private List getTags() {
-        final List tags = new ArrayList();
-        final Calendar calendar = new GregorianCalendar();
-        final Iterator it = this.config.getRepository().getSymbolicNames().iterator();
-        while (it.hasNext()) {
-            final SymbolicName tag = (SymbolicName) it.next();
-            calendar.setTime(tag.getDate());
-            if (calendar.get(Calendar.YEAR) == this.year && calendar.get(Calendar.MONTH) == this.month) {
-                tags.add(tag);
-            }
-        }
+        final List tags = new ArrayList(this.config.getRepository().getTimeIndex().getSymbolicNames(this.year, this.month));
         Collections.reverse(tags);
         return tags;
     }
@@ -2,7 +2,6 @@ package net.sf.statcvs.pages;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -19,6 +18,7 @@ import net.sf.statcvs.model.Revision;
 import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.reports.DirectoriesForAuthorTableReport;
+import net.sf.statcvs.reports.RepositoryAggregates;
 import net.sf.statcvs.util.StringUtils;
 
 /**
@@ -54,10 +54,10 @@ public class DeveloperPageMaker {
     }
 
     public Page toFile() {
-        final ChartImage hourChart = new HourBarChartMaker("activity_time", this.config, this.developer.getRevisions(), Messages
+        final ChartImage hourChart = new HourBarChartMaker("activity_time", this.config, this.config.getAggregates().getHourActivity(this.developer), Messages
                 .getString("ACTIVITY_TIME_FOR_AUTHOR_TITLE")
                 + " " + this.developer.getRealName(), "activity_time_" + HTML.escapeAuthorName(this.developer.getName()) + ".png").toFile();
-        final ChartImage weekdayChart = new WeekdayBarChartMaker("activity_day", this.config, this.developer.getRevisions(), Messages
+        final ChartImage weekdayChart = new WeekdayBarChartMaker("activity_day", this.config, this.config.getAggregates().getWeekdayActivity(this.developer), Messages
                 .getString("ACTIVITY_DAY_FOR_AUTHOR_TITLE")
                 + " " + this.developer.getRealName(), "activity_day_" + HTML.escapeAuthorName(this.developer.getName()) + ".png").toFile();
         final ChartImage codeDistributionChart = new CodeDistributionChartMaker(this.config, this.developer).toFile();
@@ -84,7 +84,8 @@ public class DeveloperPageMaker {
         }
         
         page.addAttribute("Total Commits", getNumberAndPercentage(this.developer.getRevisions().size(), this.repository.getRevisions().size()));
-        String loc = getNumberAndPercentage(countContributedLines(this.developer.getRevisions()), countContributedLines(this.repository.getRevisions()));
+        final RepositoryAggregates aggregates = this.config.getAggregates();
+        String loc = getNumberAndPercentage(aggregates.getContributedLines(this.developer), aggregates.getTotalContributedLines());
         page.addAttribute("Lines of Code", loc);
         page.addAttribute("Most Recent Commit", ((Revision) this.developer.getRevisions().last()).getDate());
         page.addSection(Messages.getString("ACTIVITY_TITLE"));
@@ -97,7 +98,7 @@ public class DeveloperPageMaker {
             page.add(codeDistributionChart);
         }
         page.addSection(Messages.getString("MOST_RECENT_COMMITS"));
-        page.addRawContent(new CommitListFormatter(this.config, getRecentCommits(), Collections.EMPTY_LIST, RECENT_COMMITS_LENGTH, false).render());
+        new CommitListFormatter(this.config, getRecentCommits(), Collections.EMPTY_LIST, RECENT_COMMITS_LENGTH, false).addTo(page);
         return page;
     }
 
@@ -113,16 +114,6 @@ public class DeveloperPageMaker {
         return results;
     }
 
-    private int countContributedLines(final Collection revisions) {
-        int result = 0;
-        final Iterator it = revisions.iterator();
-        while (it.hasNext()) {
-            final Revision element = (Revision) it.next();
-            result += element.getNewLines();
-        }
-        return result;
-    }
-
     /**
      * returns the percentage of a given total count and the count.
      * This will work, because division by zero is not a problem with doubles:
@@ -134,6 +125,10 @@ public class DeveloperPageMaker {
      */
     private String getNumberAndPercentage(final int value, final int total) {
         final double factor = (double) value / (double) total;
-        return NumberFormat.getNumberInstance().format(value) + " (" + PERCENT_FORMAT.format(factor) + ")";
+        final String percentage;
+        synchronized (PERCENT_FORMAT) {
+            percentage = PERCENT_FORMAT.format(factor);
+        }
+        return NumberFormat.getNumberInstance().format(value) + " (" + percentage + ")";
     }
 }
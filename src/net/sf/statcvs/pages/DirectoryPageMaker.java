@@ -50,15 +50,16 @@ public class DirectoryPageMaker {
 
         final String title = "Directory " + (this.directory.isRoot() ? "[root]" : this.directory.getPath());
         final Page page = this.config.createPage(getFilename(this.directory), title, title);
-        if (!this.directory.getRevisions().isEmpty() && isInitiallyEmpty()) {
-            page.addAttribute("Directory Created", ((Revision) this.directory.getRevisions().first()).getDate());
+        final boolean hasRevisions = this.directory.getFirstDate() != null;
+        if (hasRevisions && isInitiallyEmpty()) {
+            page.addAttribute("Directory Created", this.directory.getFirstDate());
         }
-        if (!this.directory.getRevisions().isEmpty() && getCurrentFileCount() == 0) {
-            page.addAttribute("Directory Deleted", ((Revision) this.directory.getRevisions().last()).getDate());
+        if (hasRevisions && this.directory.getCurrentFileCount() == 0) {
+            page.addAttribute("Directory Deleted", this.directory.getLastDate());
         }
-        page.addAttribute("Total Files", getCurrentFileCount());
-        page.addAttribute("Deleted Files", getDeadFileCount());
-        page.addAttribute("Lines of Code", getCurrentLOC());
+        page.addAttribute("Total Files", this.directory.getCurrentFileCount());
+        page.addAttribute("Deleted Files", this.directory.getDeadFileCount());
+        page.addAttribute("Lines of Code", this.directory.getCurrentLOC());
         if (this.config.getWebRepository() != null) {
             final WebRepositoryIntegration rep = this.config.getWebRepository();
             final String text = Messages.getString("BROWSE_WEB_REPOSITORY") + " " + rep.getName();
@@ -70,7 +71,7 @@ public class DirectoryPageMaker {
             page.addSection(Messages.getString("LOC_TITLE"));
             page.add(chart);
         }
-        if (!this.directory.getRevisions().isEmpty()) {
+        if (hasRevisions) {
             page.addSection("Developers");
             page.add(new AuthorsForDirectoryTableReport(this.config, this.directory));
         }
@@ -78,28 +79,17 @@ public class DirectoryPageMaker {
         if (!dirCommits.isEmpty()) {
             page.addSection(Messages.getString("MOST_RECENT_COMMITS"));
             final CommitListFormatter renderer = new CommitListFormatter(this.config, dirCommits, Collections.EMPTY_LIST, RECENT_COMMITS_LENGTH, false);
-            page.addRawContent(renderer.render());
+            renderer.addTo(page);
         }
         return page;
     }
 
-    private Commit getCommit(final Revision rev) {
-        final Iterator it = this.repository.getCommits().iterator();
-        while (it.hasNext()) {
-            final Commit commit = (Commit) it.next();
-            if (commit.getRevisions().contains(rev)) {
-                return commit;
-            }
-        }
-        return null;
-    }
-
     private List getCommitsInDirectory() {
         final Map commitsToFilteredCommits = new HashMap();
         final Iterator it = this.directory.getRevisions().iterator();
         while (it.hasNext()) {
             final Revision rev = (Revision) it.next();
-            final Commit commit = getCommit(rev);
+            final Commit commit = this.repository.getCommit(rev);
             if (commit == null) {
                 continue;
             }
@@ -116,40 +106,6 @@ public class DirectoryPageMaker {
         return commits;
     }
 
-    private int getCurrentLOC() {
-        int result = 0;
-        final Iterator it = this.directory.getFiles().iterator();
-        while (it.hasNext()) {
-            final VersionedFile file = (VersionedFile) it.next();
-            result += file.getCurrentLinesOfCode();
-        }
-        return result;
-    }
-
-    private int getCurrentFileCount() {
-        int result = 0;
-        final Iterator it = this.directory.getFiles().iterator();
-        while (it.hasNext()) {
-            final VersionedFile file = (VersionedFile) it.next();
-            if (!file.isDead()) {
-                result++;
-            }
-        }
-        return result;
-    }
-
-    private int getDeadFileCount() {
-        int result = 0;
-        final Iterator it = this.directory.getFiles().iterator();
-        while (it.hasNext()) {
-            final VersionedFile file = (VersionedFile) it.next();
-            if (file.isDead()) {
-                result++;
-            }
-        }
-        return result;
-    }
-
     private boolean isInitiallyEmpty() {
         final Iterator it = this.directory.getFiles().iterator();
         while (it.hasNext()) {
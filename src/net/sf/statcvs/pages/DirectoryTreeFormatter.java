@@ -33,7 +33,22 @@ public class DirectoryTreeFormatter {
     }
 
     public String getFormatted() {
-        final StringBuffer result = new StringBuffer("<div class=\"dirtree-container\">\n");
+        final StringBuffer result = new StringBuffer();
+        format(result, null);
+        return result.toString();
+    }
+
+    /**
+     * Adds the tree to a page, one directory at a time, without building
+     * the whole tree in memory first.
+     * @param page the page
+     */
+    public void addTo(final Page page) {
+        format(new StringBuffer(), page);
+    }
+
+    private void format(final StringBuffer result, final Page page) {
+        result.append("<div class=\"dirtree-container\">\n");
         result.append("<label class=\"dirtree-checkbox-label\">");
         result.append("<input type=\"checkbox\" id=\"showDeletedDirs\" class=\"dirtree-checkbox\" />");
         result.append(" Show Deleted Directories</label>\n");
@@ -46,6 +61,7 @@ public class DirectoryTreeFormatter {
         while (it.hasNext()) {
             final Directory subdirectory = (Directory) it.next();
             format(subdirectory, 0, result);
+            flush(result, page);
         }
         result.append("</p>\n");
         result.append("</div>\n");
@@ -66,7 +82,17 @@ public class DirectoryTreeFormatter {
         result.append("  });\n");
         result.append("})();\n");
         result.append("</script>\n");
-        return result.toString();
+        flush(result, page);
+    }
+
+    /**
+     * Moves the formatted markup to the page, if there is one.
+     */
+    private static void flush(final StringBuffer result, final Page page) {
+        if (page != null) {
+            page.addRawContent(result.toString());
+            result.setLength(0);
+        }
     }
 
     private void format(final Directory dir, final int currentDepth, final StringBuffer s) {
@@ -74,7 +74,19 @@ public final class HTML {
      * @return HTML code for the date
      */
     public static String getDate(final Date date) {
-        return "<span class=\"date\">" + OUTPUT_DATE_FORMAT.format(date) + "</span>";
+        return "<span class=\"date\">" + formatDate(date) + "</span>";
+    }
+
+    /**
+     * Formats a date with {@link #OUTPUT_DATE_FORMAT}. The format is shared,
+     * so it is used by one thread at a time.
+     * @param date the date
+     * @return the formatted date, without markup
+     */
+    public static String formatDate(final Date date) {
+        synchronized (OUTPUT_DATE_FORMAT) {
+            return OUTPUT_DATE_FORMAT.format(date);
+        }
     }
 
     /**
@@ -100,7 +112,11 @@ public final class HTML {
      * @return HTML code for the date
      */
     public static String getDateAndTime(final Date date) {
-        return "<span class=\"date\">" + OUTPUT_DATE_TIME_FORMAT.format(date) + "</span>";
+        final String formatted;
+        synchronized (OUTPUT_DATE_TIME_FORMAT) {
+            formatted = OUTPUT_DATE_TIME_FORMAT.format(date);
+        }
+        return "<span class=\"date\">" + formatted + "</span>";
     }
 
     /**
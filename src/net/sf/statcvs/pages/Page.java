@@ -1,7 +1,11 @@
 package net.sf.statcvs.pages;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -22,13 +26,14 @@ public class Page implements NavigationNode {
     private final static NumberFormat[] DOUBLE_FORMATS = { new DecimalFormat("0"), new DecimalFormat("0.0"), new DecimalFormat("0.00"),
             new DecimalFormat("0.000"), new DecimalFormat("0.0000") };
     private final static Logger logger = Logger.getLogger("sf.net.statcvs");
+    private final static int WRITE_BUFFER_CHARS = 16 * 1024;
 
     private final ReportConfig config;
     private final String fileName;
     private final String shortTitle;
     private final String fullTitle;
     private final MarkupSyntax outputFormat;
-    private StringBuffer contents = new StringBuffer();
+    private PageContent contents = new PageContent();
     private NavigationNode parent = null;
     private String siblingsTitle = null;
     private List siblings = Collections.EMPTY_LIST;
@@ -142,11 +147,19 @@ public class Page implements NavigationNode {
     }
 
     public void addAttribute(final String key, final double value, final int decimalPlaces) {
-        addAttribute(key, DOUBLE_FORMATS[decimalPlaces].format(value));
+        addAttribute(key, format(value, decimalPlaces));
     }
 
     public void addAttribute(final String key, final double value, final int decimalPlaces, final String unit) {
-        addAttribute(key, DOUBLE_FORMATS[decimalPlaces].format(value) + " " + unit);
+        addAttribute(key, format(value, decimalPlaces) + " " + unit);
+    }
+
+    private static String format(final double value, final int decimalPlaces) {
+        // the formats are shared by all pages, which may be built concurrently
+        final NumberFormat format = DOUBLE_FORMATS[decimalPlaces];
+        synchronized (format) {
+            return format.format(value);
+        }
     }
 
     public void addRawAttribute(final String key, final String rawValue) {
@@ -194,7 +207,7 @@ public class Page implements NavigationNode {
     }
 
     public void add(final Directory directory, final boolean withRootLinks) {
-        addRawContent(new DirectoryTreeFormatter(directory, withRootLinks).getFormatted());
+        new DirectoryTreeFormatter(directory, withRootLinks).addTo(this);
     }
 
     public void add(final PageGroup pages) {
@@ -220,15 +233,15 @@ public class Page implements NavigationNode {
         }
         final String fileWithExtension = this.fileName + "." + this.config.getMarkup().getExtension();
         logger.info("writing page '" + this.fullTitle + "' to " + fileWithExtension);
-        FileWriter w = null;
+        Writer w = null;
         try {
-            w = new FileWriter(this.config.getRootDirectory() + fileWithExtension);
+            w = openWriter(this.config.getRootDirectory() + fileWithExtension);
             w.write(this.outputFormat.getHeader(this.fullTitle, this.config.getCssHandler().getLink(), config.getCharSet()));
             w.write(this.outputFormat.startSection1(this.fullTitle));
             w.write(getLinkToParent());
             w.write(getNavigationLinks());
             w.write(getAttributes());
-            w.write(this.contents.toString());
+            this.contents.writeTo(w);
             w.write(getLinkToPreviousSibling());
             w.write(this.outputFormat.endSection1());
             w.write(getGeneratedByBlock());
@@ -246,10 +259,30 @@ public class Page implements NavigationNode {
         }
         this.written = true;
 
-        // Free memory? Not sure if this has any effect ...
+        this.contents.release();
         this.contents = null;
     }
 
+    /**
+     * Opens a buffered writer in the charset of the report. Characters
+     * that the charset cannot encode are written as character references.
+     */
+    private Writer openWriter(final String file) throws IOException {
+        Charset charset = null;
+        if (this.config.getCharSet() != null) {
+            try {
+                charset = Charset.forName(this.config.getCharSet());
+            } catch (final IllegalArgumentException e) {
+                logger.warning("unsupported charset " + this.config.getCharSet() + ", using " + Charset.defaultCharset().name());
+            }
+        }
+        if (charset == null) {
+            charset = Charset.defaultCharset();
+        }
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset), WRITE_BUFFER_CHARS);
+        return new CharacterReferenceWriter(out, charset);
+    }
+
     public String asParentLink() {
         String result = "&#171; " + HTML.getLink(getURL(), getShortTitle());
         if (this.parent != null) {
@@ -0,0 +1,112 @@
+package net.sf.statcvs.pages;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.logging.Logger;
+
+/**
+ * The body of a {@link Page} while the page is being built. Small bodies
+ * are kept in memory. Once a body grows past a few ten thousand
+ * characters, it is moved to a temporary file and the rest is appended to
+ * that file, so a page takes about the same memory whatever its size.
+ */
+final class PageContent {
+    private static final Logger logger = Logger.getLogger("sf.net.statcvs");
+    private static final int MAX_MEMORY_CHARS = 64 * 1024;
+    private static final int COPY_BUFFER_CHARS = 8 * 1024;
+    // the temporary files are private to the page, so any lossless charset will do
+    private static final String SPILL_CHARSET = "UTF-8";
+
+    private StringBuffer memory = new StringBuffer();
+    private File spillFile = null;
+    private Writer spill = null;
+    private boolean spillFailed = false;
+
+    /**
+     * Appends markup to the body.
+     * @param s the markup
+     */
+    void append(final String s) {
+        if (this.spill != null) {
+            try {
+                this.spill.write(s);
+            } catch (final IOException e) {
+                throw new RuntimeException("could not write temporary page file " + this.spillFile + ": " + e.getMessage());
+            }
+            return;
+        }
+        this.memory.append(s);
+        if (this.memory.length() > MAX_MEMORY_CHARS && !this.spillFailed) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        try {
+            this.spillFile = File.createTempFile("statcvs", ".page");
+            this.spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.spillFile), SPILL_CHARSET));
+            this.spill.write(this.memory.toString());
+            this.memory = null;
+        } catch (final IOException e) {
+            logger.warning("could not create temporary page file, keeping the page in memory: " + e.getMessage());
+            this.spillFailed = true;
+            final StringBuffer kept = this.memory;
+            release();
+            this.memory = kept;
+        }
+    }
+
+    /**
+     * Copies the body to a writer and releases it. The body cannot be used
+     * afterwards.
+     * @param out the destination
+     * @throws IOException if the body cannot be copied
+     */
+    void writeTo(final Writer out) throws IOException {
+        if (this.spill == null) {
+            out.write(this.memory.toString());
+            this.memory = null;
+            return;
+        }
+        this.spill.close();
+        this.spill = null;
+        final Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(this.spillFile), SPILL_CHARSET));
+        try {
+            final char[] buffer = new char[COPY_BUFFER_CHARS];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            release();
+        }
+    }
+
+    /**
+     * Drops the body and deletes its temporary file, if any.
+     */
+    void release() {
+        this.memory = null;
+        if (this.spill != null) {
+            try {
+                this.spill.close();
+            } catch (final IOException e) {
+                // the file is deleted anyway
+            }
+            this.spill = null;
+        }
+        if (this.spillFile != null) {
+            this.spillFile.delete();
+            this.spillFile = null;
+        }
+    }
+}
@@ -5,15 +5,27 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 
 import net.sf.statcvs.Main;
+import net.sf.statcvs.charts.ChartRenderer;
 import net.sf.statcvs.model.Directory;
 import net.sf.statcvs.output.ChurnPageMaker;
+import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statcvs.output.RepoMapPageMaker;
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.pages.xml.GenerateXml;
+import net.sf.statcvs.util.Metrics;
 import net.sf.statcvs.util.ModuleUtil;
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+import edu.emory.mathcs.backport.java.util.concurrent.FutureTask;
 
 /**
  * TODO: Clean up
@@ -23,6 +35,7 @@ import net.sf.statcvs.util.ModuleUtil;
  * @version $Id: ReportSuiteMaker.java,v 1.11 2009/08/22 10:30:42 benoitx Exp $
  */
 public class ReportSuiteMaker {
+    private static final Logger logger = Logger.getLogger("sf.net.statcvs");
 
     /**
      * Path to web distribution files inside the distribution JAR, relative to
@@ -43,6 +56,8 @@ public class ReportSuiteMaker {
     private final ReportConfig config;
     private final String notesHTML;
     private List extraPages = new ArrayList();
+    private final Map pageTimings = new LinkedHashMap();
+    private ExecutorService pool = null;
 
     /**
      * @param config Configuration and data for the report suite
@@ -73,6 +88,13 @@ public class ReportSuiteMaker {
     }
 
     /**
+     * Generates the report suite. The pages and their charts are built by
+     * {@link ConfigurationOptions#getReportThreads()} threads, and the
+     * charts are written by a {@link ChartRenderer} in the background.
+     * The menus are assembled in a fixed order whatever the order in which
+     * the pages are done, so the output is the same for any number of
+     * threads. The time taken by each report and chart is added to the
+     * {@link Metrics} of the run.
      * TODO: Don't throw exception
      * @throws IOException on error while writing the files
      */
@@ -89,87 +111,180 @@ public class ReportSuiteMaker {
         createIcon(FILE_ICON);
         createIcon(DELETED_FILE_ICON);
 
-        final PageGroup mainMenu = new PageGroup("Reports", false);
-        final IndexPageMaker indexPageMaker = new IndexPageMaker(this.config, this.notesHTML, mainMenu);
-
-        //        Runtime.getRuntime().gc();
-        //        final long memoryUsedOnStart = Runtime.getRuntime().freeMemory();
-
-        final NavigationNode allDevPage = new AllDevelopersPageMaker(this.config).toFile();
-        mainMenu.add(allDevPage);
-        allDevPage.setParent(indexPageMaker.getPage());
-        //        Runtime.getRuntime().gc();
-        //        long memoryUsedOnStop = Runtime.getRuntime().freeMemory();
-        //        System.out.println("Mem with HTML " + (memoryUsedOnStop-memoryUsedOnStart));
-        allDevPage.write();
-        //        Runtime.getRuntime().gc();
-        //        memoryUsedOnStop = Runtime.getRuntime().freeMemory();
-        //        System.out.println("Mem AFTER WRITING " + (memoryUsedOnStop-memoryUsedOnStart));
-        final PageGroup locPageGroup = new CommitLogPageGroupMaker(this.config).getPages();
-        if (locPageGroup != null) {
-            mainMenu.add(locPageGroup);
-            locPageGroup.setParent(indexPageMaker.getPage());
-            locPageGroup.write();
+        final long startTime = System.currentTimeMillis();
+        final int threads = ConfigurationOptions.getReportThreads();
+        if (threads > 1) {
+            this.pool = Executors.newFixedThreadPool(threads);
         }
+        final ChartRenderer chartRenderer = new ChartRenderer(ConfigurationOptions.getChartThreads(), ConfigurationOptions.getChartCompression());
+        this.config.setChartRenderer(chartRenderer);
+        final Metrics.Timing pages = Metrics.startPhase("reports.pages");
+        try {
+            return createPages();
+        } finally {
+            if (this.pool != null) {
+                this.pool.shutdownNow();
+                this.pool = null;
+            }
+            pages.stop();
+            final Metrics.Timing charts = Metrics.startPhase("reports.charts");
+            chartRenderer.finish();
+            charts.stop();
+            this.config.setChartRenderer(null);
+            logger.info("generated " + this.pageTimings.size() + " reports on " + threads + " thread(s) in " + (System.currentTimeMillis() - startTime)
+                    + " ms");
+        }
+    }
 
-        final NavigationNode locPage = new LOCPageMaker(this.config).toFile();
-        mainMenu.add(locPage);
-        locPage.setParent(indexPageMaker.getPage());
-        locPage.write();
-
-        final NavigationNode fileSizePage = new FileSizesPageMaker(this.config).toFile();
-        mainMenu.add(fileSizePage);
-        fileSizePage.setParent(indexPageMaker.getPage());
-        fileSizePage.write();
-
-        final NavigationNode dirPage = new DirectorySizesPageMaker(this.config).toFile();
-        mainMenu.add(dirPage);
-        dirPage.setParent(indexPageMaker.getPage());
-        dirPage.write();
+    private Page createPages() {
+        final PageGroup mainMenu = new PageGroup("Reports", false);
+        final IndexPageMaker indexPageMaker = new IndexPageMaker(this.config, this.notesHTML, mainMenu);
+        final Page indexPage = indexPageMaker.getPage();
 
+        final List menuTasks = new ArrayList();
+        menuTasks.add(submit(new ReportTask("Developers", indexPage) {
+            protected NavigationNode make() {
+                return new AllDevelopersPageMaker(config).toFile();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("Commit Logs", indexPage) {
+            protected NavigationNode make() {
+                return new CommitLogPageGroupMaker(config).getPages();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("Lines of Code", indexPage) {
+            protected NavigationNode make() {
+                return new LOCPageMaker(config).toFile();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("File Sizes", indexPage) {
+            protected NavigationNode make() {
+                return new FileSizesPageMaker(config).toFile();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("Directory Sizes", indexPage) {
+            protected NavigationNode make() {
+                return new DirectorySizesPageMaker(config).toFile();
+            }
+        }));
         if (ModuleUtil.modulesPresent()) {
-            final NavigationNode modulePage = new ModulesPageMaker(this.config).toFile();
-            mainMenu.add(modulePage);
-            modulePage.setParent(indexPageMaker.getPage());
-            modulePage.write();
+            menuTasks.add(submit(new ReportTask("Modules", indexPage) {
+                protected NavigationNode make() {
+                    return new ModulesPageMaker(config).toFile();
+                }
+            }));
         }
+        menuTasks.add(submit(new ReportTask("Repo Map", indexPage) {
+            protected NavigationNode make() {
+                return new RepoMapPageMaker(config).toFile();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("Churn", indexPage) {
+            protected NavigationNode make() {
+                return new ChurnPageMaker(config).toFile();
+            }
+        }));
+        menuTasks.add(submit(new ReportTask("Cloud", indexPage) {
+            protected NavigationNode make() {
+                return new CloudCommitPageMaker(config).toFile();
+            }
+        }));
 
-        final NavigationNode repoPage = new RepoMapPageMaker(config).toFile();
-        mainMenu.add(repoPage);
-        repoPage.setParent(indexPageMaker.getPage());
-        repoPage.write();
-
-        final NavigationNode churnPage = new ChurnPageMaker(config).toFile();
-        mainMenu.add(churnPage);
-        churnPage.setParent(indexPageMaker.getPage());
-        churnPage.write();
-
-        final NavigationNode cloudPage = new CloudCommitPageMaker(this.config).toFile();
-        mainMenu.add(cloudPage);
-        cloudPage.setParent(indexPageMaker.getPage());
-        cloudPage.write();
+        // the directory pages do not depend on the main menu and may run
+        // while the index page is waiting for it
+        final List directoryTasks = new ArrayList();
+        Iterator it = this.config.getRepository().getDirectories().iterator();
+        while (it.hasNext()) {
+            final Directory directory = (Directory) it.next();
+            directoryTasks.add(submit(new ReportTask("Directory " + directory.getPath(), "report.Directory", indexPage) {
+                protected NavigationNode make() {
+                    return new DirectoryPageMaker(config, directory).toFile();
+                }
+            }));
+        }
 
-        Iterator it = this.extraPages.iterator();
+        it = menuTasks.iterator();
+        while (it.hasNext()) {
+            final NavigationNode node = getResult((Future) it.next());
+            if (node != null) {
+                mainMenu.add(node);
+            }
+        }
+        it = this.extraPages.iterator();
         while (it.hasNext()) {
             final Page extra = (Page) it.next();
-            extra.setParent(indexPageMaker.getPage());
+            extra.setParent(indexPage);
             mainMenu.add(extra);
         }
-        final Page indexPage = indexPageMaker.toFile();
+        final Metrics.Timing index = Metrics.startTimer("report.Index");
+        indexPageMaker.toFile();
+        recordTiming("Index", index.stop());
 
         final PageGroup directoryPages = new PageGroup("Directories", false);
-        it = this.config.getRepository().getDirectories().iterator();
+        it = directoryTasks.iterator();
         while (it.hasNext()) {
-            final Page dirPageGrp = new DirectoryPageMaker(this.config, (Directory) it.next()).toFile();
-            dirPageGrp.setParent(indexPageMaker.getPage());
-            directoryPages.add(dirPageGrp);
-            dirPageGrp.write();
+            directoryPages.add(getResult((Future) it.next()));
         }
         indexPage.addChild(directoryPages);
         directoryPages.write();
         return indexPage;
     }
 
+    /**
+     * @return the time in ms taken by each report, by report name, in the
+     *         order of the report suite
+     */
+    public Map getPageTimings() {
+        return Collections.unmodifiableMap(this.pageTimings);
+    }
+
+    /**
+     * Runs a task on the pool, or right away when there is no pool.
+     */
+    private Future submit(final ReportTask task) {
+        if (this.pool != null) {
+            return this.pool.submit(task);
+        }
+        final FutureTask result = new FutureTask(task);
+        result.run();
+        waitFor(result);
+        return result;
+    }
+
+    /**
+     * Waits for a task and records its timing.
+     */
+    private NavigationNode getResult(final Future future) {
+        final ReportTask task = waitFor(future);
+        recordTiming(task.name, task.elapsed);
+        return task.node;
+    }
+
+    /**
+     * Waits for a task. Failures of the task are thrown again.
+     */
+    private static ReportTask waitFor(final Future future) {
+        try {
+            return (ReportTask) future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating the reports");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void recordTiming(final String name, final long elapsed) {
+        this.pageTimings.put(name, Long.valueOf(elapsed));
+        logger.info("report '" + name + "' done in " + elapsed + " ms");
+    }
+
     private void createIcon(final String iconFilename) throws IOException {
         this.config.copyFileIntoReport(Main.class.getResource(WEB_FILE_PATH + iconFilename), iconFilename);
     }
@@ -185,4 +300,46 @@ public class ReportSuiteMaker {
         page.addRawContent("<p>No matching files in repository.</p>");
         return page;
     }
+
+    /**
+     * Builds and writes one report with its charts. The report is linked to
+     * the index page before it is written.
+     */
+    private abstract static class ReportTask implements Callable {
+        private final String name;
+        private final String timerName;
+        private final Page indexPage;
+        private NavigationNode node = null;
+        private long elapsed = -1;
+
+        ReportTask(final String name, final Page indexPage) {
+            this(name, "report." + name, indexPage);
+        }
+
+        /**
+         * @param timerName the timer of the {@link Metrics} that the time
+         *      taken is added to, if it is shared with other reports
+         */
+        ReportTask(final String name, final String timerName, final Page indexPage) {
+            this.name = name;
+            this.timerName = timerName;
+            this.indexPage = indexPage;
+        }
+
+        /**
+         * @return the report, or <tt>null</tt> if there is nothing to report
+         */
+        protected abstract NavigationNode make();
+
+        public Object call() {
+            final Metrics.Timing timing = Metrics.startTimer(this.timerName);
+            this.node = make();
+            if (this.node != null) {
+                this.node.setParent(this.indexPage);
+                this.node.write();
+            }
+            this.elapsed = timing.stop();
+            return this;
+        }
+    }
 }
\ No newline at end of file
@@ -30,7 +30,7 @@ public final class TwitterHelp {
         url.append(" ");
         url.append(config.getProjectName());
         url.append(" {0} on ");
-        url.append(HTML.OUTPUT_DATE_FORMAT.format(repository.getLastDate()));
+        url.append(HTML.formatDate(repository.getLastDate()));
         url.append(" has ");
         url.append(NumberFormat.getNumberInstance().format(repository.getCurrentLOC()));
         url.append(" Lines of Code and ");
@@ -70,7 +70,7 @@ public final class TwitterHelp {
         url.append(" lines to ");
         url.append(config.getProjectName());
         url.append(" {0} most recent commit ");
-        url.append(HTML.OUTPUT_DATE_FORMAT.format(((Revision) developer.getRevisions().last()).getDate()));
+        url.append(HTML.formatDate(((Revision) developer.getRevisions().last()).getDate()));
         url.append(" stats by ");
         url.append(Messages.getString("PROJECT_SHORTNAME"));
         url.append(" ").append(Messages.getString("PROJECT_SMALL_URL"));
@@ -5,6 +5,9 @@ package net.sf.statcvs.pages.xml;
 
 import java.util.Iterator;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.renderer.XMLRenderer;
 import net.sf.statcvs.reportmodel.Column;
@@ -12,8 +15,6 @@ import net.sf.statcvs.reportmodel.Table;
 import net.sf.statcvs.reports.DevelopersTableReport;
 import net.sf.statcvs.reports.TableReport;
 
-import org.jdom.Element;
-
 /**
  * @author Nilendra Weerasinghe (nilendraw@gmail.com)
  * @version $Id: AllDevelopersXml.java,v 1.2 2008/04/02 11:22:16 benoitx Exp $
@@ -35,50 +36,45 @@ public class AllDevelopersXml {
     }
 
     /**
-     * returns jdom element which contains data extracted from DeveloeprsTableReport
-     * 
-     * @returns Element
+     * writes the developers element with the data extracted from DevelopersTableReport
+     *
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element toFile() {
+    public void write(final XMLStreamWriter out) throws XMLStreamException {
         this.developers = new DevelopersTableReport(this.config);
         final TableReport tr = developers;
         tr.calculate();
         this.table = tr.getTable();
-        final Element div = new Element(XmlTags.TAG_DEVELOPERS);
+        out.writeStartElement(XmlTags.TAG_DEVELOPERS);
 
         final String[] str = new String[NO_OF_COLS_IN_TABLE];
+        int i = 0;
+        final Iterator it = table.getColumnIterator();
+        while (it.hasNext()) {
+            final Column column = (Column) it.next();
+            column.renderHead(renderer);
+            str[i] = renderer.getColumnHead();
+            i++;
+        }
         for (int j = 0; j < table.getRowCount(); j++) {
-            Element col = null;
-            int i = 0;
-            final Iterator it = table.getColumnIterator();
-            final Iterator itr = table.getColumnIterator();
-            while (it.hasNext()) {
-                final Column column = (Column) it.next();
-                column.renderHead(renderer);
-
-                str[i] = renderer.getColumnHead();
-                if (i == 0) {
-                    col = new Element(str[i]);
-                } else {
-                    col.addContent(new Element(str[i]));
-                }
-                i++;
-            }
+            out.writeStartElement(str[0]);
             boolean isFirstColumn = true;
             int k = 0;
+            final Iterator itr = table.getColumnIterator();
             while (itr.hasNext()) {
                 final Column column = (Column) itr.next();
                 column.renderCell(j, renderer);
                 if (isFirstColumn && table.hasKeysInFirstColumn()) {
-                    col.setAttribute("name", renderer.getRowHead().toLowerCase());
+                    out.writeAttribute("name", renderer.getRowHead().toLowerCase());
                     isFirstColumn = false;
                 } else {
-                    col.getChild(str[k]).setText(renderer.getTableCell());
+                    XML.writeElement(out, str[k], renderer.getTableCell());
                 }
                 k++;
             }
-            div.addContent(col);
+            out.writeEndElement();
         }
-        return div;
+        out.writeEndElement();
     }
 }
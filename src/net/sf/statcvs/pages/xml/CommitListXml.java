@@ -1,21 +1,19 @@
 package net.sf.statcvs.pages.xml;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.model.Commit;
 import net.sf.statcvs.model.Revision;
 import net.sf.statcvs.model.SymbolicName;
 import net.sf.statcvs.renderer.FileCollectionFormatter;
 
-import org.jdom.CDATA;
-import org.jdom.Element;
-
 /**
  * This is a mere copy of the CommitListFormatter class with dfew minor changes done
  * Class for formatting a list of commits as XML.
@@ -25,7 +23,6 @@ import org.jdom.Element;
  * @version $Id: CommitListXml.java,v 1.4 2008/04/02 11:52:02 benoitx Exp $
  */
 public class CommitListXml {
-    private final List commits;
     private final List tags;
     private final HashMap commitHashMap = new HashMap();
 
@@ -44,52 +41,47 @@ public class CommitListXml {
      * are more, only the most recent will be used
      */
     public CommitListXml(final List commit, final List tags, final int max, final boolean withPermalinks) {
-        this.commits = new ArrayList(commit);
         this.tags = tags;
-        Collections.reverse(this.commits);
     }
 
-    public Element renderCommitList(final List commitList) {
-        if (commitList.isEmpty()) {
-            return null;
-        }
-        int id = commitList.size();
-        final Element lg = new Element(XmlTags.TAG_COMMIT_LIST);
+    /**
+     * Writes a <tt>Commit</tt> element for each commit of the list, as
+     * children of the current element.
+     * @param out the XML stream
+     * @param commitList a list of {@link Commit} objects
+     * @throws XMLStreamException on error while writing the commits
+     */
+    public void writeCommitList(final XMLStreamWriter out, final List commitList) throws XMLStreamException {
         final Iterator commitIt = commitList.iterator();
         Commit nextCommit = commitIt.hasNext() ? (Commit) commitIt.next() : null;
         final Iterator tagIt = this.tags.iterator();
         SymbolicName nextTag = tagIt.hasNext() ? (SymbolicName) tagIt.next() : null;
         while (nextCommit != null) {
-            Element log = null;
             if (nextTag == null || nextCommit.getDate().getTime() > nextTag.getDate().getTime()) {
-                log = renderCommit(nextCommit, id);
+                writeCommit(out, nextCommit);
                 nextCommit = commitIt.hasNext() ? (Commit) commitIt.next() : null;
-                id--;
             } else {
                 nextTag = tagIt.hasNext() ? (SymbolicName) tagIt.next() : null;
             }
-            lg.addContent(log);
         }
-        return lg;
     }
 
-    private Element renderCommit(final Commit commit, final int id) {
-        final Element cmt = new Element(XmlTags.TAG_COMMIT);
-
-        cmt.setAttribute("date", getDate(commit));
-        cmt.setAttribute("author", getAuthor(commit));
-        cmt.setAttribute("loc_change", getLinesOfCode(commit));
+    private void writeCommit(final XMLStreamWriter out, final Commit commit) throws XMLStreamException {
+        // only the revisions of the current commit are needed
+        commitHashMap.clear();
+        out.writeStartElement(XmlTags.TAG_COMMIT);
+        out.writeAttribute("date", getDate(commit));
+        out.writeAttribute("author", getAuthor(commit));
+        out.writeAttribute("loc_change", getLinesOfCode(commit));
         final String revision = getRevisionNumber(commit);
         if (revision != null) {
-            cmt.setAttribute("revision", revision);
+            out.writeAttribute("revision", revision);
         }
-        final Element comment = new Element(XmlTags.TAG_COMMENT);
-        final CDATA theActualComment = new CDATA(commit.getComment());
-        comment.addContent(theActualComment);
-        cmt.addContent(comment);
-        cmt.addContent(getAffectedFiles(commit));
-
-        return cmt;
+        out.writeStartElement(XmlTags.TAG_COMMENT);
+        XML.writeCData(out, commit.getComment());
+        out.writeEndElement();
+        writeAffectedFiles(out, commit);
+        out.writeEndElement();
     }
 
     private String getRevisionNumber(final Commit commit) {
@@ -127,53 +119,53 @@ public class CommitListXml {
         commitHashMap.put(revision.getFile().getFilenameWithPath(), revision);
     }
 
-    private Element getAffectedFiles(final Commit commit) {
-        final Element result = new Element(XmlTags.TAG_FILES_AFFECTED);
+    private void writeAffectedFiles(final XMLStreamWriter out, final Commit commit) throws XMLStreamException {
+        out.writeStartElement(XmlTags.TAG_FILES_AFFECTED);
         final FileCollectionFormatter formatter = new FileCollectionFormatter(commit.getAffectedFiles());
         final Iterator it = formatter.getDirectories().iterator();
         while (it.hasNext()) {
             final String directory = (String) it.next();
             final Iterator files = formatter.getFiles(directory).iterator();
-            final StringBuffer fileList = new StringBuffer();
             while (files.hasNext()) {
-                final Element File = new Element(XmlTags.TAG_FILE);
-                if (fileList.length() > 0) {
-                    fileList.append(",\n");
-                }
                 final String file = (String) files.next();
-                final Element path = new Element(XmlTags.TAG_PATH).setText(directory + file);
-                File.addContent(path);
                 final Revision revision = (Revision) commitHashMap.get(directory + file);
+                String action;
+                String linesAdded = null;
+                String linesRemoved = null;
                 if (revision.isInitialRevision()) {
-                    final int linesAdded = revision.getLines();
-                    File.setAttribute("action", "new");
-                    if (linesAdded > 0) {
-                        File.addContent(new Element(XmlTags.TAG_LOC_ADDED).setText(Integer.toString(linesAdded)));
+                    action = "new";
+                    if (revision.getLines() > 0) {
+                        linesAdded = Integer.toString(revision.getLines());
                     }
                 } else if (revision.isDead()) {
-                    File.setAttribute("action", "deleted");
+                    action = "deleted";
                 } else {
                     final int delta = revision.getLinesDelta();
-                    final int linesAdded = revision.getReplacedLines() + ((delta > 0) ? delta : 0);
-                    final int linesRemoved = revision.getReplacedLines() - ((delta < 0) ? delta : 0);
-                    if (linesAdded > 0) {
-                        File.setAttribute("action", "changed");
-                        File.addContent(new Element(XmlTags.TAG_LOC_ADDED).setText(Integer.toString(linesAdded)));
-                        if (linesRemoved > 0) {
-                            File.addContent(new Element(XmlTags.TAG_LOC_REMOVED).setText(Integer.toString(linesRemoved)));
+                    final int added = revision.getReplacedLines() + ((delta > 0) ? delta : 0);
+                    final int removed = revision.getReplacedLines() - ((delta < 0) ? delta : 0);
+                    if (added > 0 || removed > 0) {
+                        action = "changed";
+                        linesAdded = Integer.toString(added);
+                        if (removed > 0) {
+                            linesRemoved = Integer.toString(removed);
                         }
-                    } else if (linesRemoved > 0) {
-                        File.setAttribute("action", "changed");
-                        File.addContent(new Element(XmlTags.TAG_LOC_ADDED).setText("0"));
-                        File.addContent(new Element(XmlTags.TAG_LOC_REMOVED).setText(Integer.toString(linesRemoved)));
                     } else { // linesAdded == linesRemoved == 0
                         // should be binary file or keyword subst change
-                        File.setAttribute("action", "binary file or keyword subst change");
+                        action = "binary file or keyword subst change";
                     }
                 }
-                result.addContent(File);
+                out.writeStartElement(XmlTags.TAG_FILE);
+                out.writeAttribute("action", action);
+                XML.writeElement(out, XmlTags.TAG_PATH, directory + file);
+                if (linesAdded != null) {
+                    XML.writeElement(out, XmlTags.TAG_LOC_ADDED, linesAdded);
+                }
+                if (linesRemoved != null) {
+                    XML.writeElement(out, XmlTags.TAG_LOC_REMOVED, linesRemoved);
+                }
+                out.writeEndElement();
             }
         }
-        return result;
+        out.writeEndElement();
     }
 }
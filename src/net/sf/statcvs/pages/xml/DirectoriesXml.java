@@ -9,14 +9,14 @@ package net.sf.statcvs.pages.xml;
 
 import java.util.Iterator;
 import java.util.SortedSet;
-import java.util.Stack;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import net.sf.statcvs.model.Directory;
 import net.sf.statcvs.model.Repository;
 import net.sf.statcvs.output.ReportConfig;
 
-import org.jdom.Element;
-
 public class DirectoriesXml {
     private final SortedSet directory;
     private final Repository repository;
@@ -30,66 +30,35 @@ public class DirectoriesXml {
     }
 
     /**
-     * returns jdom element which contains data extracted from the SortedSet of directories
+     * writes the directories element with the data extracted from the SortedSet of directories
      *
-     * @returns Element
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element toFile() {
-        final Element dir = new Element(XmlTags.TAG_DIRECTORIES);
+    public void write(final XMLStreamWriter out) throws XMLStreamException {
+        out.writeStartElement(XmlTags.TAG_DIRECTORIES);
         final Iterator it = this.directory.iterator();
-
-        //        int depth = -1;
-        final Element parent = dir;
-        final Stack stack = new Stack();
-        stack.add(dir);
         while (it.hasNext()) {
             final Directory direc = (Directory) it.next();
-            final Element item = format(direc, 0);
-
-            //            if (direc.getDepth() < depth) {
-            //                int toReach = depth - direc.getDepth();
-            //                while (toReach-- > 0) {
-            //                    parent = (Element) stack.pop();
-            //                }
-            //            } else if (direc.getDepth() == depth) {
-            //                parent = (Element) stack.pop();
-            //            }
-            //            System.err.println("Directory depth " + direc.getDepth() + " " + depth + " " + getFormattedName(direc) + " " + parent.getName());
-
-            parent.addContent(item);
-            //            if (direc.getDepth() >= depth) {
-            //                stack.push(parent);
-            //                parent = item;
-            //            }
-            //            depth = direc.getDepth();
+            format(out, direc);
         }
-
-        return dir;
+        out.writeEndElement();
     }
 
     /**
-     * returns jdom element properly formatted with the attributes and child elements
+     * writes a directory element with its attributes and child elements
      *
-     * @param Directory the current directory
-     * @param int the depth of the directory
+     * @param out the XML stream
+     * @param dir the current directory
      */
-    private Element format(final Directory dir, final int currentDepth) {
-        final Element element = new Element(XmlTags.TAG_DIRECTORY);
-        final Element path = new Element(XmlTags.TAG_PATH);
-        //        path.setText(getFormattedName(dir));
-        path.setText(dir.getPath());
+    private void format(final XMLStreamWriter out, final Directory dir) throws XMLStreamException {
+        out.writeStartElement(XmlTags.TAG_DIRECTORY);
         if (dir.isEmpty()) {
-            element.setAttribute("status", "deleted");
+            out.writeAttribute("status", "deleted");
         }
-        final Element child1 = new Element(XmlTags.TAG_FILES);
-        final String str = Integer.toString(dir.getCurrentFileCount());
-        child1.setText(str);
-        final Element child2 = new Element(XmlTags.TAG_LINES_CHANGED);
-        final String str2 = Integer.toString(dir.getCurrentLOC());
-        child2.setText(str2);
-        element.addContent(path);
-        element.addContent(child1);
-        element.addContent(child2);
-        return element;
+        XML.writeElement(out, XmlTags.TAG_PATH, dir.getPath());
+        XML.writeElement(out, XmlTags.TAG_FILES, Integer.toString(dir.getCurrentFileCount()));
+        XML.writeElement(out, XmlTags.TAG_LINES_CHANGED, Integer.toString(dir.getCurrentLOC()));
+        out.writeEndElement();
     }
 }
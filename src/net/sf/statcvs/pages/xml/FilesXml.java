@@ -9,6 +9,9 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Iterator;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.model.Repository;
 import net.sf.statcvs.model.VersionedFile;
 import net.sf.statcvs.output.ReportConfig;
@@ -20,8 +23,6 @@ import net.sf.statcvs.reports.FilesWithMostRevisionsTableReport;
 import net.sf.statcvs.reports.LargestFilesTableReport;
 import net.sf.statcvs.reports.TableReport;
 
-import org.jdom.Element;
-
 public class FilesXml {
     private final static NumberFormat[] DOUBLE_FORMATS = { new DecimalFormat("0"), new DecimalFormat("0.0"), new DecimalFormat("0.00"),
             new DecimalFormat("0.000"), new DecimalFormat("0.0000") };
@@ -43,161 +44,144 @@ public class FilesXml {
     }
 
     /**
-     * returns jdom element which contains data regarding the files of the repository
+     * writes the element which contains data regarding the files of the repository
      *
-     * @returns Element
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element toFile() {
-        final Element fileStats = new Element("FileStats");
-        final Element summ = new Element(XmlTags.TAG_SUMMARY);
-        summ.addContent(new Element(XmlTags.TAG_TOTAL_FILES).setText(Integer.toString(getCurrentFileCount())));
-        summ.addContent(new Element(XmlTags.TAG_AVG_FILE_SIZE).setText(DOUBLE_FORMATS[1].format(getCurrentAverageFileSize()) + " lines"));
-        summ.addContent(new Element(XmlTags.TAG_AVG_REVISIONS_PER_FILE).setText(Double.toString(getCurrentAverageRevisionCount())));
-        fileStats.addContent(summ);
-        fileStats.addContent(fileExts());
-        fileStats.addContent(largestFiles());
-        fileStats.addContent(mostRevs());
-
-        return fileStats;
+    public void write(final XMLStreamWriter out) throws XMLStreamException {
+        out.writeStartElement("FileStats");
+        out.writeStartElement(XmlTags.TAG_SUMMARY);
+        XML.writeElement(out, XmlTags.TAG_TOTAL_FILES, Integer.toString(getCurrentFileCount()));
+        XML.writeElement(out, XmlTags.TAG_AVG_FILE_SIZE, DOUBLE_FORMATS[1].format(getCurrentAverageFileSize()) + " lines");
+        XML.writeElement(out, XmlTags.TAG_AVG_REVISIONS_PER_FILE, Double.toString(getCurrentAverageRevisionCount()));
+        out.writeEndElement();
+        fileExts(out);
+        largestFiles(out);
+        mostRevs(out);
+        out.writeEndElement();
     }
 
     /**
-     * returns jdom element which contains data about files grouped by extension
+     * writes the element which contains data about files grouped by extension
      *
-     * @returns Element
+     * @param out the XML stream
      */
-    private Element fileExts() {
-        final Element ele = new Element(XmlTags.TAG_EXTENSIONS);
+    private void fileExts(final XMLStreamWriter out) throws XMLStreamException {
+        out.writeStartElement(XmlTags.TAG_EXTENSIONS);
         final TableReport tr = new FileTypeReport(this.config);
         tr.calculate();
         this.table = tr.getTable();
         final String[] str = new String[NO_OF_COLS_IN_EXT_TABLE];
+        int i = 0;
+        final Iterator it = table.getColumnIterator();
+        while (it.hasNext()) {
+            final Column column = (Column) it.next();
+            column.renderHead(renderer);
+            str[i] = renderer.getColumnHead();
+            i++;
+        }
         for (int j = 0; j < table.getRowCount(); j++) {
-            Element col = null;
-            int i = 0;
-            final Iterator it = table.getColumnIterator();
-            final Iterator itr = table.getColumnIterator();
-            while (it.hasNext()) {
-                final Column column = (Column) it.next();
-                column.renderHead(renderer);
-                str[i] = renderer.getColumnHead();
-                if (i == 0) {
-                    col = new Element(str[i]);
-                } else {
-                    col.addContent(new Element(str[i]));
-                }
-                i++;
-            }
+            out.writeStartElement(str[0]);
             boolean isFirstColumn = true;
             int k = 0;
+            final Iterator itr = table.getColumnIterator();
             while (itr.hasNext()) {
                 final Column column = (Column) itr.next();
                 column.renderCell(j, renderer);
                 if (isFirstColumn && table.hasKeysInFirstColumn()) {
-                    col.setAttribute("ext", renderer.getRowHead().toLowerCase());
+                    out.writeAttribute("ext", renderer.getRowHead().toLowerCase());
                     isFirstColumn = false;
                 } else {
-                    col.getChild(str[k]).setText(renderer.getTableCell());
+                    XML.writeElement(out, str[k], renderer.getTableCell());
                 }
                 k++;
             }
-            ele.addContent(col);
+            out.writeEndElement();
         }
-        return ele;
+        out.writeEndElement();
     }
 
     /**
-     * returns jdom element which contains data of the largest files in terms of LOC of the repository
+     * writes the element which contains data of the largest files in terms of LOC of the repository
      *
-     * @returns Element
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element largestFiles() {
-        final Element larg = new Element(XmlTags.TAG_LARGEST_FILES);
+    public void largestFiles(final XMLStreamWriter out) throws XMLStreamException {
         final TableReport largestFilesTable = new LargestFilesTableReport(this.config, this.repository.getFiles(), MAX_LARGEST_FILES);
         largestFilesTable.calculate();
         this.table = largestFilesTable.getTable();
-        final String[] str = new String[NO_OF_COLS_IN_LARG_TABLE];
-        for (int j = 0; j < table.getRowCount(); j++) {
-            Element col = null;
-            int i = 0;
-            final Iterator it = table.getColumnIterator();
-            final Iterator itr = table.getColumnIterator();
-            while (it.hasNext()) {
-                final Column column = (Column) it.next();
-                column.renderHead(renderer);
-                str[i] = renderer.getColumnHead();
-                if (i == 0) {
-                    col = new Element(str[i]);
-                } else {
-                    str[i] = renderer.getColumnHead().replaceAll(" ", "_");
-                    //col.addContent(new Element (str[i]));
-                }
-                i++;
-            }
-
-            boolean isFirstColumn = true;
-            int k = 0;
-            while (itr.hasNext()) {
-                final Column column = (Column) itr.next();
-                column.renderCell(j, renderer);
-                if (isFirstColumn && table.hasKeysInFirstColumn()) {
-                    col.setText(/*removeHTML(*/renderer.getRowHead()/*)*/);
-                    isFirstColumn = false;
-                } else {
-                    col.setAttribute(str[k].toLowerCase(), renderer.getTableCell());
-                }
-                k++;
-            }
-            larg.addContent(col);
-        }
-        return larg;
+        writeFileTable(out, XmlTags.TAG_LARGEST_FILES, NO_OF_COLS_IN_LARG_TABLE);
     }
 
     /**
-     * returns jdom element which contains data of the files with most revisions
+     * writes the element which contains data of the files with most revisions
      *
-     * @returns Element
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element mostRevs() {
-        final Element revs = new Element(XmlTags.TAG_MOST_REVISIONS);
+    public void mostRevs(final XMLStreamWriter out) throws XMLStreamException {
         final TableReport mostRevs = new FilesWithMostRevisionsTableReport(this.config, this.repository.getFiles(), MAX_LARGEST_FILES);
         mostRevs.calculate();
         this.table = mostRevs.getTable();
-        final String[] str = new String[NO_OF_COLS_IN_LARG_TABLE];
-        for (int j = 0; j < table.getRowCount(); j++) {
-            Element col = null;
-            int i = 0;
-            final Iterator it = table.getColumnIterator();
-            final Iterator itr = table.getColumnIterator();
-            while (it.hasNext()) {
-                final Column column = (Column) it.next();
-                column.renderHead(renderer);
-                if (i == 0) {
-                    str[i] = renderer.getColumnHead();
-                    col = new Element(str[i]);
-                } else {
-                    str[i] = renderer.getColumnHead().replaceAll(" ", "_");
-                    //col.addContent(new Element (str[i]));
-                }
-                i++;
-            }
+        writeFileTable(out, XmlTags.TAG_MOST_REVISIONS, NO_OF_COLS_IN_LARG_TABLE);
+    }
 
+    /**
+     * writes the current table as a list of files. The file name is the text of an element,
+     * and the other columns are its attributes
+     *
+     * @param out the XML stream
+     * @param tag the name of the element
+     * @param columns the number of columns of the table
+     */
+    private void writeFileTable(final XMLStreamWriter out, final String tag, final int columns) throws XMLStreamException {
+        out.writeStartElement(tag);
+        final String[] str = new String[columns];
+        int i = 0;
+        final Iterator it = table.getColumnIterator();
+        while (it.hasNext()) {
+            final Column column = (Column) it.next();
+            column.renderHead(renderer);
+            if (i == 0) {
+                str[i] = renderer.getColumnHead();
+            } else {
+                str[i] = renderer.getColumnHead().replaceAll(" ", "_");
+            }
+            i++;
+        }
+        final String[] cells = new String[columns];
+        for (int j = 0; j < table.getRowCount(); j++) {
+            // the attributes are written before the text of the element
+            String text = null;
             boolean isFirstColumn = true;
             int k = 0;
+            final Iterator itr = table.getColumnIterator();
             while (itr.hasNext()) {
                 final Column column = (Column) itr.next();
                 column.renderCell(j, renderer);
                 if (isFirstColumn && table.hasKeysInFirstColumn()) {
-                    col.setText(/*removeHTML(*/renderer.getRowHead());
+                    text = renderer.getRowHead();
                     isFirstColumn = false;
                 } else {
-                    col.setAttribute(str[k].toLowerCase(), renderer.getTableCell());
+                    cells[k] = renderer.getTableCell();
                 }
                 k++;
             }
-            revs.addContent(col);
+            out.writeStartElement(str[0]);
+            for (int c = 0; c < k; c++) {
+                if (cells[c] != null) {
+                    out.writeAttribute(str[c].toLowerCase(), cells[c]);
+                    cells[c] = null;
+                }
+            }
+            if (text != null) {
+                out.writeCharacters(text);
+            }
+            out.writeEndElement();
         }
-        return revs;
+        out.writeEndElement();
     }
 
     /**
@@ -7,11 +7,17 @@ package net.sf.statcvs.pages.xml;
  * This is the central class which creates all of the xml reports
  */
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Calendar;
 import java.util.Iterator;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.Messages;
 import net.sf.statcvs.model.Repository;
 import net.sf.statcvs.model.VersionedFile;
@@ -21,13 +27,10 @@ import net.sf.statcvs.output.WebRepositoryIntegration;
 import net.sf.statcvs.reports.TopDevelopersTableReport;
 import net.sf.statcvs.weblinks.bugs.BugTracker;
 
-import org.jdom.Comment;
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.output.XMLOutputter;
-
 public class GenerateXml {
     private static final String TAG_REPO_STATISTICS = "RepoStatistics";
+    private static final String ENCODING = "UTF-8";
+    private static final int BUFFER_SIZE = 64 * 1024;
     private final ReportConfig config;
     private final Repository repository;
 
@@ -40,83 +43,97 @@ public class GenerateXml {
     }
 
     /**
-     * This method will invoke the classes which capture the data required to generate the xmls
+     * This method will invoke the classes which capture the data required to generate the xmls.
+     * Each section is written to the file as soon as it is generated, so the report is never
+     * held in memory as a whole
      */
     public void generate() {
+        final String file = ConfigurationOptions.getOutputDir() + "repo-statistics.xml";
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+            write(writer);
+            writer.close();
+            out.close();
+            out = null;
+        } catch (final IOException e) {
+            System.err.println(e);
+        } catch (final XMLStreamException e) {
+            System.err.println(e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (final IOException e) {
+                    System.err.println(e);
+                }
+            }
+        }
+    }
+
+    private void write(final XMLStreamWriter out) throws XMLStreamException {
         final TopDevelopersTableReport topDevelopers = new TopDevelopersTableReport(this.config);
         final String gen_time = Calendar.getInstance().getTime().toString();
         final String period = getReportPeriod();
         final String title = Messages.getString("INDEX_TITLE") + " " + this.config.getProjectName();
-        final Element root = new Element(TAG_REPO_STATISTICS);
-        root.setAttribute("date", gen_time.toLowerCase());
-        root.setAttribute("period", period.toLowerCase());
-        root.setAttribute("numberfiles", Integer.toString(getCurrentFileCount()));
-        root.setAttribute("totalloc", Integer.toString(this.repository.getCurrentLOC()));
-        root.setAttribute("numberdevelopers", Integer.toString(topDevelopers.getDeveloperCount()));
 
-        final Document myXML = new Document(root);
-        myXML.addContent(new Comment(title));
+        out.writeStartDocument(ENCODING, "1.0");
+        out.writeCharacters("\n");
+        out.writeStartElement(TAG_REPO_STATISTICS);
+        out.writeAttribute("date", gen_time.toLowerCase());
+        out.writeAttribute("period", period.toLowerCase());
+        out.writeAttribute("numberfiles", Integer.toString(getCurrentFileCount()));
+        out.writeAttribute("totalloc", Integer.toString(this.repository.getCurrentLOC()));
+        out.writeAttribute("numberdevelopers", Integer.toString(topDevelopers.getDeveloperCount()));
 
-        final Element el2 = new Element(XmlTags.TAG_CHECKED_OUT_DIR);
-        el2.setAttribute("path", ConfigurationOptions.getCheckedOutDirectory());
-        root.addContent(el2);
+        out.writeEmptyElement(XmlTags.TAG_CHECKED_OUT_DIR);
+        out.writeAttribute("path", ConfigurationOptions.getCheckedOutDirectory());
 
         if (ConfigurationOptions.getProjectName() != null) {
-            final Element el3 = new Element(XmlTags.TAG_PROJECT);
-            el3.setAttribute("path", ConfigurationOptions.getCheckedOutDirectory());
-            root.addContent(el3);
+            out.writeEmptyElement(XmlTags.TAG_PROJECT);
+            out.writeAttribute("path", ConfigurationOptions.getCheckedOutDirectory());
         }
         /*
         if (repository.getRoot() != null) {
-            Element el3 = new Element(XmlTags.TAG_ROOT);
-            el3.setAttribute("path", repository.getRoot().getPath());
-            root.addContent(el3);
+            out.writeEmptyElement(XmlTags.TAG_ROOT);
+            out.writeAttribute("path", repository.getRoot().getPath());
         }
         */
 
         final BugTracker bt = ConfigurationOptions.getWebBugtracker();
         if (bt != null) {
-            final Element el = new Element(XmlTags.TAG_BUG_TRACKER);
-            el.setAttribute("baseurl", bt.baseURL());
-            el.setAttribute("name", bt.getName());
-            root.addContent(el);
+            out.writeEmptyElement(XmlTags.TAG_BUG_TRACKER);
+            out.writeAttribute("baseurl", bt.baseURL());
+            out.writeAttribute("name", bt.getName());
         }
 
         final WebRepositoryIntegration wi = ConfigurationOptions.getWebRepository();
         if (wi != null) {
-            final Element el = new Element(XmlTags.TAG_WEB_REPOSITORY);
-            el.setAttribute("baseurl", wi.getBaseUrl());
-            el.setAttribute("name", wi.getName());
-            root.addContent(el);
+            out.writeEmptyElement(XmlTags.TAG_WEB_REPOSITORY);
+            out.writeAttribute("baseurl", wi.getBaseUrl());
+            out.writeAttribute("name", wi.getName());
         }
 
         /*
          * add developer statistics section to xml report
          */
-        final AllDevelopersXml adxml = new AllDevelopersXml(config);
-        final Element child1 = adxml.toFile();
-        root.addContent(child1);
+        new AllDevelopersXml(config).write(out);
 
         /*
          * add directories statistics section to xml report
          */
-        final DirectoriesXml dxml = new DirectoriesXml(config);
-        final Element child2 = dxml.toFile();
-        root.addContent(child2);
+        new DirectoriesXml(config).write(out);
 
         /*
          * add commit log section to xml report
          */
-        final LogXml log = new LogXml(config);
-        final Element child3 = log.toFile();
-        root.addContent(child3);
+        new LogXml(config).write(out);
 
         /*
          * add commit log section to xml
          */
-        final FilesXml fl = new FilesXml(config);
-        final Element child4 = fl.toFile();
-        root.addContent(child4);
+        new FilesXml(config).write(out);
 
         /*
          * add revised file list section to xml report
@@ -125,17 +142,10 @@ public class GenerateXml {
         root.addContent(child5);
          */
 
-        // serialize it into a file
-        try {
-            final String file = ConfigurationOptions.getOutputDir() + "repo-statistics.xml";
-            final FileOutputStream out = new FileOutputStream(file);
-            final XMLOutputter serializer = new XMLOutputter();
-            serializer.output(myXML, out);
-            out.flush();
-            out.close();
-        } catch (final IOException e) {
-            System.err.println(e);
-        }
+        out.writeEndElement();
+        out.writeComment(title);
+        out.writeCharacters("\n");
+        out.writeEndDocument();
     }
 
     /**
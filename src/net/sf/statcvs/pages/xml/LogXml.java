@@ -5,19 +5,17 @@ package net.sf.statcvs.pages.xml;
  * @version $Id: LogXml.java,v 1.3 2008/04/02 11:52:02 benoitx Exp $
  */
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.model.Commit;
 import net.sf.statcvs.model.Repository;
 import net.sf.statcvs.output.ReportConfig;
 
-import org.jdom.Element;
-
 public class LogXml {
     private final ReportConfig config;
     private final Repository repository;
@@ -31,24 +29,21 @@ public class LogXml {
     }
 
     /**
-     * returns jdom element which contains data extracted from the commit list of the repository
+     * writes the commit log element with the data extracted from the commit list of the repository.
+     * Nothing is written if the repository has no commits
      *
-     * @returns Element
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the element
      */
-    public Element toFile() {
+    public void write(final XMLStreamWriter out) throws XMLStreamException {
         if (this.repository.getCommits().isEmpty()) {
-            return null;
+            return;
         }
-        final Date start = this.repository.getFirstDate();
-        final Date end = this.repository.getLastDate();
-        final Calendar calendar = new GregorianCalendar();
-        calendar.setTime(end);
-        final Calendar startCal = new GregorianCalendar();
-        startCal.setTime(start);
-        final Element commLog = new LogXmlMaker(this.config, this.repository.getCommits()).toFile();
-        commLog.setAttribute("no_of_commits", Integer.toString(this.repository.getCommits().size()));
-        commLog.setAttribute("active_developers", countActiveDevelopers());
-        return commLog;
+        out.writeStartElement(XmlTags.TAG_COMMIT_LIST);
+        out.writeAttribute("no_of_commits", Integer.toString(this.repository.getCommits().size()));
+        out.writeAttribute("active_developers", countActiveDevelopers());
+        new LogXmlMaker(this.config, this.repository.getCommits()).write(out);
+        out.writeEndElement();
     }
 
     /**
@@ -12,12 +12,13 @@ import java.util.GregorianCalendar;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.model.Commit;
 import net.sf.statcvs.model.SymbolicName;
 import net.sf.statcvs.output.ReportConfig;
 
-import org.jdom.Element;
-
 public class LogXmlMaker {
     private final static String[] MONTH_TWO_CHARACTERS = { "01", "02", "03", "04", "05", "06", "07", "08", "09", "10", "11", "12" };
 
@@ -55,12 +56,16 @@ public class LogXmlMaker {
         }
     }
 
-    public Element toFile() {
-        Element lg = null;
+    /**
+     * Writes the commits as children of the current element. The caller
+     * writes the enclosing element, so that it can add its own attributes.
+     * @param out the XML stream
+     * @throws XMLStreamException on error while writing the commits
+     */
+    public void write(final XMLStreamWriter out) throws XMLStreamException {
         if (!this.commits.isEmpty()) {
-            lg = new CommitListXml(this.commits, getTags(), true).renderCommitList(this.commits);
+            new CommitListXml(this.commits, getTags(), true).writeCommitList(out, this.commits);
         }
-        return lg;
     }
 
     private List getTags() {
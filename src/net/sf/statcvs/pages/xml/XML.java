@@ -3,6 +3,9 @@ package net.sf.statcvs.pages.xml;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import net.sf.statcvs.Messages;
 import net.sf.statcvs.model.Author;
 import net.sf.statcvs.model.Directory;
@@ -142,6 +145,36 @@ public final class XML {
         return result;
     }
 
+    /**
+     * Writes an element that contains only text
+     * @param out the XML stream
+     * @param name the name of the element
+     * @param text the text of the element
+     * @throws XMLStreamException on error while writing the element
+     */
+    public static void writeElement(final XMLStreamWriter out, final String name, final String text) throws XMLStreamException {
+        out.writeStartElement(name);
+        out.writeCharacters(text);
+        out.writeEndElement();
+    }
+
+    /**
+     * Writes text as CDATA. A CDATA section cannot contain "]]&gt;", so
+     * the text is split into several sections at each occurrence.
+     * @param out the XML stream
+     * @param text some string, for example a commit message
+     * @throws XMLStreamException on error while writing the text
+     */
+    public static void writeCData(final XMLStreamWriter out, final String text) throws XMLStreamException {
+        int start = 0;
+        int end;
+        while ((end = text.indexOf("]]>", start)) != -1) {
+            out.writeCData(text.substring(start, end + 2));
+            start = end + 2;
+        }
+        out.writeCData(text.substring(start));
+    }
+
     /**
      * A utility class (only static methods) should be final and have
      * a private constructor.
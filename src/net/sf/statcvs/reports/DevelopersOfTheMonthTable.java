@@ -1,14 +1,11 @@
 package net.sf.statcvs.reports;
 
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.Iterator;
 
 import net.sf.statcvs.model.Author;
 import net.sf.statcvs.model.Repository;
-import net.sf.statcvs.model.Revision;
 import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.pages.CommitLogPageMaker;
@@ -72,8 +69,7 @@ public class DevelopersOfTheMonthTable implements TableReport {
             final IntegerMap developerMap = getMostActiveUserOfMonth(month, year);
             if (developerMap.size() > 0) {
                 months.addValue(CommitLogPageMaker.getURL(calendar.getTime()), month_year);
-                final Iterator it = developerMap.iteratorSortedByValueReverse();
-                final Author developer = (Author) it.next();
+                final Author developer = (Author) developerMap.topKeys(1).get(0);
                 developers.addValue(developer);
                 loc.addValue(developerMap.get(developer));
             }
@@ -86,24 +82,7 @@ public class DevelopersOfTheMonthTable implements TableReport {
     }
 
     private IntegerMap getMostActiveUserOfMonth(final int month, final int year) {
-        final Collection revisions = this.repository.getRevisions();
-        final Calendar calendar = new GregorianCalendar();
-        final IntegerMap developerMap = new IntegerMap();
-        final Iterator it = revisions.iterator();
-        while (it.hasNext()) {
-            final Revision revision = (Revision) it.next();
-            calendar.setTime(revision.getDate());
-            if (calendar.get(Calendar.YEAR) != year || calendar.get(Calendar.MONTH) != month || revision.getAuthor() == null) {
-                continue;
-            }
-            if (developerMap.contains(revision.getAuthor())) {
-                final int loc = developerMap.get(revision.getAuthor());
-                developerMap.put(revision.getAuthor(), revision.getNewLines() + loc);
-            } else {
-                developerMap.put(revision.getAuthor(), revision.getNewLines());
-            }
-        }
-        return developerMap;
+        return this.config.getAggregates().getContributedLines(year, month);
     }
 
     public Table getTable() {
@@ -0,0 +1,289 @@
+package net.sf.statcvs.reports;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.statcvs.model.Author;
+import net.sf.statcvs.model.Repository;
+import net.sf.statcvs.model.Revision;
+import net.sf.statcvs.output.ReportConfig;
+import net.sf.statcvs.util.IntegerMap;
+
+import org.jfree.data.time.TimeSeries;
+
+/**
+ * Values about the whole repository that several reports and charts need,
+ * computed in a single pass over the revisions of the repository
+ * instead of one pass per report. An instance is obtained from
+ * {@link ReportConfig#getAggregates()}.
+ *
+ * <p>The pass computes the commits per hour of the day and per day of the
+ * week, the contributed lines of each author, overall and per month,
+ * the contributed LOC series of the developers and the commit activity of
+ * the modules.</p>
+ */
+public class RepositoryAggregates {
+    private static final int HOURS = 24;
+    private static final int WEEKDAYS = 7;
+    private static final int MONTHS_PER_YEAR = 12;
+    private static final int MODULE_WINDOWS = 60;
+
+    private final int[] hours = new int[HOURS];
+    private final int[] weekdays = new int[WEEKDAYS];
+    private final Map hoursByAuthor = new HashMap();
+    private final Map weekdaysByAuthor = new HashMap();
+    private final IntegerMap contributedLines = new IntegerMap();
+    private int totalContributedLines = 0;
+    private final Map contributedLinesByMonth = new HashMap();
+    private final Map developerSeriesBuilders = new HashMap();
+    private final List developerSeries = new ArrayList();
+    private final ModuleActivity moduleActivity;
+
+    /**
+     * Runs the pass over all revisions of the configured repository.
+     * @param config the report configuration, used to tell developers
+     *               from non-developer logins
+     */
+    public RepositoryAggregates(final ReportConfig config) {
+        final Repository repository = config.getRepository();
+        final RevisionAggregator aggregator = new RevisionAggregator();
+        aggregator.register(new ActivityAccumulator());
+
+        Iterator it = repository.getAuthors().iterator();
+        while (it.hasNext()) {
+            final Author author = (Author) it.next();
+            if (config.isDeveloper(author)) {
+                this.developerSeriesBuilders.put(author, new LOCSeriesBuilder(author.getRealName(), false));
+            }
+        }
+        aggregator.register(new DeveloperLOCAccumulator());
+
+        if (!repository.getModules().isEmpty() && repository.getFirstDate() != null) {
+            this.moduleActivity = new ModuleActivity(repository.getFirstDate(), repository.getLastDate());
+            aggregator.register(this.moduleActivity);
+        } else {
+            this.moduleActivity = null;
+        }
+
+        aggregator.run(repository.getRevisions());
+
+        final List authors = new ArrayList(this.developerSeriesBuilders.keySet());
+        Collections.sort(authors);
+        it = authors.iterator();
+        while (it.hasNext()) {
+            final LOCSeriesBuilder builder = (LOCSeriesBuilder) this.developerSeriesBuilders.get(it.next());
+            final TimeSeries series = builder.getTimeSeries();
+            if (series != null) {
+                this.developerSeries.add(series);
+            }
+        }
+        if (this.moduleActivity != null) {
+            this.moduleActivity.finish();
+        }
+    }
+
+    /**
+     * @return the number of commits in each hour of the day, starting
+     *         at midnight
+     */
+    public int[] getHourActivity() {
+        return this.hours.clone();
+    }
+
+    /**
+     * @param author an author
+     * @return the number of commits of the author in each hour of the day,
+     *         starting at midnight
+     */
+    public int[] getHourActivity(final Author author) {
+        final int[] result = (int[]) this.hoursByAuthor.get(author);
+        return result == null ? new int[HOURS] : result.clone();
+    }
+
+    /**
+     * @return the number of commits on each day of the week, starting on
+     *         Sunday
+     */
+    public int[] getWeekdayActivity() {
+        return this.weekdays.clone();
+    }
+
+    /**
+     * @param author an author
+     * @return the number of commits of the author on each day of the week,
+     *         starting on Sunday
+     */
+    public int[] getWeekdayActivity(final Author author) {
+        final int[] result = (int[]) this.weekdaysByAuthor.get(author);
+        return result == null ? new int[WEEKDAYS] : result.clone();
+    }
+
+    /**
+     * @param author an author
+     * @return the number of lines contributed by the author
+     */
+    public int getContributedLines(final Author author) {
+        return this.contributedLines.get(author);
+    }
+
+    /**
+     * @return the number of lines contributed to the repository,
+     *         including the revisions without author
+     */
+    public int getTotalContributedLines() {
+        return this.totalContributedLines;
+    }
+
+    /**
+     * @param year the year
+     * @param month the month, as in {@link Calendar#MONTH}
+     * @return the number of lines contributed by each author who committed
+     *         during the month
+     */
+    public IntegerMap getContributedLines(final int year, final int month) {
+        final IntegerMap result = (IntegerMap) this.contributedLinesByMonth.get(Integer.valueOf(year * MONTHS_PER_YEAR + month));
+        return result == null ? new IntegerMap() : result;
+    }
+
+    /**
+     * @return the contributed LOC <tt>TimeSeries</tt> of every developer
+     *         with contributions, sorted by author
+     */
+    public List getDeveloperLOCSeries() {
+        return Collections.unmodifiableList(this.developerSeries);
+    }
+
+    /**
+     * @return the commit activity of the modules, or <tt>null</tt> if the
+     *         repository has no modules
+     */
+    public ModuleActivity getModuleActivity() {
+        return this.moduleActivity;
+    }
+
+    private static int[] getCounts(final Map countsByAuthor, final Author author, final int size) {
+        int[] result = (int[]) countsByAuthor.get(author);
+        if (result == null) {
+            result = new int[size];
+            countsByAuthor.put(author, result);
+        }
+        return result;
+    }
+
+    /**
+     * Counts commits per time slot and contributed lines.
+     */
+    private class ActivityAccumulator implements RevisionAccumulator {
+        private final Calendar calendar = new GregorianCalendar();
+
+        public void addRevision(final Revision revision) {
+            this.calendar.setTime(revision.getDate());
+            final int hour = this.calendar.get(Calendar.HOUR_OF_DAY);
+            final int weekday = this.calendar.get(Calendar.DAY_OF_WEEK) - 1;
+            hours[hour]++;
+            weekdays[weekday]++;
+            totalContributedLines += revision.getNewLines();
+
+            final Author author = revision.getAuthor();
+            if (author == null) {
+                return;
+            }
+            getCounts(hoursByAuthor, author, HOURS)[hour]++;
+            getCounts(weekdaysByAuthor, author, WEEKDAYS)[weekday]++;
+            contributedLines.addInt(author, revision.getNewLines());
+
+            final Integer month = Integer.valueOf(this.calendar.get(Calendar.YEAR) * MONTHS_PER_YEAR + this.calendar.get(Calendar.MONTH));
+            IntegerMap authorLines = (IntegerMap) contributedLinesByMonth.get(month);
+            if (authorLines == null) {
+                authorLines = new IntegerMap();
+                contributedLinesByMonth.put(month, authorLines);
+            }
+            authorLines.addInt(author, revision.getNewLines());
+        }
+    }
+
+    /**
+     * Feeds the revisions of the developers to their LOC series.
+     */
+    private class DeveloperLOCAccumulator implements RevisionAccumulator {
+        public void addRevision(final Revision revision) {
+            if (revision.isBeginOfLog()) {
+                return;
+            }
+            final LOCSeriesBuilder builder = (LOCSeriesBuilder) developerSeriesBuilders.get(revision.getAuthor());
+            if (builder != null) {
+                builder.addRevision(revision);
+            } // otherwise the revision was by a non-developer login
+        }
+    }
+
+    /**
+     * Counts the commits of each module in time windows of equal length.
+     * The time between the first and the last revision is split into
+     * about 60 windows.
+     */
+    public static final class ModuleActivity implements RevisionAccumulator {
+        private final Map commitsByDate = new LinkedHashMap();
+        private final long windowSize;
+        private IntegerMap commitsPerModule = new IntegerMap();
+        private long currentDate = -1;
+        private int max = 0;
+
+        private ModuleActivity(final Date firstDate, final Date lastDate) {
+            this.windowSize = Math.max((lastDate.getTime() - firstDate.getTime()) / MODULE_WINDOWS, 1);
+        }
+
+        public void addRevision(final Revision revision) {
+            final Date date = revision.getDate();
+            if (this.currentDate == -1) {
+                this.currentDate = date.getTime();
+            } else if (date.getTime() > this.currentDate + this.windowSize) {
+                // save old map
+                this.max = Math.max(this.commitsPerModule.max(), this.max);
+                this.commitsByDate.put(new Date(this.currentDate), this.commitsPerModule);
+
+                // create new map
+                this.commitsPerModule = new IntegerMap();
+
+                // hack: fill in intermediate values
+                final int fill = (int) ((date.getTime() - this.currentDate) / this.windowSize);
+                if (fill > 1) {
+                    this.commitsByDate.put(new Date(this.currentDate + this.windowSize), null);
+                }
+                this.currentDate += fill * this.windowSize;
+            }
+            this.commitsPerModule.inc(revision.getFile().getModule().getName());
+        }
+
+        private void finish() {
+            if (this.currentDate != -1) {
+                this.commitsByDate.put(new Date(this.currentDate), this.commitsPerModule);
+                this.max = Math.max(this.commitsPerModule.max(), this.max);
+            }
+        }
+
+        /**
+         * @return the start date of each window, in chronological order,
+         *         mapped to an <tt>IntegerMap</tt> from module name to number
+         *         of commits, or to <tt>null</tt> for a gap without commits
+         */
+        public Map getCommitsByDate() {
+            return Collections.unmodifiableMap(this.commitsByDate);
+        }
+
+        /**
+         * @return the largest number of commits of a module in a window
+         */
+        public int getMax() {
+            return this.max;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package net.sf.statcvs.reports;
+
+import net.sf.statcvs.model.Revision;
+
+/**
+ * Receives the revisions of a repository, one at a time and in
+ * chronological order, during a single pass over the revisions.
+ * Accumulators are registered with a {@link RevisionAggregator}.
+ * 
+ * @see RepositoryAggregates
+ */
+public interface RevisionAccumulator {
+
+    /**
+     * Adds a revision to the accumulated values.
+     * @param revision the next revision, not earlier than the previous one
+     */
+    void addRevision(Revision revision);
+}
@@ -0,0 +1,41 @@
+package net.sf.statcvs.reports;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.statcvs.model.Revision;
+
+/**
+ * Feeds a collection of revisions to any number of
+ * {@link RevisionAccumulator}s, visiting each revision only once
+ * no matter how many accumulators are registered.
+ */
+public class RevisionAggregator {
+    private final List accumulators = new ArrayList();
+
+    /**
+     * Registers an accumulator for the next {@link #run}.
+     * @param accumulator the accumulator to feed
+     */
+    public void register(final RevisionAccumulator accumulator) {
+        this.accumulators.add(accumulator);
+    }
+
+    /**
+     * Passes every revision to all registered accumulators, in the
+     * order in which they were registered.
+     * @param revisions the revisions, in chronological order
+     */
+    public void run(final Collection revisions) {
+        final RevisionAccumulator[] targets = (RevisionAccumulator[]) this.accumulators.toArray(new RevisionAccumulator[this.accumulators.size()]);
+        final Iterator it = revisions.iterator();
+        while (it.hasNext()) {
+            final Revision revision = (Revision) it.next();
+            for (int i = 0; i < targets.length; i++) {
+                targets[i].addRevision(revision);
+            }
+        }
+    }
+}
@@ -50,16 +50,11 @@ public class TopDevelopersTableReport extends AbstractLocTableReport implements
         table.setKeysInFirstColumn(true);
 
         calculateChangesAndLinesPerDeveloper(getContent().getRevisions());
-        int lines = 0;
-        final Iterator it = getLinesMap().iteratorSortedByValueReverse();
+        final Iterator it = getLinesMap().topKeys(10).iterator();
         while (it.hasNext()) {
             final Author author = (Author) it.next();
             authors.addValue(author);
             linesOfCode.addValue(getLinesMap().get(author));
-            lines++;
-            if (lines == 10) {
-                break;
-            }
         }
         linesOfCode.setSum(getLinesMap().sum());
     }
@@ -23,11 +23,15 @@
 package net.sf.statcvs.util;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
 
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+
 /**
  * <p>Matches filenames against an Ant-style wildcard pattern list.</p>
  * 
@@ -42,12 +46,28 @@ import java.util.regex.Pattern;
  * matching, use <tt>String.toLower()</tt> on the pattern and on the
  * candidate string.</p>
  *
+ * <p>The patterns are compiled into a single tree of path segments, which
+ * is walked once per filename. The state reached at the end of each
+ * directory is cached, so a directory whose files all match, or all do
+ * not match, is decided once for all of its files. Patterns that use
+ * regular expression syntax, like <tt>[Tt]est*</tt>, are still matched as
+ * regular expressions.</p>
+ *
  * @author Richard Cyganiak <rcyg@gmx.de>
  * @version $Id: FilePatternMatcher.java,v 1.3 2008/04/02 11:22:15 benoitx Exp $
  */
 public class FilePatternMatcher {
+    private static final String REGEX_CHARACTERS = "[](){}+|^$";
+
     private final String originalPattern;
-    private final List patterns = new ArrayList();
+    private final Node root = new Node();
+    // the state before the first directory, like the directory states
+    private final Object rootState;
+    private final List regexPatterns = new ArrayList();
+    // the state at the end of a directory, by directory: Boolean.TRUE if
+    // all of its files match, Boolean.FALSE if none do, or the Node[] of
+    // the patterns that may still match
+    private final ConcurrentHashMap directoryStates = new ConcurrentHashMap();
 
     /**
      * Creates a matcher to match filenames against a specified
@@ -58,8 +78,16 @@ public class FilePatternMatcher {
         this.originalPattern = wildcardPattern;
         final StringTokenizer tokenizer = new StringTokenizer(wildcardPattern, ":;");
         while (tokenizer.hasMoreTokens()) {
-            patterns.add(Pattern.compile(buildRegex(tokenizer.nextToken())));
+            final String token = tokenizer.nextToken();
+            if (usesRegexSyntax(token)) {
+                regexPatterns.add(Pattern.compile(buildRegex(token)));
+            } else {
+                addPattern(normalize(token));
+            }
         }
+        final List state = new ArrayList();
+        addWithClosure(state, root);
+        rootState = classify((Node[]) state.toArray(new Node[state.size()]));
     }
 
     /**
@@ -68,7 +96,15 @@ public class FilePatternMatcher {
      * @return <tt>true</tt> if the filename matches the pattern
      */
     public boolean matches(final String filename) {
-        final Iterator it = patterns.iterator();
+        final int slash = filename.lastIndexOf('/');
+        final Object state = slash < 0 ? rootState : getDirectoryState(filename.substring(0, slash));
+        if (state == Boolean.TRUE) {
+            return true;
+        }
+        if (state != Boolean.FALSE && isAccepting(step((Node[]) state, filename.substring(slash + 1)))) {
+            return true;
+        }
+        final Iterator it = regexPatterns.iterator();
         while (it.hasNext()) {
             final Pattern regex = (Pattern) it.next();
             if (regex.matcher(filename).matches()) {
@@ -78,6 +114,151 @@ public class FilePatternMatcher {
         return false;
     }
 
+    private Object getDirectoryState(final String directory) {
+        Object state = directoryStates.get(directory);
+        if (state == null) {
+            final int slash = directory.lastIndexOf('/');
+            final Object parentState = slash < 0 ? rootState : getDirectoryState(directory.substring(0, slash));
+            if (parentState instanceof Boolean) {
+                state = parentState;
+            } else {
+                state = classify(step((Node[]) parentState, directory.substring(slash + 1)));
+            }
+            directoryStates.put(directory, state);
+        }
+        return state;
+    }
+
+    /**
+     * Only the nodes that lead somewhere are kept, as a filename has at
+     * least one more segment after its directory.
+     * @return <tt>Boolean.TRUE</tt> if all paths below the state match,
+     *      <tt>Boolean.FALSE</tt> if none does, or else the state
+     */
+    private static Object classify(final Node[] state) {
+        final List live = new ArrayList();
+        for (int i = 0; i < state.length; i++) {
+            final Node node = state[i];
+            if (node.anySegment && node.accepting) {
+                return Boolean.TRUE;
+            }
+            if (node.anySegment || node.literals != null || node.wildcards != null) {
+                live.add(node);
+            }
+        }
+        if (live.isEmpty()) {
+            return Boolean.FALSE;
+        }
+        return live.size() == state.length ? state : (Node[]) live.toArray(new Node[live.size()]);
+    }
+
+    private static boolean isAccepting(final Node[] state) {
+        for (int i = 0; i < state.length; i++) {
+            if (state[i].accepting) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the nodes reached from the state by a path segment
+     */
+    private static Node[] step(final Node[] state, final String segment) {
+        final List next = new ArrayList();
+        for (int i = 0; i < state.length; i++) {
+            final Node node = state[i];
+            if (node.anySegment) {
+                addWithClosure(next, node);
+            }
+            if (node.literals != null) {
+                final Node child = (Node) node.literals.get(segment);
+                if (child != null) {
+                    addWithClosure(next, child);
+                }
+            }
+            if (node.wildcards != null) {
+                for (int j = 0; j < node.wildcards.size(); j++) {
+                    final Wildcard wildcard = (Wildcard) node.wildcards.get(j);
+                    if (wildcard.matches(segment)) {
+                        addWithClosure(next, wildcard.child);
+                    }
+                }
+            }
+        }
+        return (Node[]) next.toArray(new Node[next.size()]);
+    }
+
+    /**
+     * Adds a node and the node of its ** segment, which also matches
+     * zero segments.
+     */
+    private static void addWithClosure(final List state, final Node node) {
+        if (!state.contains(node)) {
+            state.add(node);
+        }
+        if (node.anyDepth != null && !state.contains(node.anyDepth)) {
+            state.add(node.anyDepth);
+        }
+    }
+
+    private void addPattern(final String wildcardPattern) {
+        Node node = root;
+        int start = 0;
+        while (true) {
+            final int end = wildcardPattern.indexOf('/', start);
+            final String segment = end < 0 ? wildcardPattern.substring(start) : wildcardPattern.substring(start, end);
+            if ("**".equals(segment)) {
+                if (!node.anySegment) {
+                    if (node.anyDepth == null) {
+                        node.anyDepth = new Node();
+                        node.anyDepth.anySegment = true;
+                    }
+                    node = node.anyDepth;
+                }
+            } else if (segment.indexOf('*') < 0 && segment.indexOf('?') < 0) {
+                if (node.literals == null) {
+                    node.literals = new HashMap();
+                }
+                Node child = (Node) node.literals.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            } else {
+                node = node.getWildcardChild(segment);
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        node.accepting = true;
+    }
+
+    /**
+     * @return the pattern with / as separator and with the implicit ** of
+     *      a trailing /
+     */
+    private static String normalize(final String wildcardPattern) {
+        String temp = wildcardPattern.replace('\\', '/');
+        if (temp.endsWith("/")) {
+            temp += "**";
+        }
+        // replace **/** with **, like for the regular expressions
+        return temp.replaceAll("\\*\\*/\\*\\*", "**");
+    }
+
+    private static boolean usesRegexSyntax(final String wildcardPattern) {
+        for (int i = 0; i < wildcardPattern.length(); i++) {
+            if (REGEX_CHARACTERS.indexOf(wildcardPattern.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String buildRegex(final String wildcardPattern) {
         String temp = wildcardPattern;
         temp = temp.replace('\\', '/');
@@ -120,4 +301,76 @@ public class FilePatternMatcher {
     public String toString() {
         return this.originalPattern;
     }
+
+    /**
+     * A node of the pattern tree, reached after some path segments.
+     */
+    private static final class Node {
+        // the next node by literal segment
+        private Map literals = null;
+        // the next nodes of segments with * or ?
+        private List wildcards = null;
+        // the node of a ** segment following this one
+        private Node anyDepth = null;
+        // whether this is the node of a ** segment, which stays reached
+        // whatever the following segments
+        private boolean anySegment = false;
+        // whether a pattern ends here
+        private boolean accepting = false;
+
+        private Node getWildcardChild(final String segment) {
+            if (this.wildcards == null) {
+                this.wildcards = new ArrayList();
+            }
+            for (int i = 0; i < this.wildcards.size(); i++) {
+                final Wildcard wildcard = (Wildcard) this.wildcards.get(i);
+                if (wildcard.segment.equals(segment)) {
+                    return wildcard.child;
+                }
+            }
+            final Wildcard wildcard = new Wildcard(segment);
+            this.wildcards.add(wildcard);
+            return wildcard.child;
+        }
+    }
+
+    /**
+     * A path segment with * and ?, and the node it leads to.
+     */
+    private static final class Wildcard {
+        private final String segment;
+        private final Node child = new Node();
+
+        private Wildcard(final String segment) {
+            this.segment = segment;
+        }
+
+        /**
+         * Matches a segment of a filename, which contains no /.
+         */
+        private boolean matches(final String name) {
+            int p = 0;
+            int n = 0;
+            int starP = -1;
+            int starN = 0;
+            while (n < name.length()) {
+                if (p < this.segment.length() && this.segment.charAt(p) == '*') {
+                    starP = p++;
+                    starN = n;
+                } else if (p < this.segment.length() && (this.segment.charAt(p) == '?' || this.segment.charAt(p) == name.charAt(n))) {
+                    p++;
+                    n++;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    n = ++starN;
+                } else {
+                    return false;
+                }
+            }
+            while (p < this.segment.length() && this.segment.charAt(p) == '*') {
+                p++;
+            }
+            return p == this.segment.length();
+        }
+    }
 }
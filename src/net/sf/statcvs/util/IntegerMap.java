@@ -22,15 +22,15 @@
 */
 package net.sf.statcvs.util;
 
-import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * Utility class for storing a map from <code>Object</code>s to
@@ -42,16 +42,30 @@ import java.util.TreeMap;
  * The keys must be comparable, for example <code>String</code>s.
  * <p>
  * Behaviour for <code>null</code> keys is unspecified.
+ * <p>
+ * The values are kept unboxed in an open addressing hash table, so updates
+ * such as {@link #inc(Object)} do not create objects. The key order and the
+ * value order are computed when first asked for and cached until the keys,
+ * respectively the values, change.
  * 
  * @author Richard Cyganiak
  * @version $Id: IntegerMap.java,v 1.17 2009/08/20 17:44:05 benoitx Exp $
  */
 public class IntegerMap {
+    private static final int INITIAL_CAPACITY = 16;
 
-    private final Map map = new TreeMap();
-    private final Comparator comparator = new SortByValueComparator(map);
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size = 0;
     private int sum = 0;
     private int max = 0;
+    // counts the keys added and removed, for the iterators on the keys
+    private int modCount = 0;
+
+    // keys in ascending key order, null when the keys have changed
+    private Object[] keyOrder = null;
+    // keys in ascending value order, null when the values have changed
+    private Object[] valueOrder = null;
 
     /**
      * Puts a value into the map, overwriting any previous value
@@ -62,9 +76,14 @@ public class IntegerMap {
      */
     public void put(final Object key, final int value) {
         max = Math.max(max, value);
-        sum -= get(key);
-        sum += value;
-        map.put(key, Integer.valueOf(value));
+        final int slot = findSlot(key);
+        if (keys[slot] == null) {
+            insert(slot, key, value);
+        } else {
+            sum += value - values[slot];
+            values[slot] = value;
+            valueOrder = null;
+        }
     }
 
     /**
@@ -76,11 +95,8 @@ public class IntegerMap {
      * @return the value for this key
      */
     public int get(final Object key) {
-        final Integer result = (Integer) map.get(key);
-        if (result == null) {
-            return 0;
-        }
-        return result.intValue();
+        final int slot = findSlot(key);
+        return keys[slot] == null ? 0 : values[slot];
     }
 
     /**
@@ -91,7 +107,8 @@ public class IntegerMap {
      * @return the value wrapped in an <code>Integer</code> object
      */
     public Integer getInteger(final Object key) {
-        return (Integer) map.get(key);
+        final int slot = findSlot(key);
+        return keys[slot] == null ? null : Integer.valueOf(values[slot]);
     }
 
     /**
@@ -127,7 +144,16 @@ public class IntegerMap {
      * @param addValue the <code>int</code> to be added
      */
     public void addInt(final Object key, final int addValue) {
-        put(key, addValue + get(key));
+        final int slot = findSlot(key);
+        if (keys[slot] == null) {
+            max = Math.max(max, addValue);
+            insert(slot, key, addValue);
+        } else {
+            values[slot] += addValue;
+            max = Math.max(max, values[slot]);
+            sum += addValue;
+            valueOrder = null;
+        }
     }
 
     /**
@@ -156,8 +182,32 @@ public class IntegerMap {
      * @param key the key that should be removed
      */
     public void remove(final Object key) {
-        sum -= get(key);
-        map.remove(key);
+        int slot = findSlot(key);
+        if (keys[slot] == null) {
+            return;
+        }
+        sum -= values[slot];
+        size--;
+        modCount++;
+        keyOrder = null;
+        valueOrder = null;
+        // shift back the following entries of the probe sequence
+        final int mask = keys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == null) {
+                break;
+            }
+            final int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = null;
+        values[slot] = 0;
     }
 
     /**
@@ -168,7 +218,7 @@ public class IntegerMap {
      * @return <code>true</code> if the key is in the map
      */
     public boolean contains(final Object key) {
-        return map.containsKey(key);
+        return keys[findSlot(key)] != null;
     }
 
     /**
@@ -177,7 +227,7 @@ public class IntegerMap {
      * @return the number of key-value pairs stored in the map
      */
     public int size() {
-        return map.size();
+        return size;
     }
 
     /**
@@ -187,7 +237,7 @@ public class IntegerMap {
      * @return a <code>Set</code> view of all keys
      */
     public Set keySet() {
-        return map.keySet();
+        return new KeySet();
     }
 
     /**
@@ -196,30 +246,91 @@ public class IntegerMap {
      * @return an iterator on the keys
      */
     public Iterator iteratorSortedByKey() {
-        return map.keySet().iterator();
+        return new KeyIterator();
     }
 
     /**
      * Returns an iterator on the keys, sorted by values ascending.
+     * Keys with the same value are sorted by key ascending.
      * 
      * @return an iterator on the keys
      */
     public Iterator iteratorSortedByValue() {
-        final List keys = new ArrayList(map.keySet());
-        Collections.sort(keys, comparator);
-        return keys.iterator();
+        return Collections.unmodifiableList(Arrays.asList(getValueOrder())).iterator();
     }
 
     /**
      * Returns an iterator on the keys, sorted by values descending.
+     * Keys with the same value are sorted by key descending.
      * 
      * @return an iterator on the keys
      */
     public Iterator iteratorSortedByValueReverse() {
-        final List keys = new ArrayList(map.keySet());
-        Collections.sort(keys, comparator);
-        Collections.reverse(keys);
-        return keys.iterator();
+        final Object[] order = getValueOrder();
+        return new Iterator() {
+            private int next = order.length - 1;
+
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            public Object next() {
+                return order[next--];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the keys with the largest values, in the order of
+     * {@link #iteratorSortedByValueReverse()}. If the value order is not
+     * cached, only the requested keys are sorted.
+     * 
+     * @param count the maximum number of keys
+     * @return a list of at most <code>count</code> keys
+     */
+    public List topKeys(final int count) {
+        final int n = Math.min(count, size);
+        final List result = new ArrayList(Math.max(n, 0));
+        if (n <= 0) {
+            return result;
+        }
+        if (valueOrder != null || n > size / 2) {
+            final Object[] order = getValueOrder();
+            for (int i = order.length - 1; i >= order.length - n; i--) {
+                result.add(order[i]);
+            }
+            return result;
+        }
+        // keep the n largest entries, sorted descending, in top/topValues
+        final Object[] top = new Object[n];
+        final int[] topValues = new int[n];
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            final Object key = keys[i];
+            final int value = values[i];
+            if (found == n && !isGreater(key, value, top[n - 1], topValues[n - 1])) {
+                continue;
+            }
+            int pos = found == n ? n - 1 : found++;
+            while (pos > 0 && isGreater(key, value, top[pos - 1], topValues[pos - 1])) {
+                top[pos] = top[pos - 1];
+                topValues[pos] = topValues[pos - 1];
+                pos--;
+            }
+            top[pos] = key;
+            topValues[pos] = value;
+        }
+        for (int i = 0; i < n; i++) {
+            result.add(top[i]);
+        }
+        return result;
     }
 
     /**
@@ -250,24 +361,154 @@ public class IntegerMap {
     }
 
     /**
-     * Private utility class for comparing of map entries by value.
+     * The keys, backed by the map: removing a key removes its value.
+     */
+    private final class KeySet extends AbstractSet {
+        public Iterator iterator() {
+            return new KeyIterator();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(final Object o) {
+            return IntegerMap.this.contains(o);
+        }
+
+        public boolean remove(final Object o) {
+            if (!IntegerMap.this.contains(o)) {
+                return false;
+            }
+            IntegerMap.this.remove(o);
+            return true;
+        }
+    }
+
+    /**
+     * Iterates over the key order of the time it was created. Like the
+     * iterators of the <code>java.util</code> collections, it fails when
+     * keys are added or removed other than through it.
      */
-    private static class SortByValueComparator implements Comparator, Serializable {
-        private final Map mapToBeSorted;
+    private final class KeyIterator implements Iterator {
+        private final Object[] order = getKeyOrder();
+        private int next = 0;
+        private int expectedModCount = modCount;
+        private boolean canRemove = false;
+
+        public boolean hasNext() {
+            return next < order.length;
+        }
 
-        public SortByValueComparator(final Map map) {
-            this.mapToBeSorted = map;
+        public Object next() {
+            checkForComodification();
+            if (next >= order.length) {
+                throw new NoSuchElementException();
+            }
+            canRemove = true;
+            return order[next++];
+        }
+
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            IntegerMap.this.remove(order[next - 1]);
+            expectedModCount = modCount;
+            canRemove = false;
         }
 
-        public int compare(final Object o1, final Object o2) {
-            final int i1 = ((Integer) this.mapToBeSorted.get(o1)).intValue();
-            final int i2 = ((Integer) this.mapToBeSorted.get(o2)).intValue();
-            if (i1 < i2) {
-                return -1;
-            } else if (i1 > i2) {
-                return 1;
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private static boolean isGreater(final Object key1, final int value1, final Object key2, final int value2) {
+        if (value1 != value2) {
+            return value1 > value2;
+        }
+        return ((Comparable) key1).compareTo(key2) > 0;
+    }
+
+    private static int hash(final Object key) {
+        final int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the slot of the key, or the empty slot where it belongs
+     */
+    private int findSlot(final Object key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(final int slot, final Object key, final int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        modCount++;
+        sum += value;
+        keyOrder = null;
+        valueOrder = null;
+        // keep the table at most half full
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    private void resize(final int capacity) {
+        final Object[] oldKeys = keys;
+        final int[] oldValues = values;
+        keys = new Object[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                final int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private Object[] getKeyOrder() {
+        if (keyOrder == null) {
+            final Object[] result = new Object[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    result[n++] = keys[i];
+                }
+            }
+            Arrays.sort(result);
+            keyOrder = result;
+        }
+        return keyOrder;
+    }
+
+    private Object[] getValueOrder() {
+        if (valueOrder == null) {
+            final Object[] byKey = getKeyOrder();
+            // sort (value, position in key order) pairs, so that equal values
+            // stay in key order and no lookups are needed while sorting
+            final long[] pairs = new long[byKey.length];
+            for (int i = 0; i < byKey.length; i++) {
+                pairs[i] = ((long) get(byKey[i]) << 32) | i;
+            }
+            Arrays.sort(pairs);
+            final Object[] result = new Object[byKey.length];
+            for (int i = 0; i < pairs.length; i++) {
+                result[i] = byKey[(int) pairs[i]];
             }
-            return 0;
+            valueOrder = result;
         }
+        return valueOrder;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,448 @@
+package net.sf.statcvs.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Collects the metrics of a run: the duration and peak heap of each phase,
+ * timers of repeated operations like svn diffs, pages and charts, counters,
+ * and histograms of values like the bytes read from svn. The metrics can be
+ * written as a JSON run report with {@link #writeJson(File)}.
+ *
+ * <p>Phases are nested and are started and stopped by the thread that runs
+ * the pipeline. Timers, counters and histograms may be updated from any
+ * thread.</p>
+ *
+ * <p>When the JVM runs with a flight recording
+ * (<tt>-XX:StartFlightRecording</tt>), phases and timers are also emitted as
+ * JFR events.</p>
+ */
+public final class Metrics {
+    private static final Logger logger = Logger.getLogger("sf.net.statcvs");
+
+    private static final double NANOS_PER_MS = 1000000.0;
+
+    private static final long NANOS_PER_MS_LONG = 1000000L;
+
+    private static final Map attributes = new LinkedHashMap();
+    private static final List phases = new ArrayList();
+    private static final List openPhases = new ArrayList();
+    private static final Map timers = new TreeMap();
+    private static final Map counters = new TreeMap();
+    private static final Map histograms = new TreeMap();
+    private static long startTime = System.currentTimeMillis();
+    private static long startNanos = System.nanoTime();
+    private static Boolean jfr = null;
+
+    /**
+     * A utility class (only static methods) should be final and have a
+     * private constructor.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Forgets all metrics and starts the clock of a new run.
+     */
+    public static synchronized void reset() {
+        attributes.clear();
+        phases.clear();
+        openPhases.clear();
+        timers.clear();
+        counters.clear();
+        histograms.clear();
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Describes the run in the report, for example with its configuration.
+     * @param name the name of the attribute
+     * @param value the value; a <tt>Number</tt>, a <tt>Boolean</tt> or
+     *      anything else, which is written as a string
+     */
+    public static synchronized void setAttribute(final String name, final Object value) {
+        attributes.put(name, value);
+    }
+
+    /**
+     * Starts a phase of the run. A phase that is started before the current
+     * one is stopped is nested in it. The peak heap usage is tracked for
+     * every open phase.
+     * @param name the name of the phase, like <tt>log.parse</tt>
+     * @return the phase, to be stopped when it is done
+     */
+    public static Timing startPhase(final String name) {
+        final Phase phase;
+        synchronized (Metrics.class) {
+            updatePeakHeap();
+            phase = new Phase(name, openPhases.size(), System.nanoTime() - startNanos, getGcTime());
+            phases.add(phase);
+            openPhases.add(phase);
+        }
+        return new Timing(name, phase, beginEvent(name, true));
+    }
+
+    /**
+     * Starts timing an operation. The duration is added to the timer of that
+     * name when the operation is stopped.
+     * @param name the name of the timer, like <tt>svn.diff</tt>
+     * @return the timing, to be stopped when the operation is done
+     */
+    public static Timing startTimer(final String name) {
+        return new Timing(name, null, beginEvent(name, false));
+    }
+
+    /**
+     * Adds a duration that was measured by the caller to a timer.
+     * @param name the name of the timer
+     * @param nanos the duration, in nanoseconds
+     */
+    public static void addTime(final String name, final long nanos) {
+        final Histogram timer;
+        synchronized (Metrics.class) {
+            timer = getHistogram(timers, name);
+        }
+        timer.add(nanos);
+    }
+
+    /**
+     * Adds to a counter.
+     * @param name the name of the counter
+     * @param delta the amount to add
+     */
+    public static synchronized void count(final String name, final long delta) {
+        final long[] counter = (long[]) counters.get(name);
+        if (counter == null) {
+            counters.put(name, new long[] { delta });
+        } else {
+            counter[0] += delta;
+        }
+    }
+
+    /**
+     * Adds a value to a histogram.
+     * @param name the name of the histogram, like <tt>svn.bytes</tt>
+     * @param value the value; values below 0 are counted as 0
+     */
+    public static void record(final String name, final long value) {
+        final Histogram histogram;
+        synchronized (Metrics.class) {
+            histogram = getHistogram(histograms, name);
+        }
+        histogram.add(value);
+    }
+
+    private static Histogram getHistogram(final Map map, final String name) {
+        Histogram histogram = (Histogram) map.get(name);
+        if (histogram == null) {
+            histogram = new Histogram();
+            map.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    private static synchronized void stopPhase(final Phase phase, final long nanos) {
+        updatePeakHeap();
+        phase.nanos = nanos;
+        phase.gcMillis = getGcTime() - phase.gcMillis;
+        openPhases.remove(phase);
+    }
+
+    /**
+     * Adds the peak heap usage since the last call to all open phases, and
+     * starts measuring the next peak. The peak is the sum of the peaks of
+     * the heap memory pools, which may not have been reached at the same
+     * time.
+     */
+    private static void updatePeakHeap() {
+        long peak = 0;
+        final List pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (final Iterator it = pools.iterator(); it.hasNext();) {
+            final MemoryPoolMXBean pool = (MemoryPoolMXBean) it.next();
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                final MemoryUsage usage = pool.getPeakUsage();
+                if (usage != null) {
+                    peak += usage.getUsed();
+                }
+                pool.resetPeakUsage();
+            }
+        }
+        for (final Iterator it = openPhases.iterator(); it.hasNext();) {
+            final Phase phase = (Phase) it.next();
+            phase.peakHeap = Math.max(phase.peakHeap, peak);
+        }
+    }
+
+    private static long getGcTime() {
+        long total = 0;
+        final List collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (final Iterator it = collectors.iterator(); it.hasNext();) {
+            total += Math.max(0, ((GarbageCollectorMXBean) it.next()).getCollectionTime());
+        }
+        return total;
+    }
+
+    private static Object beginEvent(final String name, final boolean phase) {
+        if (!isJfrRecording()) {
+            return null;
+        }
+        return MetricsEvents.begin(name, phase);
+    }
+
+    /**
+     * @return whether JFR events are emitted; only when the JVM has JFR and
+     *      the flight recorder was started with the JVM
+     */
+    private static synchronized boolean isJfrRecording() {
+        if (jfr == null) {
+            try {
+                jfr = Boolean.valueOf(MetricsEvents.isRecording());
+            } catch (final LinkageError e) {
+                // the jdk.jfr module is not in this runtime
+                jfr = Boolean.FALSE;
+            }
+        }
+        return jfr.booleanValue();
+    }
+
+    /**
+     * Writes the run report as JSON: the attributes of the run, its phases
+     * in the order they started, and all timers, counters and histograms.
+     * Durations are in ms, sizes in bytes.
+     * @param file the target file
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeJson(final File file) throws IOException {
+        final String json = toJson();
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(json);
+        } finally {
+            out.close();
+        }
+        logger.info("wrote the run metrics to " + file);
+    }
+
+    /**
+     * @return the run report, in JSON
+     */
+    public static synchronized String toJson() {
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final Runtime runtime = Runtime.getRuntime();
+        final StringBuffer json = new StringBuffer();
+        json.append("{\n  \"start\": ").append(quote(dateFormat.format(new Date(startTime))));
+        json.append(",\n  \"elapsedMs\": ").append(format((System.nanoTime() - startNanos) / NANOS_PER_MS));
+        json.append(",\n  \"environment\": {\"java\": ").append(quote(System.getProperty("java.version")));
+        json.append(", \"processors\": ").append(runtime.availableProcessors());
+        json.append(", \"maxHeap\": ").append(runtime.maxMemory()).append('}');
+
+        json.append(",\n  \"attributes\": {");
+        String separator = "";
+        for (final Iterator it = attributes.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry entry = (Map.Entry) it.next();
+            json.append(separator).append(quote((String) entry.getKey())).append(": ");
+            final Object value = entry.getValue();
+            json.append(value instanceof Number || value instanceof Boolean ? String.valueOf(value) : quote(String.valueOf(value)));
+            separator = ", ";
+        }
+        json.append('}');
+
+        json.append(",\n  \"phases\": [");
+        separator = "\n    ";
+        for (final Iterator it = phases.iterator(); it.hasNext();) {
+            final Phase phase = (Phase) it.next();
+            json.append(separator).append("{\"name\": ").append(quote(phase.name));
+            json.append(", \"depth\": ").append(phase.depth);
+            json.append(", \"startMs\": ").append(format(phase.startNanos / NANOS_PER_MS));
+            if (phase.nanos >= 0) {
+                json.append(", \"durationMs\": ").append(format(phase.nanos / NANOS_PER_MS));
+                json.append(", \"gcMs\": ").append(phase.gcMillis);
+            }
+            json.append(", \"peakHeap\": ").append(phase.peakHeap).append('}');
+            separator = ",\n    ";
+        }
+        json.append(phases.isEmpty() ? "]" : "\n  ]");
+
+        json.append(",\n  \"timers\": {");
+        appendHistograms(json, timers, NANOS_PER_MS, "Ms");
+        json.append(",\n  \"counters\": {");
+        separator = "\n    ";
+        for (final Iterator it = counters.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry entry = (Map.Entry) it.next();
+            json.append(separator).append(quote((String) entry.getKey())).append(": ").append(((long[]) entry.getValue())[0]);
+            separator = ",\n    ";
+        }
+        json.append(counters.isEmpty() ? "}" : "\n  }");
+        json.append(",\n  \"histograms\": {");
+        appendHistograms(json, histograms, 1, "");
+        json.append("\n}\n");
+        return json.toString();
+    }
+
+    private static void appendHistograms(final StringBuffer json, final Map map, final double divisor, final String unit) {
+        String separator = "\n    ";
+        for (final Iterator it = map.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry entry = (Map.Entry) it.next();
+            final Histogram histogram = (Histogram) entry.getValue();
+            json.append(separator).append(quote((String) entry.getKey())).append(": ");
+            histogram.appendJson(json, divisor, unit);
+            separator = ",\n    ";
+        }
+        json.append(map.isEmpty() ? "}" : "\n  }");
+    }
+
+    /**
+     * @return the value with up to three decimals, in JSON number syntax
+     */
+    private static String format(final double value) {
+        final double rounded = Math.round(value * 1000) / 1000.0;
+        if (rounded == Math.rint(rounded) && Math.abs(rounded) < Long.MAX_VALUE) {
+            return String.valueOf((long) rounded);
+        }
+        return String.valueOf(rounded);
+    }
+
+    private static String quote(final String s) {
+        final StringBuffer result = new StringBuffer(s.length() + 2);
+        result.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append("\\u").append(Integer.toHexString(c | 0x10000).substring(1));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    /**
+     * A running phase or timed operation.
+     */
+    public static final class Timing {
+        private final String name;
+        private final Phase phase;
+        private final Object event;
+        private final long start = System.nanoTime();
+        private long elapsed = -1;
+
+        private Timing(final String name, final Phase phase, final Object event) {
+            this.name = name;
+            this.phase = phase;
+            this.event = event;
+        }
+
+        /**
+         * Stops the phase or operation and records its duration. Only the
+         * first call has an effect.
+         * @return the duration, in ms
+         */
+        public long stop() {
+            if (this.elapsed < 0) {
+                this.elapsed = System.nanoTime() - this.start;
+                if (this.phase != null) {
+                    stopPhase(this.phase, this.elapsed);
+                } else {
+                    addTime(this.name, this.elapsed);
+                }
+                if (this.event != null) {
+                    MetricsEvents.commit(this.event, this.phase != null ? this.phase.peakHeap : 0);
+                }
+            }
+            return this.elapsed / NANOS_PER_MS_LONG;
+        }
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final int depth;
+        private final long startNanos;
+        private long nanos = -1;
+        private long gcMillis;
+        private long peakHeap = 0;
+
+        private Phase(final String name, final int depth, final long startNanos, final long gcMillis) {
+            this.name = name;
+            this.depth = depth;
+            this.startNanos = startNanos;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    /**
+     * Counts values in buckets of powers of two, which is precise enough to
+     * tell the percentiles apart.
+     */
+    private static final class Histogram {
+        private static final double[] PERCENTILES = { 50, 90, 99 };
+
+        private final long[] buckets = new long[64];
+        private long count = 0;
+        private long sum = 0;
+        private long min = Long.MAX_VALUE;
+        private long max = 0;
+
+        private synchronized void add(final long value) {
+            final long v = Math.max(0, value);
+            this.buckets[64 - Long.numberOfLeadingZeros(v)]++;
+            this.count++;
+            this.sum += v;
+            this.min = Math.min(this.min, v);
+            this.max = Math.max(this.max, v);
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the percentile,
+         *      within the range of the values
+         */
+        private long getPercentile(final double percentile) {
+            final long rank = (long) Math.ceil(this.count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i];
+                if (seen >= rank) {
+                    final long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.max(this.min, Math.min(this.max, upper));
+                }
+            }
+            return this.max;
+        }
+
+        private synchronized void appendJson(final StringBuffer json, final double divisor, final String unit) {
+            json.append("{\"count\": ").append(this.count);
+            if (this.count > 0) {
+                json.append(", \"total").append(unit).append("\": ").append(format(this.sum / divisor));
+                json.append(", \"mean").append(unit).append("\": ").append(format((double) this.sum / this.count / divisor));
+                json.append(", \"min").append(unit).append("\": ").append(format(this.min / divisor));
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    json.append(", \"p").append((int) PERCENTILES[i]).append(unit).append("\": ");
+                    json.append(format(getPercentile(PERCENTILES[i]) / divisor));
+                }
+                json.append(", \"max").append(unit).append("\": ").append(format(this.max / divisor));
+            }
+            json.append('}');
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.sf.statcvs.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JFR events of the {@link Metrics}. This class is only loaded when the
+ * flight recorder is in use, so that the <tt>jdk.jfr</tt> module is not
+ * needed otherwise.
+ */
+final class MetricsEvents {
+    /**
+     * A utility class (only static methods) should be final and have a
+     * private constructor.
+     */
+    private MetricsEvents() {
+    }
+
+    /**
+     * @return whether the flight recorder was started with the JVM
+     */
+    static boolean isRecording() {
+        return FlightRecorder.isAvailable() && FlightRecorder.isInitialized();
+    }
+
+    /**
+     * @param name the name of the phase or timer
+     * @param phase whether it is a phase
+     * @return the started event
+     */
+    static Object begin(final String name, final boolean phase) {
+        final Event event;
+        if (phase) {
+            final PhaseEvent phaseEvent = new PhaseEvent();
+            phaseEvent.name = name;
+            event = phaseEvent;
+        } else {
+            final TimerEvent timerEvent = new TimerEvent();
+            timerEvent.name = name;
+            event = timerEvent;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits an event.
+     * @param event the event returned by {@link #begin(String, boolean)}
+     * @param peakHeap the peak heap usage of a phase
+     */
+    static void commit(final Object event, final long peakHeap) {
+        if (event instanceof PhaseEvent) {
+            ((PhaseEvent) event).peakHeap = peakHeap;
+        }
+        ((Event) event).commit();
+    }
+
+    @Name("net.sf.statcvs.Phase")
+    @Label("Phase")
+    @Category("StatCVS")
+    @Description("A phase of the run")
+    static final class PhaseEvent extends Event {
+        @Label("Name")
+        String name;
+
+        @Label("Peak Heap")
+        @DataAmount
+        long peakHeap;
+    }
+
+    @Name("net.sf.statcvs.Timer")
+    @Label("Timed Operation")
+    @Category("StatCVS")
+    @Description("An svn call, page or chart")
+    static final class TimerEvent extends Event {
+        @Label("Name")
+        String name;
+    }
+}
@@ -0,0 +1,191 @@
+package net.sf.statcvs.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * A read-only <tt>SortedSet</tt> backed by an array of <tt>Comparable</tt>s
+ * in ascending order. Lookups use binary search, and subsets are views on a
+ * range of the same array, so they are created without copying.
+ * <p>
+ * It is meant for the large sets of the model that do not change once the
+ * repository is complete; it takes far less memory than a
+ * <tt>TreeSet</tt> and iterates faster.
+ */
+public class SortedArraySet extends AbstractSet implements SortedSet {
+    private final Object[] elements;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates a set on a sorted array. The array is not copied and must not
+     * be changed afterwards.
+     * @param sortedElements distinct elements in their natural order
+     */
+    public SortedArraySet(final Object[] sortedElements) {
+        this(sortedElements, 0, sortedElements.length);
+    }
+
+    private SortedArraySet(final Object[] elements, final int from, final int to) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Merges sorted sets into a single set, without sorting them again.
+     * If the sets share elements, the element is kept only once.
+     * @param sortedSets a collection of <tt>SortedSet</tt>s in natural order
+     * @return the union of the sets
+     */
+    public static SortedArraySet merge(final Collection sortedSets) {
+        List runs = new ArrayList(sortedSets.size());
+        final Iterator it = sortedSets.iterator();
+        while (it.hasNext()) {
+            final SortedSet set = (SortedSet) it.next();
+            if (!set.isEmpty()) {
+                runs.add(set.toArray());
+            }
+        }
+        if (runs.isEmpty()) {
+            return new SortedArraySet(new Object[0]);
+        }
+        // merge the runs pairwise until a single one is left
+        while (runs.size() > 1) {
+            final List merged = new ArrayList((runs.size() + 1) / 2);
+            for (int i = 0; i < runs.size(); i += 2) {
+                if (i + 1 < runs.size()) {
+                    merged.add(merge((Object[]) runs.get(i), (Object[]) runs.get(i + 1)));
+                } else {
+                    merged.add(runs.get(i));
+                }
+            }
+            runs = merged;
+        }
+        return new SortedArraySet((Object[]) runs.get(0));
+    }
+
+    private static Object[] merge(final Object[] left, final Object[] right) {
+        final Object[] result = new Object[left.length + right.length];
+        int l = 0;
+        int r = 0;
+        int size = 0;
+        while (l < left.length && r < right.length) {
+            final int comparison = compare(left[l], right[r]);
+            if (comparison < 0) {
+                result[size++] = left[l++];
+            } else if (comparison > 0) {
+                result[size++] = right[r++];
+            } else {
+                result[size++] = left[l++];
+                r++;
+            }
+        }
+        while (l < left.length) {
+            result[size++] = left[l++];
+        }
+        while (r < right.length) {
+            result[size++] = right[r++];
+        }
+        if (size == result.length) {
+            return result;
+        }
+        final Object[] trimmed = new Object[size];
+        System.arraycopy(result, 0, trimmed, 0, size);
+        return trimmed;
+    }
+
+    private static int compare(final Object o1, final Object o2) {
+        return ((Comparable) o1).compareTo(o2);
+    }
+
+    /**
+     * @return the index of the first element not less than the key
+     */
+    private int lowerBound(final Object key) {
+        int low = this.from;
+        int high = this.to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(this.elements[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return this.to - this.from;
+    }
+
+    public boolean contains(final Object o) {
+        final int index = lowerBound(o);
+        return index < this.to && compare(this.elements[index], o) == 0;
+    }
+
+    public Iterator iterator() {
+        return new Iterator() {
+            private int next = from;
+
+            public boolean hasNext() {
+                return this.next < to;
+            }
+
+            public Object next() {
+                if (this.next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return elements[this.next++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public Object[] toArray() {
+        final Object[] result = new Object[size()];
+        System.arraycopy(this.elements, this.from, result, 0, result.length);
+        return result;
+    }
+
+    public Comparator comparator() {
+        return null;
+    }
+
+    public Object first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return this.elements[this.from];
+    }
+
+    public Object last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return this.elements[this.to - 1];
+    }
+
+    public SortedSet headSet(final Object toElement) {
+        return new SortedArraySet(this.elements, this.from, lowerBound(toElement));
+    }
+
+    public SortedSet tailSet(final Object fromElement) {
+        return new SortedArraySet(this.elements, lowerBound(fromElement), this.to);
+    }
+
+    public SortedSet subSet(final Object fromElement, final Object toElement) {
+        final int start = lowerBound(fromElement);
+        return new SortedArraySet(this.elements, start, Math.max(start, lowerBound(toElement)));
+    }
+}
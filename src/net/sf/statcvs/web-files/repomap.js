@@ -328,7 +328,7 @@
           leaf.__repomap_node = child;
           leaf.style.boxSizing = 'border-box';
           leaf.style.border = '1px solid rgba(255,255,255,0.5)';
-          leaf.style.cursor = 'auto';
+          leaf.style.cursor = child.chunk ? 'zoom-in' : 'auto';
           leaf.setAttribute('role','button');
           leaf.setAttribute('aria-label', child.label || '');
           leaf.style.background = colorFromValue(child.value);
@@ -360,6 +360,11 @@
                   // current not in chain (unlikely) - push entire chain
                   toPush = ancestors;
                 }
+                if (c.chunk) {
+                  // a directory whose content is in its own data file
+                  loadChunk(c, toPush.concat([c]));
+                  return;
+                }
                 if (toPush.length > 0) {
                   for (var j=0;j<toPush.length;j++) pushUnique(state.zoomStack, toPush[j]);
                   state.current = state.zoomStack[state.zoomStack.length-1];
@@ -454,6 +459,7 @@
                   if (p.__repomap_node && p.__repomap_node.children && p.__repomap_node.children.length) { found = true; break; }
                   p = p.parentElement;
                 }
+                if (leafEl.__repomap_node && leafEl.__repomap_node.chunk) found = true;
                 leafEl.style.cursor = found ? 'zoom-in' : 'auto';
               }
               state._lastCursorLeaf = leafEl;
@@ -470,6 +476,34 @@
       }
     }
 
+    // Directories of large repositories may be written to their own data
+    // files; such a node has a 'chunk' (the file name) instead of children.
+    // The file is loaded as a script, which calls RepoMap.addChunk.
+    var pendingChunks = {};
+
+    function loadChunk(node, zoomPath) {
+      if (pendingChunks[node.chunk]) return;
+      pendingChunks[node.chunk] = { node: node, zoomPath: zoomPath };
+      var s = document.createElement('script');
+      s.src = node.chunk;
+      s.onerror = function() { delete pendingChunks[node.chunk]; console.error('Failed to load ' + node.chunk); };
+      (document.head || document.documentElement).appendChild(s);
+    }
+
+    function addChunk(name, data) {
+      var pending = pendingChunks[name];
+      if (!pending) return;
+      delete pendingChunks[name];
+      var node = pending.node;
+      node.children = (data && data.children) || [];
+      delete node.chunk;
+      var state = window.RepoMapState;
+      if (!state) return;
+      for (var i=0;i<pending.zoomPath.length;i++) pushUnique(state.zoomStack, pending.zoomPath[i]);
+      state.current = state.zoomStack[state.zoomStack.length-1];
+      draw(state);
+    }
+
     function escapeHtml(s){ return String(s).replace(/&/g,'&amp;').replace(/</g,'&lt;').replace(/>/g,'&gt;'); }
 
     function initWithData(containerId, data) {
@@ -478,7 +512,7 @@
       
       // Skip single-child root nodes to avoid unnecessary outer frames (e.g. [root] -> [root] -> content)
       var effectiveRoot = data;
-      while (effectiveRoot && effectiveRoot.children && effectiveRoot.children.length === 1) {
+      while (effectiveRoot && effectiveRoot.children && effectiveRoot.children.length === 1 && !effectiveRoot.children[0].chunk) {
         effectiveRoot = effectiveRoot.children[0];
       }
 
@@ -496,7 +530,8 @@
 
     window.RepoMap = {
       init: initFromUrl,
-      initWithData: initWithData
+      initWithData: initWithData,
+      addChunk: addChunk
     };
 
     document.addEventListener('DOMContentLoaded', function(){
@@ -22,6 +22,7 @@
  */
 package net.sf.statsvn;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -39,6 +40,7 @@ import net.sf.statcvs.output.ConfigurationException;
 import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statcvs.output.ReportConfig;
 import net.sf.statcvs.pages.ReportSuiteMaker;
+import net.sf.statcvs.util.Metrics;
 import net.sf.statsvn.input.Builder;
 import net.sf.statsvn.input.RepositoryFileManager;
 import net.sf.statsvn.input.SvnLogfileParser;
@@ -170,6 +172,16 @@ public final class Main {
                         + cr + "  -username <svnusername> username to pass to svn" + cr + "  -password <svnpassword> password to pass to svn" + cr
                         + "  -verbose           print extra progress information" + cr + "  -xdoc                 optional switch output to xdoc" + cr
                         + "  -xml                  optional switch output to xml" + cr + "  -threads <int>        how many threads for svn diff (default: 25)"
+                        + cr + "  -max-svn-processes <int> how many svn processes run at once (default: threads)"
+                        + cr + "  -loc-threads <int>    how many threads count lines (default: threads)"
+                        + cr + "  -report-threads <int> how many threads generate the reports (default: 1)"
+                        + cr + "  -chart-threads <int>  how many threads draw charts (default: report-threads)"
+                        + cr + "  -chart-compression <0-9> compression level of the chart images"
+                        + cr + "  -repomap-chunk-files <int> split the repo map data at directories with more files"
+                        + cr + "  -metrics <file>       write the timings and memory use of the run to <file>, as JSON"
+                        + cr + "  -force-xml-cache      rewrite the whole line count cache on every save"
+                        + cr + "  -svnkit-session-diff  diff over long-lived svnkit sessions (needs svnkit)"
+                        + cr + "  -incremental-log      parse only the log entries newer than the last snapshot"
                         + cr + "  -concurrency-threshold <millisec> switch to concurrent svn diff if 1st call>threshold (default: 4000)" + cr
                         + "  -dump                 dump the Repository content on console" + cr
                         + "  -charset <charset> specify the charset to use for html/xdoc\n"
@@ -265,6 +277,9 @@ public final class Main {
 
         final long memoryUsedOnStart = Runtime.getRuntime().totalMemory();
         final long startTime = System.currentTimeMillis();
+        Metrics.reset();
+        final Metrics.Timing run = Metrics.startPhase("run");
+        recordConfiguration();
 
         initLogManager(ConfigurationOptions.getLoggingProperties());
 
@@ -298,7 +313,11 @@ public final class Main {
         SvnConfigurationOptions.getTaskLogger().info(
                 "Generating report for " + ConfigurationOptions.getProjectName() + " into " + ConfigurationOptions.getOutputDir());
         SvnConfigurationOptions.getTaskLogger().info("Using " + ConfigurationOptions.getCssHandler());
+        final Metrics.Timing modelBuild = Metrics.startPhase("model.build");
         final Repository content = builder.createRepository();
+        modelBuild.stop();
+        Metrics.setAttribute("files", Integer.valueOf(content.getFiles().size()));
+        Metrics.setAttribute("commits", Integer.valueOf(content.getCommits().size()));
 
         long memoryUsedOnEnd = Runtime.getRuntime().totalMemory();
         SvnConfigurationOptions.getTaskLogger().info("memory usage After Build: " + (((double) memoryUsedOnEnd - memoryUsedOnStart) / KB_IN_ONE_MB) + " kb");
@@ -317,6 +336,7 @@ public final class Main {
 
         validate(config);
 
+        final Metrics.Timing reports = Metrics.startPhase("reports");
         if (SvnConfigurationOptions.isDumpContent()) {
             new RepoDump(content).dump();
         } else {
@@ -329,11 +349,34 @@ public final class Main {
                 new ReportSuiteMaker(config, ConfigurationOptions.getNotes(), extraReports).toFile().write();
             }
         }
+        reports.stop();
+        run.stop();
         final long endTime = System.currentTimeMillis();
         memoryUsedOnEnd = Runtime.getRuntime().totalMemory();
 
         SvnConfigurationOptions.getTaskLogger().info("runtime: " + (((double) endTime - startTime) / NUMBER_OF_MS_IN_ONE_SEC) + " seconds");
         SvnConfigurationOptions.getTaskLogger().info("memory usage: " + (((double) memoryUsedOnEnd - memoryUsedOnStart) / KB_IN_ONE_MB) + " kb");
+        if (ConfigurationOptions.getMetricsFile() != null) {
+            Metrics.writeJson(new File(ConfigurationOptions.getMetricsFile()));
+        }
+    }
+
+    /**
+     * Describes the settings that matter for the performance in the run
+     * metrics, so that runs with different settings can be compared.
+     */
+    private static void recordConfiguration() {
+        Metrics.setAttribute("tool", "statsvn");
+        Metrics.setAttribute("version", Messages.getString("PROJECT_VERSION"));
+        Metrics.setAttribute("threads", Integer.valueOf(SvnConfigurationOptions.getNumberSvnDiffThreads()));
+        Metrics.setAttribute("maxSvnProcesses", Integer.valueOf(SvnConfigurationOptions.getMaxSvnProcesses()));
+        Metrics.setAttribute("lineCountThreads", Integer.valueOf(SvnConfigurationOptions.getNumberLineCountThreads()));
+        Metrics.setAttribute("concurrencyThreshold", Long.valueOf(SvnConfigurationOptions.getThresholdInMsToUseConcurrency()));
+        Metrics.setAttribute("legacyDiff", Boolean.valueOf(SvnConfigurationOptions.isLegacyDiff()));
+        Metrics.setAttribute("svnkit", Boolean.valueOf(SvnConfigurationOptions.isUsingSVNKit()));
+        Metrics.setAttribute("xmlCache", Boolean.valueOf(SvnConfigurationOptions.isXmlCache()));
+        Metrics.setAttribute("reportThreads", Integer.valueOf(ConfigurationOptions.getReportThreads()));
+        Metrics.setAttribute("chartThreads", Integer.valueOf(ConfigurationOptions.getChartThreads()));
     }
 
     private static void validate(final ReportConfig config) {
@@ -47,12 +47,22 @@ public class StatSvnTask extends StatCvsTask {
 
 	private int numberSvnDiffThreads;
 
+	private int maxSvnProcesses;
+
+	private int numberLineCountThreads;
+
 	private long thresholdInMsToUseConcurrency;
 
 	private boolean useLegacyDiff = false;
 	
 	private boolean useSvnKit = false;
 
+	private boolean useSvnKitSessionDiff = false;
+
+	private boolean useXmlCache = false;
+
+	private boolean incrementalLog = false;
+
 	/**
 	 * Constructor for StatSvnTask.
 	 */
@@ -104,6 +114,12 @@ public class StatSvnTask extends StatCvsTask {
 		if (this.numberSvnDiffThreads != 0) {
 			SvnConfigurationOptions.setNumberSvnDiffThreads(this.numberSvnDiffThreads);
 		}
+		if (this.maxSvnProcesses != 0) {
+			SvnConfigurationOptions.setMaxSvnProcesses(this.maxSvnProcesses);
+		}
+		if (this.numberLineCountThreads != 0) {
+			SvnConfigurationOptions.setNumberLineCountThreads(this.numberLineCountThreads);
+		}
 		if (this.thresholdInMsToUseConcurrency != 0) {
 			SvnConfigurationOptions.setThresholdInMsToUseConcurrency(this.thresholdInMsToUseConcurrency);
 		}
@@ -113,6 +129,15 @@ public class StatSvnTask extends StatCvsTask {
         if (this.useSvnKit) { // only override if we don't want it. 
             SvnConfigurationOptions.setUsingSvnKit(true);
         }		
+		if (this.useSvnKitSessionDiff) { // only override if we don't want it. 
+			SvnConfigurationOptions.setSvnKitSessionDiff(true);
+		}
+		if (this.useXmlCache) { // only override if we don't want it. 
+			SvnConfigurationOptions.setXmlCache(true);
+		}
+		if (this.incrementalLog) { // only override if we don't want it. 
+			SvnConfigurationOptions.setIncrementalLog(true);
+		}
 		SvnConfigurationOptions.setTaskLogger(new AntTaskLogger(this));
 	}
 
@@ -156,6 +181,22 @@ public class StatSvnTask extends StatCvsTask {
 		this.numberSvnDiffThreads = threads;
 	}
 
+	/**
+	 * @param maxSvnProcesses
+	 *            the maximum number of concurrent svn processes
+	 */
+	public void setMaxSvnProcesses(final int maxSvnProcesses) {
+		this.maxSvnProcesses = maxSvnProcesses;
+	}
+
+	/**
+	 * @param locThreads
+	 *            the number of threads counting the lines of the working copy
+	 */
+	public void setLocThreads(final int locThreads) {
+		this.numberLineCountThreads = locThreads;
+	}
+
 	/**
 	 * @param thresholdInMsToUseConcurrency
 	 *            the thresholdInMsToUseConcurrency to set
@@ -181,4 +222,32 @@ public class StatSvnTask extends StatCvsTask {
     public void setSvnKit(final boolean isSvnKit) {
         this.useSvnKit = isSvnKit;
     }	
-}
+
+	/**
+	 * Should the diffs be computed over long-lived svnkit repository sessions?
+	 * 
+	 * @param isSessionDiff true to replay the revisions through svnkit sessions.
+	 */
+	public void setSvnKitSessionDiff(final boolean isSessionDiff) {
+		this.useSvnKitSessionDiff = isSessionDiff;
+	}
+
+	/**
+	 * Should only the log entries newer than the last run be ingested?
+	 * 
+	 * @param isIncremental true to keep a snapshot of the log in the cache directory.
+	 */
+	public void setIncrementalLog(final boolean isIncremental) {
+		this.incrementalLog = isIncremental;
+	}
+
+	/**
+	 * Should the whole cache xml file be rewritten on every save instead of
+	 * journaling new revisions?
+	 * 
+	 * @param isXmlCache true to rewrite the whole cache xml file.
+	 */
+	public void setXmlCache(final boolean isXmlCache) {
+		this.useXmlCache = isXmlCache;
+	}
+}
\ No newline at end of file
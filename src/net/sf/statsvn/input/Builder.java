@@ -23,6 +23,7 @@
 package net.sf.statsvn.input;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -204,6 +205,8 @@ public class Builder implements SvnLogBuilder {
             return new Repository();
         }
 
+        countLinesOfCode();
+
         final Repository result = new Repository();
         final Iterator it = fileBuilders.values().iterator();
         while (it.hasNext()) {
@@ -226,9 +229,29 @@ public class Builder implements SvnLogBuilder {
 
         SvnConfigurationOptions.getTaskLogger().log("SYMBOLIC NAMES - " + symbolicNames);
 
+        result.freeze();
         return result;
     }
 
+    /**
+     * Counts the lines of the files that are alive in the working copy in a
+     * single parallel pass, rather than one at a time as the files are
+     * created.
+     */
+    private void countLinesOfCode() {
+        if (repositoryFileManager == null) {
+            return;
+        }
+        final List filenames = new ArrayList();
+        for (final Iterator it = fileBuilders.values().iterator(); it.hasNext();) {
+            final FileBuilder fileBuilder = (FileBuilder) it.next();
+            if (!fileBuilder.isBinary() && !fileBuilder.finalRevisionIsDead() && matchesPatterns(fileBuilder.getName())) {
+                filenames.add(fileBuilder.getName());
+            }
+        }
+        repositoryFileManager.countLinesOfCode(filenames);
+    }
+
     /**
      * Returns the <tt>Set</tt> of filenames that are "in the attic".
      * 
@@ -0,0 +1,378 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Snapshot of what the svn log taught the (@link SvnLogBuilder): the
+ * revisions of every file, as found in the log, and the tags. It is kept in
+ * the cache directory, next to the repositories xml file, with the head
+ * revision it covers.
+ * 
+ * When a snapshot is available, (@link SvnXmlLogFileHandler) skips the log
+ * entries it covers, builds the newer ones and then appends the revisions of
+ * the snapshot, which are older. The post-processing of the log (implicit
+ * actions, line counts) is not part of the snapshot and runs on the complete
+ * history, as usual.
+ * 
+ * The snapshot is a gzipped binary file rather than xml, as it holds a
+ * record per path of every log entry. Strings are written once and then
+ * referred to by index, so the author and comment of a log entry are only
+ * stored once for all of its paths. When restored, the paths of a log entry
+ * share its (@link LogEntryData) again.
+ */
+public class BuilderSnapshot {
+	private static final String FILE_PREFIX = "log_";
+
+	private static final String FILE_EXTENSION = ".snapshot";
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private static final String MAGIC = "statsvn-log-snapshot";
+
+	private static final int VERSION = 1;
+
+	private static final int NULL_STRING = -1;
+
+	private static final int NO_DATE = -1;
+
+	private static final int STATE_EXP = 1;
+
+	private static final int STATE_DEAD = 2;
+
+	private static final int STATE_ADDED = 4;
+
+	private static final int BUFFER_SIZE = 65536;
+
+	private final String cacheDir;
+
+	private String uuid = null;
+
+	private DataInputStream in = null;
+
+	private List strings = null;
+
+	// the last log entry read for each revision, to share it between paths.
+	private Map logEntries = null;
+
+	/**
+	 * @param cacheDir
+	 *            the cache directory, ending with a separator
+	 */
+	public BuilderSnapshot(final String cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * @param repositoryUuid
+	 *            the uuid of the repository
+	 * @return the snapshot file of the repository
+	 */
+	public File getFile(final String repositoryUuid) {
+		return new File(cacheDir + FILE_PREFIX + repositoryUuid + FILE_EXTENSION);
+	}
+
+	/**
+	 * Opens the snapshot of a repository and reads its header. A snapshot
+	 * taken for another module or with other tag options is ignored.
+	 * 
+	 * @param repositoryUuid
+	 *            the uuid of the repository
+	 * @param moduleName
+	 *            the module being analysed
+	 * @return the head revision of the snapshot or -1 if there is no usable
+	 *         snapshot.
+	 */
+	public int open(final String repositoryUuid, final String moduleName) {
+		uuid = repositoryUuid;
+		final File file = getFile(repositoryUuid);
+		try {
+			in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE)));
+			strings = new ArrayList();
+			logEntries = new HashMap();
+			if (!MAGIC.equals(in.readUTF()) || in.readInt() != VERSION) {
+				return ignore(file + " has an unknown format");
+			}
+			if (!moduleName.equals(readString()) || !getTagsDirectory().equals(readString()) || !getTagsPattern().equals(readString())) {
+				return ignore(file + " was taken for another module or with other tag options");
+			}
+			final int headRevision = in.readInt();
+			SvnConfigurationOptions.getTaskLogger().log("Log snapshot: " + file + " covers revisions up to " + headRevision);
+			return headRevision;
+		} catch (final FileNotFoundException e) {
+			SvnConfigurationOptions.getTaskLogger().log("Log snapshot: " + e.toString());
+			return -1;
+		} catch (final IOException e) {
+			return ignore(e.toString());
+		}
+	}
+
+	private int ignore(final String reason) {
+		SvnConfigurationOptions.getTaskLogger().info("Log snapshot: ignored, " + reason);
+		close();
+		return -1;
+	}
+
+	/**
+	 * Appends the tags and revisions of the opened snapshot to the ones that
+	 * were built from the newer log entries. Tags that were found in the newer
+	 * log entries are kept.
+	 * 
+	 * @param builder
+	 *            the builder
+	 * @param repositoryFileManager
+	 *            used to know what files are binary
+	 * @param tagsMap
+	 *            the revision of the tags
+	 * @param tagsDateMap
+	 *            the date of the tags
+	 * @throws IOException
+	 *             problem reading the snapshot; the builder is then
+	 *             incomplete.
+	 */
+	public void restore(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager, final Map tagsMap, final Map tagsDateMap)
+	        throws IOException {
+		try {
+			final int numberTags = in.readInt();
+			for (int i = 0; i < numberTags; i++) {
+				final String tag = readString();
+				final String revision = readString();
+				final Date date = readDate();
+				if (!tagsMap.containsKey(tag)) {
+					tagsMap.put(tag, revision);
+					tagsDateMap.put(tag, date);
+				}
+			}
+
+			final int numberFiles = in.readInt();
+			int numberRevisions = 0;
+			for (int i = 0; i < numberFiles; i++) {
+				final String filename = readString();
+				final int size = in.readInt();
+				for (int j = 0; j < size; j++) {
+					final RevisionData data = readRevision();
+					if (j == 0) {
+						// as if the log entries had been parsed: the most recent revision comes first.
+						builder.buildFile(filename, repositoryFileManager.isBinary(filename), data.isDeletion(), tagsMap, tagsDateMap);
+					}
+					builder.buildRevision(data);
+				}
+				numberRevisions += size;
+			}
+			SvnConfigurationOptions.getTaskLogger().log("Log snapshot: restored " + numberRevisions + " revisions of " + numberFiles + " files");
+		} catch (final EOFException e) {
+			throw new IOException("Log snapshot: " + getFile(uuid) + " is truncated");
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Releases the opened snapshot.
+	 */
+	public void close() {
+		if (in != null) {
+			try {
+				in.close();
+			} catch (final IOException e) {
+				SvnConfigurationOptions.getTaskLogger().error("Log snapshot: " + e.toString());
+			}
+			in = null;
+		}
+		strings = null;
+		logEntries = null;
+	}
+
+	/**
+	 * Writes the state of the builder as the new snapshot of the repository.
+	 * Must be invoked before the post-processing of the log modifies the
+	 * revisions. The file is written under a temporary name and then renamed.
+	 * 
+	 * @param repositoryUuid
+	 *            the uuid of the repository
+	 * @param moduleName
+	 *            the module being analysed
+	 * @param builder
+	 *            the builder
+	 * @param headRevision
+	 *            the most recent revision of the log
+	 * @param tagsMap
+	 *            the revision of the tags
+	 * @param tagsDateMap
+	 *            the date of the tags
+	 */
+	public void save(final String repositoryUuid, final String moduleName, final SvnLogBuilder builder, final int headRevision, final Map tagsMap,
+	        final Map tagsDateMap) {
+		final long startTime = System.currentTimeMillis();
+		final File target = getFile(repositoryUuid);
+		final File temp = new File(target.getPath() + TEMP_EXTENSION);
+		final Map stringIndex = new HashMap();
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp), BUFFER_SIZE)));
+			out.writeUTF(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, stringIndex, moduleName);
+			writeString(out, stringIndex, getTagsDirectory());
+			writeString(out, stringIndex, getTagsPattern());
+			out.writeInt(headRevision);
+
+			out.writeInt(tagsMap.size());
+			for (final Iterator it = tagsMap.entrySet().iterator(); it.hasNext();) {
+				final Map.Entry tag = (Map.Entry) it.next();
+				writeString(out, stringIndex, (String) tag.getKey());
+				writeString(out, stringIndex, (String) tag.getValue());
+				writeDate(out, (Date) tagsDateMap.get(tag.getKey()));
+			}
+
+			final Map fileBuilders = builder.getFileBuilders();
+			out.writeInt(fileBuilders.size());
+			for (final Iterator it = fileBuilders.values().iterator(); it.hasNext();) {
+				final FileBuilder fileBuilder = (FileBuilder) it.next();
+				writeString(out, stringIndex, fileBuilder.getName());
+				final List revisions = fileBuilder.getRevisions();
+				out.writeInt(revisions.size());
+				for (int i = 0; i < revisions.size(); i++) {
+					writeRevision(out, stringIndex, (RevisionData) revisions.get(i));
+				}
+			}
+			out.close();
+			out = null;
+			if (target.exists() && !target.delete()) {
+				throw new IOException("Unable to replace " + target);
+			}
+			if (!temp.renameTo(target)) {
+				throw new IOException("Unable to rename " + temp + " to " + target);
+			}
+			SvnConfigurationOptions.getTaskLogger().log(
+			        "Log snapshot: saved up to revision " + headRevision + " in " + (System.currentTimeMillis() - startTime) + " ms.");
+		} catch (final IOException e) {
+			SvnConfigurationOptions.getTaskLogger().error("Log snapshot: " + e.toString());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException e) {
+					SvnConfigurationOptions.getTaskLogger().error("Log snapshot: " + e.toString());
+				}
+			}
+		}
+	}
+
+	private static String getTagsDirectory() {
+		return SvnConfigurationOptions.getTagsDirectory();
+	}
+
+	private static String getTagsPattern() {
+		return ConfigurationOptions.getSymbolicNamesPattern() != null ? ConfigurationOptions.getSymbolicNamesPattern().pattern() : "";
+	}
+
+	private static void writeRevision(final DataOutputStream out, final Map stringIndex, final RevisionData data) throws IOException {
+		writeString(out, stringIndex, data.getRevisionNumber());
+		writeDate(out, data.getDate());
+		int state = 0;
+		if (data.isStateExp()) {
+			state |= STATE_EXP;
+		}
+		if (data.isStateDead()) {
+			state |= STATE_DEAD;
+		}
+		if (data.isStateAdded()) {
+			state |= STATE_ADDED;
+		}
+		out.writeByte(state);
+		writeString(out, stringIndex, data.getLoginName());
+		writeString(out, stringIndex, data.getComment());
+		writeString(out, stringIndex, data.getCopyfromPath());
+		writeString(out, stringIndex, data.getCopyfromRevision());
+	}
+
+	private RevisionData readRevision() throws IOException {
+		LogEntryData logEntry = new LogEntryData(readString());
+		logEntry.setDate(readDate());
+		final int state = in.readByte();
+		logEntry.setLoginName(readString());
+		logEntry.setComment(readString());
+		final LogEntryData known = (LogEntryData) logEntries.get(logEntry.getRevisionNumber());
+		if (logEntry.isSameAs(known)) {
+			logEntry = known;
+		} else {
+			logEntries.put(logEntry.getRevisionNumber(), logEntry);
+		}
+
+		final RevisionData data = new RevisionData(logEntry);
+		data.setStateExp((state & STATE_EXP) != 0);
+		data.setStateDead((state & STATE_DEAD) != 0);
+		data.setStateAdded((state & STATE_ADDED) != 0);
+		data.setCopyfromPath(readString());
+		data.setCopyfromRevision(readString());
+		return data;
+	}
+
+	private static void writeDate(final DataOutputStream out, final Date date) throws IOException {
+		out.writeLong(date != null ? date.getTime() : NO_DATE);
+	}
+
+	private Date readDate() throws IOException {
+		final long time = in.readLong();
+		return time != NO_DATE ? new Date(time) : null;
+	}
+
+	/**
+	 * Writes the index of a string, followed by the string itself the first
+	 * time it is written. Unlike writeUTF, strings of any length are
+	 * supported.
+	 */
+	private static void writeString(final DataOutputStream out, final Map stringIndex, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(NULL_STRING);
+			return;
+		}
+		final Integer index = (Integer) stringIndex.get(value);
+		if (index != null) {
+			out.writeInt(index.intValue());
+			return;
+		}
+		final int newIndex = stringIndex.size();
+		stringIndex.put(value, Integer.valueOf(newIndex));
+		out.writeInt(newIndex);
+		final byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString() throws IOException {
+		final int index = in.readInt();
+		if (index == NULL_STRING) {
+			return null;
+		} else if (index < strings.size()) {
+			return (String) strings.get(index);
+		} else if (index > strings.size()) {
+			throw new IOException("Log snapshot: " + getFile(uuid) + " is corrupt");
+		}
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		final String value = new String(bytes, "UTF-8");
+		strings.add(value);
+		return value;
+	}
+}
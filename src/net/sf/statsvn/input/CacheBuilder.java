@@ -1,21 +1,13 @@
 package net.sf.statsvn.input;
 
+import java.io.IOException;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import net.sf.statcvs.output.ConfigurationOptions;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
 /**
  * <p>
  * CVS log files include lines modified for each commit and binary status of a
@@ -25,10 +17,14 @@ import org.w3c.dom.NodeList;
  * <p>
  * StatSVN must query the Subversion repository for line counts using svn diff.
  * However, this is very costly, performance-wise. Therefore, the decision was
- * taken to persist this information in an XML file. This class receives
- * information from (@link net.sf.statsvn.input.SvnXmlLineCountsFileHandler) to
- * build a DOM-based xml structure. It also forwards line counts to the
- * appropriate (@link net.sf.statsvn.input.FileBuilder).
+ * taken to persist this information. This class receives information from
+ * (@link net.sf.statsvn.input.SvnXmlCacheFileHandler) and from the diff phase
+ * to build an in-memory cache indexed by path name. It also forwards line
+ * counts to the appropriate (@link net.sf.statsvn.input.FileBuilder).
+ * </p>
+ * 
+ * <p>
+ * Loading and saving the cache is delegated to an (@link ICacheStore).
  * </p>
  * 
  * @author Gunter Mussbacher <gunterm@site.uottawa.ca>
@@ -39,29 +35,42 @@ public class CacheBuilder {
 
 	private final RepositoryFileManager repositoryFileManager;
 
-	private Element currentPath = null;
+	private final ICacheStore cacheStore;
 
-	private Document document = null;
+	private final Map paths = new LinkedHashMap();
 
-	private String currentFilename;
+	private CachedPath currentPath = null;
 
-	private Element cache = null;
+	private String currentFilename;
 
 	/**
 	 * Constructs the LineCountsBuilder by giving it a reference to the builder
-	 * currently in use.
+	 * currently in use. The cache is only kept in memory.
 	 * 
 	 * @param builder
 	 *            the SvnLogBuilder which contains all the FileBuilders.
 	 */
 	public CacheBuilder(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager) {
+		this(builder, repositoryFileManager, null);
+	}
+
+	/**
+	 * Constructs the LineCountsBuilder by giving it a reference to the builder
+	 * currently in use and to the store persisting the cache.
+	 * 
+	 * @param builder
+	 *            the SvnLogBuilder which contains all the FileBuilders.
+	 * @param cacheStore
+	 *            the store used to load and save the cache (may be null)
+	 */
+	public CacheBuilder(final SvnLogBuilder builder, final RepositoryFileManager repositoryFileManager, final ICacheStore cacheStore) {
 		this.builder = builder;
 		this.repositoryFileManager = repositoryFileManager;
+		this.cacheStore = cacheStore;
 	}
 
 	/**
-	 * Adds a path in the DOM. To be followed by invocations to (@link
-	 * #addRevision(String, String, String))
+	 * Adds a path to the index and makes it the current path.
 	 * 
 	 * @param name
 	 *            the filename
@@ -71,86 +80,46 @@ public class CacheBuilder {
 	 * @param binaryStatus
 	 *            binary status of latest revision
 	 */
-	private void addDOMPath(final String name, final String latestRevision, final String binaryStatus) {
-		currentPath = document.createElement(CacheConfiguration.PATH);
-		currentPath.setAttribute(CacheConfiguration.NAME, name);
-		currentPath.setAttribute(CacheConfiguration.LATEST_REVISION, latestRevision);
-		currentPath.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		cache.appendChild(currentPath);
+	private CachedPath addPath(final String name, final int latestRevision, final String binaryStatus) {
+		currentPath = new CachedPath(name, latestRevision, binaryStatus);
+		paths.put(name, currentPath);
+		return currentPath;
 	}
 
 	/**
-	 * Updates the BINARY_STATUS and LATEST_REVISION attributes of a path in the
-	 * DOM. Updates only if the revisionNumber is higher than current
-	 * LATEST_REVISION of the path.
-	 * 
-	 * @param path
-	 *            the path to be updated
-	 * @param isBinary
-	 *            indicates if the revision is binary or not
-	 * @param revisionNumber
-	 *            the revision number for which the binary status is valid
-	 */
-	private void updateDOMPath(final Element path, final boolean isBinary, final String revisionNumber) {
-		int oldRevision = 0;
-		int newRevision = -1;
-		try {
-			oldRevision = Integer.parseInt(path.getAttribute(CacheConfiguration.LATEST_REVISION));
-			newRevision = Integer.parseInt(revisionNumber);
-		} catch (final NumberFormatException e) {
-			SvnConfigurationOptions.getTaskLogger().log(
-			        "Ignoring invalid revision number " + revisionNumber + " for " + path.getAttribute(CacheConfiguration.NAME));
-			newRevision = -1;
-		}
-		String binaryStatus = CacheConfiguration.NOT_BINARY;
-		if (isBinary) {
-			binaryStatus = CacheConfiguration.BINARY;
-		}
-		if (newRevision >= oldRevision) {
-			path.setAttribute(CacheConfiguration.LATEST_REVISION, revisionNumber);
-			path.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		}
-	}
-
-	/**
-	 * Finds a path in the DOM.
+	 * Finds a path in the index.
 	 * 
 	 * @param name
 	 *            the filename
 	 * @return the path or null if the path does not exist
 	 */
-	private Element findDOMPath(final String name) {
-		if (currentPath != null && name.equals(currentPath.getAttribute(CacheConfiguration.NAME))) {
+	private CachedPath findPath(final String name) {
+		if (currentPath != null && name.equals(currentPath.getName())) {
 			return currentPath;
 		}
-		final NodeList paths = cache.getChildNodes();
-		for (int i = 0; i < paths.getLength(); i++) {
-			final Element path = (Element) paths.item(i);
-			if (name.equals(path.getAttribute(CacheConfiguration.NAME))) {
-				return path;
-			}
-		}
-		return null;
+		return (CachedPath) paths.get(name);
 	}
 
 	/**
-	 * Adds a revision to the current path in the DOM. To be preceeded by (@link
-	 * #addPath(String))
+	 * Parses a revision number, logging invalid ones.
 	 * 
-	 * @param number
+	 * @param revisionNumber
 	 *            the revision number
-	 * @param added
-	 *            the number of lines that were added
-	 * @param removed
-	 *            the number of lines that were removed
+	 * @param name
+	 *            the filename, for logging purposes
+	 * @return the revision number or -1 if it is invalid
 	 */
-	private void addDOMRevision(final String number, final String added, final String removed, final String binaryStatus) {
-		final Element revision = document.createElement(CacheConfiguration.REVISION);
-		revision.setAttribute(CacheConfiguration.NUMBER, number);
-		revision.setAttribute(CacheConfiguration.ADDED, added);
-		revision.setAttribute(CacheConfiguration.REMOVED, removed);
-		revision.setAttribute(CacheConfiguration.BINARY_STATUS, binaryStatus);
-		currentPath.appendChild(revision);
+	private static int parseRevision(final String revisionNumber, final String name) {
+		try {
+			return Integer.parseInt(revisionNumber);
+		} catch (final NumberFormatException e) {
+			SvnConfigurationOptions.getTaskLogger().log("Ignoring invalid revision number " + revisionNumber + " for " + name);
+			return -1;
+		}
+	}
+
+	private static String toBinaryStatus(final boolean isBinary) {
+		return isBinary ? CacheConfiguration.BINARY : CacheConfiguration.NOT_BINARY;
 	}
 
 	/**
@@ -162,8 +131,11 @@ public class CacheBuilder {
 	 */
 	public void buildPath(final String name, final String revision, final String binaryStatus) {
 		currentFilename = repositoryFileManager.absoluteToRelativePath(name);
-		addDOMPath(name, revision, binaryStatus);
-
+		int latestRevision = parseRevision(revision, name);
+		if (latestRevision < 0) {
+			latestRevision = 0;
+		}
+		addPath(name, latestRevision, binaryStatus);
 	}
 
 	/**
@@ -183,38 +155,98 @@ public class CacheBuilder {
 	 */
 	public void buildRevision(final String number, final String added, final String removed, final String binaryStatus) {
 		if (!added.equals("-1") && !removed.equals("-1")) {
-			addDOMRevision(number, added, removed, binaryStatus);
-			builder.updateRevision(currentFilename, number, Integer.parseInt(added), Integer.parseInt(removed));
+			final int revision = parseRevision(number, currentPath.getName());
+			if (revision < 0) {
+				return;
+			}
+			final int linesAdded = Integer.parseInt(added);
+			final int linesRemoved = Integer.parseInt(removed);
+			currentPath.addRevision(revision, linesAdded, linesRemoved, binaryStatus);
+			builder.updateRevision(currentFilename, number, linesAdded, linesRemoved);
+		}
+	}
+
+	/**
+	 * Restores a revision that was recorded by the (@link ICacheStore) in a
+	 * previous run but was not part of the compacted cache. Revisions that are
+	 * already known are ignored.
+	 * 
+	 * @param name
+	 *            the absolute filename
+	 * @param number
+	 *            the revision number
+	 * @param added
+	 *            the number of lines added
+	 * @param removed
+	 *            the number of lines removed
+	 * @param binaryStatus
+	 *            the binary status of the revision
+	 */
+	public synchronized void restoreRevision(final String name, final String number, final String added, final String removed, final String binaryStatus) {
+		CachedPath path = findPath(name);
+		if (path == null) {
+			path = addPath(name, 0, CacheConfiguration.UNKNOWN);
+		}
+		final int revision = parseRevision(number, name);
+		if (revision < 0 || path.hasRevision(revision)) {
+			return;
 		}
+		currentPath = path;
+		currentFilename = repositoryFileManager.absoluteToRelativePath(name);
+		buildRevision(number, added, removed, binaryStatus);
 	}
 
 	/**
-	 * Builds the DOM root.
+	 * Clears the index.
+	 */
+	public void buildRoot() {
+		paths.clear();
+		currentPath = null;
+		currentFilename = null;
+	}
+
+	/**
+	 * Returns the cached paths, in the order they were added.
 	 * 
-	 * @throws ParserConfigurationException
+	 * @return a collection of (@link CachedPath)s.
 	 */
-	public void buildRoot() throws ParserConfigurationException {
-		final DocumentBuilderFactory factoryDOM = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builderDOM;
-		builderDOM = factoryDOM.newDocumentBuilder();
-		document = builderDOM.newDocument();
-		cache = document.createElement(CacheConfiguration.CACHE);
-		cache.setAttribute(CacheConfiguration.PROJECT, ConfigurationOptions.getProjectName());
-		cache.setAttribute(CacheConfiguration.XML_VERSION, "1.0");
-		document.appendChild(cache);
+	public Collection getPaths() {
+		return paths.values();
 	}
 
 	/**
-	 * Returns the DOM object when building is complete.
+	 * Loads the cache through the (@link ICacheStore).
 	 * 
-	 * @return the DOM document.
+	 * @throws IOException
+	 *             problem reading the cache
+	 */
+	public void load() throws IOException {
+		if (cacheStore != null) {
+			cacheStore.load(this);
+		}
+	}
+
+	/**
+	 * Intermediary save through the (@link ICacheStore).
 	 */
-	public Document getDocument() {
-		return document;
+	public synchronized void save() {
+		if (cacheStore != null) {
+			cacheStore.save(this);
+		}
+	}
+
+	/**
+	 * Final save through the (@link ICacheStore). No other revision should
+	 * be added afterwards.
+	 */
+	public synchronized void close() {
+		if (cacheStore != null) {
+			cacheStore.close(this);
+		}
 	}
 
 	/**
-	 * Adds a revision to the DOM.
+	 * Adds a revision to the cache.
 	 * 
 	 * Encapsulates calls to (@link #buildRoot()), (@link #buildPath(String)),
 	 * and (@link #buildRevision(String, String, String)) into one easy to use
@@ -232,79 +264,44 @@ public class CacheBuilder {
 	 */
 	public synchronized void newRevision(String name, final String number, final String added, final String removed, final boolean binaryStatus) {
 		name = repositoryFileManager.relativeToAbsolutePath(name);
-		checkDocument();
-		if (document != null) {
-			currentPath = findDOMPath(name);
-			if (currentPath == null) {
-				// changes currentPath to new one
-				addDOMPath(name, "0", CacheConfiguration.UNKNOWN);
-			}
-			String sBinaryStatus = CacheConfiguration.NOT_BINARY;
-			if (binaryStatus) {
-				sBinaryStatus = CacheConfiguration.BINARY;
-			}
-			addDOMRevision(number, added, removed, sBinaryStatus);
+		final int revision = parseRevision(number, name);
+		if (revision < 0) {
+			return;
 		}
-	}
-
-	private void checkDocument() {
-		if (document == null) {
-			try {
-				buildRoot();
-			} catch (final ParserConfigurationException e) {
-				document = null;
-			}
+		currentPath = findPath(name);
+		if (currentPath == null) {
+			// changes currentPath to new one
+			addPath(name, 0, CacheConfiguration.UNKNOWN);
+		}
+		final String sBinaryStatus = toBinaryStatus(binaryStatus);
+		currentPath.addRevision(revision, Integer.parseInt(added), Integer.parseInt(removed), sBinaryStatus);
+		if (cacheStore != null) {
+			cacheStore.revisionAdded(name, number, added, removed, sBinaryStatus);
 		}
 	}
 
 	/**
-	 * Updates all paths in the DOM structure with the latest binary status
+	 * Updates all paths in the cache with the latest binary status
 	 * information from the working folder.
 	 * 
-	 * @param name
-	 *            the filename
-	 * @param number
-	 *            the revision number
-	 * @param added
-	 *            the number of lines added
-	 * @param removed
-	 *            the number of lines removed
+	 * @param fileBuilders
+	 *            the (@link FileBuilder)s
+	 * @param revisionNumber
+	 *            the revision number for which the binary status is valid
 	 */
-	public void updateBinaryStatus(final Collection fileBuilders, final String revisionNumber) {
-		// change data structure to a more appropriate one for lookup
-		final Map mFileBuilders = new HashMap();
+	public synchronized void updateBinaryStatus(final Collection fileBuilders, final String revisionNumber) {
+		final int revision = parseRevision(revisionNumber, "working copy");
 		for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
 			final FileBuilder fileBuilder = (FileBuilder) iter.next();
-			mFileBuilders.put(fileBuilder.getName(), fileBuilder);
-		}
-		if (!mFileBuilders.isEmpty()) {
-			// go through all the paths in the DOM and update their binary
-			// status
-			// remove the fileBuilder once its corresponding path in the DOM was
-			// dealt with
-			checkDocument();
-			final NodeList paths = cache.getChildNodes();
-			for (int i = 0; i < paths.getLength(); i++) {
-				final Element path = (Element) paths.item(i);
-				if (mFileBuilders.containsKey(repositoryFileManager.absoluteToRelativePath(path.getAttribute(CacheConfiguration.NAME)))) {
-					final FileBuilder fileBuilder = (FileBuilder) mFileBuilders.get(repositoryFileManager.absoluteToRelativePath(path
-					        .getAttribute(CacheConfiguration.NAME)));
-					updateDOMPath(path, fileBuilder.isBinary(), revisionNumber);
-					mFileBuilders.remove(repositoryFileManager.absoluteToRelativePath(path.getAttribute(CacheConfiguration.NAME)));
-				}
-			}
-			// go through remaining fileBuilders and add them to the DOM
-			final Collection cFileBuilders = mFileBuilders.values();
-			for (final Iterator iter = cFileBuilders.iterator(); iter.hasNext();) {
-				final FileBuilder fileBuilder = (FileBuilder) iter.next();
-				String binaryStatus = CacheConfiguration.NOT_BINARY;
-				if (fileBuilder.isBinary()) {
-					binaryStatus = CacheConfiguration.BINARY;
-				}
-				addDOMPath(repositoryFileManager.relativeToAbsolutePath(fileBuilder.getName()), revisionNumber, binaryStatus);
+			final String name = repositoryFileManager.relativeToAbsolutePath(fileBuilder.getName());
+			final String binaryStatus = toBinaryStatus(fileBuilder.isBinary());
+			final CachedPath path = findPath(name);
+			if (path != null) {
+				path.updateBinaryStatus(revision, binaryStatus);
+			} else {
+				addPath(name, revision < 0 ? 0 : revision, binaryStatus);
 			}
 		}
-
 	}
 
 	/**
@@ -318,27 +315,11 @@ public class CacheBuilder {
 	 *         is lower or equal to the path's LATEST_REVISION
 	 */
 	public synchronized boolean isBinary(final String fileName, final String revisionNumber) {
-		int latestRevision = 0;
-		int revisionToCheck = -1;
-		checkDocument();
-		final Element path = findDOMPath(repositoryFileManager.relativeToAbsolutePath(fileName));
+		final CachedPath path = findPath(repositoryFileManager.relativeToAbsolutePath(fileName));
 		if (path == null) {
 			return false;
 		}
-		try {
-			latestRevision = Integer.parseInt(path.getAttribute(CacheConfiguration.LATEST_REVISION));
-			revisionToCheck = Integer.parseInt(revisionNumber);
-		} catch (final NumberFormatException e) {
-			SvnConfigurationOptions.getTaskLogger().log(
-			        "Ignoring invalid revision number " + revisionNumber + " for " + path.getAttribute(CacheConfiguration.NAME));
-			revisionToCheck = -1;
-		}
-		if (latestRevision >= revisionToCheck) {
-			final String binaryStatus = path.getAttribute(CacheConfiguration.BINARY_STATUS);
-			if (binaryStatus.equals(CacheConfiguration.BINARY)) {
-				return true;
-			}
-		}
-		return false;
+		final int revisionToCheck = parseRevision(revisionNumber, path.getName());
+		return path.getLatestRevision() >= revisionToCheck && CacheConfiguration.BINARY.equals(path.getBinaryStatus());
 	}
 }
@@ -0,0 +1,154 @@
+package net.sf.statsvn.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory representation of a path in the line count cache. Holds the
+ * binary status of the path's latest known revision and the line counts that
+ * were obtained for each of its revisions.
+ *
+ * Instances are indexed by name in (@link CacheBuilder) and written out by
+ * the (@link ICacheStore) in use.
+ */
+public class CachedPath {
+	private final String name;
+
+	private int latestRevision;
+
+	private String binaryStatus;
+
+	private final List revisions = new ArrayList();
+
+	/**
+	 * Creates a new cached path.
+	 *
+	 * @param name
+	 *            the absolute filename
+	 * @param latestRevision
+	 *            the latest revision of the file for which the binary status is
+	 *            known
+	 * @param binaryStatus
+	 *            binary status of latest revision
+	 */
+	public CachedPath(final String name, final int latestRevision, final String binaryStatus) {
+		this.name = name;
+		this.latestRevision = latestRevision;
+		this.binaryStatus = binaryStatus;
+	}
+
+	/**
+	 * @return the absolute filename
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the latest revision for which the binary status is known
+	 */
+	public int getLatestRevision() {
+		return latestRevision;
+	}
+
+	/**
+	 * @return one of (@link CacheConfiguration#BINARY), (@link
+	 *         CacheConfiguration#NOT_BINARY) or (@link
+	 *         CacheConfiguration#UNKNOWN)
+	 */
+	public String getBinaryStatus() {
+		return binaryStatus;
+	}
+
+	/**
+	 * Updates the binary status if the revisionNumber is higher or equal to the
+	 * current latest revision of the path.
+	 *
+	 * @param revisionNumber
+	 *            the revision number for which the binary status is valid
+	 * @param status
+	 *            the new binary status
+	 */
+	public void updateBinaryStatus(final int revisionNumber, final String status) {
+		if (revisionNumber >= latestRevision) {
+			latestRevision = revisionNumber;
+			binaryStatus = status;
+		}
+	}
+
+	/**
+	 * Adds the line counts of a revision to this path.
+	 *
+	 * @param number
+	 *            the revision number
+	 * @param added
+	 *            the number of lines that were added
+	 * @param removed
+	 *            the number of lines that were removed
+	 * @param status
+	 *            the binary status of the revision
+	 */
+	public void addRevision(final int number, final int added, final int removed, final String status) {
+		revisions.add(new Revision(number, added, removed, status));
+	}
+
+	/**
+	 * Returns <tt>true</tt> if line counts are known for the given revision.
+	 *
+	 * @param number
+	 *            the revision number
+	 * @return <tt>true</tt> if the revision was added to this path
+	 */
+	public boolean hasRevision(final int number) {
+		for (int i = 0; i < revisions.size(); i++) {
+			if (((Revision) revisions.get(i)).getNumber() == number) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the list of (@link CachedPath.Revision)s, in the order they were
+	 *         added.
+	 */
+	public List getRevisions() {
+		return revisions;
+	}
+
+	/**
+	 * Line counts of one revision of a cached path.
+	 */
+	public static final class Revision {
+		private final int number;
+
+		private final int added;
+
+		private final int removed;
+
+		private final String binaryStatus;
+
+		private Revision(final int number, final int added, final int removed, final String binaryStatus) {
+			this.number = number;
+			this.added = added;
+			this.removed = removed;
+			this.binaryStatus = binaryStatus;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public int getAdded() {
+			return added;
+		}
+
+		public int getRemoved() {
+			return removed;
+		}
+
+		public String getBinaryStatus() {
+			return binaryStatus;
+		}
+	}
+}
@@ -366,7 +366,7 @@ public class FileBuilder {
 	private SortedSet createSymbolicNamesCollection(final RevisionData revisionData) {
 		SortedSet symbolicNames = null;
 
-		final int currentRevision = getRevisionAsInt(revisionData.getRevisionNumber());
+		final int currentRevision = revisionData.getRevision();
 		SvnConfigurationOptions.getTaskLogger().log("\n" + name + " CURRENT REVISION = " + currentRevision + " Deleted " + revisionData.isDeletion());
 
 		if (revisions.isEmpty()) {
@@ -384,7 +384,7 @@ public class FileBuilder {
 
 			// go through the revisions for this file
 			// in order to find either the rev ON the tag or JUST BEFORE!
-			int previousRevisionForThisFile = getRevisionAsInt(((RevisionData) revisions.get(revisions.size() - 1)).getRevisionNumber());
+			int previousRevisionForThisFile = ((RevisionData) revisions.get(revisions.size() - 1)).getRevision();
 			int revisionToTag = -1;
 			for (final ListIterator it = revisions.listIterator(revisions.size()); it.hasPrevious();) {
 				final RevisionData data = (RevisionData) it.previous();
@@ -392,13 +392,13 @@ public class FileBuilder {
 				SvnConfigurationOptions.getTaskLogger().log(
 				        "File REV " + data.getRevisionNumber() + " =>" + data.getDate() + " vs " + tagRevision + " Deletion:" + data.isDeletion());
 
-				final int dataRev = getRevisionAsInt(data.getRevisionNumber());
+				final int dataRev = data.getRevision();
 
 				if (revisionData.isDeletion() && currentRevision < dataRev) {
 					// the file is deleted (revisionData.isDeletion) AND the
 					// currentRevision is BEFORE the current tag
 					// so we should not tag this.
-					previousRevisionForThisFile = getRevisionAsInt(data.getRevisionNumber());
+					previousRevisionForThisFile = data.getRevision();
 					continue;
 				} else if (dataRev == tagRevision) {
 					revisionToTag = tagRevision;
@@ -409,7 +409,7 @@ public class FileBuilder {
 					break;
 				}
 
-				previousRevisionForThisFile = getRevisionAsInt(data.getRevisionNumber());
+				previousRevisionForThisFile = data.getRevision();
 			}
 
 			// if the LAST revision for this fuke is before the TAG revision
@@ -0,0 +1,59 @@
+package net.sf.statsvn.input;
+
+import java.io.IOException;
+
+/**
+ * Persistence backend for the line count cache built by (@link CacheBuilder).
+ *
+ * The cache builder keeps all cached paths in memory, indexed by name. The
+ * store is responsible for loading them at startup, for recording the
+ * revisions that are added during the run and for writing the complete cache
+ * out once the run is over.
+ */
+public interface ICacheStore {
+
+	/**
+	 * Loads the persisted cache into the builder.
+	 *
+	 * @param cacheBuilder
+	 *            the builder to populate
+	 * @throws IOException
+	 *             problem reading the cache
+	 */
+	public abstract void load(CacheBuilder cacheBuilder) throws IOException;
+
+	/**
+	 * Records a revision that was added to the builder after it was loaded.
+	 * Invoked while the builder is locked.
+	 *
+	 * @param name
+	 *            the absolute filename
+	 * @param number
+	 *            the revision number
+	 * @param added
+	 *            the number of lines added
+	 * @param removed
+	 *            the number of lines removed
+	 * @param binaryStatus
+	 *            the binary status of the revision
+	 */
+	public abstract void revisionAdded(String name, String number, String added, String removed, String binaryStatus);
+
+	/**
+	 * Makes sure the work done so far survives a crash. Invoked periodically
+	 * during the diff phase, while the builder is locked.
+	 *
+	 * @param cacheBuilder
+	 *            the builder holding the cache
+	 */
+	public abstract void save(CacheBuilder cacheBuilder);
+
+	/**
+	 * Writes the complete cache in its compact form and releases any resource
+	 * held by the store.
+	 *
+	 * @param cacheBuilder
+	 *            the builder holding the cache
+	 */
+	public abstract void close(CacheBuilder cacheBuilder);
+}
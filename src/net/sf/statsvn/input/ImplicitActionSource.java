@@ -0,0 +1,128 @@
+package net.sf.statsvn.input;
+
+import java.util.List;
+
+/**
+ * A file seen by (@link SvnLogfileParser#verifyImplicitActions()) which may
+ * turn out to be a folder. The creations and deletions of a folder are
+ * implicit actions on everything it contains.
+ * 
+ * The actions a folder passes on are its own creations and deletions merged
+ * with the ones of its parent, computed once, when the first file inside the
+ * folder is visited. When both have an action with the same revision number,
+ * the outermost folder wins.
+ */
+class ImplicitActionSource {
+    private final String name;
+
+    private final FileBuilder fileBuilder;
+
+    private final ImplicitActionSource parent;
+
+    private Actions actions = null;
+
+    private boolean directory = false;
+
+    /**
+     * @param name
+     *            the filename
+     * @param fileBuilder
+     *            the builder of the file
+     * @param parent
+     *            the innermost folder containing the file, or <tt>null</tt>
+     */
+    ImplicitActionSource(final String name, final FileBuilder fileBuilder, final ImplicitActionSource parent) {
+        this.name = name;
+        this.fileBuilder = fileBuilder;
+        this.parent = parent;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if <tt>path</tt> is inside this folder.
+     */
+    boolean isParentOf(final String path) {
+        return path.length() > name.length() && path.charAt(name.length()) == '/' && path.startsWith(name);
+    }
+
+    boolean isDirectory() {
+        return directory;
+    }
+
+    void setDirectory() {
+        directory = true;
+    }
+
+    /**
+     * @return the actions to apply to the files inside this folder, ordered
+     *         by decreasing revision number.
+     */
+    Actions getActions() {
+        if (actions == null) {
+            final Actions inherited = parent != null ? parent.getActions() : Actions.EMPTY;
+            final List revisions = fileBuilder.getRevisions();
+            actions = new Actions(inherited.size() + revisions.size());
+            int i = 0;
+            for (int k = 0; k < revisions.size(); k++) {
+                final RevisionData data = (RevisionData) revisions.get(k);
+                // ignore modifications to folders
+                if (!data.isCreationOrRestore() && !data.isDeletion()) {
+                    continue;
+                }
+                final int revision = data.getRevision();
+                if (revision == LogEntryData.NO_REVISION) {
+                    continue;
+                }
+                for (; i < inherited.size() && inherited.getRevision(i) >= revision; i++) {
+                    actions.add(inherited.getRevision(i), inherited.getData(i));
+                }
+                if (actions.size() == 0 || actions.getRevision(actions.size() - 1) != revision) {
+                    actions.add(revision, data);
+                }
+            }
+            for (; i < inherited.size(); i++) {
+                actions.add(inherited.getRevision(i), inherited.getData(i));
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Creations and deletions ordered by decreasing revision number.
+     */
+    static final class Actions {
+        private static final Actions EMPTY = new Actions(0);
+
+        private final int[] revisions;
+
+        private final RevisionData[] data;
+
+        private int size = 0;
+
+        private Actions(final int capacity) {
+            revisions = new int[capacity];
+            data = new RevisionData[capacity];
+        }
+
+        private void add(final int revision, final RevisionData revisionData) {
+            revisions[size] = revision;
+            data[size] = revisionData;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getRevision(final int i) {
+            return revisions[i];
+        }
+
+        RevisionData getData(final int i) {
+            return data[i];
+        }
+    }
+}
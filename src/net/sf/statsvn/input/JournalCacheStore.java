@@ -0,0 +1,212 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+/**
+ * Cache store which keeps the cache xml file as a compacted snapshot and
+ * appends every revision obtained during the run to a journal next to it.
+ *
+ * Saving during the diff phase only flushes the journal, so its cost no
+ * longer grows with the size of the history. When the run is over, the
+ * snapshot is rewritten once and the journal is deleted. If a run is
+ * interrupted, the journal is replayed on top of the snapshot the next time.
+ *
+ * Each journal line holds one revision as tab-separated fields: name, number,
+ * lines added, lines removed and binary status.
+ */
+public class JournalCacheStore extends XmlCacheStore {
+	private static final String JOURNAL_EXTENSION = ".journal";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final int NUMBER_FIELDS = 5;
+
+	private Writer journal = null;
+
+	/**
+	 * @param cacheFileName
+	 *            the cache xml file
+	 */
+	public JournalCacheStore(final String cacheFileName) {
+		super(cacheFileName);
+	}
+
+	/**
+	 * @return the journal file
+	 */
+	public File getJournalFile() {
+		return new File(getCacheFileName() + JOURNAL_EXTENSION);
+	}
+
+	/**
+	 * Loads the snapshot and replays the journal of an interrupted run, if
+	 * any.
+	 */
+	public void load(final CacheBuilder cacheBuilder) throws IOException {
+		super.load(cacheBuilder);
+
+		final File journalFile = getJournalFile();
+		if (!journalFile.exists()) {
+			return;
+		}
+		int replayed = 0;
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), ENCODING));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = split(line);
+				if (fields == null) {
+					// most likely the last line of an interrupted write
+					SvnConfigurationOptions.getTaskLogger().log("Cache: ignoring journal entry [" + line + "]");
+					continue;
+				}
+				cacheBuilder.restoreRevision(fields[0], fields[1], fields[2], fields[3], fields[4]);
+				replayed++;
+			}
+		} finally {
+			reader.close();
+		}
+		SvnConfigurationOptions.getTaskLogger().log("Cache: replayed " + replayed + " revisions from " + journalFile);
+	}
+
+	/**
+	 * Appends the revision to the journal.
+	 */
+	public void revisionAdded(final String name, final String number, final String added, final String removed, final String binaryStatus) {
+		try {
+			if (journal == null) {
+				journal = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getJournalFile(), true), ENCODING));
+			}
+			journal.write(escape(name));
+			journal.write('\t');
+			journal.write(number);
+			journal.write('\t');
+			journal.write(added);
+			journal.write('\t');
+			journal.write(removed);
+			journal.write('\t');
+			journal.write(binaryStatus);
+			journal.write('\n');
+		} catch (final IOException e) {
+			SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+		}
+	}
+
+	/**
+	 * Flushes the journal to disk.
+	 */
+	public void save(final CacheBuilder cacheBuilder) {
+		if (journal != null) {
+			try {
+				journal.flush();
+			} catch (final IOException e) {
+				SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+			}
+		}
+	}
+
+	/**
+	 * Compacts the journal into the snapshot and deletes it.
+	 */
+	public void close(final CacheBuilder cacheBuilder) {
+		save(cacheBuilder);
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (final IOException e) {
+				SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+			}
+			journal = null;
+		}
+		// only drop the journal once its content is safely in the snapshot.
+		if (writeXmlFile(cacheBuilder) && getJournalFile().exists() && !getJournalFile().delete()) {
+			SvnConfigurationOptions.getTaskLogger().error("Cache: unable to delete " + getJournalFile());
+		}
+	}
+
+	/**
+	 * Splits a journal line into its fields.
+	 *
+	 * @param line
+	 *            the journal line
+	 * @return the fields or <tt>null</tt> if the line is incomplete
+	 */
+	private static String[] split(final String line) {
+		final String[] fields = new String[NUMBER_FIELDS];
+		int start = 0;
+		for (int i = 0; i < NUMBER_FIELDS - 1; i++) {
+			final int tab = line.indexOf('\t', start);
+			if (tab < 0) {
+				return null;
+			}
+			fields[i] = line.substring(start, tab);
+			start = tab + 1;
+		}
+		fields[NUMBER_FIELDS - 1] = line.substring(start);
+		if (fields[NUMBER_FIELDS - 1].length() == 0 || fields[NUMBER_FIELDS - 1].indexOf('\t') >= 0) {
+			return null;
+		}
+		fields[0] = unescape(fields[0]);
+		return fields;
+	}
+
+	/**
+	 * Escapes the characters used as separators in the journal.
+	 */
+	private static String escape(final String name) {
+		if (name.indexOf('\\') < 0 && name.indexOf('\t') < 0 && name.indexOf('\n') < 0 && name.indexOf('\r') < 0) {
+			return name;
+		}
+		final StringBuffer sb = new StringBuffer(name.length() + 8);
+		for (int i = 0; i < name.length(); i++) {
+			final char c = name.charAt(i);
+			if (c == '\\') {
+				sb.append("\\\\");
+			} else if (c == '\t') {
+				sb.append("\\t");
+			} else if (c == '\n') {
+				sb.append("\\n");
+			} else if (c == '\r') {
+				sb.append("\\r");
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reverses (@link #escape(String)).
+	 */
+	private static String unescape(final String name) {
+		if (name.indexOf('\\') < 0) {
+			return name;
+		}
+		final StringBuffer sb = new StringBuffer(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c == '\\' && i + 1 < name.length()) {
+				c = name.charAt(++i);
+				if (c == 't') {
+					c = '\t';
+				} else if (c == 'n') {
+					c = '\n';
+				} else if (c == 'r') {
+					c = '\r';
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+}
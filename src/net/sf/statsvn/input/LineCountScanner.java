@@ -0,0 +1,187 @@
+package net.sf.statsvn.input;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.sf.statcvs.util.FileUtils;
+import net.sf.statcvs.util.Metrics;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.TimeUnit;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the lines of many working copy files at once, on a pool of
+ * threads, ahead of (@link RepositoryFileManager#getLinesOfCode(String)).
+ * 
+ * Lines are counted on the raw bytes, without decoding them: large files are
+ * memory-mapped, small ones are read into a direct buffer. They are counted
+ * the same way (@link java.io.BufferedReader#readLine()) reads them: lines
+ * are terminated by '\n', '\r' or "\r\n" and a last line without terminator
+ * counts. This holds for any charset in which these characters are single
+ * bytes, which is the case of the charsets svn working copies are usually
+ * in.
+ */
+public class LineCountScanner {
+	private static final int MAP_THRESHOLD = 256 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal BUFFERS = new ThreadLocal() {
+		protected Object initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+
+	private final String path;
+
+	private final Map lineCounts = new ConcurrentHashMap();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	/**
+	 * @param path
+	 *            the root of the checked out repository
+	 */
+	public LineCountScanner(final String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Counts the lines of the given files. Files that cannot be read are left
+	 * out of the result.
+	 * 
+	 * @param filenames
+	 *            the files, relative to the root of the checked out repository
+	 * @return the number of lines (Integer) by filename (String)
+	 */
+	public Map scan(final Collection filenames) {
+		final Metrics.Timing timing = Metrics.startTimer("workingCopy.lineCount");
+		final int threads = Math.max(1, Math.min(filenames.size(), SvnConfigurationOptions.getNumberLineCountThreads()));
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (final Iterator it = filenames.iterator(); it.hasNext();) {
+			final String filename = (String) it.next();
+			pool.execute(new Runnable() {
+				public void run() {
+					count(filename);
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				SvnConfigurationOptions.getTaskLogger().log("counting lines: " + lineCounts.size() + " of " + filenames.size() + " files done");
+			}
+		} catch (final InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		final long elapsed = timing.stop();
+		Metrics.count("workingCopy.bytesRead", bytes.get());
+		SvnConfigurationOptions.getTaskLogger().log(
+		        "counted the lines of " + lineCounts.size() + " of " + filenames.size() + " files (" + bytes.get() + " bytes) on " + threads + " threads in "
+		                + elapsed + " ms.");
+		return lineCounts;
+	}
+
+	private void count(final String filename) {
+		final File file = new File(FileUtils.getAbsoluteName(path, filename));
+		try {
+			lineCounts.put(filename, Integer.valueOf(countLines(file)));
+			bytes.addAndGet(file.length());
+		} catch (final IOException e) {
+			// getLinesOfCode will try again and report it, if it matters.
+			return;
+		}
+	}
+
+	/**
+	 * Counts the lines of a file.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the number of lines
+	 * @throws IOException
+	 *             problem reading the file
+	 */
+	public static int countLines(final File file) throws IOException {
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			final long size = channel.size();
+			final Counter counter = new Counter();
+			if (size >= MAP_THRESHOLD) {
+				long position = 0;
+				while (position < size) {
+					final long length = Math.min(Integer.MAX_VALUE, size - position);
+					final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+					counter.count(mapped);
+					position += length;
+				}
+			} else {
+				final ByteBuffer buffer = (ByteBuffer) BUFFERS.get();
+				buffer.clear();
+				while (channel.read(buffer) != -1) {
+					buffer.flip();
+					counter.count(buffer);
+					buffer.clear();
+				}
+			}
+			return counter.getLines();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Counts line terminators over consecutive buffers.
+	 */
+	private static final class Counter {
+		private int lines = 0;
+
+		private boolean previousWasCarriageReturn = false;
+
+		private boolean lineStarted = false;
+
+		private void count(final ByteBuffer buffer) {
+			int count = lines;
+			boolean afterCarriageReturn = previousWasCarriageReturn;
+			boolean started = lineStarted;
+			final int limit = buffer.limit();
+			for (int i = buffer.position(); i < limit; i++) {
+				final byte b = buffer.get(i);
+				if (b == '\n') {
+					if (!afterCarriageReturn) {
+						count++;
+					}
+					afterCarriageReturn = false;
+					started = false;
+				} else if (b == '\r') {
+					count++;
+					afterCarriageReturn = true;
+					started = false;
+				} else {
+					afterCarriageReturn = false;
+					started = true;
+				}
+			}
+			buffer.position(limit);
+			lines = count;
+			previousWasCarriageReturn = afterCarriageReturn;
+			lineStarted = started;
+		}
+
+		private int getLines() {
+			return lineStarted ? lines + 1 : lines;
+		}
+	}
+}
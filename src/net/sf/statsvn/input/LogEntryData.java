@@ -0,0 +1,124 @@
+package net.sf.statsvn.input;
+
+import java.util.Date;
+
+/**
+ * What a log entry has in common for all of its paths: the revision, date,
+ * author and comment. A single instance is shared by the (@link RevisionData)
+ * of every path changed in the log entry, so that a commit touching many
+ * files does not duplicate them per path.
+ * 
+ * The revision is kept both as parsed from the log and as an int, and the
+ * date as a long, so that neither needs to be parsed or copied again.
+ * 
+ * Instances are filled by the log parser and must be treated as read-only
+ * once they are shared: (@link RevisionData) copies them before modifying
+ * them.
+ */
+public final class LogEntryData {
+	/** The revision of log entries that have no numerical revision. */
+	public static final int NO_REVISION = -1;
+
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	private String revisionNumber;
+
+	private int revision;
+
+	private long date = NO_DATE;
+
+	private String loginName;
+
+	private String comment = "";
+
+	/**
+	 * @param revisionNumber
+	 *            the revision, as found in the log
+	 */
+	public LogEntryData(final String revisionNumber) {
+		setRevisionNumber(revisionNumber);
+	}
+
+	/**
+	 * @return a modifiable copy of this log entry.
+	 */
+	LogEntryData copy() {
+		final LogEntryData copy = new LogEntryData(revisionNumber);
+		copy.date = date;
+		copy.loginName = loginName;
+		copy.comment = comment;
+		return copy;
+	}
+
+	/**
+	 * @return the revision, as found in the log.
+	 */
+	public String getRevisionNumber() {
+		return revisionNumber;
+	}
+
+	/**
+	 * @return the revision or (@link #NO_REVISION) if it is not a number.
+	 */
+	public int getRevision() {
+		return revision;
+	}
+
+	void setRevisionNumber(final String revisionNumber) {
+		this.revisionNumber = revisionNumber;
+		int parsed = NO_REVISION;
+		if (revisionNumber != null) {
+			try {
+				parsed = Integer.parseInt(revisionNumber);
+			} catch (final NumberFormatException e) {
+				parsed = NO_REVISION;
+			}
+		}
+		this.revision = parsed;
+	}
+
+	/**
+	 * @return the date of the log entry or <tt>null</tt> if it has none.
+	 */
+	public Date getDate() {
+		return date != NO_DATE ? new Date(date) : null;
+	}
+
+	void setDate(final Date date) {
+		this.date = date != null ? date.getTime() : NO_DATE;
+	}
+
+	/**
+	 * @return the author of the log entry.
+	 */
+	public String getLoginName() {
+		return loginName;
+	}
+
+	void setLoginName(final String loginName) {
+		this.loginName = loginName;
+	}
+
+	/**
+	 * @return the comment of the log entry.
+	 */
+	public String getComment() {
+		return comment;
+	}
+
+	void setComment(final String comment) {
+		this.comment = comment;
+	}
+
+	/**
+	 * @return <tt>true</tt> if both log entries hold the same information.
+	 */
+	boolean isSameAs(final LogEntryData other) {
+		return other != null && date == other.date && equal(revisionNumber, other.revisionNumber) && equal(loginName, other.loginName)
+		        && equal(comment, other.comment);
+	}
+
+	private static boolean equal(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
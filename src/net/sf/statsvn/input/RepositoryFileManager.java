@@ -23,8 +23,12 @@
 package net.sf.statsvn.input;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Vector;
 
 import net.sf.statcvs.input.LogSyntaxException;
@@ -56,6 +60,9 @@ import net.sf.statsvn.util.ISvnVersionProcessor;
 public class RepositoryFileManager {
 	private final String path;
 
+	// filled by (@link #countLinesOfCode(Collection)).
+	private Map lineCounts = Collections.EMPTY_MAP;
+
 	/**
 	 * Creates a new instance with root at <code>pathName</code>.
 	 * 
@@ -169,9 +176,29 @@ public class RepositoryFileManager {
 		return getDiffProcessor().getLineDiff(newRevNr);
 	}
 
+	/**
+	 * Releases what the diff processor holds, once all the diffs are done.
+	 */
+	public void closeDiffs() {
+		getDiffProcessor().close();
+	}
+
+	/**
+	 * Counts the lines of code of many repository files at once, in parallel.
+	 * (@link #getLinesOfCode(String)) then answers from the result for these
+	 * files.
+	 * 
+	 * @param filenames
+	 *            files in the repository
+	 */
+	public void countLinesOfCode(final Collection filenames) {
+		lineCounts = new LineCountScanner(path).scan(filenames);
+	}
+
 	/**
 	 * Returns the lines of code for a repository file. (Currently checked out
-	 * version)
+	 * version) Files counted by (@link #countLinesOfCode(Collection)) are not
+	 * read again.
 	 * 
 	 * @param filename
 	 *            a file in the repository
@@ -181,6 +208,10 @@ public class RepositoryFileManager {
 	 *             the file was not found.
 	 */
 	public int getLinesOfCode(final String filename) throws NoLineCountException {
+		final Integer counted = (Integer) lineCounts.get(filename);
+		if (counted != null) {
+			return counted.intValue();
+		}
 		final String absoluteName = FileUtils.getAbsoluteName(this.path, filename);
 		try {
 			final FileReader freader = new FileReader(absoluteName);
@@ -194,6 +225,17 @@ public class RepositoryFileManager {
 		}
 	}
 
+	/**
+	 * Returns the size of a repository file in the working copy.
+	 * 
+	 * @param filename
+	 *            a file in the repository
+	 * @return the size in bytes, or 0 if the file is not in the working copy.
+	 */
+	public long getFileSize(final String filename) {
+		return new File(FileUtils.getAbsoluteName(this.path, filename)).length();
+	}
+
 	/**
 	 * Assumes #loadInfo(String) has been called. Never ends with /, might be
 	 * empty.
@@ -251,7 +293,7 @@ public class RepositoryFileManager {
 	 * @return true if it is marked as a binary file
 	 */
 	public boolean isBinary(final String relativePath) {
-		return getPropgetProcessor().getBinaryFiles().contains(relativePath);
+		return getPropgetProcessor().isBinary(relativePath);
 	}
 
 	/**
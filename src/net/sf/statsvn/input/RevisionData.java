@@ -25,7 +25,12 @@ package net.sf.statsvn.input;
 import java.util.Date;
 
 /**
- * Container for all information contained in one SVN revision.
+ * Container for all information contained in one SVN revision of a file.
+ * 
+ * The revision number, date, author and comment belong to the log entry and
+ * are held by a (@link LogEntryData) shared by all the paths of the entry.
+ * Setting one of them on a revision gives it its own copy of the log entry;
+ * the copy is made once, later changes are made in place.
  * 
  * @author Richard Cyganiak <richard@cyganiak.de> *
  * @author Gunter Mussbacher <gunterm@site.uottawa.ca>
@@ -34,11 +39,10 @@ import java.util.Date;
  * @version $Id: RevisionData.java 351 2008-03-28 18:46:26Z benoitx $
  */
 public class RevisionData {
-	private String revisionNumber;
-
-	private Date date;
+	private LogEntryData logEntry;
 
-	private String loginName;
+	// whether logEntry belongs to this revision alone.
+	private boolean ownsLogEntry;
 
 	private boolean stateExp = false;
 
@@ -52,20 +56,51 @@ public class RevisionData {
 
 	private int linesRemoved;
 
-	private String comment = "";
-
 	private String copyfromPath;
 
 	private String copyfromRevision;
 
 	public RevisionData() {
+		this(new LogEntryData(null));
+		ownsLogEntry = true;
+	}
+
+	/**
+	 * Creates the revision of a path changed in a log entry.
+	 * 
+	 * @param logEntry
+	 *            the log entry, shared by all of its paths
+	 */
+	public RevisionData(final LogEntryData logEntry) {
+		this.logEntry = logEntry;
+	}
+
+	/**
+	 * @return the log entry of this revision.
+	 */
+	public LogEntryData getLogEntry() {
+		return logEntry;
+	}
+
+	/**
+	 * Gives this revision its own copy of the log entry, before modifying it,
+	 * unless it already has one.
+	 * 
+	 * @return the log entry of this revision alone
+	 */
+	private LogEntryData ownLogEntry() {
+		if (!ownsLogEntry) {
+			logEntry = logEntry.copy();
+			ownsLogEntry = true;
+		}
+		return logEntry;
 	}
 
 	/**
 	 * @return Returns the loginName.
 	 */
 	public String getLoginName() {
-		return loginName;
+		return logEntry.getLoginName();
 	}
 
 	/**
@@ -73,14 +108,14 @@ public class RevisionData {
 	 *            The loginName to set.
 	 */
 	public void setLoginName(final String authorName) {
-		this.loginName = authorName;
+		ownLogEntry().setLoginName(authorName);
 	}
 
 	/**
 	 * @return Returns the date.
 	 */
 	public Date getDate() {
-		return date != null ? new Date(date.getTime()) : null;
+		return logEntry.getDate();
 	}
 
 	/**
@@ -88,11 +123,7 @@ public class RevisionData {
 	 *            The date to set.
 	 */
 	public void setDate(final Date date) {
-		if (date != null) {
-			this.date = new Date(date.getTime());
-		} else {
-			this.date = null;
-		}
+		ownLogEntry().setDate(date);
 	}
 
 	/**
@@ -136,7 +167,15 @@ public class RevisionData {
 	 * @return Returns the revisionNumber.
 	 */
 	public String getRevisionNumber() {
-		return revisionNumber;
+		return logEntry.getRevisionNumber();
+	}
+
+	/**
+	 * @return the revision number as an int, or (@link
+	 *         LogEntryData#NO_REVISION) if it is not a number.
+	 */
+	public int getRevision() {
+		return logEntry.getRevision();
 	}
 
 	/**
@@ -146,7 +185,7 @@ public class RevisionData {
 	 *            The revision number
 	 */
 	public void setRevisionNumber(final String revision) {
-		this.revisionNumber = revision;
+		ownLogEntry().setRevisionNumber(revision);
 	}
 
 	/**
@@ -187,7 +226,7 @@ public class RevisionData {
 	 * @return Returns the comment.
 	 */
 	public String getComment() {
-		return comment;
+		return logEntry.getComment();
 	}
 
 	/**
@@ -195,7 +234,7 @@ public class RevisionData {
 	 *            The comment to set.
 	 */
 	public void setComment(final String comment) {
-		this.comment = comment;
+		ownLogEntry().setComment(comment);
 	}
 
 	/**
@@ -254,32 +293,37 @@ public class RevisionData {
 		return stateDead;
 	}
 
+	/**
+	 * Returns <tt>true</tt> if this revisionNumber added or replaced the file.
+	 * 
+	 * @return <tt>true</tt> if this is an addition revisionNumber
+	 */
+	public boolean isStateAdded() {
+		return stateAdded;
+	}
+
 	/**
 	 * Returns the current revision data in string format.
 	 */
 	public String toString() {
-		return "RevisionData " + revisionNumber;
+		return "RevisionData " + getRevisionNumber();
 	}
 
 	/**
-	 * Returns a new instance of the RevisionData, with the same fields as the current one.
+	 * Returns a new instance of the RevisionData, with the same fields as the current one. The log entry is shared.
 	 * 
 	 * @return the clone
 	 */
 	public RevisionData createCopy() {
-		final RevisionData copy = new RevisionData(revisionNumber, date, stateExp, stateDead, stateAdded, hasNoLines, linesAdded, linesRemoved);
-		copy.setComment(comment);
-		copy.setLoginName(loginName);
-		return copy;
+		ownsLogEntry = false;
+		return new RevisionData(logEntry, stateExp, stateDead, stateAdded, hasNoLines, linesAdded, linesRemoved);
 	}
 
 	/**
 	 * Private constructor used by (@link #clone())
 	 * 
-	 * @param revisionNumber
-	 *            the revision number
-	 * @param date
-	 *            the revision date
+	 * @param logEntry
+	 *            the log entry
 	 * @param stateExp
 	 *            if this were the current revision, would the file still be live (not-dead)
 	 * @param stateDead
@@ -293,11 +337,10 @@ public class RevisionData {
 	 * @param linesRemoved
 	 *            number of lines removed
 	 */
-	private RevisionData(final String revisionNumber, final Date date, final boolean stateExp, final boolean stateDead, final boolean stateAdded,
+	private RevisionData(final LogEntryData logEntry, final boolean stateExp, final boolean stateDead, final boolean stateAdded,
 	        final boolean hasNoLines, final int linesAdded, final int linesRemoved) {
 		super();
-		this.revisionNumber = revisionNumber;
-		this.date = date;
+		this.logEntry = logEntry;
 		this.stateExp = stateExp;
 		this.stateDead = stateDead;
 		this.hasNoLines = hasNoLines;
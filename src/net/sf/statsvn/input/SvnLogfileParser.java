@@ -30,6 +30,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -43,9 +44,11 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import net.sf.statcvs.input.LogSyntaxException;
+import net.sf.statcvs.util.Metrics;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.BinaryDiffException;
 import net.sf.statsvn.util.FilenameComparator;
+import net.sf.statsvn.util.ProcessUtils;
 import net.sf.statsvn.util.SvnDiffUtils;
 import net.sf.statsvn.util.XMLUtil;
 
@@ -69,6 +72,9 @@ public class SvnLogfileParser {
 
     private static final String REPOSITORIES_XML = "repositories.xml";
 
+    // what a changed path costs to diff, whatever its size, in bytes.
+    private static final long PATH_COST = 4096;
+
     private final SvnLogBuilder builder;
 
     private final InputStream logFile;
@@ -77,7 +83,11 @@ public class SvnLogfileParser {
 
     private CacheBuilder cacheBuilder;
 
-    private HashSet revsForNewDiff = null;
+    // estimated cost (Long) of each revision to diff, by revision.
+    private HashMap revsForNewDiff = null;
+
+    // size (Long) of the working copy files, by filename.
+    private final HashMap fileSizes = new HashMap();
 
     /**
      * Default Constructor
@@ -99,7 +109,7 @@ public class SvnLogfileParser {
      * Because the log file does not contain the lines added or removed in a
      * commit, and because the logfile contains implicit actions (@link
      * #verifyImplicitActions()), we must query the repository for line
-     * differences. This method uses the (@link LineCountsBuilder) to load the
+     * differences. This method uses the (@link CacheBuilder) to load the
      * persisted information and (@link SvnDiffUtils) to find new information.
      * 
      * @param factory
@@ -107,23 +117,27 @@ public class SvnLogfileParser {
      * @throws IOException
      */
     protected void handleLineCounts(final SAXParserFactory factory) throws IOException {
-        long startTime = System.currentTimeMillis();
+        final Metrics.Timing lineCounts = Metrics.startPhase("lineCounts");
+        Metrics.Timing phase = Metrics.startPhase("lineCounts.repositories");
         final String xmlFile = SvnConfigurationOptions.getCacheDir() + REPOSITORIES_XML;
 
         final RepositoriesBuilder repositoriesBuilder = readAndParseXmlFile(factory, xmlFile);
         cacheFileName = SvnConfigurationOptions.getCacheDir() + repositoriesBuilder.getFileName(repositoryFileManager.getRepositoryUuid());
         XMLUtil.writeXmlFile(repositoriesBuilder.getDocument(), xmlFile);
-        SvnConfigurationOptions.getTaskLogger().log("parsing repositories finished in " + (System.currentTimeMillis() - startTime) + " ms.");
-        startTime = System.currentTimeMillis();
+        SvnConfigurationOptions.getTaskLogger().log("parsing repositories finished in " + phase.stop() + " ms.");
 
-        readCache(factory);
-        SvnConfigurationOptions.getTaskLogger().log("parsing line counts finished in " + (System.currentTimeMillis() - startTime) + " ms.");
-        startTime = System.currentTimeMillis();
+        phase = Metrics.startPhase("cache.load");
+        readCache();
+        SvnConfigurationOptions.getTaskLogger().log("parsing line counts finished in " + phase.stop() + " ms.");
+        final long startTime = System.currentTimeMillis();
 
         // update the cache xml file with the latest binary status information
         // from the working copy
+        phase = Metrics.startPhase("lineCounts.binaryStatus");
         cacheBuilder.updateBinaryStatus(builder.getFileBuilders().values(), repositoryFileManager.getRootRevisionNumber());
+        phase.stop();
 
+        phase = Metrics.startPhase("diff.schedule");
         final Collection fileBuilders = builder.getFileBuilders().values();
 
         calculateNumberRequiredCalls(fileBuilders);
@@ -137,7 +151,7 @@ public class SvnLogfileParser {
         boolean isFirstDiff = true;
         calls = 0;
         groupStart = System.currentTimeMillis();
-        boolean poolUseRequired = false;
+        final List tasks = new ArrayList();
 
         if (SvnConfigurationOptions.isLegacyDiff()) {
             for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
@@ -185,40 +199,60 @@ public class SvnLogfileParser {
                         }
 
                         final DiffTask diff = new DiffTask(fileName, revNrNew, revNrOld, fileBuilder);
-
-                        // SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName()
-                        // + " Schedule task for " + fileName + " rev:" +
-                        // revNrNew);
-
-                        poolUseRequired = executeTask(poolService, poolUseRequired, diff);
+                        diff.setCost(estimateCost(fileName));
+                        tasks.add(diff);
                     }
                 }
             }
         } else {
-            for (final Iterator iter = revsForNewDiff.iterator(); iter.hasNext();) {
-                final String revNrNew = (String) iter.next();
-                final PerRevDiffTask diff = new PerRevDiffTask(revNrNew, builder.getFileBuilders());
-
-                poolUseRequired = executeTask(poolService, poolUseRequired, diff);
+            for (final Iterator iter = revsForNewDiff.entrySet().iterator(); iter.hasNext();) {
+                final Map.Entry entry = (Map.Entry) iter.next();
+                final PerRevDiffTask diff = new PerRevDiffTask((String) entry.getKey(), builder.getFileBuilders());
+                diff.setCost(((Long) entry.getValue()).longValue());
+                tasks.add(diff);
             }
-
         }
+
+        // largest first, so that no large diff is left for the end while the
+        // other threads are idle. the pool threads take the next task as soon
+        // as they are done.
+        Collections.sort(tasks, new DiffCostComparator());
+        phase.stop();
+        Metrics.count("diff.tasks", tasks.size());
+
+        phase = Metrics.startPhase("diff");
+        executeTasks(poolService, tasks);
         waitForPoolIfRequired(poolService);
+        repositoryFileManager.closeDiffs();
+        phase.stop();
+        SvnConfigurationOptions.getTaskLogger().info("svn processes: " + ProcessUtils.getStatistics());
         SvnConfigurationOptions.getTaskLogger().log("parsing svn diff");
-        XMLUtil.writeXmlFile(cacheBuilder.getDocument(), cacheFileName);
+        phase = Metrics.startPhase("cache.save");
+        cacheBuilder.close();
+        phase.stop();
+        lineCounts.stop();
         SvnConfigurationOptions.getTaskLogger().log("parsing svn diff finished in " + (System.currentTimeMillis() - startTime) + " ms.");
     }
 
-    private boolean executeTask(final ExecutorService poolService, boolean poolUseRequired, final DiffTask diff) {
-        if (poolUseRequired && SvnConfigurationOptions.getNumberSvnDiffThreads() > 1) {
-            poolService.execute(diff);
-        } else {
+    /**
+     * Runs the diff tasks, sorted largest first, on this thread until one of
+     * them takes longer than the concurrency threshold; the tasks after it
+     * are then all submitted to the pool, if there is one.
+     */
+    private void executeTasks(final ExecutorService poolService, final List tasks) {
+        final Iterator iter = tasks.iterator();
+        while (iter.hasNext()) {
+            final DiffTask diff = (DiffTask) iter.next();
             final long start = System.currentTimeMillis();
             diff.run();
             final long end = System.currentTimeMillis();
-            poolUseRequired = (end - start) > SvnConfigurationOptions.getThresholdInMsToUseConcurrency();
+            if (poolService != null && (end - start) > SvnConfigurationOptions.getThresholdInMsToUseConcurrency()) {
+                break;
+            }
+        }
+        while (iter.hasNext()) {
+            poolService.execute((DiffTask) iter.next());
         }
-        return poolUseRequired;
     }
 
     private void waitForPoolIfRequired(final ExecutorService poolService) {
@@ -243,7 +277,7 @@ public class SvnLogfileParser {
         requiredDiffCalls = 0;
 
         if (!SvnConfigurationOptions.isLegacyDiff()) {
-            revsForNewDiff = new HashSet();
+            revsForNewDiff = new HashMap();
         }
 
         for (final Iterator iter = fileBuilders.iterator(); iter.hasNext();) {
@@ -262,12 +296,15 @@ public class SvnLogfileParser {
                         }
                         // count if legacy diff or this rev wasn't already
                         // counted.
-                        if (revsForNewDiff == null || !revsForNewDiff.contains(revNrNew)) {
+                        if (revsForNewDiff == null) {
                             requiredDiffCalls++;
-
-                            if (revsForNewDiff != null) {
-                                revsForNewDiff.add(revNrNew);
+                        } else {
+                            final Long cost = (Long) revsForNewDiff.get(revNrNew);
+                            if (cost == null) {
+                                requiredDiffCalls++;
                             }
+                            // the diff of a revision costs as much as the diffs of its files.
+                            revsForNewDiff.put(revNrNew, Long.valueOf((cost != null ? cost.longValue() : 0) + estimateCost(fileName)));
                         }
                     }
                 }
@@ -276,27 +313,32 @@ public class SvnLogfileParser {
         // END Calculate the number of required calls...
     }
 
-    private void readCache(final SAXParserFactory factory) throws IOException {
-        cacheBuilder = new CacheBuilder(builder, repositoryFileManager);
-        FileInputStream cacheFile = null;
-        try {
-            cacheFile = new FileInputStream(cacheFileName);
-            final SAXParser parser = factory.newSAXParser();
-            parser.parse(cacheFile, new SvnXmlCacheFileHandler(cacheBuilder));
-            cacheFile.close();
-        } catch (final ParserConfigurationException e) {
-            SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
-        } catch (final SAXException e) {
-            SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
-        } catch (final FileNotFoundException e) {
-            SvnConfigurationOptions.getTaskLogger().log("Cache: " + e.toString());
-        } catch (final IOException e) {
-            SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
-        } finally {
-            if (cacheFile != null) {
-                cacheFile.close();
-            }
+    /**
+     * Estimates the cost of diffing a revision of a file: a fixed cost for
+     * the path, plus its size in the working copy.
+     * 
+     * @param fileName
+     *            the file
+     * @return the estimated cost, in bytes
+     */
+    private long estimateCost(final String fileName) {
+        Long size = (Long) fileSizes.get(fileName);
+        if (size == null) {
+            size = Long.valueOf(repositoryFileManager.getFileSize(fileName));
+            fileSizes.put(fileName, size);
         }
+        return PATH_COST + size.longValue();
+    }
+
+    private void readCache() throws IOException {
+        final ICacheStore cacheStore;
+        if (SvnConfigurationOptions.isXmlCache()) {
+            cacheStore = new XmlCacheStore(cacheFileName);
+        } else {
+            cacheStore = new JournalCacheStore(cacheFileName);
+        }
+        cacheBuilder = new CacheBuilder(builder, repositoryFileManager, cacheStore);
+        cacheBuilder.load();
     }
 
     private RepositoriesBuilder readAndParseXmlFile(final SAXParserFactory factory, final String xmlFile) throws IOException {
@@ -361,7 +403,7 @@ public class SvnLogfileParser {
         // this method most certainly has issues with implicit actions on root
         // folder.
 
-        final long startTime = System.currentTimeMillis();
+        final Metrics.Timing phase = Metrics.startPhase("log.implicitActions");
         SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions ...");
 
         final HashSet implicitActions = new HashSet();
@@ -375,43 +417,27 @@ public class SvnLogfileParser {
         // name.
         Collections.sort(files, new FilenameComparator());
 
-        // for each file
+        // the files that contain the current file, outermost first. as the
+        // files are sorted, every file is visited once with its ancestors.
+        final ArrayList ancestors = new ArrayList();
         for (int i = 0; i < files.size(); i++) {
-            final String parent = files.get(i).toString();
-            final FileBuilder parentBuilder = (FileBuilder) builder.getFileBuilders().get(parent);
-            // check to see if there are files that indicate that parent is a
-            // folder.
-            for (int j = i + 1; j < files.size() && files.get(j).toString().indexOf(parent + "/") == 0; j++) {
-                // we might not know that it was a folder.
-                repositoryFileManager.addDirectory(parent);
-
-                final String child = files.get(j).toString();
-                final FileBuilder childBuilder = (FileBuilder) builder.getFileBuilders().get(child);
-                // for all revisions in the the parent folder
-                for (final Iterator iter = parentBuilder.getRevisions().iterator(); iter.hasNext();) {
-                    final RevisionData parentData = (RevisionData) iter.next();
-                    int parentRevision;
-                    try {
-                        parentRevision = Integer.parseInt(parentData.getRevisionNumber());
-                    } catch (final Exception e) {
-                        continue;
-                    }
-
-                    // ignore modifications to folders
-                    if (parentData.isCreationOrRestore() || parentData.isDeletion()) {
-                        int k;
-
-                        // check to see if the parent revision is an implicit
-                        // action acting on the child.
-                        k = detectActionOnChildGivenActionOnParent(childBuilder, parentRevision);
-
-                        // we found something to insert
-                        if (k < childBuilder.getRevisions().size()) {
-                            createImplicitAction(implicitActions, child, childBuilder, parentData, k);
-                        }
-                    }
+            final String child = files.get(i).toString();
+            while (!ancestors.isEmpty() && !((ImplicitActionSource) ancestors.get(ancestors.size() - 1)).isParentOf(child)) {
+                ancestors.remove(ancestors.size() - 1);
+            }
+            final FileBuilder childBuilder = (FileBuilder) builder.getFileBuilders().get(child);
+            ImplicitActionSource parent = null;
+            if (!ancestors.isEmpty()) {
+                parent = (ImplicitActionSource) ancestors.get(ancestors.size() - 1);
+                // we might not know that they were folders.
+                for (int j = ancestors.size() - 1; j >= 0 && !((ImplicitActionSource) ancestors.get(j)).isDirectory(); j--) {
+                    final ImplicitActionSource ancestor = (ImplicitActionSource) ancestors.get(j);
+                    ancestor.setDirectory();
+                    repositoryFileManager.addDirectory(ancestor.getName());
                 }
+                createImplicitActions(implicitActions, childBuilder, parent);
             }
+            ancestors.add(new ImplicitActionSource(child, childBuilder, parent));
         }
 
         // Some implicit revisions may have resulted in double deletion
@@ -431,64 +457,67 @@ public class SvnLogfileParser {
         // IA ID IA ID M A -> ID M A
         // IA ID A D M A -> ID A D M A
         removePotentialInconsistencies(implicitActions, fileBuilders);
-        SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+        SvnConfigurationOptions.getTaskLogger().log("verifying implicit actions finished in " + phase.stop() + " ms.");
     }
 
-    private void createImplicitAction(final HashSet implicitActions, final String child, final FileBuilder childBuilder, final RevisionData parentData,
-            final int k) {
-        // we want to memorize this implicit action.
-        final RevisionData implicit = parentData.createCopy();
-        implicitActions.add(implicit);
-
-        // avoid concurrent modification errors.
-        final List toMove = new ArrayList();
-        for (final Iterator it = childBuilder.getRevisions().subList(k, childBuilder.getRevisions().size()).iterator(); it.hasNext();) {
-            final RevisionData revToMove = (RevisionData) it.next();
-            // if
-            // (!revToMove.getRevisionNumber().equals(implicit.getRevisionNumber()))
-            // {
-            toMove.add(revToMove);
-            // }
+    /**
+     * Merges the creations and deletions of the parent folders into the
+     * revisions of a file, unless the file already has a revision with the
+     * same number or they happened before the first revision of the file.
+     * 
+     * @param implicitActions
+     *            receives the implicit actions that were created
+     * @param childBuilder
+     *            the file
+     * @param parent
+     *            the innermost folder containing the file
+     */
+    private void createImplicitActions(final HashSet implicitActions, final FileBuilder childBuilder, final ImplicitActionSource parent) {
+        final ImplicitActionSource.Actions actions = parent.getActions();
+        if (actions.size() == 0) {
+            return;
+        }
+        // both lists are ordered by decreasing revision number.
+        final List revisions = childBuilder.getRevisions();
+        final List merged = new ArrayList(revisions.size() + actions.size());
+        int firstImplicit = -1;
+        int a = 0;
+        for (int k = 0; k < revisions.size(); k++) {
+            final RevisionData childData = (RevisionData) revisions.get(k);
+            final int childRevision = childData.getRevision();
+            for (; a < actions.size() && actions.getRevision(a) >= childRevision; a++) {
+                // we don't want to add duplicate entries for the same revision
+                if (actions.getRevision(a) > childRevision) {
+                    firstImplicit = addImplicitAction(implicitActions, merged, actions.getData(a), firstImplicit);
+                }
+            }
+            merged.add(childData);
         }
-
-        // remove the revisions to be moved.
-        childBuilder.getRevisions().removeAll(toMove);
-
-        // don't call addRevision directly. buildRevision
-        // does more.
-        builder.buildFile(child, false, false, new HashMap(), new HashMap());
-
-        // only add the implicit if the last one for the
-        // file is NOT a deletion!
-        // if (!toMove.isEmpty() && !((RevisionData)
-        // toMove.get(0)).isDeletion()) {
-        builder.buildRevision(implicit);
-        // }
-
-        // copy back the revisions we removed.
-        for (final Iterator it = toMove.iterator(); it.hasNext();) {
-            builder.buildRevision((RevisionData) it.next());
+        // actions older than the first revision of the file are ignored.
+        if (firstImplicit < 0) {
+            return;
         }
-    }
-
-    private int detectActionOnChildGivenActionOnParent(final FileBuilder childBuilder, final int parentRevision) {
-        int k;
-        for (k = 0; k < childBuilder.getRevisions().size(); k++) {
-            final RevisionData childData = (RevisionData) childBuilder.getRevisions().get(k);
-            final int childRevision = Integer.parseInt(childData.getRevisionNumber());
 
-            // we don't want to add duplicate entries for the
-            // same revision
-            if (parentRevision == childRevision) {
-                k = childBuilder.getRevisions().size();
-                break;
-            }
-
-            if (parentRevision > childRevision) {
-                break; // we must insert it here!
+        if (childBuilder.isBinary()) {
+            // as (@link FileBuilder#addRevisionData(RevisionData)) does for
+            // the implicit actions and the revisions that follow them.
+            for (int k = firstImplicit; k < merged.size(); k++) {
+                final RevisionData data = (RevisionData) merged.get(k);
+                if (!data.isCreationOrRestore()) {
+                    data.setLines(0, 0);
+                }
             }
         }
-        return k;
+        revisions.clear();
+        revisions.addAll(merged);
+    }
+
+    private int addImplicitAction(final HashSet implicitActions, final List merged, final RevisionData parentData, final int firstImplicit) {
+        // we want to memorize this implicit action.
+        final RevisionData implicit = parentData.createCopy();
+        implicitActions.add(implicit);
+        merged.add(implicit);
+        return firstImplicit < 0 ? merged.size() - 1 : firstImplicit;
     }
 
     private void removePotentialInconsistencies(final HashSet implicitActions, final Collection fileBuilders) {
@@ -517,12 +546,7 @@ public class SvnLogfileParser {
                 }
 
                 if (earliestDelete > 0) {
-                    // avoid concurrent modification errors.
-                    final List toRemove = new ArrayList();
-                    for (final Iterator it = filebuilder.getRevisions().subList(0, earliestDelete).iterator(); it.hasNext();) {
-                        toRemove.add(it.next());
-                    }
-                    filebuilder.getRevisions().removeAll(toRemove);
+                    filebuilder.getRevisions().subList(0, earliestDelete).clear();
                 }
             }
         }
@@ -533,21 +557,22 @@ public class SvnLogfileParser {
             final FileBuilder filebuilder = (FileBuilder) iter.next();
 
             boolean previousIsDelete = false;
-            final List toRemove = new ArrayList();
-            // for this file, iterate through all revisions and store any
+            final List toKeep = new ArrayList(filebuilder.getRevisions().size());
+            // for this file, iterate through all revisions and drop any
             // deletion revision that follows
             // a deletion.
             for (final Iterator it = filebuilder.getRevisions().iterator(); it.hasNext();) {
                 final RevisionData data = (RevisionData) it.next();
-                if (data.isDeletion() && previousIsDelete) {
-                    toRemove.add(data);
+                if (!data.isDeletion() || !previousIsDelete) {
+                    toKeep.add(data);
                 }
                 previousIsDelete = data.isDeletion();
             }
 
             // get rid of the duplicate deletion for this file.
-            if (!toRemove.isEmpty()) {
-                filebuilder.getRevisions().removeAll(toRemove);
+            if (toKeep.size() < filebuilder.getRevisions().size()) {
+                filebuilder.getRevisions().clear();
+                filebuilder.getRevisions().addAll(toKeep);
             }
         }
     }
@@ -597,20 +622,24 @@ public class SvnLogfileParser {
      *             invalid log syntax.
      */
     protected SAXParserFactory parseSvnLog() throws IOException, LogSyntaxException {
-        final long startTime = System.currentTimeMillis();
+        final Metrics.Timing phase = Metrics.startPhase("log.parse");
         SvnConfigurationOptions.getTaskLogger().log("starting to parse...");
 
         final SAXParserFactory factory = SAXParserFactory.newInstance();
         try {
             final SAXParser parser = factory.newSAXParser();
-            parser.parse(logFile, new SvnXmlLogFileHandler(builder, repositoryFileManager));
+            final SvnXmlLogFileHandler handler = new SvnXmlLogFileHandler(builder, repositoryFileManager);
+            if (SvnConfigurationOptions.isIncrementalLog()) {
+                handler.setSnapshot(new BuilderSnapshot(SvnConfigurationOptions.getCacheDir()));
+            }
+            parser.parse(logFile, handler);
         } catch (final ParserConfigurationException e) {
             throw new LogSyntaxException("svn log: " + e.getMessage());
         } catch (final SAXException e) {
             throw new LogSyntaxException("svn log: " + e.getMessage());
         }
 
-        SvnConfigurationOptions.getTaskLogger().log("parsing svn log finished in " + (System.currentTimeMillis() - startTime) + " ms.");
+        SvnConfigurationOptions.getTaskLogger().log("parsing svn log finished in " + phase.stop() + " ms.");
         return factory;
     }
 
@@ -629,6 +658,7 @@ public class SvnLogfileParser {
         private String newRevision;
         private String oldRevision;
         private FileBuilder fileBuilder;
+        private long cost;
 
         protected DiffTask() {
         }
@@ -691,6 +721,21 @@ public class SvnLogfileParser {
             this.oldRevision = oldRevision;
         }
 
+        /**
+         * @return the estimated cost of the diff
+         */
+        public long getCost() {
+            return cost;
+        }
+
+        /**
+         * @param cost
+         *            the estimated cost of the diff
+         */
+        public void setCost(final long cost) {
+            this.cost = cost;
+        }
+
         public void run() {
             int[] lineDiff;
             long end = 0L;
@@ -698,7 +743,12 @@ public class SvnLogfileParser {
                 // SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName()
                 // + " Starts... now");
                 final long start = System.currentTimeMillis();
-                lineDiff = repositoryFileManager.getLineDiff(oldRevision, newRevision, fileName);
+                final Metrics.Timing timing = Metrics.startTimer("diff.file");
+                try {
+                    lineDiff = repositoryFileManager.getLineDiff(oldRevision, newRevision, fileName);
+                } finally {
+                    timing.stop();
+                }
                 end = System.currentTimeMillis();
                 synchronized (cacheBuilder) {
                     totalTime += (end - start);
@@ -709,9 +759,11 @@ public class SvnLogfileParser {
                                 + " -" + lineDiff[1] + " (" + (end - start) + " ms.) " + Thread.currentThread().getName());
             } catch (final BinaryDiffException e) {
                 calls++;
+                Metrics.count("diff.binary", 1);
                 trackBinaryFile();
                 return;
             } catch (final IOException e) {
+                Metrics.count("diff.errors", 1);
                 SvnConfigurationOptions.getTaskLogger()
                         .error("" + (++calls) + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
                 return;
@@ -741,7 +793,9 @@ public class SvnLogfileParser {
             synchronized (cacheBuilder) {
                 if (end - groupStart > INTERMEDIARY_SAVE_INTERVAL_MS) {
                     final long start = System.currentTimeMillis();
-                    XMLUtil.writeXmlFile(cacheBuilder.getDocument(), cacheFileName);
+                    final Metrics.Timing timing = Metrics.startTimer("cache.intermediarySave");
+                    cacheBuilder.save();
+                    timing.stop();
                     groupStart = System.currentTimeMillis();
                     final double estimateLeftInMs = ((double) totalTime / (double) calls * (requiredDiffCalls - calls) / SvnConfigurationOptions
                             .getNumberSvnDiffThreads());
@@ -779,7 +833,12 @@ public class SvnLogfileParser {
                 // SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName()
                 // + " Starts... now");
                 final long start = System.currentTimeMillis();
-                results = repositoryFileManager.getRevisionDiff(getNewRevision());
+                final Metrics.Timing timing = Metrics.startTimer("diff.revision");
+                try {
+                    results = repositoryFileManager.getRevisionDiff(getNewRevision());
+                } finally {
+                    timing.stop();
+                }
                 end = System.currentTimeMillis();
                 synchronized (cacheBuilder) {
                     totalTime += (end - start);
@@ -788,6 +847,7 @@ public class SvnLogfileParser {
                 SvnConfigurationOptions.getTaskLogger().info(
                         "svn diff " + (++calls) + "/" + requiredDiffCalls + " on r" + getNewRevision() + " (" + (end - start) + " ms.) "
                                 + Thread.currentThread().getName());
+                Metrics.record("diff.revision.files", results.size());
 
                 for (int i = 0; i < results.size(); i++) {
                     final Object[] element = (Object[]) results.get(i);
@@ -816,6 +876,7 @@ public class SvnLogfileParser {
                 // not supposed to happen. tracked individually.
                 return;
             } catch (final IOException e) {
+                Metrics.count("diff.errors", 1);
                 SvnConfigurationOptions.getTaskLogger()
                         .error("" + (++calls) + "/" + requiredDiffCalls + " IOException: Unable to obtain diff: " + e.toString());
                 return;
@@ -824,4 +885,29 @@ public class SvnLogfileParser {
             performIntermediarySave(end);
         }
     }
+
+    /**
+     * Orders diff tasks by decreasing estimated cost, then by decreasing
+     * revision.
+     */
+    private static final class DiffCostComparator implements Comparator {
+        public int compare(final Object o1, final Object o2) {
+            final DiffTask task1 = (DiffTask) o1;
+            final DiffTask task2 = (DiffTask) o2;
+            if (task1.getCost() != task2.getCost()) {
+                return task1.getCost() > task2.getCost() ? -1 : 1;
+            }
+            final int revision1 = parseRevision(task1.getNewRevision());
+            final int revision2 = parseRevision(task2.getNewRevision());
+            return revision1 > revision2 ? -1 : (revision1 == revision2 ? 0 : 1);
+        }
+
+        private static int parseRevision(final String revision) {
+            try {
+                return Integer.parseInt(revision);
+            } catch (final NumberFormatException e) {
+                return LogEntryData.NO_REVISION;
+            }
+        }
+    }
 }
@@ -1,14 +1,12 @@
 package net.sf.statsvn.input;
 
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * This is the SAX parser for the our line count persistence mechanism. It feeds information to (@link net.sf.statsvn.input.LineCountsBuilder).
+ * This is the SAX parser for the our line count persistence mechanism. It feeds information to (@link net.sf.statsvn.input.CacheBuilder).
  * 
  * @author Gunter Mussbacher <gunterm@site.uottawa.ca>
  * 
@@ -142,16 +140,12 @@ public class SvnXmlCacheFileHandler extends DefaultHandler {
 	 * Handles the start of the document. Initializes the line count builder.
 	 * 
 	 * @throws SAXException
-	 *             unable to build the root.
+	 *             unexpected event.
 	 */
 	private void startCache() throws SAXException {
 		checkLastElement("");
 		lastElement = CacheConfiguration.CACHE;
-		try {
-			cacheBuilder.buildRoot();
-		} catch (final ParserConfigurationException e) {
-			fatalError(FATAL_ERROR_MESSAGE);
-		}
+		cacheBuilder.buildRoot();
 	}
 
 	/**
@@ -1,5 +1,6 @@
 package net.sf.statsvn.input;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -46,7 +47,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	private ArrayList currentFilenames;
 
-	private RevisionData currentRevisionData;
+	private LogEntryData currentLogEntry;
 
 	private ArrayList currentRevisions;
 
@@ -66,6 +67,17 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	private final HashMap tagsDateMap = new HashMap();
 
+	// a single instance of each author name for the whole log.
+	private final HashMap authors = new HashMap();
+
+	private BuilderSnapshot snapshot = null;
+
+	private int snapshotHeadRevision = -1;
+
+	private int headRevision = -1;
+
+	private boolean skipLogEntry = false;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -79,6 +91,18 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		this.repositoryFileManager = repositoryFileManager;
 	}
 
+	/**
+	 * Makes the handler ingest incrementally: log entries that are covered by
+	 * the snapshot are skipped, the revisions of the snapshot are appended
+	 * to the ones of the newer log entries and the snapshot is then updated.
+	 * 
+	 * @param snapshot
+	 *            the snapshot of the repository's log
+	 */
+	public void setSnapshot(final BuilderSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
 	/**
 	 * Builds the string that was read; default implementation can invoke this
 	 * function multiple times while reading the data.
@@ -103,21 +127,26 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	}
 
 	/**
-	 * End of author element. Saves author to the current revision.
+	 * End of author element. Saves author to the current log entry.
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
 	 */
 	private void endAuthor() throws SAXException {
 		checkLastElement(LOGENTRY);
-		currentRevisionData.setLoginName(stringData);
+		String author = (String) authors.get(stringData);
+		if (author == null) {
+			author = stringData;
+			authors.put(author, author);
+		}
+		currentLogEntry.setLoginName(author);
 	}
 
 	/**
 	 * End of date element. See (@link XMLUtil#parseXsdDateTime(String)) for
 	 * parsing of the particular datetime format.
 	 * 
-	 * Saves date to the current revision.
+	 * Saves date to the current log entry.
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
@@ -127,7 +156,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		Date dt;
 		try {
 			dt = XMLUtil.parseXsdDateTime(stringData);
-			currentRevisionData.setDate(dt);
+			currentLogEntry.setDate(dt);
 		} catch (final ParseException e) {
 			warning("Invalid date specified.");
 		}
@@ -174,11 +203,25 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	private void endLog() throws SAXException {
 		checkLastElement(LOG);
 		lastElement = "";
+
+		if (snapshot != null) {
+			if (snapshotHeadRevision >= 0) {
+				try {
+					snapshot.restore(builder, repositoryFileManager, tagsMap, tagsDateMap);
+				} catch (final IOException e) {
+					throw new SAXException(e.getMessage() + "; delete it and run with the complete log.");
+				}
+			}
+			// the builder still holds the revisions as found in the log.
+			snapshot.save(repositoryFileManager.getRepositoryUuid(), repositoryFileManager.getModuleName(), builder, Math.max(headRevision,
+			        snapshotHeadRevision), tagsMap, tagsDateMap);
+		}
 	}
 
 	/**
 	 * End of log entry element. For each file that was found, builds the file
-	 * and revision in (@link SvnLogBuilder).
+	 * and revision in (@link SvnLogBuilder). The revisions share the log entry,
+	 * which is complete by now.
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
@@ -187,14 +230,15 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		checkLastElement(LOGENTRY);
 		lastElement = LOG;
 
+		if (skipLogEntry) {
+			return;
+		}
+
 		for (int i = 0; i < currentFilenames.size(); i++) {
 			if (currentFilenames.get(i) == null) {
 				continue; // skip files that are not on this branch
 			}
 			final RevisionData revisionData = (RevisionData) currentRevisions.get(i);
-			revisionData.setComment(currentRevisionData.getComment());
-			revisionData.setDate(currentRevisionData.getDate());
-			revisionData.setLoginName(currentRevisionData.getLoginName());
 			final String currentFilename = currentFilenames.get(i).toString();
 
 			final boolean isBinary = repositoryFileManager.isBinary(currentFilename);
@@ -204,14 +248,14 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	}
 
 	/**
-	 * End of msg element. Saves comment to the current revision.
+	 * End of msg element. Saves comment to the current log entry.
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
 	 */
 	private void endMsg() throws SAXException {
 		checkLastElement(LOGENTRY);
-		currentRevisionData.setComment(stringData);
+		currentLogEntry.setComment(stringData);
 	}
 
 	/**
@@ -224,10 +268,14 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	private void endPath() throws SAXException {
 		checkLastElement(PATHS);
 
+		if (skipLogEntry) {
+			return;
+		}
+
 		// relies on the fact that absoluteToRelativePath returns null for paths
 		// that are not on the branch.
 		final String filename = repositoryFileManager.absoluteToRelativePath(stringData);
-		final RevisionData data = currentRevisionData.createCopy();
+		final RevisionData data = new RevisionData(currentLogEntry);
 		if (!pathAction.equals("D")) {
 			data.setStateExp(true);
 			if (pathAction.equals("A") || pathAction.equals("R")) {
@@ -247,7 +295,7 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 			if (!tagsMap.containsKey(tag) && builder.matchesTagPatterns(tag)) {
 				SvnConfigurationOptions.getTaskLogger().info("= TAG " + tag + " rev:" + copyfromRev + " stringData [" + stringData + "]");
 				tagsMap.put(tag, copyfromRev);
-				tagsDateMap.put(tag, currentRevisionData.getDate());
+				tagsDateMap.put(tag, currentLogEntry.getDate());
 			}
 		}
 
@@ -333,6 +381,9 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 		try {
 			repositoryFileManager.loadInfo();
 			builder.buildModule(repositoryFileManager.getModuleName());
+			if (snapshot != null) {
+				snapshotHeadRevision = snapshot.open(repositoryFileManager.getRepositoryUuid(), repositoryFileManager.getModuleName());
+			}
 		} catch (final Exception e) {
 			throw new SAXException(e);
 		}
@@ -341,7 +392,8 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 
 	/**
 	 * Start of the log entry element. Initializes information, to be filled
-	 * during this log entry and used in (@link #endLogEntry())
+	 * during this log entry and used in (@link #endLogEntry()). Log entries
+	 * covered by the snapshot, if any, are skipped.
 	 * 
 	 * @throws SAXException
 	 *             unexpected event.
@@ -349,14 +401,22 @@ public class SvnXmlLogFileHandler extends DefaultHandler {
 	private void startLogEntry(final Attributes attributes) throws SAXException {
 		checkLastElement(LOG);
 		lastElement = LOGENTRY;
-		currentRevisionData = new RevisionData();
 		currentRevisions = new ArrayList();
 		currentFilenames = new ArrayList();
 		if (attributes != null && attributes.getValue("revision") != null) {
-			currentRevisionData.setRevisionNumber(attributes.getValue("revision"));
+			currentLogEntry = new LogEntryData(attributes.getValue("revision"));
 		} else {
 			fatalError(INVALID_SVN_LOG_FILE);
 		}
+
+		if (snapshot != null) {
+			final int revision = currentLogEntry.getRevision();
+			if (revision == LogEntryData.NO_REVISION) {
+				fatalError(INVALID_SVN_LOG_FILE);
+			}
+			headRevision = Math.max(headRevision, revision);
+			skipLogEntry = revision <= snapshotHeadRevision;
+		}
 	}
 
 	/**
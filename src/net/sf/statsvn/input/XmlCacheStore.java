@@ -0,0 +1,188 @@
+package net.sf.statsvn.input;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.sf.statcvs.output.ConfigurationOptions;
+import net.sf.statsvn.output.SvnConfigurationOptions;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Cache store using the StatSVN cache xml file. The file is read through
+ * (@link SvnXmlCacheFileHandler) and rewritten completely on every save.
+ *
+ * This is also the import/export format of (@link JournalCacheStore).
+ */
+public class XmlCacheStore implements ICacheStore {
+	private static final String ENCODING = "UTF-8";
+
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private final String cacheFileName;
+
+	/**
+	 * @param cacheFileName
+	 *            the cache xml file
+	 */
+	public XmlCacheStore(final String cacheFileName) {
+		this.cacheFileName = cacheFileName;
+	}
+
+	/**
+	 * @return the cache xml file
+	 */
+	public String getCacheFileName() {
+		return cacheFileName;
+	}
+
+	/**
+	 * Parses the cache xml file. A missing file is not an error: the cache
+	 * simply starts empty.
+	 */
+	public void load(final CacheBuilder cacheBuilder) throws IOException {
+		FileInputStream cacheFile = null;
+		try {
+			cacheFile = new FileInputStream(cacheFileName);
+			final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+			parser.parse(cacheFile, new SvnXmlCacheFileHandler(cacheBuilder));
+		} catch (final ParserConfigurationException e) {
+			SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+		} catch (final SAXException e) {
+			SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+		} catch (final FileNotFoundException e) {
+			SvnConfigurationOptions.getTaskLogger().log("Cache: " + e.toString());
+		} catch (final IOException e) {
+			SvnConfigurationOptions.getTaskLogger().error("Cache: " + e.toString());
+		} finally {
+			if (cacheFile != null) {
+				cacheFile.close();
+			}
+		}
+	}
+
+	/**
+	 * Nothing to do: the revision will be part of the next save.
+	 */
+	public void revisionAdded(final String name, final String number, final String added, final String removed, final String binaryStatus) {
+	}
+
+	/**
+	 * Rewrites the whole cache xml file.
+	 */
+	public void save(final CacheBuilder cacheBuilder) {
+		writeXmlFile(cacheBuilder);
+	}
+
+	/**
+	 * Rewrites the whole cache xml file.
+	 */
+	public void close(final CacheBuilder cacheBuilder) {
+		writeXmlFile(cacheBuilder);
+	}
+
+	/**
+	 * Streams the content of the builder to the cache xml file. The file is
+	 * first written under a temporary name and then renamed, so that an
+	 * interrupted save never leaves a truncated cache behind.
+	 *
+	 * @param cacheBuilder
+	 *            the builder holding the cache
+	 * @return <tt>true</tt> if the file was written
+	 */
+	protected boolean writeXmlFile(final CacheBuilder cacheBuilder) {
+		final File target = new File(cacheFileName);
+		final File temp = new File(cacheFileName + TEMP_EXTENSION);
+		OutputStream out = null;
+		try {
+			out = new BufferedOutputStream(new FileOutputStream(temp));
+			writeXml(cacheBuilder, out);
+			out.close();
+			out = null;
+			if (target.exists() && !target.delete()) {
+				throw new IOException("Unable to replace " + cacheFileName);
+			}
+			if (!temp.renameTo(target)) {
+				throw new IOException("Unable to rename " + temp + " to " + cacheFileName);
+			}
+			return true;
+		} catch (final IOException e) {
+			SvnConfigurationOptions.getTaskLogger().error(e.toString());
+		} catch (final XMLStreamException e) {
+			SvnConfigurationOptions.getTaskLogger().error(e.toString());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException e) {
+					SvnConfigurationOptions.getTaskLogger().error(e.toString());
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the content of the builder in the cache xml format.
+	 *
+	 * @param cacheBuilder
+	 *            the builder holding the cache
+	 * @param out
+	 *            the target stream
+	 * @throws XMLStreamException
+	 *             problem writing the xml
+	 */
+	public static void writeXml(final CacheBuilder cacheBuilder, final OutputStream out) throws XMLStreamException {
+		final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+		writer.writeStartDocument(ENCODING, "1.0");
+		writer.writeCharacters("\n");
+		writer.writeStartElement(CacheConfiguration.CACHE);
+		writer.writeAttribute(CacheConfiguration.PROJECT, nonNull(ConfigurationOptions.getProjectName()));
+		writer.writeAttribute(CacheConfiguration.XML_VERSION, "1.0");
+		writer.writeCharacters("\n");
+		for (final Iterator it = cacheBuilder.getPaths().iterator(); it.hasNext();) {
+			final CachedPath path = (CachedPath) it.next();
+			writer.writeCharacters("  ");
+			writer.writeStartElement(CacheConfiguration.PATH);
+			writer.writeAttribute(CacheConfiguration.BINARY_STATUS, path.getBinaryStatus());
+			writer.writeAttribute(CacheConfiguration.LATEST_REVISION, String.valueOf(path.getLatestRevision()));
+			writer.writeAttribute(CacheConfiguration.NAME, path.getName());
+			writer.writeCharacters("\n");
+			for (final Iterator revs = path.getRevisions().iterator(); revs.hasNext();) {
+				final CachedPath.Revision revision = (CachedPath.Revision) revs.next();
+				writer.writeCharacters("    ");
+				writer.writeEmptyElement(CacheConfiguration.REVISION);
+				writer.writeAttribute(CacheConfiguration.ADDED, String.valueOf(revision.getAdded()));
+				writer.writeAttribute(CacheConfiguration.BINARY_STATUS, revision.getBinaryStatus());
+				writer.writeAttribute(CacheConfiguration.NUMBER, String.valueOf(revision.getNumber()));
+				writer.writeAttribute(CacheConfiguration.REMOVED, String.valueOf(revision.getRemoved()));
+				writer.writeCharacters("\n");
+			}
+			writer.writeCharacters("  ");
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+		}
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+		writer.writeEndDocument();
+		writer.flush();
+		writer.close();
+	}
+
+	private static String nonNull(final String value) {
+		return value != null ? value : "";
+	}
+}
@@ -75,6 +75,16 @@ public class SvnCommandLineParser extends CommandLineParser {
 				throw new ConfigurationException("Missing argument for -threads");
 			}
 			SvnConfigurationOptions.setNumberSvnDiffThreads(Integer.parseInt(popNextArg()));
+		} else if (s.equals("max-svn-processes")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -max-svn-processes");
+			}
+			SvnConfigurationOptions.setMaxSvnProcesses(Integer.parseInt(popNextArg()));
+		} else if (s.equals("loc-threads")) {
+			if (isArgsEmpty()) {
+				throw new ConfigurationException("Missing argument for -loc-threads");
+			}
+			SvnConfigurationOptions.setNumberLineCountThreads(Integer.parseInt(popNextArg()));
 		} else if (s.equals("concurrency-threshold")) {
 			if (isArgsEmpty()) {
 				throw new ConfigurationException("Missing argument for -concurrency-threshold");
@@ -91,8 +101,14 @@ public class SvnCommandLineParser extends CommandLineParser {
 			SvnConfigurationOptions.setAnonymize(true);
         } else if (s.equals("svnkit")) {
             SvnConfigurationOptions.setUsingSvnKit(true);
+        } else if (s.equals("svnkit-session-diff")) {
+            SvnConfigurationOptions.setSvnKitSessionDiff(true);
+		} else if (s.equals("incremental-log")) {
+			SvnConfigurationOptions.setIncrementalLog(true);
 		} else if (s.equals("force-legacy-diff")) {
 			SvnConfigurationOptions.setLegacyDiff(true);
+		} else if (s.equals("force-xml-cache")) {
+			SvnConfigurationOptions.setXmlCache(true);
 		} else {
 			return false;
 		}
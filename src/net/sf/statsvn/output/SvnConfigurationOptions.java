@@ -60,8 +60,14 @@ public final class SvnConfigurationOptions {
 
 	private static int numberSvnDiffThreads = DEFAULT_NUMBER_THREADS;
 
+	// 0 means as many as there are svn diff threads.
+	private static int maxSvnProcesses = 0;
+
 	private static long thresholdInMsToUseConcurrency = DEFAULT_THRESHOLD_MS_FOR_CONCURRENCY;
 
+	// 0 means as many as there are svn diff threads.
+	private static int numberLineCountThreads = 0;
+
 	private static boolean dump = false;
 
 	private static boolean anonymize = false;
@@ -71,10 +77,19 @@ public final class SvnConfigurationOptions {
 	// use the newer diff. will be overridden if this is not possible. 
 	private static boolean useLegacyDiff = false;
 
+	// rewrite the whole cache xml file on every save instead of journaling.
+	private static boolean useXmlCache = false;
+
 	private static ISvnProcessor processor;
 
     private static boolean useSvnKit = false;
 
+    // diff over long-lived svnkit repository sessions instead of svn diff.
+    private static boolean useSvnKitSessionDiff = false;
+
+	// only ingest the log entries that are newer than the log snapshot.
+	private static boolean incrementalLog = false;
+
 	/**
 	 * A utility class (only static methods) should be final and have a private
 	 * constructor.
@@ -184,6 +199,44 @@ public final class SvnConfigurationOptions {
 		SvnConfigurationOptions.numberSvnDiffThreads = numberSvnDiffThreads;
 	}
 
+	/**
+	 * How many svn processes may run at the same time. Defaults to the number
+	 * of svn diff threads.
+	 * 
+	 * @return the maximum number of concurrent svn processes
+	 */
+	public static int getMaxSvnProcesses() {
+		return maxSvnProcesses > 0 ? maxSvnProcesses : numberSvnDiffThreads;
+	}
+
+	/**
+	 * @param maxSvnProcesses
+	 *            the maximum number of concurrent svn processes; 0 to use the
+	 *            number of svn diff threads.
+	 */
+	public static void setMaxSvnProcesses(final int maxSvnProcesses) {
+		SvnConfigurationOptions.maxSvnProcesses = maxSvnProcesses;
+	}
+
+	/**
+	 * How many threads count the lines of the working copy files. Defaults to
+	 * the number of svn diff threads, as the files may be on network storage.
+	 * 
+	 * @return the number of line count threads
+	 */
+	public static int getNumberLineCountThreads() {
+		return numberLineCountThreads > 0 ? numberLineCountThreads : numberSvnDiffThreads;
+	}
+
+	/**
+	 * @param numberLineCountThreads
+	 *            the number of line count threads; 0 to use the number of svn
+	 *            diff threads.
+	 */
+	public static void setNumberLineCountThreads(final int numberLineCountThreads) {
+		SvnConfigurationOptions.numberLineCountThreads = numberLineCountThreads;
+	}
+
 	/**
 	 * @return the thresholdInMsToUseConcurrency
 	 */
@@ -252,6 +305,29 @@ public final class SvnConfigurationOptions {
 		useLegacyDiff = isLegacy;
 	}
 	
+	/**
+	 * Should the line count cache be rewritten completely on every
+	 * intermediary save, or should new revisions be appended to a journal and
+	 * compacted at the end of the run?
+	 * 
+	 * @return true if the whole cache xml file is rewritten on every save.
+	 */
+	public static boolean isXmlCache() {
+		return useXmlCache;
+	}
+
+	/**
+	 * Should the line count cache be rewritten completely on every
+	 * intermediary save, or should new revisions be appended to a journal and
+	 * compacted at the end of the run?
+	 * 
+	 * @param isXmlCache
+	 *            true if the whole cache xml file is rewritten on every save.
+	 */
+	public static void setXmlCache(final boolean isXmlCache) {
+		useXmlCache = isXmlCache;
+	}
+
 	 /**
      * Should we use svnkit to query the repository
      * 
@@ -270,10 +346,55 @@ public final class SvnConfigurationOptions {
         useSvnKit = isSvnKit;
     }
 
+    /**
+     * Should the diffs be computed by replaying the revisions over long-lived
+     * svnkit repository sessions (one set per diff thread)? This requires
+     * svnkit.
+     * 
+     * @return true if the svnkit session diff should be used.
+     */
+    public static boolean isSvnKitSessionDiff() {
+        return useSvnKitSessionDiff;
+    }
+
+    /**
+     * Should the diffs be computed by replaying the revisions over long-lived
+     * svnkit repository sessions (one set per diff thread)? This requires
+     * svnkit.
+     * 
+     * @param isSessionDiff true if the svnkit session diff should be used.
+     */
+    public static void setSvnKitSessionDiff(final boolean isSessionDiff) {
+        useSvnKitSessionDiff = isSessionDiff;
+    }
+
+	/**
+	 * Should the log be ingested incrementally? The builder state is then
+	 * kept in a snapshot in the cache directory and only the log entries newer
+	 * than the snapshot are parsed.
+	 * 
+	 * @return true if the log is ingested incrementally.
+	 */
+	public static boolean isIncrementalLog() {
+		return incrementalLog;
+	}
+
+	/**
+	 * Should the log be ingested incrementally? The builder state is then
+	 * kept in a snapshot in the cache directory and only the log entries newer
+	 * than the snapshot are parsed.
+	 * 
+	 * @param isIncremental
+	 *            true if the log is ingested incrementally.
+	 */
+	public static void setIncrementalLog(final boolean isIncremental) {
+		incrementalLog = isIncremental;
+	}
+
 	public static ISvnProcessor getProcessor()
 	{
 	    if (processor==null) {
-	        if (isUsingSVNKit()) {
+	        if (isUsingSVNKit() || isSvnKitSessionDiff()) {
 	            try {
 	            processor = new SvnKitProcessor();
 	            } catch (NoClassDefFoundError ex)
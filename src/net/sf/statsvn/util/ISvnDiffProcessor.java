@@ -40,4 +40,10 @@ public interface ISvnDiffProcessor {
     */
     public abstract Vector getLineDiff(final String newRevNr) throws IOException, BinaryDiffException;
 
+    /**
+     * Releases what was held for the diffs, once they are all done. Later
+     * diffs acquire it again.
+     */
+    public abstract void close();
+
 }
\ No newline at end of file
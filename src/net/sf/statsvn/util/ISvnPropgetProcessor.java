@@ -1,7 +1,7 @@
 package net.sf.statsvn.util;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Set;
 
 /**
  * 
@@ -13,17 +13,31 @@ import java.util.List;
 public interface ISvnPropgetProcessor {
 
     /**
-     * Returns the list of binary files in the working directory.
+     * Returns the set of binary files in the working directory.
      * 
-     * @return the list of binary files
+     * @return the set of binary files, with / as directory separator
      */
-    public abstract List getBinaryFiles();
+    public abstract Set getBinaryFiles();
+
+    /**
+     * Is the given file binary in the working directory? Looks the file up in
+     * (@link #getBinaryFiles()).
+     * 
+     * @param relativePath
+     *            the file, relative to the working directory
+     * @return true if the file is binary
+     */
+    public abstract boolean isBinary(final String relativePath);
 
     /**
      * It was first thought that a the mime-type of a file's previous revision
      * could be found. This is not the case. Leave revision null until future
      * upgrade of svn propget command line.
      * 
+     * Answers are remembered: a given revision of a file is only queried
+     * once. Without a revision, the answer is that of (@link
+     * #isBinary(String)).
+     * 
      * @param revision
      *            the revision to query
      * @param filename
@@ -1,70 +1,225 @@
 package net.sf.statsvn.util;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
 
 import net.sf.statcvs.util.LookaheadReader;
+import net.sf.statcvs.util.Metrics;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 
+import edu.emory.mathcs.backport.java.util.concurrent.Semaphore;
+import edu.emory.mathcs.backport.java.util.concurrent.atomic.AtomicLong;
+
 /**
- * This class provides a way of launching new processes. It is not the best way
- * and it surely does not work well in multi-threaded environments. It is
- * sufficient for StatSVN's single thread.
- * 
- * We should be launching two threads with readers for both, but we are lazy.
+ * This class provides a way of launching new processes. Launches are not
+ * serialized: any number of threads may call (@link #call(String)) at the same
+ * time, up to (@link SvnConfigurationOptions#getMaxSvnProcesses()) running
+ * processes. Further calls wait until a running process is closed.
+ *
+ * The error stream of each process is drained by a separate thread, so that a
+ * process filling its error stream never blocks and so that (@link
+ * #hasErrorOccured()) sees all of the errors.
  * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps_p.html
- * 
+ *
+ * Timings of every call are accumulated and can be reported with (@link
+ * #getStatistics()). They are also added to the (@link Metrics) of the run,
+ * by svn subcommand, with the number of bytes read from each process.
+ *
  * @author jkealey <jkealey@shade.ca>
- * 
+ *
  */
 public final class ProcessUtils {
+	private static final int ERROR_BUFFER_SIZE = 1024;
+
+	private static final long NANOS_PER_MS = 1000000L;
+
+	private static Semaphore launchPermits = null;
+
+	private static final AtomicLong CALLS = new AtomicLong();
+
+	private static final AtomicLong TOTAL_WAIT_MS = new AtomicLong();
+
+	private static final AtomicLong TOTAL_LAUNCH_MS = new AtomicLong();
+
+	private static final AtomicLong TOTAL_ELAPSED_MS = new AtomicLong();
+
+	private static final AtomicLong MAX_ELAPSED_MS = new AtomicLong();
+
 	private BufferedInputStream inputStream;
 
 	private BufferedInputStream errorStream;
 
+	private ErrorDrainer errorDrainer;
+
+	private boolean holdsPermit = false;
+
+	private long startTime;
+
+	private long launchTime;
+
+	private long elapsedTime = -1;
+
+	private String metricName = "svn.process";
+
+	private ByteCounter byteCounter;
+
 	/**
-	 * A utility class (only static methods) should be final and have
-	 * a private constructor.
+	 * Creates an instance which is not bound to a process; its streams must
+	 * be set explicitly.
 	 */
 	public ProcessUtils() {
 	}
 
-	public static synchronized ProcessUtils call(final String sCommand) throws IOException {
+	/**
+	 * Launches a command. The command is split on whitespace.
+	 *
+	 * @param sCommand
+	 *            the command line
+	 * @return the launched process; must be closed by the caller.
+	 * @throws IOException
+	 *             if the process could not be started.
+	 */
+	public static ProcessUtils call(final String sCommand) throws IOException {
+		final List command = new ArrayList();
+		final StringTokenizer st = new StringTokenizer(sCommand);
+		while (st.hasMoreTokens()) {
+			command.add(st.nextToken());
+		}
+		return call(command);
+	}
+
+	/**
+	 * Launches a command.
+	 *
+	 * @param command
+	 *            the command and its arguments, as strings.
+	 * @return the launched process; must be closed by the caller.
+	 * @throws IOException
+	 *             if the process could not be started.
+	 */
+	public static ProcessUtils call(final List command) throws IOException {
 		final ProcessUtils util = new ProcessUtils();
-		final Process lastProcess = Runtime.getRuntime().exec(sCommand, null, getWorkingFolder());
-		util.errorStream = new BufferedInputStream(lastProcess.getErrorStream());
-		util.inputStream = new BufferedInputStream(lastProcess.getInputStream());
+		final long requested = System.currentTimeMillis();
+		try {
+			getLaunchPermits().acquire();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to launch " + command);
+		}
+		util.holdsPermit = true;
+		util.startTime = System.currentTimeMillis();
+		final Process process;
+		try {
+			final ProcessBuilder processBuilder = new ProcessBuilder(command);
+			processBuilder.directory(getWorkingFolder());
+			process = processBuilder.start();
+		} catch (final IOException e) {
+			util.releasePermit();
+			throw e;
+		}
+		util.launchTime = System.currentTimeMillis() - util.startTime;
+		TOTAL_WAIT_MS.addAndGet(util.startTime - requested);
+		TOTAL_LAUNCH_MS.addAndGet(util.launchTime);
+		CALLS.incrementAndGet();
+		if (command.size() > 1) {
+			// svn diff, svn info, svn --version...
+			util.metricName = "svn." + ((String) command.get(1)).replaceFirst("^-+", "");
+		}
+		Metrics.addTime(util.metricName + ".wait", (util.startTime - requested) * NANOS_PER_MS);
+		Metrics.addTime(util.metricName + ".launch", util.launchTime * NANOS_PER_MS);
 
+		// nothing is ever written to svn.
+		process.getOutputStream().close();
+		util.byteCounter = new ByteCounter(process.getInputStream());
+		util.inputStream = new BufferedInputStream(util.byteCounter);
+		util.errorDrainer = new ErrorDrainer(process.getErrorStream());
+		util.errorDrainer.start();
 		return util;
 	}
 
+	/**
+	 * Closes the streams of the process and lets another process be launched.
+	 *
+	 * @throws IOException
+	 *             if a stream cannot be closed.
+	 */
 	public void close() throws IOException {
-		if (errorStream != null) {
-			errorStream.close();
-			errorStream = null;
+		try {
+			if (errorStream != null) {
+				errorStream.close();
+				errorStream = null;
+			}
+			if (inputStream != null) {
+				inputStream.close();
+				inputStream = null;
+			}
+		} finally {
+			if (holdsPermit) {
+				elapsedTime = System.currentTimeMillis() - startTime;
+				TOTAL_ELAPSED_MS.addAndGet(elapsedTime);
+				long max = MAX_ELAPSED_MS.get();
+				while (elapsedTime > max && !MAX_ELAPSED_MS.compareAndSet(max, elapsedTime)) {
+					max = MAX_ELAPSED_MS.get();
+				}
+				Metrics.addTime(metricName, elapsedTime * NANOS_PER_MS);
+				if (byteCounter != null) {
+					Metrics.record(metricName + ".bytes", byteCounter.count);
+					Metrics.count("svn.bytesRead", byteCounter.count);
+				}
+				releasePermit();
+			}
 		}
-		if (inputStream != null) {
-			inputStream.close();
-			inputStream = null;
+	}
+
+	private void releasePermit() {
+		holdsPermit = false;
+		getLaunchPermits().release();
+	}
+
+	private static synchronized Semaphore getLaunchPermits() {
+		if (launchPermits == null) {
+			launchPermits = new Semaphore(Math.max(1, SvnConfigurationOptions.getMaxSvnProcesses()), true);
 		}
+		return launchPermits;
 	}
 
 	private static File getWorkingFolder() {
 		return SvnConfigurationOptions.getCheckedOutDirectoryAsFile();
 	}
 
+	/**
+	 * Returns true if the process wrote anything to its error stream. When the
+	 * error stream is being drained, waits until the process closes it.
+	 *
+	 * @return true if there is an error message
+	 * @throws IOException
+	 *             problem reading the error stream
+	 */
 	protected boolean hasErrorOccured() throws IOException {
+		if (errorDrainer != null) {
+			return errorDrainer.getErrors().length > 0;
+		}
 		return errorStream != null && errorStream.available() > 0;
 	}
 
 	protected String getErrorMessage() {
-		if (errorStream == null) {
+		InputStream errors = errorStream;
+		if (errorDrainer != null) {
+			errors = new ByteArrayInputStream(errorDrainer.getErrors());
+		}
+		if (errors == null) {
 			return null;
 		} else {
-			final LookaheadReader diffReader = new LookaheadReader(new InputStreamReader(errorStream));
+			final LookaheadReader diffReader = new LookaheadReader(new InputStreamReader(errors));
 			final StringBuffer builder = new StringBuffer();
 			try {
 				while (diffReader.hasNextLine()) {
@@ -79,7 +234,8 @@ public final class ProcessUtils {
 	}
 
 	/**
-	 * @return the errorStream
+	 * @return the errorStream; <tt>null</tt> for launched processes, whose
+	 *         error stream is drained in the background.
 	 */
 	public BufferedInputStream getErrorStream() {
 		return errorStream;
@@ -97,6 +253,7 @@ public final class ProcessUtils {
 	 */
 	public void setErrorStream(final InputStream errorStream) {
 		this.errorStream = new BufferedInputStream(errorStream);
+		this.errorDrainer = null;
 	}
 
 	/**
@@ -105,4 +262,125 @@ public final class ProcessUtils {
 	public void setInputStream(final InputStream inputStream) {
 		this.inputStream = new BufferedInputStream(inputStream);
 	}
+
+	/**
+	 * @return the time in ms it took to start the process.
+	 */
+	public long getLaunchTime() {
+		return launchTime;
+	}
+
+	/**
+	 * @return the time in ms between the start of the process and the call to
+	 *         (@link #close()), or -1 if it is not closed yet.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * @return the number of processes launched so far.
+	 */
+	public static long getNumberOfCalls() {
+		return CALLS.get();
+	}
+
+	/**
+	 * Summarizes the timings of all processes launched so far.
+	 *
+	 * @return a one line summary, for logging purposes.
+	 */
+	public static String getStatistics() {
+		final long calls = CALLS.get();
+		if (calls == 0) {
+			return "no process launched";
+		}
+		return calls + " processes launched, avg wait for a slot " + (TOTAL_WAIT_MS.get() / calls) + " ms, avg launch "
+		        + (TOTAL_LAUNCH_MS.get() / calls) + " ms, avg elapsed " + (TOTAL_ELAPSED_MS.get() / calls) + " ms, max elapsed "
+		        + MAX_ELAPSED_MS.get() + " ms.";
+	}
+
+	/**
+	 * Counts the bytes read from the output of a process.
+	 */
+	private static final class ByteCounter extends FilterInputStream {
+		private long count = 0;
+
+		private ByteCounter(final InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		public long skip(final long n) throws IOException {
+			final long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	/**
+	 * Reads an error stream until the process closes it.
+	 */
+	private static final class ErrorDrainer extends Thread {
+		private final InputStream stream;
+
+		private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+		private ErrorDrainer(final InputStream stream) {
+			super("svn stderr");
+			setDaemon(true);
+			this.stream = stream;
+		}
+
+		public void run() {
+			final byte[] buffer = new byte[ERROR_BUFFER_SIZE];
+			try {
+				int read;
+				while ((read = stream.read(buffer)) != -1) {
+					synchronized (errors) {
+						errors.write(buffer, 0, read);
+					}
+				}
+			} catch (final IOException e) {
+				SvnConfigurationOptions.getTaskLogger().log(e.toString());
+			} finally {
+				try {
+					stream.close();
+				} catch (final IOException e) {
+					SvnConfigurationOptions.getTaskLogger().log(e.toString());
+				}
+			}
+		}
+
+		/**
+		 * Waits for the end of the error stream.
+		 *
+		 * @return everything written to the error stream
+		 */
+		private byte[] getErrors() {
+			try {
+				join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (errors) {
+				return errors.toByteArray();
+			}
+		}
+	}
 }
@@ -0,0 +1,227 @@
+package net.sf.statsvn.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Vector;
+
+/**
+ * Counts the lines added and removed in the output of svn diff, in a single
+ * pass over the raw bytes of the stream.
+ *
+ * Only the first few bytes of every line are kept, which is all that is needed
+ * to recognize the '+'/'-' lines and the binary and property change markers.
+ * The only lines that are decoded are the "Index: " lines, to get the
+ * filenames. Memory usage therefore does not depend on the size of the diff.
+ *
+ * Lines are counted the same way (@link LookaheadReader) reads them: they are
+ * terminated by '\n', '\r' or "\r\n".
+ */
+public class SvnDiffCounter {
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private static final byte[] INDEX_MARKER = toBytes(SvnDiffUtils.INDEX_MARKER);
+
+	private static final byte[] PROPERTY_CHANGE = toBytes(SvnDiffUtils.PROPERTY_CHANGE);
+
+	private static final byte[] PROPERTY_NAME = toBytes(SvnDiffUtils.PROPERTY_NAME);
+
+	private static final byte[] BINARY_TYPE = toBytes(SvnDiffUtils.BINARY_TYPE);
+
+	// the longest marker we need to look for at the start of a line.
+	private static final int PREFIX_SIZE = Math.max(Math.max(INDEX_MARKER.length, PROPERTY_CHANGE.length), Math.max(PROPERTY_NAME.length,
+	        BINARY_TYPE.length));
+
+	private final boolean multipleFiles;
+
+	private final Vector answer;
+
+	// start of the current line; grows past PREFIX_SIZE only for Index lines.
+	private byte[] line = new byte[PREFIX_SIZE];
+
+	private int lineLength = 0;
+
+	private boolean lineStarted = false;
+
+	private boolean previousWasCarriageReturn = false;
+
+	// state of the file diff being counted.
+	private String currentFile = null;
+
+	private int lineNumber = 0;
+
+	private int added = -1;
+
+	private int removed = -1;
+
+	private boolean propertyChange = false;
+
+	private boolean binary = false;
+
+	private SvnDiffCounter(final boolean multipleFiles, final Vector answer) {
+		this.multipleFiles = multipleFiles;
+		this.answer = answer;
+	}
+
+	/**
+	 * Counts the lines of a diff involving a single file.
+	 *
+	 * @param diffStream
+	 *            the output of svn diff
+	 * @return A int[2] array of [lines added, lines removed] is returned.
+	 * @throws IOException
+	 *             problem reading the stream
+	 * @throws BinaryDiffException
+	 *             if the file is binary
+	 */
+	public static int[] countSingleDiff(final InputStream diffStream) throws IOException, BinaryDiffException {
+		final SvnDiffCounter counter = new SvnDiffCounter(false, null);
+		counter.read(diffStream);
+		if (counter.binary) {
+			throw new BinaryDiffException();
+		}
+		return counter.getLineDiff();
+	}
+
+	/**
+	 * Counts the lines of a diff involving multiple files, such as the output
+	 * of svn diff -c. Each file starts with an "Index: " line.
+	 *
+	 * @param answer
+	 *            receives an object[3] array of [filename, int[2](lines added,
+	 *            lines removed), isBinary] per file.
+	 * @param diffStream
+	 *            the output of svn diff
+	 * @throws IOException
+	 *             problem reading the stream
+	 */
+	public static void countMultipleDiff(final Vector answer, final InputStream diffStream) throws IOException {
+		final SvnDiffCounter counter = new SvnDiffCounter(true, answer);
+		counter.read(diffStream);
+		counter.endFile();
+	}
+
+	private void read(final InputStream diffStream) throws IOException {
+		final byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int read;
+		while ((read = diffStream.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				final byte b = buffer[i];
+				if (b == '\n') {
+					if (!previousWasCarriageReturn) {
+						endLine();
+					}
+					previousWasCarriageReturn = false;
+				} else if (b == '\r') {
+					endLine();
+					previousWasCarriageReturn = true;
+				} else {
+					previousWasCarriageReturn = false;
+					appendToLine(b);
+				}
+			}
+		}
+		if (lineStarted) {
+			endLine();
+		}
+	}
+
+	private void appendToLine(final byte b) {
+		lineStarted = true;
+		if (lineLength < PREFIX_SIZE) {
+			line[lineLength++] = b;
+		} else if (multipleFiles && startsWith(INDEX_MARKER)) {
+			if (lineLength == line.length) {
+				final byte[] larger = new byte[line.length * 2];
+				System.arraycopy(line, 0, larger, 0, lineLength);
+				line = larger;
+			}
+			line[lineLength++] = b;
+		}
+		// otherwise, the rest of the line is irrelevant.
+	}
+
+	private void endLine() {
+		if (multipleFiles && startsWith(INDEX_MARKER)) {
+			final String filename = new String(line, INDEX_MARKER.length, lineLength - INDEX_MARKER.length, Charset.defaultCharset());
+			// anything before the first Index line is counted with the first file.
+			if (currentFile != null) {
+				endFile();
+			}
+			currentFile = filename;
+		}
+		countLine();
+		lineLength = 0;
+		lineStarted = false;
+		if (line.length > PREFIX_SIZE) {
+			line = new byte[PREFIX_SIZE];
+		}
+	}
+
+	private void countLine() {
+		lineNumber++;
+		if (binary || lineLength == 0) {
+			return;
+		}
+		// very simple algorithm
+		if (line[0] == '+') {
+			added++;
+		} else if (line[0] == '-') {
+			removed++;
+		} else if (startsWith(PROPERTY_CHANGE) || (startsWith(PROPERTY_NAME) && lineNumber == SvnDiffUtils.PROPERTY_NAME_LINE)) {
+			propertyChange = true;
+		} else if (startsWith(BINARY_TYPE)) {
+			binary = true;
+		}
+	}
+
+	private void endFile() {
+		if (currentFile != null) {
+			final Object[] results = new Object[SvnDiffUtils.RESULT_SIZE];
+			results[0] = currentFile;
+			if (binary) {
+				results[1] = new int[] { 0, 0 };
+				results[2] = Boolean.TRUE;
+			} else {
+				results[1] = getLineDiff();
+				results[2] = Boolean.FALSE;
+			}
+			answer.add(results);
+		}
+		lineNumber = 0;
+		added = -1;
+		removed = -1;
+		propertyChange = false;
+		binary = false;
+	}
+
+	private int[] getLineDiff() {
+		if (lineNumber == 0 || (propertyChange && (added == -1 || removed == -1))) {
+			// diff has no output because we modified properties or the changes
+			// are auto-generated ($id$ $author$ kind of thing)
+			// http://svnbook.red-bean.com/nightly/en/svn.advanced.props.html#svn.advanced.props.special.keywords
+			return new int[] { 0, 0 };
+		}
+		return new int[] { added, removed };
+	}
+
+	private boolean startsWith(final byte[] marker) {
+		if (lineLength < marker.length) {
+			return false;
+		}
+		for (int i = 0; i < marker.length; i++) {
+			if (line[i] != marker[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static byte[] toBytes(final String marker) {
+		final byte[] bytes = new byte[marker.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) marker.charAt(i);
+		}
+		return bytes;
+	}
+}
@@ -2,11 +2,8 @@ package net.sf.statsvn.util;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringReader;
 import java.util.Vector;
 
-import net.sf.statcvs.util.LookaheadReader;
 import net.sf.statsvn.output.SvnConfigurationOptions;
 
 /**
@@ -57,7 +54,7 @@ public class SvnDiffUtils implements ISvnDiffProcessor {
 	 *         non-empty, will return the error stream instead of the default
 	 *         input stream.
 	 */
-	protected synchronized ProcessUtils callSvnDiff(final String oldRevNr, final String newRevNr, String filename) throws IOException {
+	protected ProcessUtils callSvnDiff(final String oldRevNr, final String newRevNr, String filename) throws IOException {
 		String svnDiffCommand = null;
 		filename = getProcessor().getInfoProcessor().relativePathToUrl(filename);
 		filename = StringUtils.replace(" ", "%20", filename);
@@ -75,7 +72,7 @@ public class SvnDiffUtils implements ISvnDiffProcessor {
 	 *         non-empty, will return the error stream instead of the default
 	 *         input stream.
 	 */
-	protected synchronized ProcessUtils callSvnDiff(final String newRevNr) throws IOException {
+	protected ProcessUtils callSvnDiff(final String newRevNr) throws IOException {
 		String svnDiffCommand = null;
 		svnDiffCommand = "svn diff -c " + newRevNr + " " + getProcessor().getInfoProcessor().getRootUrl() + " " + SvnCommandHelper.getAuthString();
 		SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName() + " FIRING command line:\n[" + svnDiffCommand + "]");
@@ -105,10 +102,7 @@ public class SvnDiffUtils implements ISvnDiffProcessor {
 	}
 
     protected int[] parseSingleDiffStream(final InputStream diffStream) throws IOException, BinaryDiffException {
-        int[] lineDiff;
-        final LookaheadReader diffReader = new LookaheadReader(new InputStreamReader(diffStream));
-        lineDiff = parseDiff(diffReader);
-        return lineDiff;
+        return SvnDiffCounter.countSingleDiff(diffStream);
     }
 
 	/**
@@ -152,62 +146,30 @@ public class SvnDiffUtils implements ISvnDiffProcessor {
 		return answer;
 	}
 
-    protected void parseMultipleDiffStream(final Vector answer, final InputStream diffStream) throws IOException {
-        final LookaheadReader diffReader = new LookaheadReader(new InputStreamReader(diffStream));
-        String currFile = null;
-        StringBuffer sb = new StringBuffer();
-        while (diffReader.hasNextLine()) {
-        	final String currLine = diffReader.nextLine();
-
-        	if (currFile == null && currLine.startsWith(INDEX_MARKER)) {
-        		currFile = currLine.substring(INDEX_MARKER.length());
-        	} else if (currFile != null && currLine.startsWith(INDEX_MARKER)) {
-        		appendResults(answer, currFile, sb);
-        		sb = new StringBuffer();
-        		currFile = currLine.substring(INDEX_MARKER.length());
-        	}
-
-        	sb.append(currLine);
-        	sb.append(System.getProperty("line.separator"));
-        }
-
-        // last file
-        if (currFile!=null) {
-            appendResults(answer, currFile, sb);
-        }
-    }
-
 	/**
-	 * Append results to answer vector.  
-	 * @param answer the current answers
-	 * @param currFile the current file being added. 
-	 * @param sb the diff for this individual file. 
-	 * @throws IOException
-	 *             problem parsing the stream
-	 * @throws BinaryDiffException
-	 *             if the error message is due to trying to diff binary files.
+	 * Nothing is held: each diff is a separate svn process.
+	 * 
+	 * @see net.sf.statsvn.util.ISvnDiffProcessor#close()
 	 */
-	protected void appendResults(final Vector answer, final String currFile, final StringBuffer sb) throws IOException {
-		int[] lineDiff;
-		Boolean isBinary = Boolean.FALSE;
-
-		final LookaheadReader individualDiffReader = new LookaheadReader(new StringReader(sb.toString()));
-		try {
-			lineDiff = parseDiff(individualDiffReader);
-		} catch (final BinaryDiffException e) {
-			lineDiff = new int[2];
-			lineDiff[0] = 0;
-			lineDiff[1] = 0;
-			isBinary = Boolean.TRUE;
-
-		}
-		final Object[] results = new Object[RESULT_SIZE];
-		results[0] = currFile;
-		results[1] = lineDiff;
-		results[2] = isBinary;
-		answer.add(results);
+	public void close() {
 	}
 
+    /**
+     * Counts the lines of each file in the output of svn diff -c, as it is
+     * read from the stream.
+     * 
+     * @param answer
+     *            receives an object[3] array of [filename, int[2](lines added,
+     *            lines removed), isBinary] per file.
+     * @param diffStream
+     *            the output of svn diff
+     * @throws IOException
+     *             problem parsing the stream
+     */
+    protected void parseMultipleDiffStream(final Vector answer, final InputStream diffStream) throws IOException {
+        SvnDiffCounter.countMultipleDiff(answer, diffStream);
+    }
+
 	/**
 	 * Returns true if msg is an error message display that the file is binary.
 	 * 
@@ -226,54 +188,4 @@ public class SvnDiffUtils implements ISvnDiffProcessor {
 		return (msg.indexOf(BINARY_TYPE) >= 0);
 	}
 
-	/**
-	 * Returns line count differences between two revisions of a file.
-	 * 
-	 * @param diffReader
-	 *            the stream reader for svn diff
-	 * 
-	 * @return A int[2] array of [lines added, lines removed] is returned.
-	 * @throws IOException
-	 *             problem parsing the stream
-	 */
-	protected int[] parseDiff(final LookaheadReader diffReader) throws IOException, BinaryDiffException {
-		final int[] lineDiff = { -1, -1 };
-		boolean propertyChange = false;
-		if (!diffReader.hasNextLine()) {
-			// diff has no output because we modified properties or the changes
-			// are auto-generated ($id$ $author$ kind of thing)
-			// http://svnbook.red-bean.com/nightly/en/svn.advanced.props.html#svn.advanced.props.special.keywords
-			lineDiff[0] = 0;
-			lineDiff[1] = 0;
-		}
-		while (diffReader.hasNextLine()) {
-			diffReader.nextLine();
-			final String currentLine = diffReader.getCurrentLine();
-
-			SvnConfigurationOptions.getTaskLogger().log(Thread.currentThread().getName() + " Diff Line: [" + currentLine + "]");
-
-			if (currentLine.length() == 0) {
-				continue;
-			}
-			final char firstChar = currentLine.charAt(0);
-			// very simple algorithm
-			if (firstChar == '+') {
-				lineDiff[0]++;
-			} else if (firstChar == '-') {
-				lineDiff[1]++;
-			} else if (currentLine.indexOf(PROPERTY_CHANGE) == 0
-			        || (currentLine.indexOf(PROPERTY_NAME) == 0 && diffReader.getLineNumber() == PROPERTY_NAME_LINE)) {
-				propertyChange = true;
-			} else if (currentLine.indexOf(BINARY_TYPE) == 0) {
-				throw new BinaryDiffException();
-			}
-		}
-		if (propertyChange && (lineDiff[0] == -1 || lineDiff[1] == -1)) {
-			lineDiff[0] = 0;
-			lineDiff[1] = 0;
-		}
-
-		return lineDiff;
-	}
-
 }
@@ -4,8 +4,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.statcvs.util.LookaheadReader;
 import net.sf.statsvn.output.SvnConfigurationOptions;
@@ -13,13 +15,20 @@ import net.sf.statsvn.output.SvnConfigurationOptions;
 /**
  * Utilities class that manages calls to svn propget. Used to find binary files.
  * 
+ * The binary files of the working directory are loaded by a single recursive
+ * svn propget into a set, so that looking a file up takes constant time.
+ * Queries for a particular revision of a file are remembered.
+ * 
  * @author Jason Kealey <jkealey@shade.ca>
  * 
  * @version $Id: SvnPropgetUtils.java 394 2009-08-10 20:08:46Z jkealey $
  */
 public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 
-	protected List binaryFiles;
+	protected Set binaryFiles;
+
+	// Boolean by "revision@filename".
+	private final Map binaryRevisions = new HashMap();
 
     protected ISvnProcessor processor;
 
@@ -39,7 +48,7 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	 * 
 	 * @return the inputstream from which to read the information.
 	 */
-	protected synchronized ProcessUtils getFileMimeTypes() {
+	protected ProcessUtils getFileMimeTypes() {
 		return getFileMimeTypes(null, null);
 	}
 
@@ -52,7 +61,7 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	 *            the filename (or null for all files)
 	 * @return the inputstream from which to read the information.
 	 */
-	protected synchronized ProcessUtils getFileMimeTypes(final String revision, final String filename) {
+	protected ProcessUtils getFileMimeTypes(final String revision, final String filename) {
 		String svnPropgetCommand = "svn propget svn:mime-type";
 		if (revision != null && revision.length() > 0) {
 			svnPropgetCommand += " -r " + revision;
@@ -81,7 +90,7 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	/* (non-Javadoc)
      * @see net.sf.statsvn.util.ISvnPropgetProcessor#getBinaryFiles()
      */
-	public List getBinaryFiles() {
+	public synchronized Set getBinaryFiles() {
 		if (binaryFiles == null) {
 			ProcessUtils pUtils = null;
 			try {
@@ -102,6 +111,37 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	}
 	
 	
+	/* (non-Javadoc)
+     * @see net.sf.statsvn.util.ISvnPropgetProcessor#isBinary(java.lang.String)
+     */
+	public boolean isBinary(final String relativePath) {
+		return getBinaryFiles().contains(normalize(relativePath));
+	}
+
+	/**
+	 * Puts a path in the form used by the binary files set: / as directory
+	 * separator and no leading or trailing /.
+	 * 
+	 * @param relativePath
+	 *            the path
+	 * @return the normalized path
+	 */
+	protected static String normalize(final String relativePath) {
+		String path = relativePath.replace('\\', '/');
+		int start = 0;
+		int end = path.length();
+		while (start < end && path.charAt(start) == '/') {
+			start++;
+		}
+		while (end > start && path.charAt(end - 1) == '/') {
+			end--;
+		}
+		if (start > 0 || end < path.length()) {
+			path = path.substring(start, end);
+		}
+		return path;
+	}
+
     /**
      * Loads the list of binary files from the input stream equivalent to an svn
      * propget command.
@@ -128,14 +168,14 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
 	 *            stream equivalent to an svn propget command
 	 */
 	protected void loadBinaryFiles(final ProcessUtils pUtils) {
-		binaryFiles = new ArrayList();
+		binaryFiles = new HashSet();
 		final LookaheadReader mimeReader = new LookaheadReader(new InputStreamReader(pUtils.getInputStream()));
 		try {
 			while (mimeReader.hasNextLine()) {
 				mimeReader.nextLine();
 				final String file = getBinaryFilename(mimeReader.getCurrentLine(), false);
 				if (file != null) {
-					binaryFiles.add(file);
+					binaryFiles.add(normalize(file));
 				}
 			}
 			if (pUtils.hasErrorOccured()) {
@@ -150,6 +190,33 @@ public  class SvnPropgetUtils implements ISvnPropgetProcessor {
      * @see net.sf.statsvn.util.ISvnPropgetProcessor#isBinaryFile(java.lang.String, java.lang.String)
      */
 	public boolean isBinaryFile(final String revision, final String filename) {
+		if (revision == null || revision.length() == 0) {
+			return isBinary(filename);
+		}
+		final String key = revision + "@" + filename;
+		synchronized (binaryRevisions) {
+			final Boolean known = (Boolean) binaryRevisions.get(key);
+			if (known != null) {
+				return known.booleanValue();
+			}
+		}
+		final boolean binary = queryBinaryFile(revision, filename);
+		synchronized (binaryRevisions) {
+			binaryRevisions.put(key, Boolean.valueOf(binary));
+		}
+		return binary;
+	}
+
+	/**
+	 * Asks svn propget whether a revision of a file is binary.
+	 * 
+	 * @param revision
+	 *            the revision to query
+	 * @param filename
+	 *            the filename
+	 * @return if that version of a file is binary
+	 */
+	protected boolean queryBinaryFile(final String revision, final String filename) {
 		ProcessUtils pUtils = null;
 		try {
 			pUtils = getFileMimeTypes(revision, filename);
@@ -67,10 +67,13 @@ public class SvnKitDiff extends SvnDiffUtils {
         } catch (SVNException ex) {
             handleSvnException(ex);
         }
-        String modDiffDataStr = replaceRelativePathWithinDiffData(getCheckoutDirectory(), diffBytes.toString());
-
         final Vector answer = new Vector();
-        parseMultipleDiffStream(answer, new ByteArrayInputStream(modDiffDataStr.getBytes()));
+        parseMultipleDiffStream(answer, new ByteArrayInputStream(diffBytes.toByteArray()));
+        // only the filenames need to be made relative; the counts don't depend on them.
+        for (int i = 0; i < answer.size(); i++) {
+            final Object[] element = (Object[]) answer.get(i);
+            element[0] = replaceRelativePathWithinDiffData(getCheckoutDirectory(), (String) element[0]);
+        }
         return answer;
     }
 
@@ -90,9 +93,7 @@ public class SvnKitDiff extends SvnDiffUtils {
         } catch (SVNException ex) {
             handleSvnException(ex);
         }
-        String modDiffDataStr = replaceRelativePathWithinDiffData(getCheckoutDirectory(), diffBytes.toString());
-
-        return parseSingleDiffStream(new ByteArrayInputStream(modDiffDataStr.getBytes()));
+        return parseSingleDiffStream(new ByteArrayInputStream(diffBytes.toByteArray()));
     }
 
     /**
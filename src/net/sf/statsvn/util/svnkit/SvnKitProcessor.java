@@ -44,7 +44,12 @@ public class SvnKitProcessor implements ISvnProcessor {
     }
     public ISvnDiffProcessor getDiffProcessor()
     {
-        if (diffProcessorInstance==null) diffProcessorInstance = new SvnKitDiff(this);
+        if (diffProcessorInstance==null) {
+            if (SvnConfigurationOptions.isSvnKitSessionDiff())
+                diffProcessorInstance = new SvnKitSessionDiff(this);
+            else
+                diffProcessorInstance = new SvnKitDiff(this);
+        }
         return diffProcessorInstance;
     }
     
@@ -2,8 +2,8 @@ package net.sf.statsvn.util.svnkit;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import net.sf.statsvn.output.SvnConfigurationOptions;
 import net.sf.statsvn.util.ISvnProcessor;
@@ -28,15 +28,15 @@ public class SvnKitPropget extends SvnPropgetUtils {
 
     protected class SvnKitPropertyHandler implements ISVNPropertyHandler {
 
-        protected List binaryFiles;
+        protected Set binaryFiles;
         SvnKitPropget propgetUtils;
 
-        public SvnKitPropertyHandler(SvnKitPropget propgetUtils, List binaryFiles) {
+        public SvnKitPropertyHandler(SvnKitPropget propgetUtils, Set binaryFiles) {
             this.binaryFiles = binaryFiles;
             this.propgetUtils = propgetUtils;
         }
 
-        protected List getBinaryFiles() {
+        protected Set getBinaryFiles() {
             return binaryFiles;
         }
 
@@ -48,7 +48,7 @@ public class SvnKitPropget extends SvnPropgetUtils {
             if (isBinary(data)) {
                 String relativePath = file.getAbsoluteFile().getAbsolutePath().substring(
                         getPropgetUtils().getCheckoutDirectory().getAbsoluteFile().getAbsolutePath().length()+1);
-                binaryFiles.add(relativePath.replace(File.separatorChar, '/'));
+                binaryFiles.add(normalize(relativePath.replace(File.separatorChar, '/')));
             }
         }
 
@@ -60,7 +60,7 @@ public class SvnKitPropget extends SvnPropgetUtils {
             if (getPropgetUtils().isBinary(data)) {
                 String path = getPropgetUtils().getProcessor().getInfoProcessor().urlToRelativePath(url.toString());
                 //System.out.println(path);
-                binaryFiles.add(path.replace(File.separatorChar, '/'));
+                binaryFiles.add(normalize(path.replace(File.separatorChar, '/')));
             }
         }
 
@@ -70,10 +70,10 @@ public class SvnKitPropget extends SvnPropgetUtils {
         super(processor);
     }
 
-    public List getBinaryFiles() {
+    public synchronized Set getBinaryFiles() {
         if (binaryFiles == null) {
 
-            binaryFiles = new ArrayList();
+            binaryFiles = new HashSet();
             try {
                 
                 getManager().getWCClient().doGetProperty(getCheckoutDirectory(), SVNProperty.MIME_TYPE, SVNRevision.WORKING, SVNRevision.WORKING,
@@ -111,7 +111,7 @@ public class SvnKitPropget extends SvnPropgetUtils {
         return data != null && (data.getValue().toString().equals("application/octet-stream") || data.getValue().toString().indexOf("text/") < 0);
     }
     
-    public boolean isBinaryFile(final String revision, final String filename) {
+    protected boolean queryBinaryFile(final String revision, final String filename) {
         try {
             // TODO: HAS NEVER BEEN TESTED. 
             SVNPropertyData data = getManager().getWCClient().doGetProperty(new File(filename), SVNProperty.MIME_TYPE, SVNRevision.parse(revision),
@@ -0,0 +1,549 @@
+package net.sf.statsvn.util.svnkit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import net.sf.statsvn.output.SvnConfigurationOptions;
+import net.sf.statsvn.util.BinaryDiffException;
+import net.sf.statsvn.util.SvnDiffUtils;
+
+import org.tmatesoft.svn.core.SVNCommitInfo;
+import org.tmatesoft.svn.core.SVNDirEntry;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
+
+import de.regnis.q.sequence.QSequenceDifferenceBlock;
+import de.regnis.q.sequence.core.QSequenceException;
+import de.regnis.q.sequence.line.QSequenceLineMedia;
+import de.regnis.q.sequence.line.QSequenceLineRAByteData;
+import de.regnis.q.sequence.line.QSequenceLineResult;
+
+/**
+ * Performs diffs over long-lived svnkit repository sessions.
+ *
+ * Each worker thread owns two sessions on the checked out url: one replays
+ * the revisions and the other fetches the base contents the deltas apply to.
+ * Nothing is forked and no diff output is generated: the text deltas of the
+ * revision are applied in memory and the lines added and removed are counted
+ * by comparing the base and the new contents.
+ *
+ * As with svn diff, copied files and directories are reported as additions
+ * of their whole content.
+ */
+public class SvnKitSessionDiff extends SvnKitDiff {
+
+    private static final String MIME_TYPE = "svn:mime-type";
+
+    private static final int[] NO_LINES = new int[] { 0, 0 };
+
+    // the sessions of the current worker thread.
+    private volatile ThreadLocal sessions = new ThreadLocal();
+
+    // the sessions of all threads, to close them.
+    private final List openSessions = new ArrayList();
+
+    private int numberOfSessions = 0;
+
+    /**
+     * Performs diffs over long-lived svnkit repository sessions.
+     *
+     * @param processor the base processor
+     */
+    public SvnKitSessionDiff(SvnKitProcessor processor) {
+        super(processor);
+    }
+
+    /**
+     * Gets diffs inside one revision, by replaying it.
+     *
+     * @return a list of diffs that were extracted from one particular revision
+     */
+    public Vector getLineDiff(String newRevNr) throws IOException, BinaryDiffException {
+        final long revision = Long.parseLong(newRevNr);
+        final Sessions workerSessions = getSessions();
+        final RevisionEditor editor = new RevisionEditor(workerSessions.content, revision);
+        try {
+            // a low water mark of 0 keeps the copy sources, whatever their age.
+            workerSessions.replay.replay(0, revision, true, editor);
+            editor.countDeletions();
+        } catch (SVNException ex) {
+            handleSvnException(ex);
+        }
+        return editor.getResults();
+    }
+
+    /**
+     * Gets a single diff for a file between two revisions.
+     */
+    public int[] getLineDiff(String oldRevNr, String newRevNr, String filename) throws IOException, BinaryDiffException {
+        final String path = getProcessor().getInfoProcessor().relativeToAbsolutePath(filename);
+        final SVNRepository content = getSessions().content;
+        final SVNProperties oldProperties = new SVNProperties();
+        final SVNProperties newProperties = new SVNProperties();
+        final byte[] oldContent;
+        final byte[] newContent;
+        try {
+            oldContent = getContent(content, path, Long.parseLong(oldRevNr), oldProperties);
+            newContent = getContent(content, path, Long.parseLong(newRevNr), newProperties);
+        } catch (SVNException ex) {
+            handleSvnException(ex);
+            return null;
+        }
+        if (isBinary(oldProperties.getStringValue(MIME_TYPE)) || isBinary(newProperties.getStringValue(MIME_TYPE))) {
+            throw new BinaryDiffException();
+        }
+        return countLineDiff(oldContent, newContent);
+    }
+
+    /**
+     * Returns the sessions of the current thread, opening them on first use.
+     *
+     * @return the sessions of the current thread
+     * @throws IOException if the sessions could not be opened
+     */
+    private Sessions getSessions() throws IOException {
+        Sessions workerSessions = (Sessions) sessions.get();
+        if (workerSessions == null) {
+            try {
+                workerSessions = new Sessions(createSession(), createSession());
+            } catch (SVNException ex) {
+                handleSvnException(ex);
+            }
+            sessions.set(workerSessions);
+            synchronized (this) {
+                openSessions.add(workerSessions);
+                numberOfSessions += 2;
+                SvnConfigurationOptions.getTaskLogger().log(
+                        "svnkit: " + numberOfSessions + " repository sessions opened (" + Thread.currentThread().getName() + ")");
+            }
+        }
+        return workerSessions;
+    }
+
+    /**
+     * Closes the sessions of all threads. The threads that diff again
+     * open new sessions.
+     */
+    public synchronized void close() {
+        for (final Iterator it = openSessions.iterator(); it.hasNext();) {
+            final Sessions workerSessions = (Sessions) it.next();
+            workerSessions.replay.closeSession();
+            workerSessions.content.closeSession();
+        }
+        if (!openSessions.isEmpty()) {
+            SvnConfigurationOptions.getTaskLogger().log("svnkit: " + (openSessions.size() * 2) + " repository sessions closed");
+        }
+        openSessions.clear();
+        sessions = new ThreadLocal();
+    }
+
+    private synchronized SVNRepository createSession() throws SVNException {
+        final SVNURL url = SVNURL.parseURIEncoded(getProcessor().getInfoProcessor().getRootUrl());
+        return getManager().createRepository(url, false);
+    }
+
+    /**
+     * Logs svn exceptions and transforms them into IOExceptions to fit in the existing framework
+     *
+     * @param ex the exception
+     * @throws IOException a re-thrown exception
+     */
+    private void handleSvnException(SVNException ex) throws IOException {
+        String msg = "svn diff " + ex.getMessage();
+        SvnConfigurationOptions.getTaskLogger().error(msg);
+        throw new IOException(msg);
+    }
+
+    /**
+     * Fetches a file.
+     *
+     * @param session the session to use
+     * @param path the path, absolute in the repository
+     * @param revision the revision to fetch
+     * @param properties receives the properties of the file
+     * @return the contents of the file
+     * @throws SVNException problem fetching the file
+     */
+    private static byte[] getContent(SVNRepository session, String path, long revision, SVNProperties properties) throws SVNException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.getFile(path, revision, properties, out);
+        return out.toByteArray();
+    }
+
+    private static boolean isBinary(String mimeType) {
+        return mimeType != null && !SVNProperty.isTextMimeType(mimeType);
+    }
+
+    /**
+     * Counts the lines added and removed between two contents.
+     *
+     * @return A int[2] array of [lines added, lines removed] is returned.
+     * @throws IOException problem comparing the contents
+     */
+    private static int[] countLineDiff(byte[] oldContent, byte[] newContent) throws IOException {
+        if (oldContent.length == 0) {
+            return new int[] { countLines(newContent), 0 };
+        } else if (newContent.length == 0) {
+            return new int[] { 0, countLines(oldContent) };
+        }
+        try {
+            final QSequenceLineResult result = QSequenceLineMedia.createBlocks(new QSequenceLineRAByteData(oldContent), new QSequenceLineRAByteData(
+                    newContent));
+            try {
+                int added = 0;
+                int removed = 0;
+                for (final Iterator it = result.getBlocks().iterator(); it.hasNext();) {
+                    final QSequenceDifferenceBlock block = (QSequenceDifferenceBlock) it.next();
+                    added += block.getRightSize();
+                    removed += block.getLeftSize();
+                }
+                return new int[] { added, removed };
+            } finally {
+                result.close();
+            }
+        } catch (QSequenceException ex) {
+            throw new IOException("svn diff " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Counts lines the way svn diff splits them: they are terminated by '\n',
+     * '\r' or "\r\n" and a last line without terminator counts too.
+     */
+    private static int countLines(byte[] content) {
+        int lines = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                lines++;
+            } else if (content[i] == '\r') {
+                lines++;
+                if (i + 1 < content.length && content[i + 1] == '\n') {
+                    i++;
+                }
+            }
+        }
+        if (content.length > 0 && content[content.length - 1] != '\n' && content[content.length - 1] != '\r') {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * The sessions owned by one worker thread.
+     */
+    private static final class Sessions {
+        private final SVNRepository replay;
+
+        private final SVNRepository content;
+
+        private Sessions(SVNRepository replay, SVNRepository content) {
+            this.replay = replay;
+            this.content = content;
+        }
+    }
+
+    /**
+     * A file changed in the replayed revision.
+     */
+    private static final class ChangedFile {
+        // where the contents the delta applies to come from; null for a file added without history.
+        private final String basePath;
+
+        private final long baseRevision;
+
+        // true if svn diff shows the whole file as added, even if it has a copy source.
+        private final boolean added;
+
+        private final SVNProperties baseProperties = new SVNProperties();
+
+        private final Map changedProperties = new HashMap();
+
+        private boolean baseFetched = false;
+
+        private byte[] baseContent = new byte[0];
+
+        private ByteArrayOutputStream newContent = null;
+
+        private final SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+
+        private ChangedFile(String basePath, long baseRevision, boolean added) {
+            this.basePath = basePath;
+            this.baseRevision = baseRevision;
+            this.added = added;
+        }
+
+        private void fetchBase(SVNRepository session, boolean withContent) throws SVNException {
+            if (basePath == null || baseFetched) {
+                return;
+            }
+            if (withContent) {
+                baseContent = getContent(session, basePath, baseRevision, baseProperties);
+                baseFetched = true;
+            } else {
+                session.getFile(basePath, baseRevision, baseProperties, null);
+            }
+        }
+
+        private byte[] getNewContent() {
+            return newContent != null ? newContent.toByteArray() : baseContent;
+        }
+
+        private boolean isBinary() {
+            final String newMimeType;
+            if (changedProperties.containsKey(MIME_TYPE)) {
+                newMimeType = (String) changedProperties.get(MIME_TYPE);
+            } else {
+                newMimeType = baseProperties.getStringValue(MIME_TYPE);
+            }
+            if (added) {
+                return SvnKitSessionDiff.isBinary(newMimeType);
+            }
+            return SvnKitSessionDiff.isBinary(baseProperties.getStringValue(MIME_TYPE)) || SvnKitSessionDiff.isBinary(newMimeType);
+        }
+    }
+
+    /**
+     * Receives the replay of a revision and counts the lines of every file
+     * that was changed.
+     *
+     * Like svn diff, copies are reported as additions: every file of a copied
+     * directory is counted, including the ones the replay does not mention
+     * because they were not modified.
+     */
+    private final class RevisionEditor implements ISVNEditor {
+        private final SVNRepository content;
+
+        private final long revision;
+
+        // path -> Object[] { copy source path, copy source revision }
+        private final Map copiedDirectories = new LinkedHashMap();
+
+        private final Map openFiles = new HashMap();
+
+        private final List deletedPaths = new ArrayList();
+
+        // relative filename -> Object[3] as in SvnDiffUtils
+        private final Map results = new LinkedHashMap();
+
+        private RevisionEditor(SVNRepository content, long revision) {
+            this.content = content;
+            this.revision = revision;
+        }
+
+        private Vector getResults() {
+            return new Vector(results.values());
+        }
+
+        /**
+         * Finds the innermost copied directory containing a path.
+         *
+         * @return the copied directory or <tt>null</tt> if the path is not in a copied directory
+         */
+        private String getCopiedParent(String path) {
+            for (String parent = path; parent.length() > 0; parent = getParent(parent)) {
+                if (copiedDirectories.containsKey(parent)) {
+                    return parent;
+                }
+            }
+            return null;
+        }
+
+        private String getParent(String path) {
+            final int slash = path.lastIndexOf('/');
+            return slash < 0 ? "" : path.substring(0, slash);
+        }
+
+        private void addResult(String path, int[] lineDiff, boolean isBinary) {
+            final String filename = getProcessor().getInfoProcessor().absoluteToRelativePath("/" + path);
+            if (filename == null) {
+                return;
+            }
+            Object[] element = (Object[]) results.get(filename);
+            if (element == null) {
+                element = new Object[SvnDiffUtils.RESULT_SIZE];
+                element[0] = filename;
+                element[1] = new int[] { 0, 0 };
+                element[2] = Boolean.FALSE;
+                results.put(filename, element);
+            }
+            final int[] counts = (int[]) element[1];
+            counts[0] += lineDiff[0];
+            counts[1] += lineDiff[1];
+            if (isBinary) {
+                element[1] = new int[] { 0, 0 };
+                element[2] = Boolean.TRUE;
+            }
+        }
+
+        private boolean isReported(String path) {
+            final String filename = getProcessor().getInfoProcessor().absoluteToRelativePath("/" + path);
+            return filename == null || results.containsKey(filename);
+        }
+
+        /**
+         * Counts the lines of the files that were deleted in this revision and
+         * of the unmodified files of the copied directories. Must be called
+         * once the replay is over, as it uses the content session.
+         */
+        private void countDeletions() throws SVNException {
+            for (final Iterator it = deletedPaths.iterator(); it.hasNext();) {
+                final String path = (String) it.next();
+                // what is deleted from a copy was never added in the first place.
+                if (getCopiedParent(getParent(path)) == null) {
+                    countFiles(path, "/" + path, revision - 1, false);
+                }
+            }
+            for (final Iterator it = copiedDirectories.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry entry = (Map.Entry) it.next();
+                final Object[] copySource = (Object[]) entry.getValue();
+                countFiles((String) entry.getKey(), (String) copySource[0], ((Long) copySource[1]).longValue(), true);
+            }
+        }
+
+        /**
+         * Counts all the lines of the files under a path as added or removed.
+         *
+         * @param path the path in this revision, relative to the repository root
+         * @param sourcePath the path the contents are read from, absolute in the repository
+         * @param sourceRevision the revision the contents are read from
+         * @param added true to count the lines as added, false as removed
+         */
+        private void countFiles(String path, String sourcePath, long sourceRevision, boolean added) throws SVNException {
+            if (added && (isReported(path) || deletedPaths.contains(path))) {
+                // modified or deleted after the copy
+                return;
+            }
+            final SVNNodeKind kind = content.checkPath(sourcePath, sourceRevision);
+            if (kind == SVNNodeKind.FILE) {
+                final SVNProperties properties = new SVNProperties();
+                final byte[] fileContent = getContent(content, sourcePath, sourceRevision, properties);
+                if (SvnKitSessionDiff.isBinary(properties.getStringValue(MIME_TYPE))) {
+                    addResult(path, NO_LINES, true);
+                } else if (added) {
+                    addResult(path, new int[] { countLines(fileContent), 0 }, false);
+                } else {
+                    addResult(path, new int[] { 0, countLines(fileContent) }, false);
+                }
+            } else if (kind == SVNNodeKind.DIR) {
+                final Collection entries = content.getDir(sourcePath, sourceRevision, null, new ArrayList());
+                for (final Iterator it = entries.iterator(); it.hasNext();) {
+                    final SVNDirEntry entry = (SVNDirEntry) it.next();
+                    if (added && copiedDirectories.containsKey(path + "/" + entry.getName())) {
+                        // replaced by a copy of its own, which is counted separately.
+                        continue;
+                    }
+                    countFiles(path + "/" + entry.getName(), sourcePath + "/" + entry.getName(), sourceRevision, added);
+                }
+            }
+        }
+
+        public void targetRevision(long targetRevision) throws SVNException {
+        }
+
+        public void openRoot(long baseRevision) throws SVNException {
+        }
+
+        public void deleteEntry(String path, long baseRevision) throws SVNException {
+            deletedPaths.add(path);
+        }
+
+        public void absentDir(String path) throws SVNException {
+        }
+
+        public void absentFile(String path) throws SVNException {
+        }
+
+        public void addDir(String path, String copyFromPath, long copyFromRevision) throws SVNException {
+            if (copyFromPath != null) {
+                copiedDirectories.put(path, new Object[] { copyFromPath, Long.valueOf(copyFromRevision) });
+            }
+        }
+
+        public void openDir(String path, long baseRevision) throws SVNException {
+        }
+
+        public void changeDirProperty(String name, SVNPropertyValue value) throws SVNException {
+        }
+
+        public void closeDir() throws SVNException {
+        }
+
+        public void addFile(String path, String copyFromPath, long copyFromRevision) throws SVNException {
+            openFiles.put(path, new ChangedFile(copyFromPath, copyFromRevision, true));
+        }
+
+        public void openFile(String path, long baseRevision) throws SVNException {
+            final String copiedParent = getCopiedParent(getParent(path));
+            if (copiedParent == null) {
+                openFiles.put(path, new ChangedFile("/" + path, revision - 1, false));
+            } else {
+                final Object[] copySource = (Object[]) copiedDirectories.get(copiedParent);
+                openFiles.put(path, new ChangedFile(copySource[0] + path.substring(copiedParent.length()), ((Long) copySource[1]).longValue(), true));
+            }
+        }
+
+        public void changeFileProperty(String path, String name, SVNPropertyValue value) throws SVNException {
+            ((ChangedFile) openFiles.get(path)).changedProperties.put(name, value == null ? null : SVNPropertyValue.getPropertyAsString(value));
+        }
+
+        public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+            final ChangedFile file = (ChangedFile) openFiles.get(path);
+            file.fetchBase(content, true);
+            file.newContent = new ByteArrayOutputStream(file.baseContent.length);
+            file.deltaProcessor.applyTextDelta(new ByteArrayInputStream(file.baseContent), file.newContent, false);
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            return ((ChangedFile) openFiles.get(path)).deltaProcessor.textDeltaChunk(diffWindow);
+        }
+
+        public void textDeltaEnd(String path) throws SVNException {
+            ((ChangedFile) openFiles.get(path)).deltaProcessor.textDeltaEnd();
+        }
+
+        public void closeFile(String path, String textChecksum) throws SVNException {
+            final ChangedFile file = (ChangedFile) openFiles.remove(path);
+            // an unmodified copy is still counted as added.
+            file.fetchBase(content, file.added);
+            if (file.isBinary()) {
+                addResult(path, NO_LINES, true);
+            } else if (file.added) {
+                addResult(path, new int[] { countLines(file.getNewContent()), 0 }, false);
+            } else if (file.newContent == null) {
+                // properties only
+                addResult(path, NO_LINES, false);
+            } else {
+                try {
+                    addResult(path, countLineDiff(file.baseContent, file.getNewContent()), false);
+                } catch (IOException ex) {
+                    SvnConfigurationOptions.getTaskLogger().error("svn diff " + path + "@" + revision + " " + ex.getMessage());
+                }
+            }
+        }
+
+        public SVNCommitInfo closeEdit() throws SVNException {
+            return null;
+        }
+
+        public void abortEdit() throws SVNException {
+        }
+    }
+}